@@ -0,0 +1,145 @@
+package internal.benchmark;
+
+import static internal.helpers.Player.withClass;
+import static internal.helpers.Player.withEffect;
+import static internal.helpers.Player.withEquippableItem;
+import static internal.helpers.Player.withEquipped;
+import static internal.helpers.Player.withFamiliar;
+import static internal.helpers.Player.withFamiliarInTerrarium;
+import static internal.helpers.Player.withItem;
+import static internal.helpers.Player.withLevel;
+import static internal.helpers.Player.withLocation;
+import static internal.helpers.Player.withMeat;
+import static internal.helpers.Player.withSkill;
+import static internal.helpers.Player.withStats;
+
+import internal.extensions.ForbidNetworkAccess;
+import internal.helpers.Cleanups;
+import java.util.List;
+import net.sourceforge.kolmafia.AscensionClass;
+import net.sourceforge.kolmafia.KoLCharacter;
+import net.sourceforge.kolmafia.KoLmafia;
+import net.sourceforge.kolmafia.equipment.Slot;
+import net.sourceforge.kolmafia.objectpool.FamiliarPool;
+import net.sourceforge.kolmafia.preferences.Preferences;
+
+/**
+ * A character for benchmarks to work on, built with the same helpers the tests use so that the
+ * numbers come from the code paths the tests cover.
+ *
+ * <p>The character is a level 13 Seal Clubber part way through a run: some equipment on and more
+ * in inventory, a few familiars, a handful of effects and passive skills, and enough cooking and
+ * mixing ingredients for the concoction database to have something to do.
+ */
+public class SyntheticCharacter {
+  private static final List<String> EQUIPMENT =
+      List.of(
+          "unbreakable umbrella",
+          "eldritch hat",
+          "eldritch pants",
+          "bounty-hunting helmet",
+          "bounty-hunting rifle",
+          "bounty-hunting pants",
+          "sweet ninja sword",
+          "Staff of Kitchen Royalty",
+          "shield of the Skeleton Lord",
+          "hardened slime hat",
+          "disco ball",
+          "backup camera",
+          "Microplushie: Hipsterine",
+          "wreath of laurels",
+          "work boots",
+          "star shirt",
+          "spiked femur",
+          "special sauce glove",
+          "silver cow creamer",
+          "ring of the Skeleton Lord",
+          "rave visor",
+          "baggy rave pants",
+          "Hodgman's bow tie",
+          "Baron von Ratsworth's monocle",
+          "Fourth of May Cosplay Saber",
+          "Crown of Thrones");
+
+  private static final List<String> INGREDIENTS =
+      List.of(
+          "dry noodles",
+          "scrumptious reagent",
+          "bottle of gin",
+          "bottle of rum",
+          "bottle of vodka",
+          "olive",
+          "tomato",
+          "wad of dough",
+          "spices",
+          "cocktail onion",
+          "lemon",
+          "grapefruit");
+
+  private static final List<String> EFFECTS =
+      List.of(
+          "Fat Leon's Phat Loot Lyric",
+          "Leash of Linguini",
+          "Empathy",
+          "Smooth Movements",
+          "Saucemastery",
+          "Ultrahydrated",
+          "Frosty");
+
+  private static final List<String> SKILLS =
+      List.of(
+          "Torso Awareness",
+          "Powers of Observatiogn",
+          "Gnefarious Pickpocketing",
+          "Amphibian Sympathy");
+
+  private SyntheticCharacter() {}
+
+  /** Clear shared state the way the test extensions do before each test class. */
+  public static void reset(final String name) {
+    ForbidNetworkAccess.blockNetwork();
+    Preferences.saveSettingsToFile = false;
+    KoLCharacter.reset(name);
+    Preferences.reset(name);
+    KoLmafia.forceContinue();
+  }
+
+  public static Cleanups create(final String name) {
+    SyntheticCharacter.reset(name);
+
+    var cleanups =
+        new Cleanups(
+            withClass(AscensionClass.SEAL_CLUBBER),
+            withLevel(13),
+            withStats(200, 150, 150),
+            withMeat(1_000_000),
+            withLocation("The Haunted Kitchen"),
+            withFamiliar(FamiliarPool.GREY_GOOSE, 400),
+            withFamiliarInTerrarium(FamiliarPool.BADGER),
+            withFamiliarInTerrarium(FamiliarPool.MOSQUITO),
+            withFamiliarInTerrarium(FamiliarPool.CAT_BURGLAR));
+
+    cleanups.add(withEquipped(Slot.HAT, "helmet turtle"));
+    cleanups.add(withEquipped(Slot.WEAPON, "seal-clubbing club"));
+    cleanups.add(withEquipped(Slot.PANTS, "old sweatpants"));
+
+    for (String item : EQUIPMENT) {
+      cleanups.add(withEquippableItem(item));
+    }
+
+    for (String item : INGREDIENTS) {
+      cleanups.add(withItem(item, 5));
+    }
+
+    for (String effect : EFFECTS) {
+      cleanups.add(withEffect(effect));
+    }
+
+    for (String skill : SKILLS) {
+      cleanups.add(withSkill(skill));
+    }
+
+    KoLCharacter.recalculateAdjustments();
+    return cleanups;
+  }
+}
@@ -0,0 +1,75 @@
+package net.sourceforge.kolmafia;
+
+import internal.benchmark.SyntheticCharacter;
+import internal.helpers.Cleanups;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.kolmafia.modifiers.Lookup;
+import net.sourceforge.kolmafia.persistence.ModifierDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionBenchmark {
+  /** Whether to evaluate the compiled form, or interpret the bytecode. */
+  @Param({"false", "true"})
+  public boolean compiled;
+
+  private Cleanups cleanups;
+  private EvaluationContext context;
+  private ModifierExpression[] expressions;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.cleanups = SyntheticCharacter.create("ExpressionBenchmark");
+    this.context = EvaluationContext.current();
+
+    // Expressions which throw for this character would only measure the exception
+    List<ModifierExpression> expressions = new ArrayList<>();
+    for (Lookup lookup : ModifierDatabase.getAllModifiers()) {
+      Modifiers mods = ModifierDatabase.getModifiers(lookup);
+      if (mods == null) continue;
+      for (ModifierExpression expr : mods.getExpressions()) {
+        try {
+          expr.evalInternal(this.context);
+          expr.interpret(this.context);
+          expressions.add(expr);
+        } catch (RuntimeException e) {
+        }
+      }
+    }
+    this.expressions = expressions.toArray(new ModifierExpression[0]);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.cleanups.close();
+  }
+
+  /** Evaluate every expression in modifiers.txt once. */
+  @Benchmark
+  public double evaluateAll() {
+    double sum = 0.0;
+    for (ModifierExpression expr : this.expressions) {
+      sum += this.compiled ? expr.evalInternal(this.context) : expr.interpret(this.context);
+    }
+    return sum;
+  }
+}
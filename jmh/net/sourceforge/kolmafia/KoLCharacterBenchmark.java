@@ -0,0 +1,57 @@
+package net.sourceforge.kolmafia;
+
+import internal.benchmark.SyntheticCharacter;
+import internal.helpers.Cleanups;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.kolmafia.equipment.Slot;
+import net.sourceforge.kolmafia.objectpool.ItemPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KoLCharacterBenchmark {
+  private Cleanups cleanups;
+  private AdventureResult hat;
+  private AdventureResult weapon;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.cleanups = SyntheticCharacter.create("KoLCharacterBenchmark");
+    this.hat = ItemPool.get("eldritch hat", 1);
+    this.weapon = ItemPool.get("sweet ninja sword", 1);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.cleanups.close();
+  }
+
+  @Benchmark
+  public void recalculateAdjustments() {
+    KoLCharacter.recalculateAdjustments();
+  }
+
+  /** The same calculation as the maximizer does it, for equipment the character isn't wearing. */
+  @Benchmark
+  public Modifiers speculate() {
+    Speculation spec = new Speculation();
+    spec.equip(Slot.HAT, this.hat);
+    spec.equip(Slot.WEAPON, this.weapon);
+    return spec.calculate();
+  }
+}
@@ -0,0 +1,56 @@
+package net.sourceforge.kolmafia.maximizer;
+
+import static internal.helpers.Player.withProperty;
+
+import internal.benchmark.SyntheticCharacter;
+import internal.helpers.Cleanups;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MaximizerBenchmark {
+  @Param({"mus", "item, meat", "5 item, meat, 0.5 familiar weight, -tie"})
+  public String expression;
+
+  @Param({"false", "true"})
+  public boolean branchAndBound;
+
+  @Param({"false", "true"})
+  public boolean parallelSearch;
+
+  private Cleanups cleanups;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.cleanups = SyntheticCharacter.create("MaximizerBenchmark");
+    this.cleanups.add(withProperty("maximizerBranchAndBound", this.branchAndBound));
+    this.cleanups.add(withProperty("maximizerParallelSearch", this.parallelSearch));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.cleanups.close();
+  }
+
+  @Benchmark
+  public boolean maximize() {
+    return Maximizer.maximize(this.expression, 0, PriceLevel.DONT_CHECK, true);
+  }
+}
@@ -0,0 +1,42 @@
+package net.sourceforge.kolmafia.persistence;
+
+import internal.benchmark.SyntheticCharacter;
+import internal.helpers.Cleanups;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConcoctionDatabaseBenchmark {
+  private Cleanups cleanups;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.cleanups = SyntheticCharacter.create("ConcoctionDatabaseBenchmark");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.cleanups.close();
+  }
+
+  @Benchmark
+  public void refreshConcoctionsNow() {
+    ConcoctionDatabase.refreshConcoctionsNow();
+  }
+}
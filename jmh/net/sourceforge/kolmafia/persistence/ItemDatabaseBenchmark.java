@@ -0,0 +1,39 @@
+package net.sourceforge.kolmafia.persistence;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemDatabaseBenchmark {
+  // A name on a word boundary, one within a word, a fuzzy match, a short search and no match
+  @Param({"hot wing", "ermometer", "chf in box", "ba", "xyzzy plugh"})
+  private String search;
+
+  @Setup
+  public void setUp() {
+    // Build the index over the full item list before measuring
+    ItemDatabase.getMatchingNames(this.search);
+  }
+
+  /** Search the name of every item in items.txt, as the CLI does for a typed item name. */
+  @Benchmark
+  public List<String> getMatchingNames() {
+    return ItemDatabase.getMatchingNames(this.search);
+  }
+}
@@ -0,0 +1,50 @@
+package net.sourceforge.kolmafia.persistence;
+
+import internal.benchmark.SyntheticCharacter;
+import internal.helpers.Cleanups;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.kolmafia.Modifiers;
+import net.sourceforge.kolmafia.modifiers.Lookup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModifierDatabaseBenchmark {
+  private Cleanups cleanups;
+  private Lookup[] lookups;
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.cleanups = SyntheticCharacter.create("ModifierDatabaseBenchmark");
+    this.lookups = ModifierDatabase.getAllModifiers().toArray(new Lookup[0]);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.cleanups.close();
+  }
+
+  /** Look up each modifier in the database in turn, evaluating the variable ones. */
+  @Benchmark
+  public Modifiers getModifiers() {
+    Lookup lookup = this.lookups[this.next];
+    this.next = (this.next + 1) % this.lookups.length;
+    return ModifierDatabase.getModifiers(lookup);
+  }
+}
@@ -0,0 +1,170 @@
+package net.sourceforge.kolmafia.request;
+
+import internal.benchmark.SyntheticCharacter;
+import internal.helpers.Cleanups;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import net.sourceforge.kolmafia.KoLmafia;
+import net.sourceforge.kolmafia.RequestEditorKit;
+import net.sourceforge.kolmafia.session.ChoiceManager;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Replays the KoL responses recorded for the tests through the same processing a turn's page gets:
+ * GenericRequest.processResponse, which hands them on to ResultProcessor, FightRequest and
+ * ChoiceManager, then RequestEditorKit's decoration for the relay browser.
+ *
+ * <p>Each operation replays every page of the chosen type once, so the primary score is batches
+ * per second; the pages counter gives pages per second, and the gc profiler's alloc.rate.norm
+ * divided by the number of pages is the allocation per page. The fixtures do not record their
+ * URLs, so each page's type, and the URL it is replayed as, is guessed from its contents; pages
+ * which are none of these types, or which fail when replayed, are left out.
+ *
+ * <p>The character is created once per iteration. Between pages only the fight and choice state a
+ * page leaves behind is reset, so that each is processed as the start of a new page.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ResponseReplayBenchmark {
+  private record Page(String name, String url, String text) {}
+
+  /** Counts the pages replayed, so that JMH reports pages per second alongside batches. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Counters {
+    public long pages;
+
+    @Setup(Level.Iteration)
+    public void clear() {
+      this.pages = 0;
+    }
+  }
+
+  @Param({"fight", "choice", "adventure", "all"})
+  private String pageType;
+
+  private Cleanups cleanups;
+  private Page[] pages;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Path directory = Paths.get("request");
+    if (!Files.isDirectory(directory)) {
+      throw new IllegalStateException("No recorded responses in " + directory.toAbsolutePath());
+    }
+
+    List<Page> pages = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.sorted().toList()) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(".html")) {
+          continue;
+        }
+
+        String text = Files.readString(file).trim();
+        String type = ResponseReplayBenchmark.pageType(name, text);
+        if (type != null && (this.pageType.equals("all") || this.pageType.equals(type))) {
+          pages.add(new Page(name, ResponseReplayBenchmark.url(type), text));
+        }
+      }
+    }
+
+    // Some pages only make sense after the requests their tests set up. Leave out any which fail
+    // when replayed, rather than measuring how quickly they fail.
+    List<Page> replayable = new ArrayList<>();
+    try (var cleanups = SyntheticCharacter.create("ResponseReplayBenchmark")) {
+      for (Page page : pages) {
+        try {
+          ResponseReplayBenchmark.replay(page);
+          replayable.add(page);
+        } catch (RuntimeException e) {
+          // Not replayable
+        }
+      }
+    }
+
+    if (replayable.isEmpty()) {
+      throw new IllegalStateException(
+          "No replayable " + this.pageType + " pages in " + directory.toAbsolutePath());
+    }
+
+    this.pages = replayable.toArray(new Page[0]);
+  }
+
+  @Setup(Level.Iteration)
+  public void createCharacter() {
+    this.cleanups = SyntheticCharacter.create("ResponseReplayBenchmark");
+  }
+
+  @TearDown(Level.Iteration)
+  public void clearCharacter() {
+    this.cleanups.close();
+  }
+
+  private static String pageType(final String name, final String text) {
+    if (text.contains("<!--WINWINWIN-->") || text.contains("Combat!")) {
+      return "fight";
+    }
+    if (text.contains("whichchoice")) {
+      return "choice";
+    }
+    if (name.contains("adventure")) {
+      return "adventure";
+    }
+    return null;
+  }
+
+  private static String url(final String type) {
+    return switch (type) {
+      case "fight" -> "fight.php?action=attack";
+      case "choice" -> "choice.php?forceoption=0";
+      default -> "adventure.php?snarfblat=1";
+    };
+  }
+
+  private static String replay(final Page page) {
+    // Whatever fight or choice the previous page was in the middle of is over
+    KoLmafia.forceContinue();
+    ChoiceManager.handlingChoice = false;
+    FightRequest.currentRound = 0;
+
+    GenericRequest request = new GenericRequest(page.url());
+    request.setHasResult(true);
+    request.responseText = page.text();
+    request.processResponse();
+
+    return RequestEditorKit.getFeatureRichHTML(page.url(), page.text());
+  }
+
+  @Benchmark
+  public void replayPages(final Counters counters, final Blackhole blackhole) {
+    for (Page page : this.pages) {
+      blackhole.consume(ResponseReplayBenchmark.replay(page));
+    }
+    counters.pages += this.pages.length;
+  }
+}
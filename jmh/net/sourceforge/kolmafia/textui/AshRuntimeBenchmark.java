@@ -0,0 +1,87 @@
+package net.sourceforge.kolmafia.textui;
+
+import internal.benchmark.SyntheticCharacter;
+import internal.helpers.Cleanups;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.kolmafia.textui.parsetree.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AshRuntimeBenchmark {
+  // Recursion, aggregates, string building and library calls: what scripts spend their time on.
+  private static final String SCRIPT =
+      """
+      int fib(int n) {
+        if (n < 2) return n;
+        return fib(n - 1) + fib(n - 2);
+      }
+
+      int main() {
+        int total = fib(15);
+        int[string] counts;
+        for i from 1 to 500 {
+          string key = "k" + (i % 37);
+          counts[key] = counts[key] + i;
+        }
+        foreach key, value in counts {
+          total += length(key) + value;
+        }
+        foreach it in $items[seal-clubbing club, helmet turtle, olive, tomato, dry noodles] {
+          total += item_amount(it) + equipped_amount(it);
+        }
+        total += to_int(numeric_modifier("Item Drop"));
+        return total;
+      }
+      """;
+
+  private Cleanups cleanups;
+  private AshRuntime runtime;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.cleanups = SyntheticCharacter.create("AshRuntimeBenchmark");
+    this.runtime = AshRuntimeBenchmark.parse();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.cleanups.close();
+  }
+
+  private static AshRuntime parse() {
+    AshRuntime runtime = new AshRuntime();
+    var stream = new ByteArrayInputStream(SCRIPT.getBytes(StandardCharsets.UTF_8));
+    if (!runtime.validate(null, stream)) {
+      throw new IllegalStateException("Benchmark script does not parse");
+    }
+    return runtime;
+  }
+
+  @Benchmark
+  public AshRuntime validate() {
+    return AshRuntimeBenchmark.parse();
+  }
+
+  @Benchmark
+  public Value execute() {
+    return this.runtime.execute("main", null, true);
+  }
+}
@@ -20,6 +20,7 @@ import net.sourceforge.kolmafia.session.ElVibratoManager;
 import net.sourceforge.kolmafia.session.ElVibratoManager.Punchcard;
 import net.sourceforge.kolmafia.session.GoalManager;
 import net.sourceforge.kolmafia.session.InventoryManager;
+import net.sourceforge.kolmafia.utilities.CountedItemList;
 import net.sourceforge.kolmafia.utilities.StringUtilities;
 
 public class AdventureResult implements Comparable<AdventureResult>, Cloneable {
@@ -1106,6 +1107,10 @@ public class AdventureResult implements Comparable<AdventureResult>, Cloneable {
    * intent more transparent.
    */
   public int getCount(final List<AdventureResult> list) {
+    if (list instanceof CountedItemList counted && this.isItem() && this.id > 0) {
+      return counted.getItemCount(this.id);
+    }
+
     int index = list.indexOf(this);
     if (index == -1) return 0;
     AdventureResult item = list.get(index);
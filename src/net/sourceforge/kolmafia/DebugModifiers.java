@@ -59,6 +59,12 @@ public class DebugModifiers extends Modifiers {
     DebugModifiers.adjustments.clear();
   }
 
+  @Override
+  protected boolean addsEachDouble() {
+    // Every addition has to be seen to be reported
+    return true;
+  }
+
   @Override
   protected void addDouble(
       final DoubleModifier modifier,
@@ -0,0 +1,153 @@
+package net.sourceforge.kolmafia;
+
+/**
+ * What modifier calculations and modifier expressions know besides the character itself: where the
+ * character is adventuring, and values which recalculateAdjustments works out from the equipment
+ * and familiar being considered.
+ *
+ * <p>Every thread shares one context until it calls {@link #isolate}. From then until the returned
+ * scope is closed, that thread reads and writes a private copy, so speculative calculations on
+ * several threads don't see each other's equipment.
+ */
+public class EvaluationContext {
+  private static final EvaluationContext SHARED = new EvaluationContext();
+  private static final ThreadLocal<EvaluationContext> ISOLATED = new ThreadLocal<>();
+
+  private String location = "";
+  private String zone = "";
+  private String environment = "";
+  private double monsterLevel = 4.0;
+  private String familiar = "";
+  private String mainhandClass = "";
+  private double hoboPower = 0.0;
+  private double smithsness = 0.0;
+  private double familiarWeight = 0.0;
+  private boolean unarmed = false;
+
+  private EvaluationContext() {}
+
+  private EvaluationContext(EvaluationContext copy) {
+    this.location = copy.location;
+    this.zone = copy.zone;
+    this.environment = copy.environment;
+    this.monsterLevel = copy.monsterLevel;
+    this.familiar = copy.familiar;
+    this.mainhandClass = copy.mainhandClass;
+    this.hoboPower = copy.hoboPower;
+    this.smithsness = copy.smithsness;
+    this.familiarWeight = copy.familiarWeight;
+    this.unarmed = copy.unarmed;
+  }
+
+  public static EvaluationContext current() {
+    EvaluationContext context = ISOLATED.get();
+    return context != null ? context : SHARED;
+  }
+
+  public static boolean isIsolated() {
+    return ISOLATED.get() != null;
+  }
+
+  /** Give this thread its own copy of the current context until the scope is closed. */
+  public static Scope isolate() {
+    EvaluationContext previous = ISOLATED.get();
+    ISOLATED.set(new EvaluationContext(EvaluationContext.current()));
+    return new Scope(previous);
+  }
+
+  public static class Scope implements AutoCloseable {
+    private final EvaluationContext previous;
+
+    private Scope(EvaluationContext previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      if (this.previous == null) {
+        ISOLATED.remove();
+      } else {
+        ISOLATED.set(this.previous);
+      }
+    }
+  }
+
+  public void setLocation(KoLAdventure location) {
+    if (location == null) {
+      this.location = "";
+      this.zone = "";
+      this.monsterLevel = 4.0;
+      return;
+    }
+
+    this.location = location.getAdventureName();
+    this.zone = location.getZone();
+    this.environment = location.getEnvironment().toString();
+    AreaCombatData data = location.getAreaSummary();
+    this.monsterLevel = Math.max(4.0, data == null ? 0.0 : data.getAverageML());
+  }
+
+  public String getLocation() {
+    return this.location;
+  }
+
+  public String getZone() {
+    return this.zone;
+  }
+
+  public String getEnvironment() {
+    return this.environment;
+  }
+
+  public double getMonsterLevel() {
+    return this.monsterLevel;
+  }
+
+  public void setFamiliar(FamiliarData fam) {
+    this.familiar = fam == null ? "" : fam.getRace();
+  }
+
+  public String getFamiliar() {
+    return this.familiar;
+  }
+
+  public void setMainhandClass(String mainhandClass) {
+    this.mainhandClass = mainhandClass;
+  }
+
+  public String getMainhandClass() {
+    return this.mainhandClass;
+  }
+
+  public void setHoboPower(double hoboPower) {
+    this.hoboPower = hoboPower;
+  }
+
+  public double getHoboPower() {
+    return this.hoboPower;
+  }
+
+  public void setSmithsness(double smithsness) {
+    this.smithsness = smithsness;
+  }
+
+  public double getSmithsness() {
+    return this.smithsness;
+  }
+
+  public void setFamiliarWeight(double familiarWeight) {
+    this.familiarWeight = familiarWeight;
+  }
+
+  public double getFamiliarWeight() {
+    return this.familiarWeight;
+  }
+
+  public void setUnarmed(boolean unarmed) {
+    this.unarmed = unarmed;
+  }
+
+  public boolean isUnarmed() {
+    return this.unarmed;
+  }
+}
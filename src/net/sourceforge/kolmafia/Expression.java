@@ -1,7 +1,10 @@
 package net.sourceforge.kolmafia;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.NoSuchElementException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.sourceforge.kolmafia.modifiers.DoubleModifier;
@@ -29,6 +32,7 @@ public class Expression {
 
   private char[] bytecode; // Compiled expression
   private ArrayList<Object> literals; // Strings & floats needed by expression
+  private Node compiled; // Bytecode lowered to lambdas, or null if it couldn't be
   protected AdventureResult effect;
 
   // If non-null, contains concatenated error strings from compiling bytecode
@@ -93,6 +97,7 @@ public class Expression {
       buf.append(this.text);
     }
     this.text = null;
+    this.compiled = this.compile();
   }
 
   public static Expression getInstance(String text, String name) {
@@ -107,8 +112,12 @@ public class Expression {
   protected void initialize() {}
 
   public double eval() {
+    return this.eval(EvaluationContext.current());
+  }
+
+  public double eval(EvaluationContext context) {
     try {
-      return this.evalInternal();
+      return this.evalInternal(context);
     } catch (ArrayIndexOutOfBoundsException e) {
       KoLmafia.updateDisplay("Unreasonably complex expression for " + this.name + ": " + e);
     } catch (RuntimeException e) {
@@ -120,6 +129,27 @@ public class Expression {
   }
 
   public double evalInternal() {
+    return this.evalInternal(EvaluationContext.current());
+  }
+
+  public double evalInternal(EvaluationContext context) {
+    if (this.compiled != null) {
+      return this.compiled.eval(context);
+    }
+    return this.interpret(context);
+  }
+
+  public boolean isCompiled() {
+    return this.compiled != null;
+  }
+
+  /** Whether compiling folded the whole expression down to a single constant. */
+  boolean isConstant() {
+    return this.compiled instanceof Constant;
+  }
+
+  /** Evaluates the bytecode directly, without the compiled form. */
+  public double interpret(EvaluationContext context) {
     double[] s = stackFactory(null);
     int sp = 0;
     int pc = 0;
@@ -250,20 +280,20 @@ public class Expression {
           v = KoLCharacter.hasEquipped(item) ? 1 : 0;
         }
         case 'h' -> v =
-            Modifiers.mainhandClass.equalsIgnoreCase((String) this.literals.get((int) s[--sp]))
+            context.getMainhandClass().equalsIgnoreCase((String) this.literals.get((int) s[--sp]))
                 ? 1
                 : 0;
         case 'i' -> v =
             FamiliarDatabase.hasAttribute(
-                    Modifiers.currentFamiliar, (String) this.literals.get((int) s[--sp]))
+                    context.getFamiliar(), (String) this.literals.get((int) s[--sp]))
                 ? 1
                 : 0;
         case 'j' -> v =
-            Modifiers.currentEnvironment.equalsIgnoreCase((String) this.literals.get((int) s[--sp]))
+            context.getEnvironment().equalsIgnoreCase((String) this.literals.get((int) s[--sp]))
                 ? 1
                 : 0;
         case 'l' -> v =
-            Modifiers.currentLocation.equalsIgnoreCase((String) this.literals.get((int) s[--sp]))
+            context.getLocation().equalsIgnoreCase((String) this.literals.get((int) s[--sp]))
                 ? 1
                 : 0;
         case 'n' -> v =
@@ -277,11 +307,11 @@ public class Expression {
               (StringUtilities.isNumeric(fam))
                   ? FamiliarDatabase.getFamiliarName(StringUtilities.parseInt(fam))
                   : fam;
-          v = Modifiers.currentFamiliar.equalsIgnoreCase(familiarName) ? 1 : 0;
+          v = context.getFamiliar().equalsIgnoreCase(familiarName) ? 1 : 0;
         }
         case 'z' -> {
           String expressionZone = (String) this.literals.get((int) s[--sp]);
-          String currentZone = Modifiers.currentZone;
+          String currentZone = context.getZone();
           v = 0;
           while (true) {
             if (currentZone.equalsIgnoreCase(expressionZone)) {
@@ -302,9 +332,7 @@ public class Expression {
               v = HolidayDatabase.isDecember() ? 1 : 0;
               break;
             default:
-              if (HolidayDatabase.getHoliday().contains(event)) {
-                v = 1;
-              }
+              v = HolidayDatabase.getHoliday().contains(event) ? 1 : 0;
               break;
           }
         }
@@ -391,10 +419,10 @@ public class Expression {
         }
         case 'F' -> v = KoLCharacter.getFullness();
         case 'G' -> v = HolidayDatabase.getGrimaciteEffect() / 10.0;
-        case 'H' -> v = Modifiers.hoboPower;
+        case 'H' -> v = context.getHoboPower();
         case 'I' -> v = KoLCharacter.getDiscoMomentum();
         case 'J' -> v = HolidayDatabase.getHoliday().contains("Festival of Jarlsberg") ? 1.0 : 0.0;
-        case 'K' -> v = Modifiers.smithsness;
+        case 'K' -> v = context.getSmithsness();
         case 'L' -> v = KoLCharacter.getLevel();
         case 'M' -> v = HolidayDatabase.getMoonlight();
         case 'N' -> v = KoLCharacter.getAudience();
@@ -406,7 +434,7 @@ public class Expression {
                 ? 0.0
                 : Math.max(1, this.effect.getCount(KoLConstants.activeEffects));
         case 'U' -> v = KoLCharacter.getTelescopeUpgrades();
-        case 'W' -> v = Modifiers.currentWeight;
+        case 'W' -> v = context.getFamiliarWeight();
         case 'X' -> v = KoLCharacter.getGender().modifierValue;
         case 'Y' -> v = KoLCharacter.getFury();
         default -> {
@@ -620,4 +648,315 @@ public class Expression {
   protected String function() {
     return null;
   }
+
+  // Compiling bytecode into a tree of lambdas. Each one evaluates a single
+  // operation, with its literal arguments looked up ahead of time, and needs
+  // no stack. Operations on constants are folded when compiling.
+
+  @FunctionalInterface
+  private interface Node {
+    double eval(EvaluationContext context);
+  }
+
+  private record Constant(double value) implements Node {
+    @Override
+    public double eval(EvaluationContext context) {
+      return this.value;
+    }
+  }
+
+  private Node compile() {
+    Deque<Node> stack = new ArrayDeque<>();
+    try {
+      for (char inst : this.bytecode) {
+        if (inst == 'r') {
+          return stack.pop();
+        }
+        Node node = this.compile(inst, stack);
+        if (node == null) {
+          // Let the interpreter report it
+          return null;
+        }
+        stack.push(node);
+      }
+    } catch (NoSuchElementException | ClassCastException e) {
+      // Malformed bytecode; the interpreter will complain when evaluated
+    }
+    return null;
+  }
+
+  private Node compile(char inst, Deque<Node> stack) {
+    return switch (inst) {
+      case '+' -> {
+        Node a = stack.pop();
+        Node b = stack.pop();
+        yield fold(c -> a.eval(c) + b.eval(c), a, b);
+      }
+      case '-' -> {
+        Node a = stack.pop();
+        Node b = stack.pop();
+        yield fold(c -> a.eval(c) - b.eval(c), a, b);
+      }
+      case '*' -> {
+        Node a = stack.pop();
+        Node b = stack.pop();
+        yield fold(c -> a.eval(c) * b.eval(c), a, b);
+      }
+      case '/' -> {
+        Node a = stack.pop();
+        Node b = stack.pop();
+        yield fold(
+            c -> {
+              double numerator = a.eval(c);
+              double denominator = b.eval(c);
+              if (denominator == 0.0) {
+                throw new ArithmeticException("Can't divide by zero");
+              }
+              return numerator / denominator;
+            },
+            a,
+            b);
+      }
+      case '%' -> {
+        Node a = stack.pop();
+        Node b = stack.pop();
+        yield fold(c -> a.eval(c) % b.eval(c), a, b);
+      }
+      case '^' -> {
+        Node a = stack.pop();
+        Node b = stack.pop();
+        yield fold(
+            c -> {
+              double base = a.eval(c);
+              double expt = b.eval(c);
+              double v = Math.pow(base, expt);
+              if (Double.isNaN(v) || Double.isInfinite(v)) {
+                throw new ArithmeticException(
+                    "Invalid exponentiation: cannot take " + base + " ** " + expt);
+              }
+              return v;
+            },
+            a,
+            b);
+      }
+      case 'a' -> {
+        Node a = stack.pop();
+        yield fold(c -> Math.abs(a.eval(c)), a);
+      }
+      case 'c' -> {
+        Node a = stack.pop();
+        yield fold(c -> Math.ceil(a.eval(c)), a);
+      }
+      case 'f' -> {
+        Node a = stack.pop();
+        yield fold(c -> Math.floor(a.eval(c)), a);
+      }
+      case 'm' -> {
+        Node a = stack.pop();
+        Node b = stack.pop();
+        yield fold(c -> Math.min(a.eval(c), b.eval(c)), a, b);
+      }
+      case 'x' -> {
+        Node a = stack.pop();
+        Node b = stack.pop();
+        yield fold(c -> Math.max(a.eval(c), b.eval(c)), a, b);
+      }
+      case 's' -> {
+        Node a = stack.pop();
+        yield fold(
+            c -> {
+              double v = Math.sqrt(a.eval(c));
+              if (Double.isNaN(v)) {
+                throw new ArithmeticException("Can't take square root of a negative value");
+              }
+              return v;
+            },
+            a);
+      }
+      case '#' -> new Constant((Double) this.literal(stack));
+      case 'p' -> {
+        String first = (String) this.literal(stack);
+        int commaIndex = first.indexOf(",");
+        if (commaIndex > -1) {
+          String pref = first.substring(0, commaIndex);
+          String second = first.substring(commaIndex + 1);
+          yield c -> Preferences.getString(pref).contains(second) ? 1 : 0;
+        }
+        yield c -> {
+          String prefString = Preferences.getString(first);
+          return prefString.contains("true")
+              ? 1
+              : prefString.contains("false") ? 0 : StringUtilities.parseDouble(prefString);
+        };
+      }
+
+        // Valid with ModifierExpression:
+      case 'b' -> {
+        Element element = Element.fromString((String) this.literal(stack));
+        DoubleModifier modifier = ModifierDatabase.elementalResistance(element);
+        yield c -> KoLCharacter.currentNumericModifier(modifier);
+      }
+      case 'd' -> {
+        String skill = (String) this.literal(stack);
+        yield c -> {
+          String skillName =
+              StringUtilities.isNumeric(skill)
+                  ? SkillDatabase.getSkillName(StringUtilities.parseInt(skill))
+                  : skill;
+          return KoLCharacter.hasSkill(skillName) ? 1 : 0;
+        };
+      }
+      case 'e' -> {
+        String effectName = (String) this.literal(stack);
+        yield c -> {
+          int effectId =
+              StringUtilities.isNumeric(effectName)
+                  ? StringUtilities.parseInt(effectName)
+                  : EffectDatabase.getEffectId(effectName);
+          AdventureResult eff = EffectPool.get(effectId);
+          return Math.max(0, eff.getCount(KoLConstants.activeEffects));
+        };
+      }
+      case 'g' -> {
+        String itemName = (String) this.literal(stack);
+        yield c -> KoLCharacter.hasEquipped(ItemPool.get(ItemDatabase.getItemId(itemName))) ? 1 : 0;
+      }
+      case 'h' -> {
+        String type = (String) this.literal(stack);
+        yield c -> c.getMainhandClass().equalsIgnoreCase(type) ? 1 : 0;
+      }
+      case 'i' -> {
+        String attribute = (String) this.literal(stack);
+        yield c -> FamiliarDatabase.hasAttribute(c.getFamiliar(), attribute) ? 1 : 0;
+      }
+      case 'j' -> {
+        String environment = (String) this.literal(stack);
+        yield c -> c.getEnvironment().equalsIgnoreCase(environment) ? 1 : 0;
+      }
+      case 'l' -> {
+        String location = (String) this.literal(stack);
+        yield c -> c.getLocation().equalsIgnoreCase(location) ? 1 : 0;
+      }
+      case 'n' -> {
+        String className = (String) this.literal(stack);
+        yield c -> KoLCharacter.getAscensionClassName().equalsIgnoreCase(className) ? 1 : 0;
+      }
+      case 'w' -> {
+        String fam = (String) this.literal(stack);
+        yield c -> {
+          String familiarName =
+              StringUtilities.isNumeric(fam)
+                  ? FamiliarDatabase.getFamiliarName(StringUtilities.parseInt(fam))
+                  : fam;
+          return c.getFamiliar().equalsIgnoreCase(familiarName) ? 1 : 0;
+        };
+      }
+      case 'z' -> {
+        String expressionZone = (String) this.literal(stack);
+        yield c -> {
+          String currentZone = c.getZone();
+          while (true) {
+            if (currentZone.equalsIgnoreCase(expressionZone)) {
+              return 1;
+            }
+            String parentZone = AdventureDatabase.getParentZone(currentZone);
+            if (parentZone == null || currentZone.equals(parentZone)) {
+              return 0;
+            }
+            currentZone = parentZone;
+          }
+        };
+      }
+      case 'v' -> {
+        String event = (String) this.literal(stack);
+        if (event.equals("December")) {
+          yield c -> HolidayDatabase.isDecember() ? 1 : 0;
+        }
+        yield c -> HolidayDatabase.getHoliday().contains(event) ? 1 : 0;
+      }
+
+      case '\u0080' -> c -> KoLCharacter.getAdjustedMuscle();
+      case '\u0081' -> c -> KoLCharacter.getAdjustedMysticality();
+      case '\u0082' -> c -> KoLCharacter.getAdjustedMoxie();
+      case '\u0083' -> c -> KoLCharacter.getMonsterLevelAdjustment();
+      case '\u0084' -> c -> KoLCharacter.getMindControlLevel();
+      case '\u0085' -> c -> KoLCharacter.getMaximumHP();
+      case '\u0086' -> c -> BasementRequest.getBasementLevel();
+      case '\u0087' -> c -> FightRequest.dreadKisses("Woods");
+      case '\u0088' -> c -> FightRequest.dreadKisses("Village");
+      case '\u0089' -> c -> FightRequest.dreadKisses("Castle");
+      case '\u0090' -> c -> KoLCharacter.getAdjustedHighestStat();
+      case '\u0091' -> c -> KoLCharacter.getMaximumMP();
+      case '\u0092' -> {
+        AscensionPath.Path path = AscensionPath.nameToPath((String) this.literal(stack));
+        yield c -> KoLCharacter.getPath() == path ? 1 : 0;
+      }
+      case '\u0093' -> {
+        DoubleModifier modifier = DoubleModifier.byCaselessName((String) this.literal(stack));
+        yield c -> KoLCharacter.getCurrentModifiers().getAccumulator(modifier);
+      }
+      case '\u0094' -> c -> KoLCharacter.canInteract() ? 1 : 0;
+      case '\u0095' -> c -> KoLCharacter.getCurrentHP();
+      case '\u0096' -> {
+        String arg = (String) this.literal(stack);
+        yield new Constant(StringUtilities.parseInt(arg.replaceAll(",", "")));
+      }
+      case '\u0097' -> c -> KoLCharacter.getBaseMuscle();
+      case '\u0098' -> c -> KoLCharacter.getBaseMysticality();
+      case '\u0099' -> c -> KoLCharacter.getBaseMoxie();
+      case 'A' -> c -> KoLCharacter.getAscensions();
+      case 'B' -> c -> HolidayDatabase.getBloodEffect();
+      case 'C' -> c -> KoLCharacter.getMinstrelLevel();
+      case 'D' -> c -> KoLCharacter.getInebriety();
+      case 'E' -> c ->
+          KoLConstants.activeEffects.stream()
+              .map(AdventureResult::getCount)
+              .filter(d -> d < Integer.MAX_VALUE)
+              .count();
+      case 'F' -> c -> KoLCharacter.getFullness();
+      case 'G' -> c -> HolidayDatabase.getGrimaciteEffect() / 10.0;
+      case 'H' -> EvaluationContext::getHoboPower;
+      case 'I' -> c -> KoLCharacter.getDiscoMomentum();
+      case 'J' -> c -> HolidayDatabase.getHoliday().contains("Festival of Jarlsberg") ? 1.0 : 0.0;
+      case 'K' -> EvaluationContext::getSmithsness;
+      case 'L' -> c -> KoLCharacter.getLevel();
+      case 'M' -> c -> HolidayDatabase.getMoonlight();
+      case 'N' -> c -> KoLCharacter.getAudience();
+      case 'P' -> c -> KoLCharacter.currentPastaThrall.getLevel();
+      case 'R' -> c -> KoLCharacter.getReagentPotionDuration();
+      case 'S' -> c -> KoLCharacter.getSpleenUse();
+      case 'T' -> {
+        AdventureResult effect = this.effect;
+        if (effect == null) {
+          yield new Constant(0.0);
+        }
+        yield c -> Math.max(1, effect.getCount(KoLConstants.activeEffects));
+      }
+      case 'U' -> c -> KoLCharacter.getTelescopeUpgrades();
+      case 'W' -> EvaluationContext::getFamiliarWeight;
+      case 'X' -> c -> KoLCharacter.getGender().modifierValue;
+      case 'Y' -> c -> KoLCharacter.getFury();
+      default -> inst > '\u00FF' ? new Constant(inst - 0x8000) : null;
+    };
+  }
+
+  // Literal arguments are pushed as constant indexes into literals
+  private Object literal(Deque<Node> stack) {
+    Constant index = (Constant) stack.pop();
+    return this.literals.get((int) index.value());
+  }
+
+  // Arithmetic on constants can be done now, unless it fails
+  private static Node fold(Node node, Node... args) {
+    for (Node arg : args) {
+      if (!(arg instanceof Constant)) {
+        return node;
+      }
+    }
+    try {
+      return new Constant(node.eval(null));
+    } catch (ArithmeticException e) {
+      return node;
+    }
+  }
 }
@@ -1,6 +1,7 @@
 package net.sourceforge.kolmafia;
 
 import java.awt.Taskbar;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -26,6 +27,7 @@ import net.sourceforge.kolmafia.equipment.SlotSet;
 import net.sourceforge.kolmafia.listener.CharacterListenerRegistry;
 import net.sourceforge.kolmafia.listener.NamedListenerRegistry;
 import net.sourceforge.kolmafia.listener.PreferenceListenerRegistry;
+import net.sourceforge.kolmafia.maximizer.MaximizerCache;
 import net.sourceforge.kolmafia.modifiers.BitmapModifier;
 import net.sourceforge.kolmafia.modifiers.BooleanModifier;
 import net.sourceforge.kolmafia.modifiers.DerivedModifier;
@@ -346,6 +348,7 @@ public abstract class KoLCharacter {
   }
 
   public static final void reset(boolean newCharacter) {
+    MaximizerCache.clear();
     KoLCharacter.ascensionClass = null;
 
     KoLCharacter.gender = Gender.UNKNOWN;
@@ -2315,7 +2318,7 @@ public abstract class KoLCharacter {
   /** Accessor method to retrieve the total current combat percent adjustment */
   public static final double getCombatRateAdjustment() {
     double rate = KoLCharacter.currentModifiers.getDouble(DoubleModifier.COMBAT_RATE);
-    if (AdventureDatabase.getEnvironment(Modifiers.currentLocation).isUnderwater()) {
+    if (AdventureDatabase.getEnvironment(Modifiers.getCurrentLocation()).isUnderwater()) {
       rate += KoLCharacter.currentModifiers.getDouble(DoubleModifier.UNDERWATER_COMBAT_RATE);
     }
     return rate;
@@ -5024,28 +5027,33 @@ public abstract class KoLCharacter {
     int taoFactor = KoLCharacter.hasSkill(SkillPool.TAO_OF_THE_TERRAPIN) ? 2 : 1;
 
     Modifiers newModifiers = debug ? new DebugModifiers() : new Modifiers();
-    Modifiers.setFamiliar(familiar);
+    EvaluationContext context = EvaluationContext.current();
+    context.setFamiliar(familiar);
     AdventureResult weapon = equipment.get(Slot.WEAPON);
-    Modifiers.mainhandClass =
-        weapon == null ? "" : EquipmentDatabase.getItemType(weapon.getItemId());
+    context.setMainhandClass(
+        weapon == null ? "" : EquipmentDatabase.getItemType(weapon.getItemId()));
     AdventureResult offhand = equipment.get(Slot.OFFHAND);
-    Modifiers.unarmed =
+    context.setUnarmed(
         (weapon == null || weapon == EquipmentRequest.UNEQUIP)
-            && (offhand == null || offhand == EquipmentRequest.UNEQUIP);
+            && (offhand == null || offhand == EquipmentRequest.UNEQUIP));
+
+    // Location, sign, stat day and outfit rarely change between recalculations,
+    // so they are added together as a group.
+    List<Modifiers> areaModifiers = new ArrayList<>();
 
     // Area-specific adjustments
-    newModifiers.add(ModifierDatabase.getModifiers(ModifierType.LOC, Modifiers.currentLocation));
-    newModifiers.add(ModifierDatabase.getModifiers(ModifierType.ZONE, Modifiers.currentZone));
+    areaModifiers.add(ModifierDatabase.getModifiers(ModifierType.LOC, context.getLocation()));
+    areaModifiers.add(ModifierDatabase.getModifiers(ModifierType.ZONE, context.getZone()));
 
     // Look at sign-specific adjustments
     newModifiers.addDouble(
         DoubleModifier.MONSTER_LEVEL, MCD, ModifierType.MCD, "Monster Control Device");
-    newModifiers.add(
+    areaModifiers.add(
         ModifierDatabase.getModifiers(ModifierType.SIGN, KoLCharacter.ascensionSign.getName()));
 
     // If we are out of ronin/hardcore, look at stat day adjustments
     if (KoLCharacter.canInteract() && !KoLmafia.statDay.equals("None")) {
-      newModifiers.add(ModifierDatabase.getModifiers(ModifierType.EVENT, KoLmafia.statDay));
+      areaModifiers.add(ModifierDatabase.getModifiers(ModifierType.EVENT, KoLmafia.statDay));
     }
 
     // Certain outfits give benefits to the character
@@ -5054,7 +5062,12 @@ public abstract class KoLCharacter {
     SpecialOutfit outfit = EquipmentManager.currentOutfit(equipment);
     if (outfit != null) {
       newModifiers.setString(StringModifier.OUTFIT, outfit.getName());
-      newModifiers.add(ModifierDatabase.getModifiers(ModifierType.OUTFIT, outfit.getName()));
+      areaModifiers.add(ModifierDatabase.getModifiers(ModifierType.OUTFIT, outfit.getName()));
+    }
+
+    newModifiers.addGroup(Modifiers.ModifierGroup.AREA, areaModifiers);
+
+    if (outfit != null) {
       // El Vibrato Relics may have additional benefits based on
       // punchcards inserted into the helmet:
       if (outfit.getOutfitId() == OutfitPool.VIBRATO_RELICS
@@ -5096,7 +5109,7 @@ public abstract class KoLCharacter {
                     DoubleModifier.INITIATIVE, level * 20, ModifierType.EL_VIBRATO, "SELF");
                 break;
               case 8:
-                if (Modifiers.currentFamiliar.contains("megadrone")) {
+                if (context.getFamiliar().contains("megadrone")) {
                   newModifiers.addDouble(
                       DoubleModifier.FAMILIAR_WEIGHT, level * 10, ModifierType.EL_VIBRATO, "DRONE");
                 }
@@ -5117,8 +5130,8 @@ public abstract class KoLCharacter {
       newModifiers.add(ModifierDatabase.parseModifiers(ModifierType.GENERATED, "custom", custom));
     }
 
-    // Store some modifiers as statics
-    Modifiers.smithsness = KoLCharacter.getSmithsnessModifier(equipment, effects);
+    // Store some modifiers in the evaluation context
+    context.setSmithsness(KoLCharacter.getSmithsnessModifier(equipment, effects));
 
     // Look at items
     for (var slot : SlotSet.SLOTS) {
@@ -5182,9 +5195,7 @@ public abstract class KoLCharacter {
     // For the sake of easier maintenance, execute a lot of extra
     // string comparisons when looking at status effects.
 
-    for (AdventureResult effect : effects) {
-      newModifiers.add(ModifierDatabase.getEffectModifiers(effect.getEffectId()));
-    }
+    newModifiers.applyEffectModifiers(effects, debug);
 
     // Add modifiers from campground equipment.
     for (int i = 0; i < KoLConstants.campground.size(); ++i) {
@@ -5284,10 +5295,10 @@ public abstract class KoLCharacter {
     Modifiers fightMods = ModifierDatabase.getModifiers(ModifierType.GENERATED, "fightMods");
     newModifiers.add(fightMods);
 
-    // Store some modifiers as statics
-    Modifiers.hoboPower = newModifiers.getDouble(DoubleModifier.HOBO_POWER);
+    // Store some modifiers in the evaluation context
+    context.setHoboPower(newModifiers.getDouble(DoubleModifier.HOBO_POWER));
 
-    if (Modifiers.currentLocation.equals("The Slime Tube")) {
+    if (context.getLocation().equals("The Slime Tube")) {
       int hatred = (int) newModifiers.getDouble(DoubleModifier.SLIME_HATES_IT);
       if (hatred > 0) {
         newModifiers.addDouble(
@@ -5383,8 +5394,8 @@ public abstract class KoLCharacter {
     // Water level impacts experience adjustment.
     if (KoLCharacter.inRaincore()) {
       int WL = 1;
-      if (Modifiers.currentLocation != null) {
-        KoLAdventure location = AdventureDatabase.getAdventure(Modifiers.currentLocation);
+      if (context.getLocation() != null) {
+        KoLAdventure location = AdventureDatabase.getAdventure(context.getLocation());
         if (location != null) {
           WL = location.getWaterLevel();
         }
@@ -5542,7 +5553,7 @@ public abstract class KoLCharacter {
             EffectPool.STEELY_EYED_SQUINT);
       }
     }
-    if (Modifiers.currentZone.equals("Shadow Rift")) {
+    if (context.getZone().equals("Shadow Rift")) {
       newModifiers.addDouble(
           DoubleModifier.ITEMDROP,
           // It includes your current familiar
@@ -229,6 +229,7 @@ public interface KoLConstants extends UtilityConstants {
   // it a distinct version number in case the user types the name
   // of another one of the data files.
   int MALLPRICES_VERSION = 0xF00D5;
+  int MALLSEARCHES_VERSION = 1;
 
   // The current versioned name of each KoLmafia-supplied relay file
   String AFTERLIFE_ASH = "afterlife.1.ash";
@@ -619,9 +620,9 @@ public interface KoLConstants extends UtilityConstants {
 
   List<String> saveStateNames = LockableListFactory.getSortedInstance(String.class);
 
-  List<AdventureResult> inventory = LockableListFactory.getSortedInstance(AdventureResult.class);
-  List<AdventureResult> closet = LockableListFactory.getSortedInstance(AdventureResult.class);
-  List<AdventureResult> storage = LockableListFactory.getSortedInstance(AdventureResult.class);
+  List<AdventureResult> inventory = LockableListFactory.getSortedItemInstance();
+  List<AdventureResult> closet = LockableListFactory.getSortedItemInstance();
+  List<AdventureResult> storage = LockableListFactory.getSortedItemInstance();
   List<AdventureResult> unlimited = LockableListFactory.getSortedInstance(AdventureResult.class);
   List<AdventureResult> freepulls = LockableListFactory.getSortedInstance(AdventureResult.class);
   List<AdventureResult> nopulls = LockableListFactory.getSortedInstance(AdventureResult.class);
@@ -2,16 +2,20 @@ package net.sourceforge.kolmafia;
 
 import java.time.DayOfWeek;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import net.sourceforge.kolmafia.VYKEACompanionData.VYKEACompanionType;
 import net.sourceforge.kolmafia.listener.PreferenceListenerRegistry;
+import net.sourceforge.kolmafia.maximizer.MaximizerCache;
 import net.sourceforge.kolmafia.modifiers.BitmapModifier;
 import net.sourceforge.kolmafia.modifiers.BitmapModifierCollection;
 import net.sourceforge.kolmafia.modifiers.BooleanModifier;
@@ -45,25 +49,25 @@ import net.sourceforge.kolmafia.utilities.Indexed;
 import net.sourceforge.kolmafia.utilities.IntOrString;
 
 public class Modifiers {
-  // static fields used to compute current modifiers
-
-  public static String currentLocation = "";
-  public static String currentZone = "";
-  public static String currentEnvironment = "";
-  public static double currentML = 4.0;
-  public static String currentFamiliar = "";
-  public static String mainhandClass = "";
-  public static double hoboPower = 0.0;
-  public static double smithsness = 0.0;
-  public static double currentWeight = 0.0;
-  public static boolean unarmed = false;
-
   // caching of passive skills for the current character
-  private static boolean availableSkillsChanged = false;
+  private static volatile boolean availableSkillsChanged = false;
   private static final Map<Boolean, List<Modifiers>> availablePassiveSkillModifiersByVariable =
       new TreeMap<>();
   private static Modifiers cachedPassiveModifiers = null;
 
+  // caching of constant modifiers, keyed by the Modifiers objects they were summed from
+  private record ModifierSum(List<Modifiers> sources, Collection<Modifiers> sums) {}
+
+  private static final Map<ModifierGroup, ModifierSum> cachedModifierSums =
+      new ConcurrentHashMap<>();
+
+  /** Modifiers which are usually the same from one recalculation to the next. */
+  public enum ModifierGroup {
+    AREA,
+    EFFECTS,
+    FAMILIAR
+  }
+
   // fields used in Modifiers objects
 
   private Lookup originalLookup;
@@ -83,6 +87,54 @@ public class Modifiers {
 
   private static final AdventureResult FIDOXENE = EffectPool.get(EffectPool.FIDOXENE);
 
+  // Modifiers which add() does not simply sum, so the order they are added in matters
+  private static final Set<StringModifier> ORDERED_STRING_MODIFIERS =
+      EnumSet.of(
+          StringModifier.EQUALIZE,
+          StringModifier.INTRINSIC_EFFECT,
+          StringModifier.STAT_TUNING,
+          StringModifier.EQUALIZE_MUSCLE,
+          StringModifier.EQUALIZE_MYST,
+          StringModifier.EQUALIZE_MOXIE);
+  private static final Set<DoubleModifier> ORDERED_DOUBLE_MODIFIERS =
+      EnumSet.of(
+          DoubleModifier.MANA_COST,
+          DoubleModifier.FAMILIAR_WEIGHT_PCT,
+          DoubleModifier.MUS_LIMIT,
+          DoubleModifier.MYS_LIMIT,
+          DoubleModifier.MOX_LIMIT,
+          DoubleModifier.FAMILIAR_ACTION_BONUS);
+
+  // Modifiers which addDouble() does more with than add to the total
+  private static final DoubleModifierCollection.Mask SPECIAL_DOUBLE_MODIFIERS =
+      new DoubleModifierCollection.Mask(
+          EnumSet.of(
+              DoubleModifier.MANA_COST,
+              DoubleModifier.FAMILIAR_WEIGHT_PCT,
+              DoubleModifier.MUS_LIMIT,
+              DoubleModifier.MYS_LIMIT,
+              DoubleModifier.MOX_LIMIT,
+              DoubleModifier.ITEMDROP,
+              DoubleModifier.INITIATIVE,
+              DoubleModifier.HOT_DAMAGE,
+              DoubleModifier.COLD_DAMAGE,
+              DoubleModifier.STENCH_DAMAGE,
+              DoubleModifier.SPOOKY_DAMAGE,
+              DoubleModifier.SLEAZE_DAMAGE,
+              DoubleModifier.HOT_SPELL_DAMAGE,
+              DoubleModifier.COLD_SPELL_DAMAGE,
+              DoubleModifier.STENCH_SPELL_DAMAGE,
+              DoubleModifier.SPOOKY_SPELL_DAMAGE,
+              DoubleModifier.SLEAZE_SPELL_DAMAGE,
+              DoubleModifier.EXPERIENCE,
+              DoubleModifier.MUS_EXPERIENCE,
+              DoubleModifier.MYS_EXPERIENCE,
+              DoubleModifier.MOX_EXPERIENCE,
+              DoubleModifier.MUS_EXPERIENCE_PCT,
+              DoubleModifier.MYS_EXPERIENCE_PCT,
+              DoubleModifier.MOX_EXPERIENCE_PCT,
+              DoubleModifier.FAMILIAR_ACTION_BONUS));
+
   public Modifiers() {
     // Everything should be initialized above.
   }
@@ -452,9 +504,7 @@ public class Modifiers {
     boolean changed = false;
     this.originalLookup = mods.originalLookup;
 
-    for (var mod : DoubleModifier.DOUBLE_MODIFIERS) {
-      changed |= this.setDouble(mod, mods.doubles.get(mod));
-    }
+    changed |= this.doubles.set(mods.doubles);
 
     for (var mod : BitmapModifier.BITMAP_MODIFIERS) {
       changed |= this.setBitmap(mod, mods.bitmaps.get(mod));
@@ -553,6 +603,11 @@ public class Modifiers {
     }
   }
 
+  /** Whether add() has to pass every double modifier through addDouble. */
+  protected boolean addsEachDouble() {
+    return false;
+  }
+
   public void addBitmap(BitmapModifier modifier, int bit) {
     this.bitmaps.add(modifier, bit);
   }
@@ -573,7 +628,7 @@ public class Modifiers {
 
     // Unarmed modifiers apply only if the character has no weapon or offhand
     boolean unarmed = mods.getBoolean(BooleanModifier.UNARMED);
-    if (unarmed && !Modifiers.unarmed) {
+    if (unarmed && !EvaluationContext.current().isUnarmed()) {
       return;
     }
 
@@ -584,12 +639,20 @@ public class Modifiers {
         mods.booleans.get(BooleanModifier.NONSTACKABLE_WATCH)
             && this.booleans.get(BooleanModifier.NONSTACKABLE_WATCH);
 
-    mods.doubles.forEach(
-        (i, addition) -> {
-          if (!bothWatches || i != DoubleModifier.ADVENTURES) {
-            this.addDouble(i, addition, lookup);
-          }
-        });
+    if (bothWatches || this.addsEachDouble()) {
+      mods.doubles.forEach(
+          (i, addition) -> {
+            if (!bothWatches || i != DoubleModifier.ADVENTURES) {
+              this.addDouble(i, addition, lookup);
+            }
+          });
+    } else {
+      // Most modifiers are simply summed, which is done for all of them at once.
+      this.doubles.add(
+          mods.doubles,
+          SPECIAL_DOUBLE_MODIFIERS,
+          (i, addition) -> this.addDouble(i, addition, lookup));
+    }
 
     // Add in string modifiers as appropriate.
 
@@ -791,8 +854,9 @@ public class Modifiers {
   // TODO: what does this do? what is expressions? Something to do with the [X] strings?
   public boolean override(final Lookup lookup) {
     if (this.expressions != null) {
+      EvaluationContext context = EvaluationContext.current();
       for (Indexed<DoubleModifier, ModifierExpression> entry : this.expressions) {
-        this.setDouble(entry.index, entry.value.eval());
+        this.setDouble(entry.index, entry.value.eval(context));
       }
     }
 
@@ -809,6 +873,20 @@ public class Modifiers {
     };
   }
 
+  /** Returns a copy whose variable modifiers can be overridden without changing these. */
+  public Modifiers variableCopy() {
+    Modifiers copy = new Modifiers(this);
+    copy.expressions = this.expressions;
+    return copy;
+  }
+
+  public List<ModifierExpression> getExpressions() {
+    if (this.expressions == null) {
+      return List.of();
+    }
+    return this.expressions.stream().map(entry -> entry.value).toList();
+  }
+
   public void addExpression(Indexed<DoubleModifier, ModifierExpression> entry) {
     if (this.expressions == null) {
       this.expressions = new ArrayList<>();
@@ -817,56 +895,162 @@ public class Modifiers {
   }
 
   public void applyPassiveModifiers(final boolean debug) {
-    if (Modifiers.cachedPassiveModifiers == null) {
-      Modifiers.cachedPassiveModifiers =
-          new Modifiers(new Lookup(ModifierType.GENERATED, "cachedPassives"));
-      PreferenceListenerRegistry.registerPreferenceListener(
-          new String[] {"(skill)", "kingLiberated"}, () -> Modifiers.availableSkillsChanged = true);
-    }
-
-    if (debug
-        || Modifiers.availableSkillsChanged
-        || Modifiers.availablePassiveSkillModifiersByVariable.isEmpty()) {
-      // Collect all passive skills currently on the character.
-      Modifiers.availablePassiveSkillModifiersByVariable.putAll(
-          KoLCharacter.getAvailableSkillIds().stream()
-              .filter(SkillDatabase::isPassive)
-              .map(UseSkillRequest::getUnmodifiedInstance)
-              .filter(Objects::nonNull)
-              .filter(UseSkillRequest::isEffective)
-              .map(skill -> ModifierDatabase.getModifiers(ModifierType.SKILL, skill.getSkillId()))
-              .filter(Objects::nonNull)
-              .collect(
-                  Collectors.partitioningBy(
-                      modifiers -> modifiers.override(modifiers.getLookup()))));
-
-      // Recompute sum of cached constant passive skills.
-      Modifiers.cachedPassiveModifiers.reset();
-      Modifiers.availablePassiveSkillModifiersByVariable
-          .get(false)
-          .forEach(
-              mods -> {
-                Modifiers.cachedPassiveModifiers.add(mods);
-
-                // If we are debugging, add them directly. Also add them to the cache though
-                if (debug) {
-                  this.add(mods);
-                }
-              });
-      Modifiers.availableSkillsChanged = false;
+    Modifiers passives;
+    List<Modifiers> variablePassives;
+
+    // Speculation may run on several threads; only one of them rebuilds the cache.
+    synchronized (Modifiers.availablePassiveSkillModifiersByVariable) {
+      if (Modifiers.cachedPassiveModifiers == null) {
+        Modifiers.cachedPassiveModifiers =
+            new Modifiers(new Lookup(ModifierType.GENERATED, "cachedPassives"));
+        PreferenceListenerRegistry.registerPreferenceListener(
+            new String[] {"(skill)", "kingLiberated"},
+            () -> Modifiers.availableSkillsChanged = true);
+      }
+
+      if (debug
+          || Modifiers.availableSkillsChanged
+          || Modifiers.availablePassiveSkillModifiersByVariable.isEmpty()) {
+        // Collect all passive skills currently on the character.
+        Modifiers.availablePassiveSkillModifiersByVariable.putAll(
+            KoLCharacter.getAvailableSkillIds().stream()
+                .filter(SkillDatabase::isPassive)
+                .map(UseSkillRequest::getUnmodifiedInstance)
+                .filter(Objects::nonNull)
+                .filter(UseSkillRequest::isEffective)
+                .map(
+                    skill -> ModifierDatabase.getModifiers(ModifierType.SKILL, skill.getSkillId()))
+                .filter(Objects::nonNull)
+                .collect(
+                    Collectors.partitioningBy(
+                        modifiers -> modifiers.override(modifiers.getLookup()))));
+
+        // Recompute sum of cached constant passive skills. Other threads may
+        // still be adding the old sum, so build a new one.
+        Modifiers sum = new Modifiers(new Lookup(ModifierType.GENERATED, "cachedPassives"));
+        Modifiers.availablePassiveSkillModifiersByVariable
+            .get(false)
+            .forEach(
+                mods -> {
+                  sum.add(mods);
+
+                  // If we are debugging, add them directly. Also add them to the cache though
+                  if (debug) {
+                    this.add(mods);
+                  }
+                });
+        Modifiers.cachedPassiveModifiers = sum;
+        Modifiers.availableSkillsChanged = false;
+      }
+
+      passives = Modifiers.cachedPassiveModifiers;
+      variablePassives = Modifiers.availablePassiveSkillModifiersByVariable.get(true);
     }
 
     // If we're debugging we've already added the modifiers while building the passive cache.
     if (!debug) {
-      this.add(Modifiers.cachedPassiveModifiers);
+      this.add(passives);
     }
 
     // Add variable modifiers.
-    Modifiers.availablePassiveSkillModifiersByVariable.get(true).forEach(this::add);
+    variablePassives.forEach(this::add);
   }
 
   public static void resetAvailablePassiveSkills() {
-    availablePassiveSkillModifiersByVariable.clear();
+    synchronized (availablePassiveSkillModifiersByVariable) {
+      availablePassiveSkillModifiersByVariable.clear();
+    }
+  }
+
+  public void applyEffectModifiers(final List<AdventureResult> effects, final boolean debug) {
+    List<Modifiers> sources = new ArrayList<>(effects.size());
+    for (AdventureResult effect : effects) {
+      Modifiers mods = ModifierDatabase.getEffectModifiers(effect.getEffectId());
+      if (mods != null) {
+        sources.add(mods);
+      }
+    }
+
+    // If we are debugging, add them one at a time so that each shows up.
+    if (debug) {
+      sources.forEach(this::add);
+      return;
+    }
+
+    this.addGroup(ModifierGroup.EFFECTS, sources);
+  }
+
+  /**
+   * Adds the modifiers in a group. Speculation recalculates with the same ones over and over, so
+   * the constant ones are summed once and only the others are added one at a time.
+   */
+  public void addGroup(final ModifierGroup group, final List<Modifiers> sources) {
+    if (this.addsEachDouble()) {
+      sources.forEach(this::add);
+      return;
+    }
+
+    // Variable modifiers may be private copies, so they are not part of the key.
+    List<Modifiers> constant =
+        sources.stream().filter(mods -> mods != null && !mods.variable).toList();
+    ModifierSum cached = Modifiers.cachedModifierSums.get(group);
+    if (cached == null || !Modifiers.sameSources(cached.sources, constant)) {
+      // Item drops from some types of modifier are doubled, so those are summed separately
+      Map<Boolean, Modifiers> sums = new TreeMap<>();
+      for (Modifiers mods : constant) {
+        if (Modifiers.isSummable(mods)) {
+          ModifierType type = mods.getLookup().type;
+          sums.computeIfAbsent(
+                  ModifierDatabase.DOUBLED_BY_SQUINT_CHAMPAGNE.contains(type),
+                  doubled -> new Modifiers(new Lookup(type, new IntOrString("cached " + group))))
+              .add(mods);
+        }
+      }
+      cached = new ModifierSum(constant, sums.values());
+      Modifiers.cachedModifierSums.put(group, cached);
+    }
+
+    cached.sums.forEach(this::add);
+    for (Modifiers mods : sources) {
+      if (mods != null && !Modifiers.isSummable(mods)) {
+        this.add(mods);
+      }
+    }
+  }
+
+  private static boolean sameSources(final List<Modifiers> a, final List<Modifiers> b) {
+    if (a.size() != b.size()) {
+      return false;
+    }
+    for (int i = 0; i < a.size(); ++i) {
+      // Overridden or reloaded modifiers are new objects
+      if (a.get(i) != b.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Modifiers that may be added ahead of their turn: constant, not conditional
+  // on class or weapon, and without anything whose result depends on ordering.
+  private static boolean isSummable(final Modifiers mods) {
+    if (mods.variable
+        || !mods.strings.get(StringModifier.CLASS).isEmpty()
+        || mods.booleans.get(BooleanModifier.UNARMED)
+        || mods.booleans.get(BooleanModifier.NONSTACKABLE_WATCH)) {
+      return false;
+    }
+    for (var mod : ORDERED_STRING_MODIFIERS) {
+      if (!mods.strings.get(mod).isEmpty()) {
+        return false;
+      }
+    }
+    for (var mod : ORDERED_DOUBLE_MODIFIERS) {
+      if (mods.doubles.get(mod) != 0.0) {
+        return false;
+      }
+    }
+    return true;
   }
 
   public final void applyFloristModifiers() {
@@ -874,11 +1058,12 @@ public class Modifiers {
       return;
     }
 
-    if (Modifiers.currentLocation == null) {
+    String location = EvaluationContext.current().getLocation();
+    if (location == null) {
       return;
     }
 
-    List<Florist> plants = FloristRequest.getPlants(Modifiers.currentLocation);
+    List<Florist> plants = FloristRequest.getPlants(location);
     if (plants == null) {
       return;
     }
@@ -889,12 +1074,13 @@ public class Modifiers {
   }
 
   public final void applyAutumnatonModifiers() {
-    if (Modifiers.currentLocation == null || Modifiers.currentLocation.equals("")) return;
+    String location = EvaluationContext.current().getLocation();
+    if (location == null || location.equals("")) return;
 
     var questLocation = AutumnatonManager.getQuestLocation();
     if (questLocation.equals("")) return;
 
-    if (Modifiers.currentLocation.equals(questLocation)) {
+    if (location.equals(questLocation)) {
       this.addDouble(DoubleModifier.EXPERIENCE, 1, ModifierType.AUTUMNATON, "");
     }
   }
@@ -940,7 +1126,7 @@ public class Modifiers {
       final FamiliarData familiar, int weight, final AdventureResult famItem) {
     int familiarId = familiar.getId();
     weight = Math.max(1, weight);
-    Modifiers.currentWeight = weight;
+    EvaluationContext.current().setFamiliarWeight(weight);
 
     String race = familiar.getRace();
 
@@ -952,12 +1138,14 @@ public class Modifiers {
         familiarId = FamiliarDatabase.getFamiliarId(race);
       }
     }
-    this.add(ModifierDatabase.getModifiers(ModifierType.FAMILIAR, race));
+    List<Modifiers> familiarModifiers = new ArrayList<>(2);
+    familiarModifiers.add(ModifierDatabase.getModifiers(ModifierType.FAMILIAR, race));
     if (famItem != null) {
       // "fameq" modifiers are generated when "Familiar Effect" is parsed
       // from modifiers.txt
-      this.add(ModifierDatabase.getModifiers(ModifierType.FAM_EQ, famItem.getName()));
+      familiarModifiers.add(ModifierDatabase.getModifiers(ModifierType.FAM_EQ, famItem.getName()));
     }
+    this.addGroup(ModifierGroup.FAMILIAR, familiarModifiers);
 
     int cap = (int) this.getDouble(DoubleModifier.FAMILIAR_WEIGHT_CAP);
     int cappedWeight = (cap == 0) ? weight : Math.min(weight, cap);
@@ -1044,7 +1232,7 @@ public class Modifiers {
       this.addDouble(
           DoubleModifier.EXPERIENCE,
           Math.min(
-              Math.max(factor * (Modifiers.currentML / 4) * (0.1 + 0.005 * effective), 1),
+              Math.max(factor * (Modifiers.getCurrentML() / 4) * (0.1 + 0.005 * effective), 1),
               maxStats),
           ModifierType.FAMILIAR,
           race);
@@ -1252,26 +1440,20 @@ public class Modifiers {
   }
 
   public static void setLocation(KoLAdventure location) {
-    if (location == null) {
-      Modifiers.currentLocation = "";
-      Modifiers.currentZone = "";
-      Modifiers.currentML = 4.0;
-      return;
-    }
+    EvaluationContext.current().setLocation(location);
+    MaximizerCache.invalidate();
+  }
 
-    Modifiers.currentLocation = location.getAdventureName();
-    Modifiers.currentZone = location.getZone();
-    Modifiers.currentEnvironment = location.getEnvironment().toString();
-    AreaCombatData data = location.getAreaSummary();
-    Modifiers.currentML = Math.max(4.0, data == null ? 0.0 : data.getAverageML());
+  public static String getCurrentLocation() {
+    return EvaluationContext.current().getLocation();
   }
 
   public static double getCurrentML() {
-    return Modifiers.currentML;
+    return EvaluationContext.current().getMonsterLevel();
   }
 
   public static void setFamiliar(FamiliarData fam) {
-    Modifiers.currentFamiliar = fam == null ? "" : fam.getRace();
+    EvaluationContext.current().setFamiliar(fam);
   }
 
   @Override
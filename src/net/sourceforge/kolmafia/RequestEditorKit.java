@@ -73,6 +73,7 @@ import net.sourceforge.kolmafia.session.VolcanoMazeManager;
 import net.sourceforge.kolmafia.swingui.RequestFrame;
 import net.sourceforge.kolmafia.swingui.widget.RequestPane;
 import net.sourceforge.kolmafia.utilities.ChoiceUtilities;
+import net.sourceforge.kolmafia.utilities.EditList;
 import net.sourceforge.kolmafia.utilities.FileUtilities;
 import net.sourceforge.kolmafia.utilities.StringUtilities;
 import net.sourceforge.kolmafia.webui.BasementDecorator;
@@ -474,12 +475,12 @@ public class RequestEditorKit extends HTMLEditorKit {
       StringUtilities.insertBefore(
           buffer,
           "</head>",
-          "<script language=\"Javascript\" src=\"/" + KoLConstants.BASICS_JS + "\"></script>");
-
-      StringUtilities.insertBefore(
-          buffer,
-          "</head>",
-          "<link rel=\"stylesheet\" href=\"/" + KoLConstants.BASICS_CSS + "\" />");
+          "<script language=\"Javascript\" src=\"/"
+              + KoLConstants.BASICS_JS
+              + "\"></script>"
+              + "<link rel=\"stylesheet\" href=\"/"
+              + KoLConstants.BASICS_CSS
+              + "\" />");
     }
 
     // Skip additional decorations for the character pane and the top menu
@@ -889,14 +890,12 @@ public class RequestEditorKit extends HTMLEditorKit {
   private static void suppressRedundantRefreshes(final StringBuffer buffer) {
     Matcher matcher = CHARPANE_REFRESH_PATTERN.matcher(buffer);
     MatchResult[] matches = matcher.results().toArray(MatchResult[]::new);
-    // Index of the last match - if any
-    int index = matches.length - 1;
-    // If there is more than one match, retain only the final one. Since we are
-    // removing matches from the buffer, count down to preserve earlier indices
-    while (index > 0) {
-      MatchResult result = matches[--index];
-      buffer.replace(result.start(), result.end(), "");
+    // If there is more than one match, retain only the final one
+    EditList edits = new EditList();
+    for (int index = 0; index < matches.length - 1; ++index) {
+      edits.delete(matches[index].start(), matches[index].end());
     }
+    edits.apply(buffer);
   }
 
   // <script>
@@ -141,20 +141,23 @@ public class Speculation {
   }
 
   public Modifiers calculate() {
-    this.mods =
-        KoLCharacter.recalculateAdjustments(
-            false,
-            this.MCD,
-            this.equipment,
-            this.effects,
-            this.familiar,
-            this.enthroned,
-            this.bjorned,
-            this.custom,
-            this.horsery,
-            this.boomBox,
-            this.modeables,
-            true);
+    // Keep the speculative weapon, familiar, etc. out of the shared context
+    try (var context = EvaluationContext.isolate()) {
+      this.mods =
+          KoLCharacter.recalculateAdjustments(
+              false,
+              this.MCD,
+              this.equipment,
+              this.effects,
+              this.familiar,
+              this.enthroned,
+              this.bjorned,
+              this.custom,
+              this.horsery,
+              this.boomBox,
+              this.modeables,
+              true);
+    }
     this.calculated = true;
     return this.mods;
   }
@@ -34,39 +34,48 @@ public class ListenerRegistry {
   public ListenerRegistry() {}
 
   public void deferListeners(boolean deferring) {
-    // If we are deferring, increment defer level
-    if (deferring) {
-      this.deferring += 1;
-      return;
-    }
+    Object[] listenerArray;
 
-    // If we are undeferring but are not deferred, do nothing
-    if (this.deferring == 0) {
-      return;
-    }
+    // Requests on other threads defer and undefer too
+    synchronized (this.deferred) {
+      // If we are deferring, increment defer level
+      if (deferring) {
+        this.deferring += 1;
+        return;
+      }
 
-    // If we are undeferring and are still deferred, nothing more to do
-    if (--this.deferring > 0) {
-      return;
+      // If we are undeferring but are not deferred, do nothing
+      if (this.deferring == 0) {
+        return;
+      }
+
+      // If we are undeferring and are still deferred, nothing more to do
+      if (--this.deferring > 0) {
+        return;
+      }
+
+      listenerArray = new Object[this.deferred.size()];
+      this.deferred.toArray(listenerArray);
+      this.deferred.clear();
     }
 
     // We were deferred but are no longer deferred. Fire at Will!
 
     boolean logit = ListenerRegistry.logging && RequestLogger.isDebugging();
 
-    synchronized (this.deferred) {
-      Object[] listenerArray = new Object[this.deferred.size()];
-      this.deferred.toArray(listenerArray);
-      this.deferred.clear();
+    // A listener registered for several of the deferred keys is only updated once.
+    HashSet<Listener> notified = new HashSet<>();
 
-      for (Object key : listenerArray) {
-        ArrayList<WeakReference<Listener>> listenerList = this.listenerMap.get(key);
-        if (logit) {
-          int count = listenerList == null ? 0 : listenerList.size();
-          RequestLogger.updateDebugLog("Firing " + count + " listeners for \"" + key + "\"");
-        }
-        this.fireListeners(listenerList, null);
+    for (Object key : listenerArray) {
+      ArrayList<WeakReference<Listener>> listenerList;
+      synchronized (this.listenerMap) {
+        listenerList = this.listenerMap.get(key);
       }
+      if (logit) {
+        int count = listenerList == null ? 0 : listenerList.size();
+        RequestLogger.updateDebugLog("Firing " + count + " listeners for \"" + key + "\"");
+      }
+      this.fireListeners(listenerList, notified);
     }
   }
 
@@ -123,11 +132,11 @@ public class ListenerRegistry {
               + "\"");
     }
 
-    if (this.deferring > 0) {
-      synchronized (this.deferred) {
+    synchronized (this.deferred) {
+      if (this.deferring > 0) {
         this.deferred.add(key);
+        return;
       }
-      return;
     }
 
     this.fireListeners(listenerList, null);
@@ -136,19 +145,19 @@ public class ListenerRegistry {
   public final void fireAllListeners() {
     boolean logit = ListenerRegistry.logging && RequestLogger.isDebugging();
 
-    if (this.deferring > 0) {
-      Set<Object> keys = null;
-      synchronized (this.listenerMap) {
-        keys = this.listenerMap.keySet();
-      }
-      if (logit) {
-        int count = keys.size();
-        RequestLogger.updateDebugLog("Deferring all listeners for " + count + " keys");
-      }
-      synchronized (this.deferred) {
+    synchronized (this.deferred) {
+      if (this.deferring > 0) {
+        Set<Object> keys = null;
+        synchronized (this.listenerMap) {
+          keys = this.listenerMap.keySet();
+        }
+        if (logit) {
+          int count = keys.size();
+          RequestLogger.updateDebugLog("Deferring all listeners for " + count + " keys");
+        }
         this.deferred.addAll(keys);
+        return;
       }
-      return;
     }
 
     HashSet<ArrayList<WeakReference<Listener>>> listeners = new HashSet<>();
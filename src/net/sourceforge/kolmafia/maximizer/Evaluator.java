@@ -1,6 +1,7 @@
 package net.sourceforge.kolmafia.maximizer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.EnumSet;
@@ -17,6 +18,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import net.sourceforge.kolmafia.AdventureResult;
+import net.sourceforge.kolmafia.EvaluationContext;
 import net.sourceforge.kolmafia.FamiliarData;
 import net.sourceforge.kolmafia.KoLCharacter;
 import net.sourceforge.kolmafia.KoLCharacter.TurtleBlessing;
@@ -57,7 +59,7 @@ import net.sourceforge.kolmafia.session.EquipmentManager;
 import net.sourceforge.kolmafia.session.InventoryManager;
 import net.sourceforge.kolmafia.utilities.StringUtilities;
 
-public class Evaluator {
+public class Evaluator implements Cloneable {
   public boolean failed;
   boolean exceeded;
   private Evaluator tiebreaker;
@@ -107,6 +109,7 @@ public class Evaluator {
   private final Set<AdventureResult> negEquip = new HashSet<>();
   private final Map<AdventureResult, Double> bonuses = new HashMap<>();
   private final List<BonusFunction> bonusFunc = new ArrayList<>();
+  ScoreBound bound = null;
 
   static class BonusFunction {
     public final Function<AdventureResult, Double> bonusFunction;
@@ -210,6 +213,22 @@ public class Evaluator {
     this.parse(expr);
   }
 
+  /**
+   * Returns a copy that shares the parsed expression but has its own scoring state, for use by
+   * another search thread.
+   */
+  Evaluator view() {
+    try {
+      Evaluator view = (Evaluator) super.clone();
+      if (this.tiebreaker != null) {
+        view.tiebreaker = this.tiebreaker.view();
+      }
+      return view;
+    } catch (CloneNotSupportedException e) {
+      return null;
+    }
+  }
+
   private void parse(String expr) {
     expr = expr.trim().toLowerCase();
     Matcher m = KEYWORD_PATTERN.matcher(expr);
@@ -585,7 +604,7 @@ public class Evaluator {
           index = DoubleModifier.primeStat();
         } else if (keyword.startsWith("com")) {
           index = DoubleModifier.COMBAT_RATE;
-          if (AdventureDatabase.getEnvironment(Modifiers.currentLocation).isUnderwater()) {
+          if (AdventureDatabase.getEnvironment(Modifiers.getCurrentLocation()).isUnderwater()) {
             this.weight.set(DoubleModifier.UNDERWATER_COMBAT_RATE, weight);
           }
         } else if (keyword.startsWith("item")) {
@@ -931,6 +950,117 @@ public class Evaluator {
     return !this.noTiebreaker;
   }
 
+  // Whether items score no better together than apart, other than through
+  // outfits and synergies, so that a ScoreBound holds.
+  private boolean isSeparable(Set<Integer> reachable) {
+    if (!this.familiars.isEmpty()) return false;
+    if (this.weight.get(DoubleModifier.MUS) != 0.0
+        || this.weight.get(DoubleModifier.MYS) != 0.0
+        || this.weight.get(DoubleModifier.MOX) != 0.0) {
+      // Equalizing stats, or flooring one buffed stat at another, makes an
+      // item's stats worth more or less depending on what else is worn.
+      if (Evaluator.couplesStats(KoLCharacter.getCurrentModifiers())) return false;
+      for (int id : reachable) {
+        if (Evaluator.couplesStats(ModifierDatabase.getItemModifiers(id))) return false;
+      }
+      for (var outfit : EquipmentDatabase.normalOutfits.values()) {
+        if (outfit == null) continue;
+        Modifiers mods = ModifierDatabase.getModifiers(ModifierType.OUTFIT, outfit.getName());
+        if (Evaluator.couplesStats(mods)) return false;
+      }
+      for (Entry<String, Integer> entry : ModifierDatabase.getSynergies()) {
+        Modifiers mods = ModifierDatabase.getModifiers(ModifierType.SYNERGY, entry.getKey());
+        if (Evaluator.couplesStats(mods)) return false;
+      }
+    }
+    if (this.clownosity > 0 || this.raveosity > 0 || this.surgeonosity > 0) return false;
+    for (var mod : DoubleModifier.DOUBLE_MODIFIERS) {
+      double weight = this.weight.get(mod);
+      if (weight == 0.0) continue;
+      switch (mod) {
+        case HP, MP, EXPERIENCE, FAMILIAR_WEIGHT:
+          // Derived from products of other modifiers
+          return false;
+      }
+      if (weight < 0.0 && this.max.get(mod) != Double.POSITIVE_INFINITY) {
+        // Only pays off once enough items together reach the cap
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final List<StringModifier> STAT_COUPLINGS =
+      List.of(
+          StringModifier.EQUALIZE,
+          StringModifier.EQUALIZE_MUSCLE,
+          StringModifier.EQUALIZE_MYST,
+          StringModifier.EQUALIZE_MOXIE,
+          StringModifier.FLOOR_BUFFED_MUSCLE,
+          StringModifier.FLOOR_BUFFED_MYST,
+          StringModifier.FLOOR_BUFFED_MOXIE);
+
+  private static boolean couplesStats(Modifiers mods) {
+    return mods != null && STAT_COUPLINGS.stream().anyMatch(mod -> !mods.getString(mod).isEmpty());
+  }
+
+  // Every item the search could end up with: the candidates for each slot,
+  // the outfit pieces, and whatever stays in the slots it doesn't search.
+  private static Set<Integer> reachableItems(
+      MaximizerSpeculation spec,
+      SlotList<CheckedItem> automatic,
+      Map<AdventureResult, AdventureResult> outfitPieces) {
+    Set<Integer> reachable = new HashSet<>();
+    Set<Slot> slots = EnumSet.copyOf(SlotSet.SLOTS);
+    slots.add(Evaluator.WATCHES);
+    slots.add(Evaluator.WEAPON_1H);
+    for (var slot : slots) {
+      for (CheckedItem item : automatic.get(slot)) {
+        reachable.add(item.getItemId());
+      }
+      AdventureResult item = spec.equipment.get(slot);
+      if (item != null) {
+        reachable.add(item.getItemId());
+      }
+    }
+    for (AdventureResult item : outfitPieces.values()) {
+      reachable.add(item.getItemId());
+    }
+    return reachable;
+  }
+
+  // The most that outfit and synergy bonuses, and the rounding of buffed
+  // stats, can add on top of what the items score individually. Outfits
+  // which don't share pieces can be worn together, so every outfit the
+  // search could complete adds its bonus.
+  private double bonusSlack(double nullScore, Set<Integer> reachable, int slots) {
+    double outfitBonus = 0.0;
+    for (var outfit : EquipmentDatabase.normalOutfits.values()) {
+      if (outfit == null) continue;
+      if (!Arrays.stream(outfit.getPieces()).allMatch(p -> reachable.contains(p.getItemId()))) {
+        continue;
+      }
+      Modifiers mods = ModifierDatabase.getModifiers(ModifierType.OUTFIT, outfit.getName());
+      if (mods == null) continue;
+      outfitBonus += Math.max(0.0, this.getScore(mods) - nullScore);
+    }
+
+    double synergyBonus = 0.0;
+    for (Entry<String, Integer> entry : ModifierDatabase.getSynergies()) {
+      Modifiers mods = ModifierDatabase.getModifiers(ModifierType.SYNERGY, entry.getKey());
+      if (mods == null) continue;
+      synergyBonus += Math.max(0.0, this.getScore(mods) - nullScore);
+    }
+
+    double rounding =
+        (Math.abs(this.weight.get(DoubleModifier.MUS))
+                + Math.abs(this.weight.get(DoubleModifier.MYS))
+                + Math.abs(this.weight.get(DoubleModifier.MOX)))
+            * slots;
+
+    return outfitBonus + synergyBonus + rounding;
+  }
+
   enum Constraint {
     /** Item violates a constraint, don't use it */
     VIOLATES,
@@ -1303,7 +1433,7 @@ public class Evaluator {
               continue;
             }
             if (hoboPowerUseful && name.startsWith("Hodgman's")) {
-              Modifiers.hoboPower = 100.0;
+              EvaluationContext.current().setHoboPower(100.0);
               item.automaticFlag = true;
             }
             break;
@@ -2275,6 +2405,28 @@ public class Evaluator {
           }
         });
 
+    this.bound = null;
+    if (Preferences.getBoolean("maximizerBranchAndBound")
+        && !hoboPowerUseful
+        && !smithsnessUseful
+        && !brimstoneUseful
+        && !cloathingUseful
+        && !slimeHateUseful) {
+      Set<Integer> reachable = Evaluator.reachableItems(spec, automatic, outfitPieces);
+      if (this.isSeparable(reachable)) {
+        this.bound =
+            new ScoreBound(
+                spec,
+                outfitPieces,
+                automatic,
+                useCard,
+                this.carriedFamiliars,
+                useCrownFamiliar,
+                useBjornFamiliar);
+        this.bound.addSlack(this.bonusSlack(nullScore, reachable, this.bound.searchedSlots()));
+      }
+    }
+
     spec.tryAll(
         this.familiars,
         this.carriedFamiliars,
@@ -82,6 +82,8 @@ public class Maximizer {
   };
 
   static MaximizerSpeculation best;
+  // Whether the last equipment search ran to the end, rather than being cut off
+  static boolean complete;
   static int bestChecked;
   static long bestUpdate;
 
@@ -99,6 +101,11 @@ public class Maximizer {
 
     KoLmafiaCLI.isExecutingCheckOnlyCommand = false;
 
+    boolean useCache = isSpeculationOnly && MaximizerCache.isEnabled();
+    if (useCache && MaximizerCache.restore(maximizerString, maxPrice, priceLevel)) {
+      return !Maximizer.best.failed;
+    }
+
     Maximizer.maximize(equipScope, maxPrice, priceLevel, false, EnumSet.allOf(filterType.class));
 
     if (!KoLmafia.permitsContinue()) {
@@ -108,6 +115,10 @@ public class Maximizer {
     Modifiers mods = Maximizer.best.calculate();
     ModifierDatabase.overrideModifier(ModifierType.GENERATED, "_spec", mods);
 
+    if (useCache && Maximizer.complete) {
+      MaximizerCache.store(maximizerString, maxPrice, priceLevel, mods);
+    }
+
     return !Maximizer.best.failed;
   }
 
@@ -154,6 +165,7 @@ public class Maximizer {
       Maximizer.best.failed = true;
       Maximizer.bestChecked = 0;
       Maximizer.bestUpdate = System.currentTimeMillis() + 5000;
+      Maximizer.complete = true;
       try {
         Maximizer.eval.enumerateEquipment(equipScope, maxPrice, priceLevel);
       } catch (MaximizerExceededException e) {
@@ -161,6 +173,7 @@ public class Maximizer {
             new Boost(
                 "", "(maximum achieved, no further combinations checked)", Slot.NONE, null, 0.0));
       } catch (MaximizerLimitException e) {
+        Maximizer.complete = false;
         Maximizer.boosts.add(
             new Boost(
                 "",
@@ -169,6 +182,7 @@ public class Maximizer {
                 null,
                 0.0));
       } catch (MaximizerInterruptedException e) {
+        Maximizer.complete = false;
         KoLmafia.forceContinue();
         Maximizer.boosts.add(
             new Boost(
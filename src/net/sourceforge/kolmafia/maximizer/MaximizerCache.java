@@ -0,0 +1,135 @@
+package net.sourceforge.kolmafia.maximizer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.sourceforge.kolmafia.AdventureResult;
+import net.sourceforge.kolmafia.KoLCharacter;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.ModifierType;
+import net.sourceforge.kolmafia.Modifiers;
+import net.sourceforge.kolmafia.persistence.ModifierDatabase;
+import net.sourceforge.kolmafia.preferences.Preferences;
+
+/**
+ * Remembers the results of recent speculative maximizations, so that a script asking the same
+ * question again before anything has changed gets the answer without another search.
+ *
+ * <p>A result is reused only if the version has not moved since it was found. InventoryManager,
+ * EquipmentManager and Modifiers.setLocation bump the version. Effects change in too many places to
+ * hook each one, so the active effects are compared directly, along with the familiar and the turn.
+ * Other state the maximizer reads (preferences, skills, mall prices) can change without notice, so
+ * the cache is only used when maximizerCacheResults is set.
+ */
+public class MaximizerCache {
+  private static final int MAX_ENTRIES = 16;
+
+  private static final AtomicLong version = new AtomicLong();
+  private static final AtomicInteger hits = new AtomicInteger();
+  private static final AtomicInteger misses = new AtomicInteger();
+
+  private record Key(String expression, int maxPrice, PriceLevel priceLevel) {}
+
+  private record State(long version, int turn, int familiar, List<Integer> effects) {
+    static State current() {
+      List<Integer> effects = new ArrayList<>();
+      synchronized (KoLConstants.activeEffects) {
+        for (AdventureResult effect : KoLConstants.activeEffects) {
+          effects.add(effect.getEffectId());
+        }
+      }
+      return new State(
+          MaximizerCache.version.get(),
+          KoLCharacter.getCurrentRun(),
+          KoLCharacter.getFamiliar().getId(),
+          effects);
+    }
+  }
+
+  private record Entry(
+      State state,
+      Evaluator eval,
+      MaximizerSpeculation best,
+      List<Boost> boosts,
+      Modifiers spec) {}
+
+  private static final Map<Key, Entry> entries =
+      new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+          return this.size() > MAX_ENTRIES;
+        }
+      };
+
+  private MaximizerCache() {}
+
+  public static boolean isEnabled() {
+    return Preferences.getBoolean("maximizerCacheResults");
+  }
+
+  /** Note that something the maximizer depends on has changed. */
+  public static void invalidate() {
+    MaximizerCache.version.incrementAndGet();
+  }
+
+  public static void clear() {
+    MaximizerCache.invalidate();
+    synchronized (MaximizerCache.entries) {
+      MaximizerCache.entries.clear();
+    }
+  }
+
+  public static int getHits() {
+    return MaximizerCache.hits.get();
+  }
+
+  public static int getMisses() {
+    return MaximizerCache.misses.get();
+  }
+
+  public static void resetCounters() {
+    MaximizerCache.hits.set(0);
+    MaximizerCache.misses.set(0);
+  }
+
+  /**
+   * If this maximization was done since anything changed, put its results back where the
+   * maximizer leaves them and return true.
+   */
+  static boolean restore(final String expression, final int maxPrice, final PriceLevel level) {
+    Entry entry;
+    synchronized (MaximizerCache.entries) {
+      entry = MaximizerCache.entries.get(new Key(expression, maxPrice, level));
+    }
+
+    if (entry == null || !entry.state.equals(State.current())) {
+      MaximizerCache.misses.incrementAndGet();
+      return false;
+    }
+
+    MaximizerCache.hits.incrementAndGet();
+    Maximizer.eval = entry.eval;
+    Maximizer.best = entry.best;
+    Maximizer.boosts.clear();
+    Maximizer.boosts.addAll(entry.boosts);
+    ModifierDatabase.overrideModifier(ModifierType.GENERATED, "_spec", entry.spec);
+    return true;
+  }
+
+  static void store(
+      final String expression, final int maxPrice, final PriceLevel level, final Modifiers spec) {
+    Entry entry =
+        new Entry(
+            State.current(),
+            Maximizer.eval,
+            Maximizer.best,
+            new ArrayList<>(Maximizer.boosts),
+            spec);
+    synchronized (MaximizerCache.entries) {
+      MaximizerCache.entries.put(new Key(expression, maxPrice, level), entry);
+    }
+  }
+}
@@ -39,6 +39,7 @@ public class MaximizerSpeculation extends Speculation
   public boolean failed = false;
   public CheckedItem attachment;
   private boolean foldables = false;
+  ParallelSearch.Branch branch = null;
 
   @Override
   public MaximizerSpeculation clone() {
@@ -59,6 +60,10 @@ public class MaximizerSpeculation extends Speculation
     return super.toString();
   }
 
+  private Evaluator evaluator() {
+    return this.branch == null ? Maximizer.eval : this.branch.eval;
+  }
+
   public void setUnscored() {
     this.scored = false;
     this.calculated = false;
@@ -67,19 +72,20 @@ public class MaximizerSpeculation extends Speculation
   public double getScore() {
     if (this.scored) return this.score;
     if (!this.calculated) this.calculate();
-    this.score = Maximizer.eval.getScore(this.mods, this.equipment);
+    Evaluator eval = this.evaluator();
+    this.score = eval.getScore(this.mods, this.equipment);
     if (KoLCharacter.inBeecore()) {
       this.beeosity = KoLCharacter.getBeeosity(this.equipment);
     }
-    Maximizer.eval.checkEquipment(this.mods, this.equipment, this.beeosity);
-    this.failed = Maximizer.eval.failed;
+    eval.checkEquipment(this.mods, this.equipment, this.beeosity);
+    this.failed = eval.failed;
     if ((this.mods.getRawBitmap(BitmapModifier.MUTEX_VIOLATIONS)
             & ~KoLCharacter.currentRawBitmapModifier(BitmapModifier.MUTEX_VIOLATIONS))
         != 0) { // We're speculating about something that would create a
       // mutex problem that the player didn't already have.
       this.failed = true;
     }
-    this.exceeded = Maximizer.eval.exceeded;
+    this.exceeded = eval.exceeded;
     this.scored = true;
     return this.score;
   }
@@ -87,7 +93,7 @@ public class MaximizerSpeculation extends Speculation
   public double getTiebreaker() {
     if (this.tiebreakered) return this.tiebreaker;
     if (!this.calculated) this.calculate();
-    this.tiebreaker = Maximizer.eval.getTiebreaker(this.mods);
+    this.tiebreaker = this.evaluator().getTiebreaker(this.mods);
     this.tiebreakered = true;
     this.simplicity = 0;
     for (var slot : SlotSet.ALL_SLOTS) {
@@ -146,18 +152,18 @@ public class MaximizerSpeculation extends Speculation
       if (mods.getBoolean(BooleanModifier.DROPS_MEAT)) countOtherDropsMeat++;
     }
     // Prefer item droppers
-    if (Maximizer.eval.isUsingTiebreaker() && countThisDropsItems != countOtherDropsItems) {
+    if (this.evaluator().isUsingTiebreaker() && countThisDropsItems != countOtherDropsItems) {
       return countThisDropsItems > countOtherDropsItems ? 1 : -1;
     }
     // Prefer meat droppers
-    if (Maximizer.eval.isUsingTiebreaker() && countThisDropsMeat != countOtherDropsMeat) {
+    if (this.evaluator().isUsingTiebreaker() && countThisDropsMeat != countOtherDropsMeat) {
       return countThisDropsMeat > countOtherDropsMeat ? 1 : -1;
     }
     // Prefer higher tiebreaker account (unless -tie used)
     rv = Double.compare(this.getTiebreaker(), other.getTiebreaker());
     if (rv != 0) return rv;
     // Prefer rollover effects
-    if (Maximizer.eval.isUsingTiebreaker() && countThisEffects != countOtherEffects) {
+    if (this.evaluator().isUsingTiebreaker() && countThisEffects != countOtherEffects) {
       return countThisEffects > countOtherEffects ? 1 : -1;
     }
     // Prefer unbreakables
@@ -211,6 +217,19 @@ public class MaximizerSpeculation extends Speculation
       FamiliarData useBjornFamiliar)
       throws MaximizerInterruptedException {
     this.foldables = Preferences.getBoolean("maximizerFoldables");
+    if (Preferences.getBoolean("maximizerParallelSearch")) {
+      ParallelSearch.tryAll(
+          this,
+          familiars,
+          enthronedFamiliars,
+          usefulOutfits,
+          outfitPieces,
+          possibles,
+          bestCard,
+          useCrownFamiliar,
+          useBjornFamiliar);
+      return;
+    }
     this.tryOutfits(
         enthronedFamiliars,
         usefulOutfits,
@@ -245,63 +264,9 @@ public class MaximizerSpeculation extends Speculation
     var mark = this.mark();
     for (Integer outfit : usefulOutfits.keySet()) {
       if (!usefulOutfits.get(outfit)) continue;
-      AdventureResult[] pieces = EquipmentDatabase.getOutfit(outfit).getPieces();
-      pieceloop:
-      for (int idx = pieces.length - 1; ; --idx) {
-        if (idx == -1) { // all pieces successfully put on
-          this.tryFamiliarItems(
-              enthronedFamiliars, possibles, bestCard, useCrownFamiliar, useBjornFamiliar);
-          break;
-        }
-        AdventureResult item = outfitPieces.get(pieces[idx]);
-        if (item == null) break; // not available
-        int count = item.getCount();
-        Slot slot = EquipmentManager.itemIdToEquipmentType(item.getItemId());
-
-        switch (slot) {
-          case HAT:
-          case PANTS:
-          case SHIRT:
-          case CONTAINER:
-            if (item.equals(this.equipment.get(slot))) { // already worn
-              continue pieceloop;
-            }
-            if (item.equals(this.equipment.get(Slot.FAMILIAR))) {
-              --count;
-            }
-            break;
-          case WEAPON:
-          case OFFHAND:
-            if (item.equals(this.equipment.get(Slot.WEAPON))
-                || item.equals(this.equipment.get(Slot.OFFHAND))) { // already worn
-              continue pieceloop;
-            }
-            if (item.equals(this.equipment.get(Slot.FAMILIAR))) {
-              --count;
-            }
-            break;
-          case ACCESSORY1:
-            if (item.equals(this.equipment.get(Slot.ACCESSORY1))
-                || item.equals(this.equipment.get(Slot.ACCESSORY2))
-                || item.equals(this.equipment.get(Slot.ACCESSORY3))) { // already worn
-              continue pieceloop;
-            }
-            if (item.equals(this.equipment.get(Slot.FAMILIAR))) {
-              --count;
-            }
-            if (this.equipment.get(Slot.ACCESSORY3) == null) {
-              slot = Slot.ACCESSORY3;
-            } else if (this.equipment.get(Slot.ACCESSORY2) == null) {
-              slot = Slot.ACCESSORY2;
-            }
-            break;
-          default:
-            break pieceloop; // don't know how to wear that
-        }
-
-        if (count <= 0) break; // none available
-        if (this.equipment.get(slot) != null) break; // slot taken
-        this.equipment.put(slot, item);
+      if (this.wearOutfit(outfit, outfitPieces)) {
+        this.tryFamiliarItems(
+            enthronedFamiliars, possibles, bestCard, useCrownFamiliar, useBjornFamiliar);
       }
       this.restore(mark);
     }
@@ -310,6 +275,65 @@ public class MaximizerSpeculation extends Speculation
         enthronedFamiliars, possibles, bestCard, useCrownFamiliar, useBjornFamiliar);
   }
 
+  // Put on every piece of the outfit that isn't already worn.  Returns false
+  // if some piece is unavailable or its slot is already taken.
+  boolean wearOutfit(Integer outfit, Map<AdventureResult, AdventureResult> outfitPieces) {
+    AdventureResult[] pieces = EquipmentDatabase.getOutfit(outfit).getPieces();
+    pieceloop:
+    for (int idx = pieces.length - 1; idx >= 0; --idx) {
+      AdventureResult item = outfitPieces.get(pieces[idx]);
+      if (item == null) return false; // not available
+      int count = item.getCount();
+      Slot slot = EquipmentManager.itemIdToEquipmentType(item.getItemId());
+
+      switch (slot) {
+        case HAT:
+        case PANTS:
+        case SHIRT:
+        case CONTAINER:
+          if (item.equals(this.equipment.get(slot))) { // already worn
+            continue pieceloop;
+          }
+          if (item.equals(this.equipment.get(Slot.FAMILIAR))) {
+            --count;
+          }
+          break;
+        case WEAPON:
+        case OFFHAND:
+          if (item.equals(this.equipment.get(Slot.WEAPON))
+              || item.equals(this.equipment.get(Slot.OFFHAND))) { // already worn
+            continue pieceloop;
+          }
+          if (item.equals(this.equipment.get(Slot.FAMILIAR))) {
+            --count;
+          }
+          break;
+        case ACCESSORY1:
+          if (item.equals(this.equipment.get(Slot.ACCESSORY1))
+              || item.equals(this.equipment.get(Slot.ACCESSORY2))
+              || item.equals(this.equipment.get(Slot.ACCESSORY3))) { // already worn
+            continue pieceloop;
+          }
+          if (item.equals(this.equipment.get(Slot.FAMILIAR))) {
+            --count;
+          }
+          if (this.equipment.get(Slot.ACCESSORY3) == null) {
+            slot = Slot.ACCESSORY3;
+          } else if (this.equipment.get(Slot.ACCESSORY2) == null) {
+            slot = Slot.ACCESSORY2;
+          }
+          break;
+        default:
+          return false; // don't know how to wear that
+      }
+
+      if (count <= 0) return false; // none available
+      if (this.equipment.get(slot) != null) return false; // slot taken
+      this.equipment.put(slot, item);
+    }
+    return true; // all pieces successfully put on
+  }
+
   public void tryFamiliarItems(
       List<FamiliarData> enthronedFamiliars,
       SlotList<CheckedItem> possibles,
@@ -317,6 +341,7 @@ public class MaximizerSpeculation extends Speculation
       FamiliarData useCrownFamiliar,
       FamiliarData useBjornFamiliar)
       throws MaximizerInterruptedException {
+    if (this.cannotBeatBest()) return;
     var mark = this.mark();
     if (this.equipment.get(Slot.FAMILIAR) == null) {
       List<CheckedItem> possible = possibles.get(Slot.FAMILIAR);
@@ -372,6 +397,7 @@ public class MaximizerSpeculation extends Speculation
       FamiliarData useCrownFamiliar,
       FamiliarData useBjornFamiliar)
       throws MaximizerInterruptedException {
+    if (this.cannotBeatBest()) return;
     var mark = this.mark();
     if (this.equipment.get(Slot.CONTAINER) == null) {
       List<CheckedItem> possible = possibles.get(Slot.CONTAINER);
@@ -430,6 +456,7 @@ public class MaximizerSpeculation extends Speculation
       AdventureResult bestCard,
       FamiliarData useCrownFamiliar)
       throws MaximizerInterruptedException {
+    if (this.cannotBeatBest()) return;
     var mark = this.mark();
     int free = 0;
     if (this.equipment.get(Slot.ACCESSORY1) == null) ++free;
@@ -509,6 +536,7 @@ public class MaximizerSpeculation extends Speculation
       AdventureResult bestCard,
       FamiliarData useCrownFamiliar)
       throws MaximizerInterruptedException {
+    if (this.cannotBeatBest()) return;
     var mark = this.mark();
     if (this.equipment.get(Slot.HAT) == null) {
       List<CheckedItem> possible = possibles.get(Slot.HAT);
@@ -568,6 +596,7 @@ public class MaximizerSpeculation extends Speculation
 
   public void tryShirts(SlotList<CheckedItem> possibles, AdventureResult bestCard)
       throws MaximizerInterruptedException {
+    if (this.cannotBeatBest()) return;
     var mark = this.mark();
     if (this.equipment.get(Slot.SHIRT) == null) {
       boolean any = false;
@@ -610,6 +639,7 @@ public class MaximizerSpeculation extends Speculation
 
   public void tryPants(SlotList<CheckedItem> possibles, AdventureResult bestCard)
       throws MaximizerInterruptedException {
+    if (this.cannotBeatBest()) return;
     var mark = this.mark();
     if (this.equipment.get(Slot.PANTS) == null) {
       List<CheckedItem> possible = possibles.get(Slot.PANTS);
@@ -650,6 +680,7 @@ public class MaximizerSpeculation extends Speculation
 
   public void trySixguns(SlotList<CheckedItem> possibles, AdventureResult bestCard)
       throws MaximizerInterruptedException {
+    if (this.cannotBeatBest()) return;
     var mark = this.mark();
     if (this.equipment.get(Slot.HOLSTER) == null) {
       List<CheckedItem> possible = possibles.get(Slot.HOLSTER);
@@ -674,6 +705,7 @@ public class MaximizerSpeculation extends Speculation
 
   public void tryWeapons(SlotList<CheckedItem> possibles, AdventureResult bestCard)
       throws MaximizerInterruptedException {
+    if (this.cannotBeatBest()) return;
     var mark = this.mark();
     boolean chefstaffable =
         KoLCharacter.hasSkill(SkillPool.SPIRIT_OF_RIGATONI) || KoLCharacter.isJarlsberg();
@@ -719,7 +751,7 @@ public class MaximizerSpeculation extends Speculation
       }
 
       // if ( any && <no unarmed items in shortlists> ) return;
-      if (Maximizer.eval.melee < -1 || Maximizer.eval.melee > 1) {
+      if (this.evaluator().melee < -1 || this.evaluator().melee > 1) {
         return;
       }
       this.equipment.put(Slot.WEAPON, EquipmentRequest.UNEQUIP);
@@ -735,6 +767,7 @@ public class MaximizerSpeculation extends Speculation
 
   public void tryOffhands(SlotList<CheckedItem> possibles, AdventureResult bestCard)
       throws MaximizerInterruptedException {
+    if (this.cannotBeatBest()) return;
     var mark = this.mark();
     int weapon = this.equipment.get(Slot.WEAPON).getItemId();
     if (EquipmentDatabase.getHands(weapon) > 1) {
@@ -795,34 +828,50 @@ public class MaximizerSpeculation extends Speculation
     this.calculated = false;
     this.scored = false;
     this.tiebreakered = false;
-    if (Maximizer.best == null) {
-      RequestLogger.updateSessionLog(
-          "Maximizer about to throw LimitExceeded because of null best.");
-      // this isn't really what is happening but trying to understand why this is happening, first.
-      throw new MaximizerLimitException();
-    }
-    if (this.compareTo(Maximizer.best) > 0) {
-      Maximizer.best = this.clone();
-    }
-    Maximizer.bestChecked++;
-    long t = System.currentTimeMillis();
-    if (t > Maximizer.bestUpdate) {
-      MaximizerSpeculation.showProgress();
-      Maximizer.bestUpdate = t + 5000;
+    if (this.branch != null) {
+      this.branch.record(this);
+    } else {
+      if (Maximizer.best == null) {
+        RequestLogger.updateSessionLog(
+            "Maximizer about to throw LimitExceeded because of null best.");
+        // this isn't really what is happening but trying to understand why this is happening, first.
+        throw new MaximizerLimitException();
+      }
+      if (this.compareTo(Maximizer.best) > 0) {
+        Maximizer.best = this.clone();
+      }
+      Maximizer.bestChecked++;
+      long t = System.currentTimeMillis();
+      if (t > Maximizer.bestUpdate) {
+        MaximizerSpeculation.showProgress();
+        Maximizer.bestUpdate = t + 5000;
+      }
     }
     this.restore(mark);
-    if (!KoLmafia.permitsContinue()) {
+    if (!KoLmafia.permitsContinue() || (this.branch != null && this.branch.stopped())) {
       throw new MaximizerInterruptedException();
     }
     if (this.exceeded) {
       throw new MaximizerExceededException();
     }
     long comboLimit = Preferences.getLong("maximizerCombinationLimit");
-    if (comboLimit != 0 && Maximizer.bestChecked >= comboLimit) {
+    int checked = this.branch != null ? this.branch.checked() : Maximizer.bestChecked;
+    if (comboLimit != 0 && checked >= comboLimit) {
       throw new MaximizerLimitException();
     }
   }
 
+  // Whether nothing reachable from the current partial combination can score
+  // better than the best combination found so far.
+  private boolean cannotBeatBest() {
+    ScoreBound bound = this.evaluator().bound;
+    if (bound == null) return false;
+    MaximizerSpeculation best = this.branch != null ? this.branch.best() : Maximizer.best;
+    // A failed best loses to any successful combination, whatever its score
+    if (best == null || best.failed) return false;
+    return bound.cannotBeat(this, best.getScore());
+  }
+
   private static int getMutex(AdventureResult item) {
     Modifiers mods = ModifierDatabase.getItemModifiers(item.getItemId());
     if (mods == null) {
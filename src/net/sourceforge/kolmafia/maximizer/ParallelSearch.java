@@ -0,0 +1,221 @@
+package net.sourceforge.kolmafia.maximizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import net.sourceforge.kolmafia.AdventureResult;
+import net.sourceforge.kolmafia.FamiliarData;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.KoLmafia;
+import net.sourceforge.kolmafia.RequestLogger;
+import net.sourceforge.kolmafia.equipment.Slot;
+
+/**
+ * Splits the equipment search done by {@link MaximizerSpeculation#tryAll} into one branch per
+ * familiar and outfit, and runs the branches on a ForkJoinPool.
+ *
+ * <p>Each branch scores combinations with its own view of the Evaluator and keeps its own best
+ * combination. Once every branch has finished, the bests are merged in the order the serial search
+ * would have visited them, so ties are broken the same way.
+ */
+class ParallelSearch {
+  private static final ForkJoinPool POOL =
+      new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+  private final List<Branch> branches = new ArrayList<>();
+  private final AtomicInteger checked = new AtomicInteger();
+  private final AtomicReference<MaximizerInterruptedException> failure = new AtomicReference<>();
+  private volatile boolean cancelled = false;
+
+  private final List<FamiliarData> enthronedFamiliars;
+  private final Map<AdventureResult, AdventureResult> outfitPieces;
+  private final AdventureResult bestCard;
+  private final FamiliarData useCrownFamiliar;
+  private final FamiliarData useBjornFamiliar;
+
+  private ParallelSearch(
+      List<FamiliarData> enthronedFamiliars,
+      Map<AdventureResult, AdventureResult> outfitPieces,
+      AdventureResult bestCard,
+      FamiliarData useCrownFamiliar,
+      FamiliarData useBjornFamiliar) {
+    this.enthronedFamiliars = enthronedFamiliars;
+    this.outfitPieces = outfitPieces;
+    this.bestCard = bestCard;
+    this.useCrownFamiliar = useCrownFamiliar;
+    this.useBjornFamiliar = useBjornFamiliar;
+  }
+
+  static void tryAll(
+      MaximizerSpeculation spec,
+      List<FamiliarData> familiars,
+      List<FamiliarData> enthronedFamiliars,
+      Map<Integer, Boolean> usefulOutfits,
+      Map<AdventureResult, AdventureResult> outfitPieces,
+      SlotList<CheckedItem> possibles,
+      AdventureResult bestCard,
+      FamiliarData useCrownFamiliar,
+      FamiliarData useBjornFamiliar)
+      throws MaximizerInterruptedException {
+    ParallelSearch search =
+        new ParallelSearch(
+            enthronedFamiliars, outfitPieces, bestCard, useCrownFamiliar, useBjornFamiliar);
+
+    search.addBranches(spec, usefulOutfits, possibles);
+    for (int i = 0; i < familiars.size(); ++i) {
+      MaximizerSpeculation familiarSpec = spec.clone();
+      familiarSpec.setFamiliar(familiars.get(i));
+      SlotList<CheckedItem> familiarPossibles = possibles.copy();
+      familiarPossibles.set(Slot.FAMILIAR, possibles.getFamiliar(i));
+      search.addBranches(familiarSpec, usefulOutfits, familiarPossibles);
+    }
+
+    search.run();
+  }
+
+  private void addBranches(
+      MaximizerSpeculation spec,
+      Map<Integer, Boolean> usefulOutfits,
+      SlotList<CheckedItem> possibles) {
+    for (Integer outfit : usefulOutfits.keySet()) {
+      if (!usefulOutfits.get(outfit)) continue;
+      this.branches.add(new Branch(spec, outfit, possibles));
+    }
+    this.branches.add(new Branch(spec, null, possibles));
+  }
+
+  private void run() throws MaximizerInterruptedException {
+    // As in the serial search, every branch is measured against an existing best
+    if (Maximizer.best == null) {
+      RequestLogger.updateSessionLog(
+          "Maximizer about to throw LimitExceeded because of null best.");
+      throw new MaximizerLimitException();
+    }
+
+    for (Branch branch : this.branches) {
+      POOL.execute(branch);
+    }
+
+    for (Branch branch : this.branches) {
+      this.await(branch);
+    }
+
+    // Merge in serial order; a later branch only wins if it is strictly better.
+    for (Branch branch : this.branches) {
+      branch.join();
+      if (branch.best != null && branch.best.compareTo(Maximizer.best) > 0) {
+        Maximizer.best = branch.best;
+      }
+    }
+    // The best is scored with the shared Evaluator from now on, not its branch's view
+    Maximizer.best.branch = null;
+    Maximizer.bestChecked = this.checked.get();
+
+    MaximizerInterruptedException e = this.failure.get();
+    if (e != null) {
+      throw e;
+    }
+  }
+
+  private void await(Branch branch) {
+    while (true) {
+      try {
+        branch.get(5, TimeUnit.SECONDS);
+        return;
+      } catch (TimeoutException e) {
+        this.showProgress();
+      } catch (InterruptedException e) {
+        this.fail(new MaximizerInterruptedException());
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        // Rethrown when the branch is joined
+        return;
+      }
+    }
+  }
+
+  private void showProgress() {
+    MaximizerSpeculation best = null;
+    for (Branch branch : this.branches) {
+      MaximizerSpeculation candidate = branch.best;
+      if (candidate != null && (best == null || candidate.getScore() > best.getScore())) {
+        best = candidate;
+      }
+    }
+
+    StringBuilder msg = new StringBuilder();
+    msg.append(this.checked.get());
+    msg.append(" combinations checked");
+    if (best != null) {
+      msg.append(", best score ");
+      msg.append(KoLConstants.FLOAT_FORMAT.format(best.getScore()));
+    }
+    KoLmafia.updateDisplay(msg.toString());
+  }
+
+  private void fail(MaximizerInterruptedException e) {
+    this.failure.compareAndSet(null, e);
+    this.cancelled = true;
+  }
+
+  class Branch extends RecursiveAction {
+    private final MaximizerSpeculation root;
+    private final Integer outfit;
+    private final SlotList<CheckedItem> possibles;
+    final Evaluator eval;
+    private volatile MaximizerSpeculation best = null;
+
+    private Branch(MaximizerSpeculation root, Integer outfit, SlotList<CheckedItem> possibles) {
+      this.root = root;
+      this.outfit = outfit;
+      this.possibles = possibles;
+      this.eval = Maximizer.eval.view();
+    }
+
+    @Override
+    protected void compute() {
+      MaximizerSpeculation spec = this.root.clone();
+      spec.branch = this;
+      ParallelSearch search = ParallelSearch.this;
+      try {
+        if (this.outfit == null || spec.wearOutfit(this.outfit, search.outfitPieces)) {
+          spec.tryFamiliarItems(
+              search.enthronedFamiliars,
+              this.possibles,
+              search.bestCard,
+              search.useCrownFamiliar,
+              search.useBjornFamiliar);
+        }
+      } catch (MaximizerInterruptedException e) {
+        search.fail(e);
+      }
+    }
+
+    void record(MaximizerSpeculation spec) {
+      if (spec.compareTo(this.best) > 0) {
+        this.best = spec.clone();
+      }
+      ParallelSearch.this.checked.incrementAndGet();
+    }
+
+    MaximizerSpeculation best() {
+      return this.best;
+    }
+
+    int checked() {
+      return ParallelSearch.this.checked.get();
+    }
+
+    boolean stopped() {
+      return ParallelSearch.this.cancelled;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package net.sourceforge.kolmafia.maximizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.sourceforge.kolmafia.AdventureResult;
+import net.sourceforge.kolmafia.FamiliarData;
+import net.sourceforge.kolmafia.equipment.Slot;
+import net.sourceforge.kolmafia.equipment.SlotSet;
+import net.sourceforge.kolmafia.objectpool.ItemPool;
+import net.sourceforge.kolmafia.request.EquipmentRequest;
+import net.sourceforge.kolmafia.session.EquipmentManager;
+
+/**
+ * An upper bound on the score of every combination the equipment search can still reach from a
+ * partially filled MaximizerSpeculation, used to skip subtrees that cannot beat the best
+ * combination found so far.
+ *
+ * <p>The bound starts from the score with every searched slot empty. Each slot then adds the gain
+ * of the item already chosen for it, or the largest gain any of its candidates could give. That is
+ * only an upper bound when items don't score better together than apart, so the Evaluator only
+ * builds one for expressions where that holds.
+ */
+class ScoreBound {
+  // Allowance for rounding when comparing sums of gains against a calculated score
+  private static final double EPSILON = 1e-6;
+
+  private final double baseScore;
+  private double slack = 0.0;
+  private final Set<Slot> searched = EnumSet.noneOf(Slot.class);
+  private final Map<Slot, Map<Integer, Double>> gains = new EnumMap<>(Slot.class);
+  private final Map<Slot, Double> bestGains = new EnumMap<>(Slot.class);
+  private final List<Double> accessoryGains = new ArrayList<>();
+
+  private final MaximizerSpeculation base;
+  private final AdventureResult bestCard;
+  private final List<FamiliarData> crownFamiliars;
+  private final List<FamiliarData> bjornFamiliars;
+
+  ScoreBound(
+      MaximizerSpeculation spec,
+      Map<AdventureResult, AdventureResult> outfitPieces,
+      SlotList<CheckedItem> possibles,
+      AdventureResult bestCard,
+      List<FamiliarData> enthronedFamiliars,
+      FamiliarData useCrownFamiliar,
+      FamiliarData useBjornFamiliar) {
+    this.bestCard = bestCard;
+    this.crownFamiliars =
+        useCrownFamiliar != null ? List.of(useCrownFamiliar) : enthronedFamiliars;
+    this.bjornFamiliars =
+        useBjornFamiliar != null ? List.of(useBjornFamiliar) : enthronedFamiliars;
+
+    this.base = spec.clone();
+    for (var slot : SlotSet.SLOTS) {
+      if (spec.equipment.get(slot) == null) {
+        this.searched.add(slot);
+        this.base.equipment.put(slot, EquipmentRequest.UNEQUIP);
+      }
+    }
+    this.base.setUnscored();
+    this.baseScore = this.base.getScore();
+
+    for (var slot : this.searched) {
+      Slot key = ScoreBound.key(slot);
+      if (this.gains.containsKey(key)) continue;
+      Map<Integer, Double> slotGains = new HashMap<>();
+      this.gains.put(key, slotGains);
+
+      double best = 0.0;
+      for (CheckedItem item : ScoreBound.candidates(key, possibles)) {
+        double gain = this.gain(key, item);
+        slotGains.merge(item.getItemId(), gain, Math::max);
+        best = Math.max(best, gain);
+        if (key == Slot.ACCESSORY1) {
+          for (int i = Math.min(item.getCount(), 3); i > 0; --i) {
+            this.accessoryGains.add(gain);
+          }
+        }
+      }
+      this.bestGains.put(key, best);
+    }
+
+    this.accessoryGains.sort(Collections.reverseOrder());
+
+    // Outfit pieces are put on before any candidate, so they only ever
+    // show up as already chosen items.
+    for (AdventureResult item : outfitPieces.values()) {
+      Slot key = ScoreBound.key(EquipmentManager.itemIdToEquipmentType(item.getItemId()));
+      Map<Integer, Double> slotGains = this.gains.get(key);
+      if (slotGains != null && !slotGains.containsKey(item.getItemId())) {
+        slotGains.put(item.getItemId(), this.gain(key, item));
+      }
+    }
+  }
+
+  /** Allow for bonuses (outfits, synergies, rounding) which no single item shows. */
+  void addSlack(double slack) {
+    this.slack += Math.max(0.0, slack);
+  }
+
+  int searchedSlots() {
+    return this.searched.size();
+  }
+
+  boolean cannotBeat(MaximizerSpeculation spec, double bestScore) {
+    return this.upperBound(spec) < bestScore - EPSILON;
+  }
+
+  private double upperBound(MaximizerSpeculation spec) {
+    double bound = this.baseScore + this.slack;
+    int freeAccessories = 0;
+    for (var slot : this.searched) {
+      Slot key = ScoreBound.key(slot);
+      AdventureResult item = spec.equipment.get(slot);
+      if (item == null) {
+        if (key == Slot.ACCESSORY1) {
+          ++freeAccessories;
+        } else {
+          bound += this.bestGains.get(key);
+        }
+      } else if (!item.equals(EquipmentRequest.UNEQUIP)) {
+        Double gain = this.gains.get(key).get(item.getItemId());
+        if (gain == null) {
+          // Not something we scored; don't guess
+          return Double.POSITIVE_INFINITY;
+        }
+        bound += gain;
+      }
+    }
+    for (int i = 0; i < freeAccessories && i < this.accessoryGains.size(); ++i) {
+      bound += this.accessoryGains.get(i);
+    }
+    return bound;
+  }
+
+  private double gain(Slot slot, AdventureResult item) {
+    if (item.equals(EquipmentRequest.UNEQUIP)) {
+      return 0.0;
+    }
+
+    double best = Double.NEGATIVE_INFINITY;
+    switch (item.getItemId()) {
+      case ItemPool.HATSEAT -> {
+        for (FamiliarData familiar : this.crownFamiliars) {
+          MaximizerSpeculation spec = this.with(slot, item);
+          spec.setEnthroned(familiar);
+          best = Math.max(best, spec.getScore());
+        }
+      }
+      case ItemPool.BUDDY_BJORN -> {
+        for (FamiliarData familiar : this.bjornFamiliars) {
+          MaximizerSpeculation spec = this.with(slot, item);
+          spec.setBjorned(familiar);
+          best = Math.max(best, spec.getScore());
+        }
+      }
+      case ItemPool.CARD_SLEEVE -> {
+        MaximizerSpeculation spec = this.with(slot, item);
+        spec.equipment.put(Slot.CARDSLEEVE, this.bestCard);
+        best = spec.getScore();
+      }
+      default -> best = this.with(slot, item).getScore();
+    }
+    return Math.max(0.0, best - this.baseScore);
+  }
+
+  private MaximizerSpeculation with(Slot slot, AdventureResult item) {
+    MaximizerSpeculation spec = this.base.clone();
+    spec.setUnscored();
+    spec.equip(slot, item);
+    return spec;
+  }
+
+  private static Slot key(Slot slot) {
+    return switch (slot) {
+      case ACCESSORY1, ACCESSORY2, ACCESSORY3 -> Slot.ACCESSORY1;
+      default -> slot;
+    };
+  }
+
+  private static List<CheckedItem> candidates(Slot slot, SlotList<CheckedItem> possibles) {
+    if (slot != Slot.OFFHAND) {
+      return possibles.get(slot);
+    }
+    List<CheckedItem> offhands = new ArrayList<>(possibles.get(Slot.OFFHAND));
+    offhands.addAll(possibles.get(Evaluator.OFFHAND_MELEE));
+    offhands.addAll(possibles.get(Evaluator.OFFHAND_RANGED));
+    return offhands;
+  }
+}
@@ -32,6 +32,16 @@ public class SlotList<T> {
     }
   }
 
+  private SlotList(SlotList<T> other) {
+    slotList = new EnumMap<>(other.slotList);
+    familiarList = other.familiarList;
+  }
+
+  /** A copy whose slots can be reassigned independently; the interior lists are shared. */
+  public SlotList<T> copy() {
+    return new SlotList<>(this);
+  }
+
   public List<T> get(Slot key) {
     return slotList.computeIfAbsent(key, k -> new ArrayList<>());
   }
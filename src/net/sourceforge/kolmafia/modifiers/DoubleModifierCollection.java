@@ -1,50 +1,106 @@
 package net.sourceforge.kolmafia.modifiers;
 
-import java.util.EnumMap;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.function.BiConsumer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.ObjDoubleConsumer;
 
 public class DoubleModifierCollection {
-  public static final int SPARSE_DOUBLES_MAX_SIZE = 32;
+  private static final DoubleModifier[] MODIFIERS = DoubleModifier.values();
+  private static final int WORDS = (MODIFIERS.length + 63) >>> 6;
 
-  // If only a few values are set in doubles, we instead store all modifiers in a sparse TreeMap.
-  // When that map gets bigger than SPARSE_DOUBLES_MAX_SIZE, we copy it over to the dense EnumMap.
-  private Map<DoubleModifier, Double> doubles = new TreeMap<>();
+  // Values are indexed by ordinal. A modifier's bit is set in `present` once it has been given a
+  // value, and cleared when it is set to zero, so that iterating only visits modifiers in use.
+  private final double[] doubles = new double[MODIFIERS.length];
+  private final long[] present = new long[WORDS];
 
-  public void reset() {
-    this.doubles = new TreeMap<>();
+  /** A fixed set of modifiers, in the form the collection can test a whole word of bits against. */
+  public static class Mask {
+    private final long[] bits = new long[WORDS];
+
+    public Mask(final Set<DoubleModifier> mods) {
+      for (var mod : mods) {
+        this.bits[mod.ordinal() >>> 6] |= 1L << mod.ordinal();
+      }
+    }
   }
 
-  public void densify() {
-    if (this.doubles instanceof EnumMap) return;
-    Map<DoubleModifier, Double> newDoubles = new EnumMap<>(DoubleModifier.class);
-    newDoubles.putAll(this.doubles);
-    this.doubles = newDoubles;
+  public void reset() {
+    Arrays.fill(this.doubles, 0.0);
+    Arrays.fill(this.present, 0L);
   }
 
   public double get(final DoubleModifier mod) {
-    return this.doubles.getOrDefault(mod, 0.0);
+    return this.doubles[mod.ordinal()];
   }
 
   public boolean set(final DoubleModifier mod, final double value) {
-    Double oldValue = value == 0.0 ? this.doubles.remove(mod) : this.doubles.put(mod, value);
+    int i = mod.ordinal();
+    boolean wasPresent = (this.present[i >>> 6] & (1L << i)) != 0;
+    double oldValue = this.doubles[i];
 
-    if (this.doubles.size() >= DoubleModifierCollection.SPARSE_DOUBLES_MAX_SIZE) {
-      this.densify();
+    if (value == 0.0) {
+      this.doubles[i] = 0.0;
+      this.present[i >>> 6] &= ~(1L << i);
+    } else {
+      this.doubles[i] = value;
+      this.present[i >>> 6] |= 1L << i;
     }
 
     // TODO: does anything use this return value, or can we save ourselves a check?
-    return oldValue == null || oldValue != value;
+    return !wasPresent || oldValue != value;
+  }
+
+  /** Make this a copy of other, returning whether any value changed. */
+  public boolean set(final DoubleModifierCollection other) {
+    boolean changed = !Arrays.equals(this.doubles, other.doubles);
+    System.arraycopy(other.doubles, 0, this.doubles, 0, this.doubles.length);
+    System.arraycopy(other.present, 0, this.present, 0, WORDS);
+    return changed;
   }
 
   public double add(final DoubleModifier mod, final double value) {
-    // Anything being accumulated onto should be dense.
-    this.densify();
-    return this.doubles.merge(mod, value, Double::sum);
+    int i = mod.ordinal();
+    this.present[i >>> 6] |= 1L << i;
+    return this.doubles[i] += value;
   }
 
-  public void forEach(BiConsumer<? super DoubleModifier, ? super Double> action) {
-    this.doubles.forEach(action);
+  /**
+   * Add each value in other to the value here, except those for modifiers in the mask, which are
+   * passed to the action instead.
+   */
+  public void add(
+      final DoubleModifierCollection other,
+      final Mask except,
+      final ObjDoubleConsumer<DoubleModifier> action) {
+    for (int word = 0; word < WORDS; ++word) {
+      long bits = other.present[word];
+      if (bits == 0L) continue;
+
+      long summed = bits & ~except.bits[word];
+      this.present[word] |= summed;
+      while (summed != 0L) {
+        int i = (word << 6) + Long.numberOfTrailingZeros(summed);
+        this.doubles[i] += other.doubles[i];
+        summed &= summed - 1;
+      }
+
+      long special = bits & except.bits[word];
+      while (special != 0L) {
+        int i = (word << 6) + Long.numberOfTrailingZeros(special);
+        action.accept(MODIFIERS[i], other.doubles[i]);
+        special &= special - 1;
+      }
+    }
+  }
+
+  public void forEach(final ObjDoubleConsumer<DoubleModifier> action) {
+    for (int word = 0; word < WORDS; ++word) {
+      long bits = this.present[word];
+      while (bits != 0L) {
+        int i = (word << 6) + Long.numberOfTrailingZeros(bits);
+        action.accept(MODIFIERS[i], this.doubles[i]);
+        bits &= bits - 1;
+      }
+    }
   }
 }
@@ -227,6 +227,16 @@ public abstract class HPRestoreItemList {
       return Math.min(this.healthPerUse, KoLCharacter.getMaximumHP() - KoLCharacter.getCurrentHP());
     }
 
+    @Override
+    public long getRestored() {
+      return this.getHealthRestored();
+    }
+
+    @Override
+    protected int getPurchaseCost() {
+      return this.purchaseCost;
+    }
+
     @Override
     public boolean usableInCurrentPath() {
       if (KoLCharacter.isEd()) {
@@ -301,7 +311,7 @@ public abstract class HPRestoreItemList {
     }
 
     @Override
-    public void recover(final int needed, final boolean purchase) {
+    public void recover(final int needed, final boolean purchase, final int count) {
       if (!KoLmafia.permitsContinue()) {
         return;
       }
@@ -412,7 +422,9 @@ public abstract class HPRestoreItemList {
       }
 
       int numberToUse =
-          Math.max((int) Math.floor((float) hpShort / (float) this.getHealthRestored()), 1);
+          count > 0
+              ? count
+              : Math.max((int) Math.floor((float) hpShort / (float) this.getHealthRestored()), 1);
 
       if (this == HPRestoreItemList.SOFA) {
         RequestThread.postRequest(
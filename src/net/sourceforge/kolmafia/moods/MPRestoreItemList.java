@@ -248,6 +248,16 @@ public abstract class MPRestoreItemList {
       return Math.min(this.manaPerUse, KoLCharacter.getMaximumMP() - KoLCharacter.getCurrentMP());
     }
 
+    @Override
+    public long getRestored() {
+      return this.getManaRestored();
+    }
+
+    @Override
+    protected int getPurchaseCost() {
+      return this.purchaseCost;
+    }
+
     @Override
     public boolean usableInCurrentPath() {
       if (this.itemUsed == null) {
@@ -268,7 +278,7 @@ public abstract class MPRestoreItemList {
     }
 
     @Override
-    public void recover(final int needed, final boolean purchase) {
+    public void recover(final int needed, final boolean purchase, final int count) {
       if (!KoLmafia.permitsContinue()) {
         return;
       }
@@ -392,7 +402,9 @@ public abstract class MPRestoreItemList {
       }
 
       int numberToUse =
-          Math.max((int) Math.floor((float) mpShort / (float) this.getManaRestored()), 1);
+          count > 0
+              ? count
+              : Math.max((int) Math.floor((float) mpShort / (float) this.getManaRestored()), 1);
 
       if (this == MPRestoreItemList.SOFA) {
         if (!KoLCharacter.getLimitMode().limitClan()) {
@@ -1,13 +1,13 @@
 package net.sourceforge.kolmafia.moods;
 
 import java.io.File;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.LongSupplier;
 import net.sourceforge.kolmafia.AdventureResult;
 import net.sourceforge.kolmafia.BuffBotHome;
 import net.sourceforge.kolmafia.KoLCharacter;
@@ -22,6 +22,7 @@ import net.sourceforge.kolmafia.SpecialOutfit.Checkpoint;
 import net.sourceforge.kolmafia.StaticEntity;
 import net.sourceforge.kolmafia.moods.HPRestoreItemList.HPRestoreItem;
 import net.sourceforge.kolmafia.objectpool.ItemPool;
+import net.sourceforge.kolmafia.persistence.NPCStoreDatabase;
 import net.sourceforge.kolmafia.preferences.Preferences;
 import net.sourceforge.kolmafia.request.CharPaneRequest;
 import net.sourceforge.kolmafia.request.FightRequest;
@@ -138,15 +139,6 @@ public class RecoveryManager {
     RecoveryManager.recoveryActive = false;
   }
 
-  private static Method getKoLCharacterMethod(String name) {
-    try {
-      return KoLCharacter.class.getMethod(name);
-    } catch (NoSuchMethodException e) {
-      System.out.println("Cannot find method KoLCharacter." + name + "()");
-      return null;
-    }
-  }
-
   /**
    * Utility. The method called in between battles. This method checks to see if the character's HP
    * has dropped below the tolerance value, and recovers if it has (if the user has specified this
@@ -162,11 +154,6 @@ public class RecoveryManager {
     }
   }
 
-  private static final Method currentHPMethod =
-      RecoveryManager.getKoLCharacterMethod("getCurrentHP");
-  private static final Method maximumHPMethod =
-      RecoveryManager.getKoLCharacterMethod("getMaximumHP");
-
   public static boolean recoverHP(final long hpNeeded) {
     if (KoLmafia.refusesContinue()) {
       return false;
@@ -194,7 +181,12 @@ public class RecoveryManager {
       }
 
       return RecoveryManager.recover(
-          hpNeeded, "hpAutoRecovery", allowed, currentHPMethod, maximumHPMethod, items);
+          hpNeeded,
+          "hpAutoRecovery",
+          allowed,
+          KoLCharacter::getCurrentHP,
+          KoLCharacter::getMaximumHP,
+          items);
     } catch (Exception e) {
       // This should not happen. Therefore, print
       // a stack trace for debug purposes.
@@ -222,11 +214,6 @@ public class RecoveryManager {
     }
   }
 
-  private static final Method currentMPMethod =
-      RecoveryManager.getKoLCharacterMethod("getCurrentMP");
-  private static final Method maximumMPMethod =
-      RecoveryManager.getKoLCharacterMethod("getMaximumMP");
-
   public static boolean recoverMP(final long mpNeeded) {
     if (KoLmafia.refusesContinue()) {
       return false;
@@ -243,8 +230,8 @@ public class RecoveryManager {
           mpNeeded,
           "mpAutoRecovery",
           allowed,
-          currentMPMethod,
-          maximumMPMethod,
+          KoLCharacter::getCurrentMP,
+          KoLCharacter::getMaximumMP,
           MPRestoreItemList.CONFIGURES);
     } catch (Exception e) {
       // This should not happen. Therefore, print
@@ -264,26 +251,24 @@ public class RecoveryManager {
       float setting,
       float target,
       boolean isNonCombatHealthRestore,
-      final Method currentMethod,
-      final Method maximumMethod,
+      final LongSupplier currentValue,
+      final LongSupplier maximumValue,
       Set<String> usableTechniques,
-      final RestoreItem[] techniques)
-      throws Exception {
+      final RestoreItem[] techniques) {
     // See if any restoration needs to take place
     if (setting < 0.0f && desired == 0.0f) {
       return true;
     }
 
-    Object[] empty = new Object[0];
-    int current = ((Number) currentMethod.invoke(null, empty)).intValue();
+    long current = currentValue.getAsLong();
 
     // If you've already reached the desired value, don't restore.
     if (desired != 0 && current >= desired) {
       return true;
     }
 
-    int maximum = ((Number) maximumMethod.invoke(null, empty)).intValue();
-    int needed = (int) Math.min(maximum, Math.max(desired, setting * maximum + 1.0f));
+    long maximum = maximumValue.getAsLong();
+    long needed = (long) Math.min(maximum, Math.max(desired, setting * maximum + 1.0f));
 
     // Check against restore target to see how far you need to go.
     desired = Math.min(maximum, Math.max(desired, target * maximum));
@@ -309,8 +294,7 @@ public class RecoveryManager {
     }
 
     // If it gets this far, then you should attempt to recover
-    // using the selected items. This involves a few extra
-    // reflection methods.
+    // using the selected items.
 
     // Determine all applicable items and skills for the restoration.
     // This is a little bit memory intensive, but it allows for a lot
@@ -335,31 +319,12 @@ public class RecoveryManager {
     HPRestoreItemList.setPurchaseBasedSort(false);
     MPRestoreItemList.setPurchaseBasedSort(false);
 
+    Recovery recovery = new Recovery(currentValue, maximumValue, desired, needed);
+
     // First, use any available skills.
 
     if (!possibleSkills.isEmpty()) {
-      current = ((Number) currentMethod.invoke(null, empty)).intValue();
-      int last = -1;
-
-      while (last != current && current < needed) {
-        int indexToTry = 0;
-        Collections.sort(possibleSkills);
-
-        do {
-          RestoreItem skill = possibleSkills.get(indexToTry);
-          skill.recover((int) desired, false);
-
-          last = current;
-          current = ((Number) currentMethod.invoke(null, empty)).intValue();
-          maximum = ((Number) maximumMethod.invoke(null, empty)).intValue();
-          desired = Math.min(maximum, desired);
-          needed = Math.min(maximum, needed);
-
-          if (last >= current) {
-            ++indexToTry;
-          }
-        } while (indexToTry < possibleSkills.size() && current < needed);
-      }
+      RecoveryManager.recover(recovery, possibleSkills, false);
 
       if (KoLmafia.refusesContinue()) {
         return false;
@@ -369,21 +334,7 @@ public class RecoveryManager {
     // Iterate through every restore item which is already available
     // in the player's inventory.
 
-    Collections.sort(possibleItems);
-
-    for (int i = 0; i < possibleItems.size() && current < needed; ++i) {
-      int last = -1;
-      do {
-        RestoreItem item = possibleItems.get(i);
-        item.recover((int) desired, false);
-
-        last = current;
-        current = ((Number) currentMethod.invoke(null, empty)).intValue();
-        maximum = ((Number) maximumMethod.invoke(null, empty)).intValue();
-        desired = Math.min(maximum, desired);
-        needed = Math.min(maximum, needed);
-      } while (last != current && current < needed);
-    }
+    RecoveryManager.recover(recovery, possibleItems, false);
 
     if (KoLmafia.refusesContinue()) {
       return false;
@@ -404,29 +355,9 @@ public class RecoveryManager {
       HPRestoreItemList.setPurchaseBasedSort(true);
       MPRestoreItemList.setPurchaseBasedSort(true);
 
-      int last = -1;
-      current = ((Number) currentMethod.invoke(null, empty)).intValue();
-
       if (!possibleItems.isEmpty()) {
-        while (last != current && current < needed) {
-          int indexToTry = 0;
-          Collections.sort(possibleItems);
-
-          do {
-            RestoreItem item = possibleItems.get(indexToTry);
-            item.recover((int) desired, true);
-
-            last = current;
-            current = ((Number) currentMethod.invoke(null, empty)).intValue();
-            maximum = ((Number) maximumMethod.invoke(null, empty)).intValue();
-            desired = Math.min(maximum, desired);
-
-            if (last >= current) {
-              ++indexToTry;
-            }
-          } while (indexToTry < possibleItems.size() && current < needed);
-        }
-      } else if (current < needed) {
+        RecoveryManager.recover(recovery, possibleItems, true);
+      } else if (!recovery.isDone()) {
         KoLmafia.updateDisplay(MafiaState.ERROR, "You ran out of restores.");
         return false;
       }
@@ -442,7 +373,7 @@ public class RecoveryManager {
       return false;
     }
 
-    if (current < needed) {
+    if (!recovery.isDone()) {
       KoLmafia.updateDisplay(MafiaState.ERROR, "Autorecovery failed.");
       return false;
     }
@@ -450,6 +381,189 @@ public class RecoveryManager {
     return true;
   }
 
+  /** How far one recovery has come, as the restores it uses change the current and maximum. */
+  private static class Recovery {
+    private final LongSupplier currentValue;
+    private final LongSupplier maximumValue;
+    private float desired;
+    private long needed;
+    private long current;
+
+    public Recovery(
+        final LongSupplier currentValue,
+        final LongSupplier maximumValue,
+        final float desired,
+        final long needed) {
+      this.currentValue = currentValue;
+      this.maximumValue = maximumValue;
+      this.desired = desired;
+      this.needed = needed;
+      this.current = currentValue.getAsLong();
+    }
+
+    public boolean isDone() {
+      return this.current >= this.needed;
+    }
+
+    public long getShortfall() {
+      return Math.max((long) Math.ceil(this.desired), this.needed) - this.current;
+    }
+
+    /** Uses the restore, and returns whether it restored anything. */
+    public boolean use(final RestoreItem restore, final boolean purchase, final int count) {
+      restore.recover((int) this.desired, purchase, count);
+
+      long last = this.current;
+      long maximum = this.maximumValue.getAsLong();
+      this.current = this.currentValue.getAsLong();
+      this.desired = Math.min(maximum, this.desired);
+      this.needed = Math.min(maximum, this.needed);
+
+      return this.current > last;
+    }
+  }
+
+  private static boolean isPlannable(final RestoreItem restore) {
+    return restore.isSkill() || restore.getItem() != null;
+  }
+
+  /**
+   * Uses the restores until the needed amount is reached. Restores which are neither skills nor
+   * items, such as resting, are tried first for as long as they sort ahead of every skill and item.
+   * Then the cheapest combination of skills and items which covers the shortfall is used, with one
+   * request for each, and anything still missing is made up one restore at a time.
+   */
+  private static void recover(
+      final Recovery recovery, final List<RestoreItem> restores, final boolean purchase) {
+    Collections.sort(restores);
+
+    int first = 0;
+    while (first < restores.size() && !RecoveryManager.isPlannable(restores.get(first))) {
+      RecoveryManager.useWhileRestoring(recovery, restores.get(first++), purchase);
+    }
+
+    if (!recovery.isDone() && KoLmafia.permitsContinue()) {
+      RecoveryManager.usePlan(recovery, restores.subList(first, restores.size()), purchase);
+    }
+
+    for (int i = first; i < restores.size(); ++i) {
+      RecoveryManager.useWhileRestoring(recovery, restores.get(i), purchase);
+    }
+  }
+
+  private static void useWhileRestoring(
+      final Recovery recovery, final RestoreItem restore, final boolean purchase) {
+    boolean restored = true;
+    while (restored && !recovery.isDone() && KoLmafia.permitsContinue()) {
+      restored = recovery.use(restore, purchase, 0);
+    }
+  }
+
+  private static void usePlan(
+      final Recovery recovery, final List<RestoreItem> restores, final boolean purchase) {
+    List<RestoreItem> planned = new ArrayList<>();
+    for (RestoreItem restore : restores) {
+      if (RecoveryManager.isPlannable(restore)) {
+        planned.add(restore);
+      }
+    }
+
+    int[] counts = RecoveryManager.planUses(planned, purchase, recovery.getShortfall());
+
+    for (int i = 0; i < planned.size(); ++i) {
+      if (recovery.isDone() || !KoLmafia.permitsContinue()) {
+        return;
+      }
+
+      if (counts[i] > 0) {
+        recovery.use(planned.get(i), purchase, counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Returns how many times to use each skill and item to cover the shortfall. Skills share the MP
+   * there is to cast them, items bought share the meat there is to buy them and items with a
+   * spleen hit share the spleen left, so the plan spends no more of any than the character has.
+   */
+  static int[] planUses(
+      final List<RestoreItem> restores, final boolean purchase, final long shortfall) {
+    // Items on hand and items to be bought are planned separately, since only the latter spend
+    // meat. Bought items cost a little more, so that those on hand are used first.
+
+    int size = restores.size() * 2;
+    long[] yields = new long[size];
+    long[] costs = new long[size];
+    int[] available = new int[size];
+    long[][] spends = new long[3][size];
+
+    for (int i = 0; i < restores.size(); ++i) {
+      RestoreItem restore = restores.get(i);
+      int bought = restores.size() + i;
+
+      yields[i] = yields[bought] = restore.getRestored();
+      costs[i] = restore.getUseCost();
+      costs[bought] = costs[i] + 1;
+      available[i] = RecoveryManager.getUsesAvailable(restore, shortfall, yields[i]);
+      available[bought] = RecoveryManager.getPurchasesAvailable(restore, purchase, yields[i]);
+
+      if (restore.isSkill()) {
+        spends[0][i] = costs[i];
+      } else if (available[bought] > 0) {
+        spends[1][bought] = NPCStoreDatabase.price(restore.getItem().getItemId());
+      }
+
+      spends[2][i] = spends[2][bought] = restore.spleenHit;
+    }
+
+    long[] budgets = {
+      KoLCharacter.getCurrentMP(),
+      KoLCharacter.getAvailableMeat(),
+      KoLCharacter.getSpleenLimit() - KoLCharacter.getSpleenUse()
+    };
+
+    int[] plan = RestorePlanner.plan(shortfall, yields, costs, available, spends, budgets);
+
+    int[] counts = new int[restores.size()];
+    for (int i = 0; i < restores.size(); ++i) {
+      counts[i] = plan[i] + plan[restores.size() + i];
+    }
+    return counts;
+  }
+
+  /** Returns how many times the skill can be cast or the item on hand used. */
+  private static int getUsesAvailable(
+      final RestoreItem restore, final long shortfall, final long yield) {
+    if (yield <= 0) {
+      return 0;
+    }
+
+    // Nothing needs to be used more often than it takes to cover the shortfall by itself
+    int enough = (int) Math.min(Integer.MAX_VALUE, shortfall / yield + 1);
+
+    if (restore.isSkill()) {
+      return KoLCharacter.hasSkill(restore.toString()) ? enough : 0;
+    }
+
+    AdventureResult item = restore.getItem();
+    return Math.min(item.getCount(KoLConstants.inventory), enough);
+  }
+
+  /** Returns how many more of the item could be bought, were there meat enough. */
+  private static int getPurchasesAvailable(
+      final RestoreItem restore, final boolean purchase, final long yield) {
+    if (!purchase || yield <= 0 || restore.isSkill()) {
+      return 0;
+    }
+
+    AdventureResult item = restore.getItem();
+    if (!InventoryManager.canUseNPCStores(item) || NPCStoreDatabase.price(item.getItemId()) <= 0) {
+      return 0;
+    }
+
+    return Integer.MAX_VALUE;
+  }
+
   private static final AdventureResult MUSHROOM = ItemPool.get(ItemPool.MUSHROOM, 1);
   private static final AdventureResult DELUXE_MUSHROOM = ItemPool.get(ItemPool.DELUXE_MUSHROOM, 1);
   private static final AdventureResult SUPER_DELUXE_MUSHROOM =
@@ -664,8 +778,8 @@ public class RecoveryManager {
       float desired,
       final String settingName,
       String allowed,
-      final Method currentMethod,
-      final Method maximumMethod,
+      final LongSupplier currentValue,
+      final LongSupplier maximumValue,
       final RestoreItem[] techniques) {
     try {
       // Look up some settings
@@ -690,8 +804,8 @@ public class RecoveryManager {
           setting,
           target,
           isNonCombatHealthRestore,
-          currentMethod,
-          maximumMethod,
+          currentValue,
+          maximumValue,
           usableTechniques,
           techniques);
     } catch (Exception e) {
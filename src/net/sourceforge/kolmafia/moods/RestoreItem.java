@@ -4,6 +4,7 @@ import net.sourceforge.kolmafia.AdventureResult;
 import net.sourceforge.kolmafia.objectpool.ItemPool;
 import net.sourceforge.kolmafia.persistence.ConsumablesDatabase;
 import net.sourceforge.kolmafia.persistence.ItemDatabase;
+import net.sourceforge.kolmafia.persistence.NPCStoreDatabase;
 import net.sourceforge.kolmafia.persistence.SkillDatabase;
 
 public abstract class RestoreItem implements Comparable<RestoreItem> {
@@ -40,7 +41,42 @@ public abstract class RestoreItem implements Comparable<RestoreItem> {
 
   public abstract boolean usableInCurrentPath();
 
-  public abstract void recover(final int needed, final boolean purchase);
+  /** Returns how much one use restores, which is never more than is missing. */
+  public abstract long getRestored();
+
+  protected abstract int getPurchaseCost();
+
+  /** Returns what one use costs: the MP to cast a skill, or the meat an item is worth. */
+  public long getUseCost() {
+    if (this.skillId != -1) {
+      return SkillDatabase.getMPConsumptionById(this.skillId);
+    }
+
+    if (this.itemUsed == null) {
+      return 0;
+    }
+
+    int itemId = this.itemUsed.getItemId();
+    int price = this.getPurchaseCost();
+    if (price <= 0) {
+      price = NPCStoreDatabase.price(itemId);
+    }
+    if (price <= 0) {
+      price = ItemDatabase.getPriceById(itemId);
+    }
+
+    return Math.max(price, 0);
+  }
+
+  public void recover(final int needed, final boolean purchase) {
+    this.recover(needed, purchase, 0);
+  }
+
+  /**
+   * Restores towards the needed amount. If count is positive, the restore is used that many times,
+   * rather than as many times as it takes to reach the needed amount.
+   */
+  public abstract void recover(final int needed, final boolean purchase, final int count);
 
   // This will likely be overridden
   @Override
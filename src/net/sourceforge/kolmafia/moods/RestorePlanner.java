@@ -0,0 +1,245 @@
+package net.sourceforge.kolmafia.moods;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Chooses how many uses of each restore make up a shortfall for the least total cost. Each restore
+ * has a yield per use, a cost per use and a number of uses available; the plan is the cheapest set
+ * of uses whose yields add up to the shortfall, or which come as close to it as the available uses
+ * allow. Between plans of equal cost, the one with fewer uses wins.
+ *
+ * <p>Restores may also draw on budgets they share, such as the MP which casts skills or the meat
+ * which buys items. The uses a plan makes of each budget never add up to more than is in it.
+ */
+class RestorePlanner {
+  // Larger shortfalls are planned in coarser steps, with yields rounded down to whole steps so that
+  // a plan never counts on more than it will get.
+  private static final int MAX_STEPS = 1000;
+
+  // Budgets which the available uses could overspend are tracked in steps too, with what each use
+  // spends rounded up, so that a plan never spends more than there is. Together they are allowed
+  // no more than this many combinations of steps.
+  private static final int MAX_BUDGET_STEPS = 256;
+
+  // Costs are scaled so that one use more or less only breaks ties between equal costs
+  private static final long COST_SCALE = 1L << 20;
+
+  private RestorePlanner() {}
+
+  public static int[] plan(
+      final long deficit, final long[] yields, final long[] costs, final int[] available) {
+    return RestorePlanner.plan(deficit, yields, costs, available, new long[0][], new long[0]);
+  }
+
+  /**
+   * Plans as above, where spends[b][i] is how much of budgets[b] each use of restore i spends. Uses
+   * which spend more than is in a budget are not planned.
+   */
+  public static int[] plan(
+      final long deficit,
+      final long[] yields,
+      final long[] costs,
+      final int[] available,
+      final long[][] spends,
+      final long[] budgets) {
+    int[] counts = new int[yields.length];
+    if (deficit <= 0) {
+      return counts;
+    }
+
+    long step = (deficit + MAX_STEPS - 1) / MAX_STEPS;
+    int target = (int) ((deficit + step - 1) / step);
+
+    int[] units = new int[yields.length];
+    int[] limits = new int[yields.length];
+
+    for (int i = 0; i < yields.length; ++i) {
+      units[i] = (int) Math.min(target, yields[i] / step);
+      if (units[i] <= 0 || available[i] <= 0) {
+        continue;
+      }
+
+      long limit = Math.min(available[i], (target + units[i] - 1) / units[i]);
+      for (int b = 0; b < budgets.length; ++b) {
+        if (spends[b][i] > 0) {
+          limit = Math.min(limit, Math.max(budgets[b], 0) / spends[b][i]);
+        }
+      }
+      limits[i] = (int) limit;
+    }
+
+    // Only budgets which the planned uses could overspend need to be tracked
+
+    List<Integer> tracked = new ArrayList<>();
+    for (int b = 0; b < budgets.length; ++b) {
+      long spent = 0;
+      for (int i = 0; i < yields.length; ++i) {
+        spent += Math.max(spends[b][i], 0) * limits[i];
+      }
+      if (spent > Math.max(budgets[b], 0)) {
+        tracked.add(b);
+      }
+    }
+
+    // Budget state is a number whose digits are the steps spent from each tracked budget. The
+    // smallest budgets are divided first, so that steps they do not need go to the larger ones.
+
+    tracked.sort(Comparator.comparingLong(b -> budgets[b]));
+
+    long[] budgetStep = new long[tracked.size()];
+    int[] capacity = new int[tracked.size()];
+    int[] radix = new int[tracked.size()];
+    int states = 1;
+
+    for (int t = 0; t < tracked.size(); ++t) {
+      long budget = Math.max(budgets[tracked.get(t)], 0);
+      double remaining = (double) MAX_BUDGET_STEPS / states;
+      long steps = Math.max(1, (long) Math.pow(remaining, 1.0 / (tracked.size() - t)) - 1);
+      budgetStep[t] = Math.max(1, (budget + steps - 1) / steps);
+      capacity[t] = (int) (budget / budgetStep[t]);
+      radix[t] = states;
+      states *= capacity[t] + 1;
+    }
+
+    // Split each restore's uses into chunks of 1, 2, 4... uses. Any number of uses is a sum of
+    // distinct chunks, so each chunk need only be considered once.
+
+    List<int[]> chunks = new ArrayList<>();
+
+    for (int i = 0; i < yields.length; ++i) {
+      int limit = limits[i];
+      for (int uses = 1; limit > 0; uses *= 2) {
+        int chunk = Math.min(uses, limit);
+        chunks.add(new int[] {i, chunk});
+        limit -= chunk;
+      }
+    }
+
+    // best[j * states + s] is the least cost of restoring j steps while spending budget state s,
+    // with the target standing for anything beyond it. improved[c] marks where chunk c last
+    // improved the best cost, and reached[c][s] which step it came from to reach the target.
+
+    long[] best = new long[(target + 1) * states];
+    Arrays.fill(best, Long.MAX_VALUE);
+    best[0] = 0;
+
+    BitSet[] improved = new BitSet[chunks.size()];
+    int[][] reached = new int[chunks.size()][];
+
+    for (int c = 0; c < chunks.size(); ++c) {
+      int i = chunks.get(c)[0];
+      int uses = chunks.get(c)[1];
+      long weight = (long) units[i] * uses;
+      long cost = (Math.max(costs[i], 0) * COST_SCALE + 1) * uses;
+      int[] next =
+          RestorePlanner.nextStates(tracked, spends, i, uses, budgetStep, capacity, radix, states);
+
+      improved[c] = new BitSet();
+      reached[c] = new int[states];
+
+      for (int j = target; j >= 0; --j) {
+        int k = (int) Math.min(target, j + weight);
+
+        for (int s = states - 1; s >= 0; --s) {
+          long base = best[j * states + s];
+          if (base == Long.MAX_VALUE || next[s] < 0) {
+            continue;
+          }
+
+          int to = k * states + next[s];
+          if (base + cost < best[to]) {
+            best[to] = base + cost;
+            improved[c].set(to);
+            if (k == target) {
+              reached[c][next[s]] = j;
+            }
+          }
+        }
+      }
+    }
+
+    // If the target cannot be reached, restore as much as possible, spending as little as possible
+
+    int j = target;
+    int s = -1;
+    for (; j > 0 && s < 0; --j) {
+      for (int t = 0; t < states; ++t) {
+        long cost = best[j * states + t];
+        if (cost != Long.MAX_VALUE && (s < 0 || cost < best[j * states + s])) {
+          s = t;
+        }
+      }
+    }
+
+    if (s < 0) {
+      return counts;
+    }
+    ++j;
+
+    for (int c = chunks.size() - 1; c >= 0 && j > 0; --c) {
+      if (improved[c].get(j * states + s)) {
+        int i = chunks.get(c)[0];
+        int uses = chunks.get(c)[1];
+        counts[i] += uses;
+        j = j == target ? reached[c][s] : j - units[i] * uses;
+        s = RestorePlanner.previousState(tracked, spends, i, uses, budgetStep, radix, s);
+      }
+    }
+
+    return counts;
+  }
+
+  /** Returns the steps of a budget spent by uses of a restore, rounded up. */
+  private static int spentSteps(
+      final long[][] spends, final int budget, final int i, final int uses, final long step) {
+    long spent = Math.max(spends[budget][i], 0) * uses;
+    return (int) ((spent + step - 1) / step);
+  }
+
+  /**
+   * Returns the budget state reached from each budget state by uses of a restore, or -1 where they
+   * would overspend.
+   */
+  private static int[] nextStates(
+      final List<Integer> tracked,
+      final long[][] spends,
+      final int i,
+      final int uses,
+      final long[] budgetStep,
+      final int[] capacity,
+      final int[] radix,
+      final int states) {
+    int[] next = new int[states];
+
+    for (int s = 0; s < states; ++s) {
+      next[s] = s;
+      for (int t = 0; t < tracked.size() && next[s] >= 0; ++t) {
+        int spent = (s / radix[t]) % (capacity[t] + 1);
+        int more = RestorePlanner.spentSteps(spends, tracked.get(t), i, uses, budgetStep[t]);
+        next[s] = spent + more > capacity[t] ? -1 : next[s] + more * radix[t];
+      }
+    }
+
+    return next;
+  }
+
+  private static int previousState(
+      final List<Integer> tracked,
+      final long[][] spends,
+      final int i,
+      final int uses,
+      final long[] budgetStep,
+      final int[] radix,
+      final int s) {
+    int previous = s;
+    for (int t = 0; t < tracked.size(); ++t) {
+      int spent = RestorePlanner.spentSteps(spends, tracked.get(t), i, uses, budgetStep[t]);
+      previous -= spent * radix[t];
+    }
+    return previous;
+  }
+}
@@ -1,5 +1,6 @@
 package net.sourceforge.kolmafia.persistence;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -61,7 +62,12 @@ public class AscensionSnapshot {
     return AscensionSnapshot.ascensionMap;
   }
 
-  public static final String getAscensionData(
+  /**
+   * Writes the ascension leaderboards for the given type of ascension. Each board is written as
+   * soon as it is ready, rather than the whole page being built in memory first.
+   */
+  public static final void printAscensionData(
+      final PrintStream ostream,
       final AscensionFilter typeFilter,
       final int mostAscensionsBoardSize,
       final int mainBoardSize,
@@ -70,68 +76,67 @@ public class AscensionSnapshot {
       final boolean playerMoreThanOnce,
       boolean localProfileLink) {
     AscensionSnapshot.initializeAscensionData();
-    StringBuilder strbuf = new StringBuilder();
 
-    strbuf.append("<html><head>");
-    strbuf.append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">");
+    ostream.print("<html><head>");
+    ostream.print("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">");
 
-    strbuf.append("<title>");
+    ostream.print("<title>");
 
     switch (typeFilter) {
-      case NORMAL -> strbuf.append("Normal");
-      case HARDCORE -> strbuf.append("Hardcore");
-      case CASUAL -> strbuf.append("Casual");
+      case NORMAL -> ostream.print("Normal");
+      case HARDCORE -> ostream.print("Hardcore");
+      case CASUAL -> ostream.print("Casual");
     }
 
     String clanName = ClanManager.getClanName(true);
 
-    strbuf.append(" Ascension Data for ");
-    strbuf.append(clanName);
-    strbuf.append(" (");
-    strbuf.append(new Date());
-    strbuf.append(")</title>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-
-    strbuf.append("<style> body, td { font-family: sans-serif; } </style></head><body>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<center><table cellspacing=0 cellpadding=0><tr><td align=center><h2><u>");
-    strbuf.append(clanName);
-    strbuf.append(" (#");
-    strbuf.append(ClanManager.getClanId());
-    strbuf.append(")</u></h2></td></tr>");
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print(" Ascension Data for ");
+    ostream.print(clanName);
+    ostream.print(" (");
+    ostream.print(new Date());
+    ostream.print(")</title>");
+    ostream.print(KoLConstants.LINE_BREAK);
+
+    ostream.print("<style> body, td { font-family: sans-serif; } </style></head><body>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<center><table cellspacing=0 cellpadding=0><tr><td align=center><h2><u>");
+    ostream.print(clanName);
+    ostream.print(" (#");
+    ostream.print(ClanManager.getClanId());
+    ostream.print(")</u></h2></td></tr>");
+    ostream.print(KoLConstants.LINE_BREAK);
 
     // Right below the name of the clan, write the average
     // number of this kind of ascension.
 
-    strbuf.append("<tr><td align=center><h3>Avg: ");
-    strbuf.append(
+    ostream.print("<tr><td align=center><h3>Avg: ");
+    ostream.print(
         ((typeFilter == AscensionFilter.NORMAL
                     ? (float) AscensionSnapshot.softcoreAscensionList.size()
                     : 0.0f)
                 + AscensionSnapshot.hardcoreAscensionList.size()
                 + AscensionSnapshot.casualAscensionList.size())
             / AscensionSnapshot.ascensionMap.size());
-    strbuf.append("</h3></td></tr></table><br><br>");
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print("</h3></td></tr></table><br><br>");
+    ostream.print(KoLConstants.LINE_BREAK);
 
     // Next, the ascension leaderboards for most (numeric)
     // ascensions.
 
-    strbuf.append("<table width=500 cellspacing=0 cellpadding=0>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<tr><td style=\"color:white\" align=center bgcolor=blue><b>Most ");
-    strbuf.append(
+    ostream.print("<table width=500 cellspacing=0 cellpadding=0>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<tr><td style=\"color:white\" align=center bgcolor=blue><b>Most ");
+    ostream.print(
         typeFilter == AscensionFilter.NORMAL
             ? "Normal "
             : typeFilter == AscensionFilter.HARDCORE ? "Hardcore " : "Casual ");
-    strbuf.append(
+    ostream.print(
         "Ascensions</b></td></tr><tr><td style=\"padding: 5px; border: 1px solid blue;\"><center><table>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<tr><td align=center><b>Player&nbsp;&nbsp;&nbsp;&nbsp;</b></td>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<td align=center><b>Ascensions</b></td></tr>");
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<tr><td align=center><b>Player&nbsp;&nbsp;&nbsp;&nbsp;</b></td>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<td align=center><b>Ascensions</b></td></tr>");
+    ostream.print(KoLConstants.LINE_BREAK);
 
     // Resort the lists, and print the results to the buffer
     // so that you have the "most ascensions" leaderboard.
@@ -149,32 +154,32 @@ public class AscensionSnapshot {
         leader = AscensionSnapshot.LINK_PATTERN.matcher(leader).replaceAll("");
       }
 
-      strbuf.append(leader);
-      strbuf.append(KoLConstants.LINE_BREAK);
+      ostream.print(leader);
+      ostream.print(KoLConstants.LINE_BREAK);
     }
 
-    strbuf.append("</table></td></tr></table><br><br>");
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print("</table></td></tr></table><br><br>");
+    ostream.print(KoLConstants.LINE_BREAK);
 
     // Finally, the ascension leaderboards for fastest
     // ascension speed.  Do this for all paths individually.
 
     Consumer<Path> appendPathBoard =
         (p) -> {
-          strbuf.append(
-              AscensionSnapshot.getPathedAscensionData(
-                  typeFilter,
-                  p,
-                  mainBoardSize,
-                  classBoardSize,
-                  maxAge,
-                  playerMoreThanOnce,
-                  localProfileLink));
-          strbuf.append(KoLConstants.LINE_BREAK);
+          AscensionSnapshot.printPathedAscensionData(
+              ostream,
+              typeFilter,
+              p,
+              mainBoardSize,
+              classBoardSize,
+              maxAge,
+              playerMoreThanOnce,
+              localProfileLink);
+          ostream.print(KoLConstants.LINE_BREAK);
         };
 
     if (typeFilter != AscensionFilter.CASUAL) {
-      strbuf.append(KoLConstants.LINE_BREAK);
+      ostream.print(KoLConstants.LINE_BREAK);
       for (var path : Path.values()) {
         if (path != Path.NONE && path != Path.BAD_MOON) {
           appendPathBoard.accept(path);
@@ -186,11 +191,11 @@ public class AscensionSnapshot {
     }
     appendPathBoard.accept(Path.NONE);
 
-    strbuf.append("</center>");
-    return strbuf.toString();
+    ostream.print("</center>");
   }
 
-  public static final String getPathedAscensionData(
+  public static final void printPathedAscensionData(
+      final PrintStream ostream,
       final AscensionFilter typeFilter,
       final Path pathFilter,
       final int mainBoardSize,
@@ -198,57 +203,55 @@ public class AscensionSnapshot {
       final int maxAge,
       final boolean playerMoreThanOnce,
       final boolean localProfileLink) {
-    StringBuilder strbuf = new StringBuilder();
-
     // First, print the table showing the top ascenders
     // without a class-based filter.
 
-    strbuf.append(
-        AscensionSnapshot.getAscensionData(
-            typeFilter,
-            pathFilter,
-            null,
-            mainBoardSize,
-            classBoardSize,
-            maxAge,
-            playerMoreThanOnce,
-            localProfileLink));
+    AscensionSnapshot.printAscensionData(
+        ostream,
+        typeFilter,
+        pathFilter,
+        null,
+        mainBoardSize,
+        classBoardSize,
+        maxAge,
+        playerMoreThanOnce,
+        localProfileLink);
 
     // Next, print the nifty disappearing link bar that
     // is used in the KoL leaderboard frame.
 
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print(KoLConstants.LINE_BREAK);
 
     // Finally, add in all the breakdown tables, just like
     // in the KoL leaderboard frame, for class based paths.
 
     Runnable hideShowByClass =
         () -> {
-          strbuf.append(
+          ostream.print(
               "<br><a class=small href=\"javascript:void(0);\" onClick=\"javascript: var element = document.getElementById('sec");
-          strbuf.append(pathFilter);
-          strbuf.append(
+          ostream.print(pathFilter);
+          ostream.print(
               "'); element.style.display = element.style.display == 'inline' ? 'none' : 'inline';\">");
-          strbuf.append("hide/show records by class</a><div id=\"sec");
-          strbuf.append(pathFilter);
-          strbuf.append("\" style=\"display:none\"><br><br>");
-          strbuf.append(KoLConstants.LINE_BREAK);
+          ostream.print("hide/show records by class</a><div id=\"sec");
+          ostream.print(pathFilter);
+          ostream.print("\" style=\"display:none\"><br><br>");
+          ostream.print(KoLConstants.LINE_BREAK);
         };
 
     Consumer<AscensionClass> appendClassBoard =
         (c) -> {
-          strbuf.append(KoLConstants.LINE_BREAK);
-          strbuf.append(
-              AscensionSnapshot.getAscensionData(
-                  typeFilter,
-                  pathFilter,
-                  c,
-                  mainBoardSize,
-                  classBoardSize,
-                  maxAge,
-                  playerMoreThanOnce,
-                  localProfileLink));
-          strbuf.append(KoLConstants.LINE_BREAK);
+          ostream.print(KoLConstants.LINE_BREAK);
+          AscensionSnapshot.printAscensionData(
+              ostream,
+              typeFilter,
+              pathFilter,
+              c,
+              mainBoardSize,
+              classBoardSize,
+              maxAge,
+              playerMoreThanOnce,
+              localProfileLink);
+          ostream.print(KoLConstants.LINE_BREAK);
         };
 
     switch (pathFilter) {
@@ -264,50 +267,49 @@ public class AscensionSnapshot {
         break;
       case AVATAR_OF_WEST_OF_LOATHING:
         hideShowByClass.run();
-        strbuf.append("<table><tr><td valign=top>");
+        ostream.print("<table><tr><td valign=top>");
         appendClassBoard.accept(AscensionClass.COWPUNCHER);
-        strbuf.append("</td><td valign=top>");
+        ostream.print("</td><td valign=top>");
         appendClassBoard.accept(AscensionClass.BEANSLINGER);
-        strbuf.append("</td></tr><tr><td valign=top>");
+        ostream.print("</td></tr><tr><td valign=top>");
         appendClassBoard.accept(AscensionClass.SNAKE_OILER);
-        strbuf.append("</td></tr></table>");
+        ostream.print("</td></tr></table>");
         break;
       case SHADOWS_OVER_LOATHING:
         hideShowByClass.run();
-        strbuf.append("<table><tr><td valign=top>");
+        ostream.print("<table><tr><td valign=top>");
         appendClassBoard.accept(AscensionClass.PIG_SKINNER);
-        strbuf.append("</td><td valign=top>");
+        ostream.print("</td><td valign=top>");
         appendClassBoard.accept(AscensionClass.CHEESE_WIZARD);
-        strbuf.append("</td></tr><tr><td valign=top>");
+        ostream.print("</td></tr><tr><td valign=top>");
         appendClassBoard.accept(AscensionClass.JAZZ_AGENT);
-        strbuf.append("</td></tr></table>");
+        ostream.print("</td></tr></table>");
         break;
       default:
         hideShowByClass.run();
-        strbuf.append("<table><tr><td valign=top>");
+        ostream.print("<table><tr><td valign=top>");
         appendClassBoard.accept(AscensionClass.SEAL_CLUBBER);
-        strbuf.append("</td><td valign=top>");
+        ostream.print("</td><td valign=top>");
         appendClassBoard.accept(AscensionClass.SAUCEROR);
-        strbuf.append("</td></tr><tr><td valign=top>");
+        ostream.print("</td></tr><tr><td valign=top>");
         appendClassBoard.accept(AscensionClass.TURTLE_TAMER);
-        strbuf.append("</td><td valign=top>");
+        ostream.print("</td><td valign=top>");
         appendClassBoard.accept(AscensionClass.DISCO_BANDIT);
-        strbuf.append("</td></tr><tr><td valign=top>");
+        ostream.print("</td></tr><tr><td valign=top>");
         appendClassBoard.accept(AscensionClass.PASTAMANCER);
-        strbuf.append("</td><td valign=top>");
+        ostream.print("</td><td valign=top>");
         appendClassBoard.accept(AscensionClass.ACCORDION_THIEF);
-        strbuf.append("</td></tr></table>");
+        ostream.print("</td></tr></table>");
         break;
     }
 
-    // Close the disappearing section and return the complete
-    // code for this path filter.
+    // Close the disappearing section for this path filter.
 
-    strbuf.append("</div><br><br>");
-    return strbuf.toString();
+    ostream.print("</div><br><br>");
   }
 
-  public static final String getAscensionData(
+  public static final void printAscensionData(
+      final PrintStream ostream,
       final AscensionFilter typeFilter,
       final Path pathFilter,
       final AscensionClass classFilter,
@@ -316,8 +318,6 @@ public class AscensionSnapshot {
       final int maxAge,
       final boolean playerMoreThanOnce,
       boolean localProfileLink) {
-    StringBuilder strbuf = new StringBuilder();
-
     AscensionDataField[] fields = null;
 
     switch (typeFilter) {
@@ -334,7 +334,7 @@ public class AscensionSnapshot {
         AscensionSnapshot.casualAscensionList.toArray(fields);
         break;
       default:
-        return "";
+        return;
     }
 
     // First, retrieve all the ascensions which
@@ -371,39 +371,39 @@ public class AscensionSnapshot {
     // Now that the data has been retrieved, go ahead
     // and print the table header data.
 
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<table width=500 cellspacing=0 cellpadding=0>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<tr><td style=\"color:white\" align=center bgcolor=blue><b>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<table width=500 cellspacing=0 cellpadding=0>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<tr><td style=\"color:white\" align=center bgcolor=blue><b>");
 
     if (classFilter == null) {
-      strbuf.append("Fastest ");
+      ostream.print("Fastest ");
 
-      strbuf.append(
+      ostream.print(
           typeFilter == AscensionFilter.NORMAL
               ? "Normal "
               : typeFilter == AscensionFilter.HARDCORE ? "Hardcore " : "Casual ");
-      strbuf.append(
+      ostream.print(
           pathFilter == null
               ? ""
               : (pathFilter == Path.NONE ? "No Path" : pathFilter.getName()) + " ");
 
-      strbuf.append("Ascensions (Out of ");
-      strbuf.append(resultsList.size());
-      strbuf.append(")");
+      ostream.print("Ascensions (Out of ");
+      ostream.print(resultsList.size());
+      ostream.print(")");
     } else {
-      strbuf.append(classFilter.getName());
+      ostream.print(classFilter.getName());
     }
 
-    strbuf.append(
+    ostream.print(
         "</b></td></tr><tr><td style=\"padding: 5px; border: 1px solid blue;\"><center><table>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<tr><td align=center><b>Player&nbsp;&nbsp;&nbsp;&nbsp;</b></td>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<td align=center><b>Days</b></td>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<td align=center><b>Adventures</b></td></tr>");
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<tr><td align=center><b>Player&nbsp;&nbsp;&nbsp;&nbsp;</b></td>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<td align=center><b>Days</b></td>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<td align=center><b>Adventures</b></td></tr>");
+    ostream.print(KoLConstants.LINE_BREAK);
 
     // Now, print the actual table data inside, using
     // the top ten list.
@@ -415,14 +415,13 @@ public class AscensionSnapshot {
         leader = AscensionSnapshot.LINK_PATTERN.matcher(leader).replaceAll("");
       }
 
-      strbuf.append(leader);
-      strbuf.append(KoLConstants.LINE_BREAK);
+      ostream.print(leader);
+      ostream.print(KoLConstants.LINE_BREAK);
     }
 
-    strbuf.append("</table></td></tr></table>");
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print("</table></td></tr></table>");
+    ostream.print(KoLConstants.LINE_BREAK);
 
-    return strbuf.toString();
   }
 
   private static void initializeAscensionData() {
@@ -445,6 +444,9 @@ public class AscensionSnapshot {
               name, ContactManager.getPlayerId(name), AscensionSnapshot.ascensionMap.get(name));
       AscensionSnapshot.ascensionDataList.add(request);
 
+      // Only the counts parsed from the page are used from here on
+      request.responseText = null;
+
       AscensionDataField[] fields = new AscensionDataField[request.getAscensionData().size()];
       request.getAscensionData().toArray(fields);
 
@@ -78,6 +78,11 @@ public class ConcoctionDatabase {
 
   private static boolean refreshNeeded = true;
   private static boolean recalculateAdventureRange = false;
+
+  // If only the counts of these items have changed since the last refresh, only the concoctions
+  // which can use them need to be recalculated. Anything else needs a full refresh.
+  private static final Set<Integer> changedItems = new HashSet<>();
+  private static boolean fullRefreshNeeded = true;
   public static int refreshLevel = 0;
 
   public static int queuedAdventuresUsed = 0;
@@ -1127,19 +1132,15 @@ public class ConcoctionDatabase {
   }
 
   public static final void setRefreshNeeded(int itemId) {
-    switch (ItemDatabase.getConsumptionType(itemId)) {
-      case EAT, DRINK, SPLEEN, USE, USE_MULTIPLE, FOOD_HELPER, DRINK_HELPER -> {
-        ConcoctionDatabase.setRefreshNeeded(false);
-        return;
-      }
-    }
-
     switch (itemId) {
         // Items that affect creatability of other items, but
         // aren't explicitly listed in their recipes:
       case ItemPool.WORTHLESS_TRINKET:
       case ItemPool.WORTHLESS_GEWGAW:
       case ItemPool.WORTHLESS_KNICK_KNACK:
+      case ItemPool.MEAT_PASTE:
+      case ItemPool.MEAT_STACK:
+      case ItemPool.DENSE_STACK:
 
         // Interchangeable ingredients, which might have been missed
         // by the getKnownUses check because the recipes are set to
@@ -1156,28 +1157,43 @@ public class ConcoctionDatabase {
         return;
     }
 
+    for (CoinmasterData coinmaster : CoinmasterRegistry.COINMASTERS) {
+      AdventureResult item = coinmaster.getItem();
+      if (item != null && itemId == item.getItemId()) {
+        ConcoctionDatabase.setRefreshNeeded(false);
+        return;
+      }
+    }
+
+    switch (ItemDatabase.getConsumptionType(itemId)) {
+      case EAT, DRINK, SPLEEN, USE, USE_MULTIPLE, FOOD_HELPER, DRINK_HELPER -> {
+        ConcoctionDatabase.setItemRefreshNeeded(itemId);
+        return;
+      }
+    }
+
     for (AdventureResult use : ConcoctionDatabase.getKnownUses(itemId)) {
       CraftingType method = ConcoctionDatabase.getMixingMethod(use.getItemId());
       EnumSet<CraftingRequirements> requirements =
           ConcoctionDatabase.getRequirements(use.getItemId());
 
       if (ConcoctionDatabase.isPermittedMethod(method, requirements)) {
-        ConcoctionDatabase.setRefreshNeeded(false);
+        ConcoctionDatabase.setItemRefreshNeeded(itemId);
         return;
       }
     }
+  }
 
-    for (CoinmasterData coinmaster : CoinmasterRegistry.COINMASTERS) {
-      AdventureResult item = coinmaster.getItem();
-      if (item != null && itemId == item.getItemId()) {
-        ConcoctionDatabase.setRefreshNeeded(false);
-        return;
-      }
+  private static void setItemRefreshNeeded(int itemId) {
+    synchronized (ConcoctionDatabase.changedItems) {
+      ConcoctionDatabase.changedItems.add(itemId);
     }
+    ConcoctionDatabase.refreshNeeded = true;
   }
 
   public static final void setRefreshNeeded(boolean recalculateAdventureRange) {
     ConcoctionDatabase.refreshNeeded = true;
+    ConcoctionDatabase.fullRefreshNeeded = true;
 
     if (recalculateAdventureRange) {
       ConcoctionDatabase.recalculateAdventureRange = true;
@@ -1196,6 +1212,7 @@ public class ConcoctionDatabase {
     if (force) {
       // Remember that refresh is forced, even if deferred
       ConcoctionDatabase.refreshNeeded = true;
+      ConcoctionDatabase.fullRefreshNeeded = true;
     }
 
     if (!ConcoctionDatabase.refreshNeeded) {
@@ -1220,6 +1237,15 @@ public class ConcoctionDatabase {
     Preferences.increment("_concoctionDatabaseRefreshes");
     ConcoctionDatabase.refreshNeeded = false;
 
+    Set<Integer> changed;
+    synchronized (ConcoctionDatabase.changedItems) {
+      changed = new HashSet<>(ConcoctionDatabase.changedItems);
+      ConcoctionDatabase.changedItems.clear();
+    }
+
+    boolean fullRefresh = ConcoctionDatabase.fullRefreshNeeded || changed.isEmpty();
+    ConcoctionDatabase.fullRefreshNeeded = false;
+
     List<AdventureResult> availableIngredientsList = ConcoctionDatabase.getAvailableIngredients();
 
     // In addition to the list, we create a second data structure here for better performance.
@@ -1232,66 +1258,17 @@ public class ConcoctionDatabase {
       availableIngredients.put(item.getItemId(), item);
     }
 
-    // Iterate through the concoction table, Initialize each one
-    // appropriately depending on whether it is an NPC item, a Coin
-    // Master item, or anything else.
-
-    boolean useNPCStores = InventoryManager.canUseNPCStores();
-    boolean useCoinmasters = InventoryManager.canUseCoinmasters();
-
-    for (Concoction item : ConcoctionPool.concoctions()) {
-      // Initialize all the variables
-      item.resetCalculations();
-
-      if (item.speakeasy != null) {
-        // Has an item number, but can't appear in inventory
-        continue;
-      }
-
-      AdventureResult concoction = item.concoction;
-      if (concoction == null) {
-        continue;
-      }
-
-      int itemId = concoction.getItemId();
-
-      if (useNPCStores && NPCStoreDatabase.contains(itemId, true)) {
-        if (itemId != ItemPool.FLAT_DOUGH) {
-          // Don't buy flat dough from Degrassi Knoll Bakery -
-          // buy wads of dough for 20 meat less, instead.
-
-          item.price = NPCStoreDatabase.price(itemId);
-          item.initial = concoction.getCount(availableIngredients);
-          item.creatable = 0;
-          item.total = item.initial;
-          item.visibleTotal = item.total;
-          continue;
-        }
-      }
-
-      PurchaseRequest purchaseRequest = item.getPurchaseRequest();
-      if (purchaseRequest != null) {
-        purchaseRequest.setCanPurchase(useCoinmasters);
-        int acquirable = purchaseRequest.canPurchase() ? purchaseRequest.affordableCount() : 0;
-        item.price = 0;
-        item.initial = concoction.getCount(availableIngredients);
-        item.creatable = acquirable;
-        item.total = item.initial + acquirable;
-        item.visibleTotal = item.total;
-        continue;
-      }
-
-      // Set initial quantity of all remaining items.
+    // If only some item counts have changed, only the concoctions which can use those items,
+    // directly or through other concoctions, need to be recalculated.
 
-      // Switch to the better of any interchangeable ingredients. Only mutates the first argument.
-      ConcoctionDatabase.getIngredients(item, item.getIngredients(), availableIngredientsList);
+    Collection<Concoction> affected =
+        fullRefresh
+            ? ConcoctionPool.concoctions()
+            : ConcoctionDatabase.getAffectedConcoctions(changed);
+    PermittedState permitted = fullRefresh ? null : PermittedState.current();
 
-      item.initial = concoction.getCount(availableIngredients);
-      item.price = 0;
-      item.creatable = 0;
-      item.total = item.initial;
-      item.visibleTotal = item.total;
-    }
+    ConcoctionDatabase.initializeConcoctions(
+        affected, availableIngredientsList, availableIngredients);
 
     // Make assessment of availability of mixing methods.
     // This method will also calculate the availability of
@@ -1300,11 +1277,20 @@ public class ConcoctionDatabase {
 
     ConcoctionDatabase.cachePermitted(availableIngredientsList);
 
+    if (!fullRefresh && !permitted.equals(PermittedState.current())) {
+      // The changed items also changed which methods are permitted or how far they can go, and
+      // that can change any concoction.
+      affected = ConcoctionPool.concoctions();
+      ConcoctionDatabase.initializeConcoctions(
+          affected, availableIngredientsList, availableIngredients);
+      ConcoctionDatabase.cachePermitted(availableIngredientsList);
+    }
+
     // Finally, increment through all of the things which are
     // created any other way, making sure that it's a permitted
     // mixture before doing the calculation.
 
-    for (Concoction item : ConcoctionPool.concoctions()) {
+    for (Concoction item : affected) {
       item.calculate2();
       item.calculate3();
     }
@@ -1319,7 +1305,7 @@ public class ConcoctionDatabase {
             && !KoLCharacter.isHardcore()
             && ConcoctionDatabase.getPullsBudgeted() > ConcoctionDatabase.queuedPullsUsed;
 
-    for (Concoction item : ConcoctionPool.concoctions()) {
+    for (Concoction item : affected) {
       AdventureResult ar = item.getItem();
       if (ar == null) {
         continue;
@@ -1384,6 +1370,141 @@ public class ConcoctionDatabase {
     ConcoctionDatabase.queuedPotions.updateFilter(changeDetected);
   }
 
+  private static void initializeConcoctions(
+      final Collection<Concoction> concoctions,
+      final List<AdventureResult> availableIngredientsList,
+      final Map<Integer, AdventureResult> availableIngredients) {
+    // Iterate through the concoction table, Initialize each one
+    // appropriately depending on whether it is an NPC item, a Coin
+    // Master item, or anything else.
+
+    boolean useNPCStores = InventoryManager.canUseNPCStores();
+    boolean useCoinmasters = InventoryManager.canUseCoinmasters();
+
+    for (Concoction item : concoctions) {
+      // Initialize all the variables
+      item.resetCalculations();
+
+      if (item.speakeasy != null) {
+        // Has an item number, but can't appear in inventory
+        continue;
+      }
+
+      AdventureResult concoction = item.concoction;
+      if (concoction == null) {
+        continue;
+      }
+
+      int itemId = concoction.getItemId();
+
+      if (useNPCStores && NPCStoreDatabase.contains(itemId, true)) {
+        if (itemId != ItemPool.FLAT_DOUGH) {
+          // Don't buy flat dough from Degrassi Knoll Bakery -
+          // buy wads of dough for 20 meat less, instead.
+
+          item.price = NPCStoreDatabase.price(itemId);
+          item.initial = concoction.getCount(availableIngredients);
+          item.creatable = 0;
+          item.total = item.initial;
+          item.visibleTotal = item.total;
+          continue;
+        }
+      }
+
+      PurchaseRequest purchaseRequest = item.getPurchaseRequest();
+      if (purchaseRequest != null) {
+        purchaseRequest.setCanPurchase(useCoinmasters);
+        int acquirable = purchaseRequest.canPurchase() ? purchaseRequest.affordableCount() : 0;
+        item.price = 0;
+        item.initial = concoction.getCount(availableIngredients);
+        item.creatable = acquirable;
+        item.total = item.initial + acquirable;
+        item.visibleTotal = item.total;
+        continue;
+      }
+
+      // Set initial quantity of all remaining items.
+
+      // Switch to the better of any interchangeable ingredients. Only mutates the first argument.
+      ConcoctionDatabase.getIngredients(item, item.getIngredients(), availableIngredientsList);
+
+      item.initial = concoction.getCount(availableIngredients);
+      item.price = 0;
+      item.creatable = 0;
+      item.total = item.initial;
+      item.visibleTotal = item.total;
+    }
+  }
+
+  /**
+   * Returns the concoctions for the items, and every concoction which uses any of them as an
+   * ingredient, directly or through other concoctions.
+   */
+  private static Collection<Concoction> getAffectedConcoctions(final Set<Integer> itemIds) {
+    Set<Concoction> affected = new HashSet<>();
+    List<Integer> pending = new ArrayList<>(itemIds);
+
+    for (int itemId : itemIds) {
+      Concoction c = ConcoctionPool.get(itemId);
+      if (c != null) {
+        affected.add(c);
+      }
+    }
+
+    while (!pending.isEmpty()) {
+      int itemId = pending.remove(pending.size() - 1);
+      for (AdventureResult use : ConcoctionDatabase.getKnownUses(itemId)) {
+        Concoction c = ConcoctionPool.get(use);
+        if (c != null && affected.add(c) && use.getItemId() > 0) {
+          pending.add(use.getItemId());
+        }
+      }
+    }
+
+    return affected;
+  }
+
+  /**
+   * What cachePermitted decides that recipes depend on beyond their own ingredients. If it is the
+   * same after a refresh as before, concoctions which use none of the changed items are unchanged.
+   */
+  private record PermittedState(
+      Set<CraftingType> methods,
+      Set<CraftingRequirements> requirements,
+      Map<CraftingType, Integer> adventureUsage,
+      Map<CraftingType, Integer> creationCost,
+      List<Integer> limits) {
+    static PermittedState current() {
+      List<Integer> limits = new ArrayList<>();
+      for (Concoction limit :
+          List.of(
+              ConcoctionDatabase.adventureLimit,
+              ConcoctionDatabase.adventureSmithingLimit,
+              ConcoctionDatabase.cookingLimit,
+              ConcoctionDatabase.turnFreeLimit,
+              ConcoctionDatabase.turnFreeSmithingLimit,
+              ConcoctionDatabase.turnFreeCookingLimit,
+              ConcoctionDatabase.stillsLimit,
+              ConcoctionDatabase.clipArtLimit,
+              ConcoctionDatabase.extrudeLimit,
+              ConcoctionDatabase.meatLimit)) {
+        limits.add(limit.initial);
+        limits.add(limit.total);
+      }
+      for (int itemId : List.of(ItemPool.MEAT_PASTE, ItemPool.MEAT_STACK, ItemPool.DENSE_STACK)) {
+        Concoction c = ConcoctionPool.get(itemId);
+        limits.add(c == null ? 0 : c.initial);
+      }
+
+      return new PermittedState(
+          EnumSet.copyOf(ConcoctionDatabase.PERMIT_METHOD),
+          EnumSet.copyOf(ConcoctionDatabase.REQUIREMENT_MET),
+          new EnumMap<>(ConcoctionDatabase.ADVENTURE_USAGE),
+          new EnumMap<>(ConcoctionDatabase.CREATION_COST),
+          limits);
+    }
+  }
+
   /** Reset concoction stat gains when you've logged in a new character. */
   public static final void resetConcoctionStatGains() {
     for (Concoction item : ConcoctionPool.concoctions()) {
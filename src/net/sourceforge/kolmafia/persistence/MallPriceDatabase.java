@@ -17,7 +17,7 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.HashSet;
 import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import net.java.dev.spellcast.utilities.DataUtilities;
@@ -35,7 +35,7 @@ public class MallPriceDatabase {
   // If false, blocks saving of mall prices. Do not modify outside of tests.
   public static boolean savePricesToFile = true;
 
-  private static final SortedMap<Integer, Price> prices = new TreeMap<>();
+  private static final SortedMap<Integer, Price> prices = new ConcurrentSkipListMap<>();
   private static final HashSet<String> updated = new HashSet<>();
   private static final HashSet<String> submitted = new HashSet<>();
   private static int modCount = 0;
@@ -86,15 +86,8 @@ public class MallPriceDatabase {
         }
 
         if (!ItemDatabase.isTradeable(id)) continue;
-        Price p = MallPriceDatabase.prices.get(id);
-        if (p == null) {
-          MallPriceDatabase.prices.put(id, new Price(id, price, timestamp));
+        if (MallPriceDatabase.updatePrice(id, price, timestamp)) {
           ++count;
-          ++MallPriceDatabase.modCount;
-        } else if (timestamp > p.timestamp) {
-          p.update(price, timestamp);
-          ++count;
-          ++MallPriceDatabase.modCount;
         }
       }
     } catch (IOException e) {
@@ -142,21 +135,45 @@ public class MallPriceDatabase {
     }
   }
 
-  public static void recordPrice(int itemId, int price, boolean deferred) {
-    long timestamp = MallPriceManager.currentTimeMillis() / 1000L;
+  // Prices may be recorded by several mall searches at once
+
+  private static synchronized boolean updatePrice(int itemId, int price, long timestamp) {
     Price p = MallPriceDatabase.prices.get(itemId);
     if (p == null) {
       MallPriceDatabase.prices.put(itemId, new Price(itemId, price, timestamp));
-    } else {
+    } else if (timestamp > p.timestamp) {
       p.update(price, timestamp);
+    } else {
+      return false;
     }
     ++MallPriceDatabase.modCount;
+    return true;
+  }
+
+  public static void recordPrice(int itemId, int price, boolean deferred) {
+    long timestamp = MallPriceManager.currentTimeMillis() / 1000L;
+    synchronized (MallPriceDatabase.class) {
+      Price p = MallPriceDatabase.prices.get(itemId);
+      if (p == null) {
+        MallPriceDatabase.prices.put(itemId, new Price(itemId, price, timestamp));
+      } else {
+        p.update(price, timestamp);
+      }
+      ++MallPriceDatabase.modCount;
+    }
     if (!deferred) {
       MallPriceDatabase.writePrices();
     }
   }
 
-  public static void writePrices() {
+  // Record a price found at an earlier time, if it is newer than the one we have
+  public static void recordPrice(int itemId, int price, long timestamp, boolean deferred) {
+    if (MallPriceDatabase.updatePrice(itemId, price, timestamp) && !deferred) {
+      MallPriceDatabase.writePrices();
+    }
+  }
+
+  public static synchronized void writePrices() {
     if (!MallPriceDatabase.savePricesToFile) {
       return;
     }
@@ -0,0 +1,290 @@
+package net.sourceforge.kolmafia.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import net.java.dev.spellcast.utilities.DataUtilities;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.StaticEntity;
+import net.sourceforge.kolmafia.preferences.Preferences;
+import net.sourceforge.kolmafia.request.MallPurchaseRequest;
+import net.sourceforge.kolmafia.request.PurchaseRequest;
+import net.sourceforge.kolmafia.session.MallPriceManager;
+import net.sourceforge.kolmafia.utilities.FileUtilities;
+import net.sourceforge.kolmafia.utilities.StringUtilities;
+
+/**
+ * The results of mall searches for single items, kept in mallsearches.txt so that a later session
+ * can price those items without searching the mall again. Each item's results expire on their own,
+ * mallSearchCacheTTL seconds after the search which found them.
+ *
+ * <p>Each search is appended to the file as it is made, as is a search which never was fresh for
+ * each item whose search is forgotten. The file is rewritten without expired, replaced or forgotten
+ * searches when it is loaded and after a batch of searches.
+ */
+public class MallSearchDatabase {
+  public static final File SEARCH_FILE = new File(KoLConstants.DATA_LOCATION, "mallsearches.txt");
+
+  private record Offer(int shopId, String shopName, int price, int quantity, int limit) {}
+
+  private record Search(long timestamp, long expires, List<Offer> offers) {
+    public boolean isFresh(final long now) {
+      return this.timestamp <= now && now < this.expires;
+    }
+  }
+
+  // Saved in place of a forgotten search, to replace the searches before it in the file
+  private static final Search FORGOTTEN = new Search(0, 0, List.of());
+
+  private static final Map<Integer, Search> searches = new ConcurrentSkipListMap<>();
+
+  static {
+    if (MallSearchDatabase.readSearches()) {
+      MallSearchDatabase.writeSearches();
+    }
+  }
+
+  private MallSearchDatabase() {}
+
+  // For testing
+  public static void reset() {
+    MallSearchDatabase.searches.clear();
+  }
+
+  /**
+   * Reads the saved searches, and returns whether any in the file were expired, replaced or
+   * forgotten.
+   */
+  static boolean readSearches() {
+    if (!MallSearchDatabase.SEARCH_FILE.exists()) {
+      return false;
+    }
+
+    long now = MallPriceManager.currentTimeMillis() / 1000L;
+    boolean stale = false;
+
+    try (BufferedReader reader = FileUtilities.getReader(MallSearchDatabase.SEARCH_FILE)) {
+      String line = FileUtilities.readLine(reader);
+      if (line == null || StringUtilities.parseInt(line) != KoLConstants.MALLSEARCHES_VERSION) {
+        return true;
+      }
+
+      String[] data;
+      while ((data = FileUtilities.readData(reader)) != null) {
+        if (data.length < 3 || (data.length - 3) % 5 != 0) {
+          stale = true;
+          continue;
+        }
+
+        int itemId = StringUtilities.parseInt(data[0]);
+        long timestamp = StringUtilities.parseLong(data[1]);
+        long expires = StringUtilities.parseLong(data[2]);
+
+        List<Offer> offers = new ArrayList<>();
+        for (int i = 3; i < data.length; i += 5) {
+          offers.add(
+              new Offer(
+                  StringUtilities.parseInt(data[i]),
+                  data[i + 1],
+                  StringUtilities.parseInt(data[i + 2]),
+                  StringUtilities.parseInt(data[i + 3]),
+                  StringUtilities.parseInt(data[i + 4])));
+        }
+
+        Search search = new Search(timestamp, expires, offers);
+        if (itemId < 1) {
+          stale = true;
+          continue;
+        }
+
+        // Later searches for an item replace earlier ones, and expired or forgotten searches
+        // leave nothing in their place
+        if (!search.isFresh(now)) {
+          MallSearchDatabase.searches.remove(itemId);
+          stale = true;
+        } else if (MallSearchDatabase.searches.put(itemId, search) != null) {
+          stale = true;
+        }
+      }
+    } catch (IOException e) {
+      StaticEntity.printStackTrace(e);
+    }
+
+    return stale;
+  }
+
+  /**
+   * Remembers the results of a mall search for a single item. Unless deferred, the search is also
+   * added to the file at once; deferred searches are saved by the next call to writeSearches.
+   */
+  public static void recordSearch(
+      final int itemId, final List<PurchaseRequest> results, final boolean deferred) {
+    long now = MallPriceManager.currentTimeMillis() / 1000L;
+
+    // Only mall stores are kept: NPC stores are added back from NPCStoreDatabase
+    List<Offer> offers = new ArrayList<>();
+    long timestamp = now;
+
+    for (PurchaseRequest result : results) {
+      if (result instanceof MallPurchaseRequest mallPurchase) {
+        if (!mallPurchase.canPurchaseIgnoringMeat()) {
+          continue;
+        }
+        timestamp = Math.min(timestamp, mallPurchase.getTimestamp() / 1000L);
+        offers.add(
+            new Offer(
+                mallPurchase.getShopId(),
+                mallPurchase.getShopName().replace('\t', ' '),
+                mallPurchase.getPrice(),
+                mallPurchase.getQuantity(),
+                mallPurchase.getLimit()));
+      }
+    }
+
+    long expires = timestamp + Preferences.getInteger("mallSearchCacheTTL");
+    Search search = new Search(timestamp, expires, offers);
+    MallSearchDatabase.searches.put(itemId, search);
+
+    if (!deferred) {
+      MallSearchDatabase.appendSearches(Map.of(itemId, search));
+    }
+  }
+
+  /** Forgets the search for the item, here and in the file. */
+  public static void forgetSearch(final int itemId) {
+    if (MallSearchDatabase.searches.remove(itemId) != null) {
+      MallSearchDatabase.appendSearches(Map.of(itemId, MallSearchDatabase.FORGOTTEN));
+    }
+  }
+
+  /** Forgets every search which found the shop, here and in the file. */
+  public static void forgetShop(final int shopId) {
+    Map<Integer, Search> forgotten = new TreeMap<>();
+
+    Iterator<Map.Entry<Integer, Search>> i = MallSearchDatabase.searches.entrySet().iterator();
+    while (i.hasNext()) {
+      Map.Entry<Integer, Search> entry = i.next();
+      if (entry.getValue().offers().stream().anyMatch(offer -> offer.shopId() == shopId)) {
+        i.remove();
+        forgotten.put(entry.getKey(), MallSearchDatabase.FORGOTTEN);
+      }
+    }
+
+    if (!forgotten.isEmpty()) {
+      MallSearchDatabase.appendSearches(forgotten);
+    }
+  }
+
+  /**
+   * Returns the saved results of the most recent search for the item, provided they have not
+   * expired and are no more than maxAge days old, or null otherwise.
+   */
+  public static List<PurchaseRequest> getSearch(final int itemId, final float maxAge) {
+    Search search = MallSearchDatabase.searches.get(itemId);
+    long now = MallPriceManager.currentTimeMillis() / 1000L;
+
+    if (search == null || !search.isFresh(now) || (now - search.timestamp()) / 86400.0f > maxAge) {
+      return null;
+    }
+
+    List<PurchaseRequest> results = new ArrayList<>();
+    for (Offer offer : search.offers()) {
+      results.add(
+          new MallPurchaseRequest(
+              itemId,
+              offer.quantity(),
+              offer.shopId(),
+              offer.shopName(),
+              offer.price(),
+              offer.limit(),
+              true));
+    }
+
+    if (NPCStoreDatabase.contains(itemId, false)) {
+      results.add(NPCStoreDatabase.getPurchaseRequest(itemId));
+    }
+
+    Collections.sort(results, PurchaseRequest.priceComparator);
+    return results;
+  }
+
+  public static List<PurchaseRequest> getSearch(final int itemId) {
+    return MallSearchDatabase.getSearch(itemId, Float.POSITIVE_INFINITY);
+  }
+
+  /** Returns when the saved search for the item was made, in seconds, or 0 if there is none. */
+  public static long getTimestamp(final int itemId) {
+    Search search = MallSearchDatabase.searches.get(itemId);
+    return search == null ? 0 : search.timestamp();
+  }
+
+  /** Rewrites the file with every search which has not yet expired. */
+  public static synchronized void writeSearches() {
+    if (!MallPriceDatabase.savePricesToFile) {
+      return;
+    }
+
+    long now = MallPriceManager.currentTimeMillis() / 1000L;
+
+    try (PrintStream writer =
+        new PrintStream(
+            new BufferedOutputStream(
+                DataUtilities.getOutputStream(MallSearchDatabase.SEARCH_FILE)),
+            false)) {
+      writer.println(KoLConstants.MALLSEARCHES_VERSION);
+
+      for (Map.Entry<Integer, Search> entry : MallSearchDatabase.searches.entrySet()) {
+        if (entry.getValue().isFresh(now)) {
+          MallSearchDatabase.writeSearch(writer, entry.getKey(), entry.getValue());
+        }
+      }
+    }
+  }
+
+  /** Adds the searches to the end of the file. */
+  private static synchronized void appendSearches(final Map<Integer, Search> searches) {
+    if (!MallPriceDatabase.savePricesToFile) {
+      return;
+    }
+
+    boolean created = !MallSearchDatabase.SEARCH_FILE.exists();
+    try (PrintStream writer =
+        new PrintStream(
+            new BufferedOutputStream(
+                DataUtilities.getOutputStream(MallSearchDatabase.SEARCH_FILE, true)),
+            false)) {
+      if (created) {
+        writer.println(KoLConstants.MALLSEARCHES_VERSION);
+      }
+
+      for (Map.Entry<Integer, Search> entry : searches.entrySet()) {
+        MallSearchDatabase.writeSearch(writer, entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private static void writeSearch(final PrintStream writer, final int itemId, final Search search) {
+    StringBuilder line = new StringBuilder();
+    line.append(itemId).append('\t').append(search.timestamp()).append('\t');
+    line.append(search.expires());
+
+    for (Offer offer : search.offers()) {
+      line.append('\t').append(offer.shopId());
+      line.append('\t').append(offer.shopName());
+      line.append('\t').append(offer.price());
+      line.append('\t').append(offer.quantity());
+      line.append('\t').append(offer.limit());
+    }
+
+    writer.println(line);
+  }
+}
@@ -1,6 +1,7 @@
 package net.sourceforge.kolmafia.persistence;
 
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
@@ -21,13 +22,13 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import net.sourceforge.kolmafia.AdventureResult;
 import net.sourceforge.kolmafia.AscensionClass;
+import net.sourceforge.kolmafia.EvaluationContext;
 import net.sourceforge.kolmafia.FamiliarData;
 import net.sourceforge.kolmafia.KoLAdventure;
 import net.sourceforge.kolmafia.KoLCharacter;
 import net.sourceforge.kolmafia.KoLConstants;
 import net.sourceforge.kolmafia.KoLConstants.ConsumptionType;
 import net.sourceforge.kolmafia.KoLmafia;
-import net.sourceforge.kolmafia.ModifierExpression;
 import net.sourceforge.kolmafia.ModifierType;
 import net.sourceforge.kolmafia.Modifiers;
 import net.sourceforge.kolmafia.RequestLogger;
@@ -48,7 +49,6 @@ import net.sourceforge.kolmafia.objectpool.ItemPool;
 import net.sourceforge.kolmafia.persistence.MonsterDatabase.Element;
 import net.sourceforge.kolmafia.request.CampgroundRequest;
 import net.sourceforge.kolmafia.utilities.FileUtilities;
-import net.sourceforge.kolmafia.utilities.Indexed;
 import net.sourceforge.kolmafia.utilities.IntOrString;
 import net.sourceforge.kolmafia.utilities.LogStream;
 import net.sourceforge.kolmafia.utilities.StringUtilities;
@@ -58,8 +58,9 @@ public class ModifierDatabase {
   // maps for modifiers
   private static final TwoLevelEnumHashMap<ModifierType, IntOrString, String>
       modifierStringsByName = new TwoLevelEnumHashMap<>(ModifierType.class);
+  // Concurrent, since speculation in an isolated EvaluationContext may run on several threads
   private static final TwoLevelEnumHashMap<ModifierType, IntOrString, Modifiers> modifiersByName =
-      new TwoLevelEnumHashMap<>(ModifierType.class);
+      new TwoLevelEnumHashMap<>(ModifierType.class, true);
   private static final Map<String, Modifier> modifierTypesByName = new HashMap<>();
   private static final Map<String, String> familiarEffectByName = new HashMap<>();
 
@@ -73,6 +74,9 @@ public class ModifierDatabase {
   private static final Map<BitmapModifier, Integer> bitmapMasks =
       new EnumMap<>(BitmapModifier.class);
 
+  // pre-parsed modifiers.txt, if the build wrote one and there is no override
+  private static ModifierSnapshot snapshot = null;
+
   // constant fields
 
   public static final String EXPR = "(?:([-+]?[\\d.]+)|\\[([^]]+)\\])";
@@ -341,7 +345,12 @@ public class ModifierDatabase {
         return null;
       }
 
-      modifiers = parseModifiers(lookup, modifierString);
+      if (snapshot != null) {
+        modifiers = snapshot.parse(lookup, type, key, modifierString);
+      }
+      if (modifiers == null) {
+        modifiers = parseModifiers(lookup, modifierString);
+      }
 
       if (originalType != null) {
         modifiers.setLookup(new Lookup(originalType, key));
@@ -353,6 +362,10 @@ public class ModifierDatabase {
     }
 
     if (modifiers.variable) {
+      if (EvaluationContext.isIsolated()) {
+        // Evaluate a copy, leaving the shared one to threads using the shared context
+        modifiers = modifiers.variableCopy();
+      }
       modifiers.override(lookup);
       if (originalType != null) {
         modifiers.setLookup(new Lookup(originalType, key));
@@ -575,99 +588,10 @@ public class ModifierDatabase {
 
     newMods.setLookup(lookup);
 
-    modLoop:
     for (var modValue : list) {
-      var string = modValue.toString();
-
-      for (var mod : DoubleModifier.DOUBLE_MODIFIERS) {
-        Pattern pattern = mod.getTagPattern();
-        if (pattern == null) {
-          continue;
-        }
-
-        Matcher matcher = pattern.matcher(string);
-        if (!matcher.matches()) {
-          continue;
-        }
-
-        if (matcher.group(1) != null) {
-          newMods.setDouble(mod, Double.parseDouble(matcher.group(1)));
-        } else {
-          newMods.addExpression(
-              new Indexed<>(mod, ModifierExpression.getInstance(matcher.group(2), lookup)));
-        }
-        continue modLoop;
-      }
-
-      for (var mod : BitmapModifier.BITMAP_MODIFIERS) {
-        Pattern pattern = mod.getTagPattern();
-        if (pattern == null) {
-          continue;
-        }
-
-        Matcher matcher = pattern.matcher(string);
-        if (!matcher.matches()) {
-          continue;
-        }
-        int bitcount = 1;
-        if (matcher.groupCount() > 0) {
-          bitcount = StringUtilities.parseInt(matcher.group(1));
-          if (mod == BitmapModifier.CLOWNINESS) {
-            bitcount = bitcount / 25;
-          }
-        }
-        // bitmapMasks stores the next mask we're going to use for modifier mod
-        int mask = bitmapMasks.get(mod);
-        bitmapMasks.put(mod, mask << bitcount);
-        for (int i = 0; i < bitcount - 1; i++) {
-          mask |= mask << 1;
-        }
-        if (bitmapMasks.get(mod) == 0) {
-          String message =
-              "ERROR: too many sources for bitmap modifier "
-                  + mod.getName()
-                  + ", consider using longs.";
-          KoLmafia.updateDisplay(message);
-        }
-
-        newMods.addBitmap(mod, mask);
-        continue modLoop;
-      }
-
-      for (var mod : BooleanModifier.BOOLEAN_MODIFIERS) {
-        Pattern pattern = mod.getTagPattern();
-        if (pattern == null) {
-          continue;
-        }
-
-        Matcher matcher = pattern.matcher(string);
-        if (!matcher.matches()) {
-          continue;
-        }
-
-        newMods.setBoolean(mod, true);
-        continue modLoop;
-      }
-
-      for (var mod : StringModifier.STRING_MODIFIERS) {
-        Pattern pattern = mod.getTagPattern();
-        if (pattern == null) {
-          continue;
-        }
-
-        Matcher matcher = pattern.matcher(string);
-        if (!matcher.matches()) {
-          continue;
-        }
-
-        String value = matcher.group(1);
-
-        if (mod == StringModifier.CLASS) {
-          value = StringModifier.depluralizeClassName(value);
-        }
-
-        newMods.setString(mod, value);
-        continue modLoop;
+      ParsedModifier parsed = ParsedModifier.match(modValue.toString());
+      if (parsed != null) {
+        parsed.apply(newMods, lookup);
       }
     }
     newMods.setString(StringModifier.MODIFIERS, list.toString());
@@ -675,6 +599,23 @@ public class ModifierDatabase {
     return newMods;
   }
 
+  static int nextBitmapMask(final BitmapModifier mod, final int bitcount) {
+    // bitmapMasks stores the next mask we're going to use for modifier mod
+    int mask = bitmapMasks.get(mod);
+    bitmapMasks.put(mod, mask << bitcount);
+    for (int i = 0; i < bitcount - 1; i++) {
+      mask |= mask << 1;
+    }
+    if (bitmapMasks.get(mod) == 0) {
+      String message =
+          "ERROR: too many sources for bitmap modifier "
+              + mod.getName()
+              + ", consider using longs.";
+      KoLmafia.updateDisplay(message);
+    }
+    return mask;
+  }
+
   // TODO: what's the difference between these are the above?
   // Parsing item enchantments into KoLmafia modifiers
 
@@ -1408,6 +1349,12 @@ public class ModifierDatabase {
   // region: initial load of modifiers.txt
 
   public static void loadAllModifiers() {
+    snapshot = ModifierSnapshot.open();
+    if (snapshot != null) {
+      snapshot.index(modifierStringsByName, familiarEffectByName);
+      return;
+    }
+
     try (BufferedReader reader =
         FileUtilities.getVersionedReader("modifiers.txt", KoLConstants.MODIFIERS_VERSION)) {
       String[] data;
@@ -1453,6 +1400,10 @@ public class ModifierDatabase {
     }
   }
 
+  static void writeSnapshot(final DataOutputStream out) throws IOException {
+    ModifierSnapshot.write(out, modifierStringsByName, familiarEffectByName);
+  }
+
   private static void computeSynergies() {
     synergies.clear();
     for (IntOrString key : modifierStringsByName.getAll(ModifierType.SYNERGY).keySet()) {
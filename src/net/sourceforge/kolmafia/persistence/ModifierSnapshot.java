@@ -0,0 +1,327 @@
+package net.sourceforge.kolmafia.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import net.java.dev.spellcast.utilities.DataUtilities;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.ModifierType;
+import net.sourceforge.kolmafia.Modifiers;
+import net.sourceforge.kolmafia.StaticEntity;
+import net.sourceforge.kolmafia.modifiers.BitmapModifier;
+import net.sourceforge.kolmafia.modifiers.BooleanModifier;
+import net.sourceforge.kolmafia.modifiers.DoubleModifier;
+import net.sourceforge.kolmafia.modifiers.Lookup;
+import net.sourceforge.kolmafia.modifiers.ModifierList;
+import net.sourceforge.kolmafia.modifiers.ModifierList.ModifierValue;
+import net.sourceforge.kolmafia.modifiers.StringModifier;
+import net.sourceforge.kolmafia.utilities.IntOrString;
+import net.sourceforge.kolmafia.utilities.TwoLevelEnumHashMap;
+
+/**
+ * A pre-parsed copy of modifiers.txt, written by the build (the modifierSnapshot task) so that
+ * startup does not have to run every modifier string past every tag pattern.
+ *
+ * <p>Each entry holds its modifier string, which the rest of ModifierDatabase works with, and the
+ * same string already split and matched to the modifiers it sets. The strings are read when the
+ * snapshot is opened; an entry's matched modifiers are only read the first time it is looked up.
+ * Expressions are kept as text and compiled on that first lookup, as they are from the text file.
+ *
+ * <p>The snapshot is only used if there is no modifiers.txt override in the data directory, and
+ * if it was written from the modifiers.txt and modifier enums in this build. Otherwise
+ * ModifierDatabase reads the text file as it always has.
+ */
+public class ModifierSnapshot {
+  static final String FILENAME = "modifiers.bin";
+  static final String CHECKSUM_FILENAME = "modifiers.crc";
+
+  private static final int MAGIC = 0x4B4D4D53;
+  private static final int FORMAT = 1;
+  private static final int HEADER_SIZE = 20;
+
+  private static final ModifierType[] TYPES = ModifierType.values();
+  private static final ParsedModifier.Kind[] KINDS = ParsedModifier.Kind.values();
+
+  // Set while writing a snapshot, which must come from the text file
+  static boolean disabled = false;
+
+  private record Entry(String string, int offset) {}
+
+  private final ByteBuffer buffer;
+  private final TwoLevelEnumHashMap<ModifierType, IntOrString, Entry> entries =
+      new TwoLevelEnumHashMap<>(ModifierType.class);
+
+  private ModifierSnapshot(final ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /** Writes the snapshot for the modifiers.txt in this build to the file named by args[0]. */
+  public static void main(final String[] args) throws IOException {
+    ModifierSnapshot.disabled = true;
+    ModifierDatabase.ensureModifierDatabaseInitialised();
+
+    File output = new File(args[0]);
+    output.getParentFile().mkdirs();
+    try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+      ModifierDatabase.writeSnapshot(out);
+    }
+
+    System.exit(0);
+  }
+
+  /** Returns the snapshot shipped with this build, or null if modifiers.txt should be read. */
+  static ModifierSnapshot open() {
+    if (ModifierSnapshot.disabled
+        || new File(KoLConstants.DATA_LOCATION, "modifiers.txt").exists()) {
+      return null;
+    }
+
+    URL url =
+        ModifierSnapshot.class.getClassLoader().getResource(KoLConstants.DATA_DIRECTORY + FILENAME);
+    if (url == null) {
+      return null;
+    }
+
+    ByteBuffer buffer;
+    try {
+      if (url.getProtocol().equals("file")) {
+        try (var channel = FileChannel.open(Path.of(url.toURI()), StandardOpenOption.READ)) {
+          buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+      } else {
+        // Inside the jar there is no file to map, so read it in
+        try (InputStream istream = url.openStream()) {
+          buffer = ByteBuffer.wrap(istream.readAllBytes());
+        }
+      }
+    } catch (IOException | URISyntaxException e) {
+      StaticEntity.printStackTrace(e);
+      return null;
+    }
+
+    return ModifierSnapshot.read(buffer);
+  }
+
+  /** Returns null if the buffer does not hold a snapshot of this build's modifiers.txt. */
+  static ModifierSnapshot read(final ByteBuffer buffer) {
+    Integer checksum = ModifierSnapshot.builtChecksum();
+    if (checksum == null
+        || buffer.limit() < HEADER_SIZE
+        || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != FORMAT
+        || buffer.getInt(8) != KoLConstants.MODIFIERS_VERSION
+        || buffer.getInt(12) != ModifierSnapshot.enumFingerprint()
+        || buffer.getInt(16) != checksum) {
+      return null;
+    }
+    return new ModifierSnapshot(buffer);
+  }
+
+  /**
+   * Fill in the modifier strings and familiar effects, remembering where each entry is.
+   *
+   * <p>This still reads every entry's string, since the rest of ModifierDatabase works with them.
+   * Only the matched modifiers are left to be read on first lookup.
+   */
+  void index(
+      final TwoLevelEnumHashMap<ModifierType, IntOrString, String> strings,
+      final Map<String, String> familiarEffects) {
+    ByteBuffer in = this.buffer.duplicate();
+    in.position(HEADER_SIZE);
+
+    for (int count = in.getInt(); count > 0; --count) {
+      ModifierType type = TYPES[in.get()];
+      IntOrString key =
+          in.get() == 0 ? new IntOrString(in.getInt()) : new IntOrString(readString(in));
+      String string = readString(in);
+      int length = in.getInt();
+
+      this.entries.put(type, key, new Entry(string, in.position()));
+      strings.put(type, key, string);
+      in.position(in.position() + length);
+    }
+
+    for (int count = in.getInt(); count > 0; --count) {
+      String name = readString(in);
+      familiarEffects.put(name, readString(in));
+    }
+  }
+
+  /**
+   * Returns the modifiers for an entry, or null if the snapshot has no entry for that key or has a
+   * different string for it.
+   */
+  Modifiers parse(
+      final Lookup lookup, final ModifierType type, final IntOrString key, final String string) {
+    Entry entry = this.entries.get(type, key);
+    if (entry == null || !entry.string.equals(string)) {
+      return null;
+    }
+
+    ByteBuffer in = this.buffer.duplicate();
+    in.position(entry.offset);
+
+    Modifiers mods = new Modifiers();
+    mods.setLookup(lookup);
+
+    String normalized = readString(in);
+    for (int count = in.getShort(); count > 0; --count) {
+      ParsedModifier.Kind kind = KINDS[in.get()];
+      int ordinal = in.getShort();
+      ParsedModifier parsed =
+          switch (kind) {
+            case DOUBLE -> new ParsedModifier(kind, ordinal, in.getDouble(), null);
+            case EXPRESSION, STRING -> new ParsedModifier(kind, ordinal, 0.0, readString(in));
+            case BITMAP -> new ParsedModifier(kind, ordinal, in.getInt(), null);
+            case BOOLEAN -> new ParsedModifier(kind, ordinal, 0.0, null);
+          };
+      parsed.apply(mods, lookup);
+    }
+    mods.setString(StringModifier.MODIFIERS, normalized);
+
+    return mods;
+  }
+
+  static void write(
+      final DataOutputStream out,
+      final TwoLevelEnumHashMap<ModifierType, IntOrString, String> strings,
+      final Map<String, String> familiarEffects)
+      throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT);
+    out.writeInt(KoLConstants.MODIFIERS_VERSION);
+    out.writeInt(ModifierSnapshot.enumFingerprint());
+    out.writeInt(ModifierSnapshot.textChecksum());
+
+    out.writeInt(strings.size());
+    for (var typeEntry : strings.entrySet()) {
+      for (var entry : typeEntry.getValue().entrySet()) {
+        IntOrString key = entry.getKey();
+        out.writeByte(typeEntry.getKey().ordinal());
+        if (key.isInt()) {
+          out.writeByte(0);
+          out.writeInt(key.getIntValue());
+        } else {
+          out.writeByte(1);
+          writeString(out, key.getStringValue());
+        }
+        writeString(out, entry.getValue());
+
+        byte[] body = ModifierSnapshot.parsedBody(entry.getValue());
+        out.writeInt(body.length);
+        out.write(body);
+      }
+    }
+
+    out.writeInt(familiarEffects.size());
+    for (var entry : familiarEffects.entrySet()) {
+      writeString(out, entry.getKey());
+      writeString(out, entry.getValue());
+    }
+  }
+
+  private static byte[] parsedBody(final String string) throws IOException {
+    ModifierList list = ModifierDatabase.splitModifiers(string);
+    List<ParsedModifier> parsed = new ArrayList<>();
+    for (ModifierValue modifier : list) {
+      ParsedModifier match = ParsedModifier.match(modifier.toString());
+      if (match != null) {
+        parsed.add(match);
+      }
+    }
+
+    var bytes = new ByteArrayOutputStream();
+    var out = new DataOutputStream(bytes);
+    writeString(out, list.toString());
+    out.writeShort(parsed.size());
+    for (ParsedModifier modifier : parsed) {
+      out.writeByte(modifier.kind().ordinal());
+      out.writeShort(modifier.ordinal());
+      switch (modifier.kind()) {
+        case DOUBLE -> out.writeDouble(modifier.number());
+        case EXPRESSION, STRING -> writeString(out, modifier.text());
+        case BITMAP -> out.writeInt((int) modifier.number());
+        case BOOLEAN -> {}
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeString(final DataOutputStream out, final String string)
+      throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(final ByteBuffer in) {
+    byte[] bytes = new byte[in.getInt()];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // Entries refer to modifiers and types by ordinal, so a snapshot is only good for the enums it
+  // was written with.
+  private static int enumFingerprint() {
+    int hash = 1;
+    List<Enum<?>[]> enums =
+        List.of(
+            TYPES,
+            DoubleModifier.values(),
+            BitmapModifier.values(),
+            BooleanModifier.values(),
+            StringModifier.values());
+    for (Enum<?>[] values : enums) {
+      for (Enum<?> value : values) {
+        hash = 31 * hash + value.name().hashCode();
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the checksum of modifiers.txt which the build recorded beside it (the modifierChecksum
+   * task), or null if there is none.
+   */
+  private static Integer builtChecksum() {
+    try (InputStream istream =
+        ModifierSnapshot.class
+            .getClassLoader()
+            .getResourceAsStream(KoLConstants.DATA_DIRECTORY + CHECKSUM_FILENAME)) {
+      if (istream == null) {
+        return null;
+      }
+      String text = new String(istream.readAllBytes(), StandardCharsets.UTF_8);
+      return (int) Long.parseLong(text.trim());
+    } catch (IOException | NumberFormatException e) {
+      return null;
+    }
+  }
+
+  // Only used when writing a snapshot, at build time
+  private static int textChecksum() {
+    CRC32 crc = new CRC32();
+    try (InputStream istream =
+        DataUtilities.getInputStream(KoLConstants.DATA_DIRECTORY, "modifiers.txt", false)) {
+      crc.update(istream.readAllBytes());
+    } catch (IOException e) {
+      StaticEntity.printStackTrace(e);
+    }
+    return (int) crc.getValue();
+  }
+}
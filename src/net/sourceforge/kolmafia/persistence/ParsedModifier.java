@@ -0,0 +1,127 @@
+package net.sourceforge.kolmafia.persistence;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.sourceforge.kolmafia.ModifierExpression;
+import net.sourceforge.kolmafia.Modifiers;
+import net.sourceforge.kolmafia.modifiers.BitmapModifier;
+import net.sourceforge.kolmafia.modifiers.BooleanModifier;
+import net.sourceforge.kolmafia.modifiers.DoubleModifier;
+import net.sourceforge.kolmafia.modifiers.Lookup;
+import net.sourceforge.kolmafia.modifiers.StringModifier;
+import net.sourceforge.kolmafia.utilities.Indexed;
+import net.sourceforge.kolmafia.utilities.StringUtilities;
+
+/**
+ * One modifier from a modifier string, matched against the tag patterns to find the Modifier it
+ * sets. The number is the value of a DOUBLE or the bit count of a BITMAP; the text is the
+ * expression of an EXPRESSION or the value of a STRING.
+ */
+record ParsedModifier(ParsedModifier.Kind kind, int ordinal, double number, String text) {
+  enum Kind {
+    DOUBLE,
+    EXPRESSION,
+    BITMAP,
+    BOOLEAN,
+    STRING
+  }
+
+  private static final DoubleModifier[] DOUBLES = DoubleModifier.values();
+  private static final BitmapModifier[] BITMAPS = BitmapModifier.values();
+  private static final BooleanModifier[] BOOLEANS = BooleanModifier.values();
+  private static final StringModifier[] STRINGS = StringModifier.values();
+
+  /** Returns null if no modifier has a pattern matching the string. */
+  static ParsedModifier match(final String string) {
+    for (var mod : DoubleModifier.DOUBLE_MODIFIERS) {
+      Pattern pattern = mod.getTagPattern();
+      if (pattern == null) {
+        continue;
+      }
+
+      Matcher matcher = pattern.matcher(string);
+      if (!matcher.matches()) {
+        continue;
+      }
+
+      if (matcher.group(1) != null) {
+        return new ParsedModifier(
+            Kind.DOUBLE, mod.ordinal(), Double.parseDouble(matcher.group(1)), null);
+      }
+      return new ParsedModifier(Kind.EXPRESSION, mod.ordinal(), 0.0, matcher.group(2));
+    }
+
+    for (var mod : BitmapModifier.BITMAP_MODIFIERS) {
+      Pattern pattern = mod.getTagPattern();
+      if (pattern == null) {
+        continue;
+      }
+
+      Matcher matcher = pattern.matcher(string);
+      if (!matcher.matches()) {
+        continue;
+      }
+
+      int bitcount = 1;
+      if (matcher.groupCount() > 0) {
+        bitcount = StringUtilities.parseInt(matcher.group(1));
+        if (mod == BitmapModifier.CLOWNINESS) {
+          bitcount = bitcount / 25;
+        }
+      }
+      return new ParsedModifier(Kind.BITMAP, mod.ordinal(), bitcount, null);
+    }
+
+    for (var mod : BooleanModifier.BOOLEAN_MODIFIERS) {
+      Pattern pattern = mod.getTagPattern();
+      if (pattern == null) {
+        continue;
+      }
+
+      Matcher matcher = pattern.matcher(string);
+      if (!matcher.matches()) {
+        continue;
+      }
+
+      return new ParsedModifier(Kind.BOOLEAN, mod.ordinal(), 0.0, null);
+    }
+
+    for (var mod : StringModifier.STRING_MODIFIERS) {
+      Pattern pattern = mod.getTagPattern();
+      if (pattern == null) {
+        continue;
+      }
+
+      Matcher matcher = pattern.matcher(string);
+      if (!matcher.matches()) {
+        continue;
+      }
+
+      String value = matcher.group(1);
+
+      if (mod == StringModifier.CLASS) {
+        value = StringModifier.depluralizeClassName(value);
+      }
+
+      return new ParsedModifier(Kind.STRING, mod.ordinal(), 0.0, value);
+    }
+
+    return null;
+  }
+
+  void apply(final Modifiers mods, final Lookup lookup) {
+    switch (this.kind) {
+      case DOUBLE -> mods.setDouble(DOUBLES[this.ordinal], this.number);
+      case EXPRESSION -> {
+        DoubleModifier mod = DOUBLES[this.ordinal];
+        mods.addExpression(new Indexed<>(mod, ModifierExpression.getInstance(this.text, lookup)));
+      }
+      case BITMAP -> {
+        BitmapModifier mod = BITMAPS[this.ordinal];
+        mods.addBitmap(mod, ModifierDatabase.nextBitmapMask(mod, (int) this.number));
+      }
+      case BOOLEAN -> mods.setBoolean(BOOLEANS[this.ordinal], true);
+      case STRING -> mods.setString(STRINGS[this.ordinal], this.text);
+    }
+  }
+}
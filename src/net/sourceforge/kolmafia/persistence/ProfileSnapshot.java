@@ -1,5 +1,6 @@
 package net.sourceforge.kolmafia.persistence;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -177,7 +178,12 @@ public class ProfileSnapshot {
     return Integer.compare(compareValue, 0);
   }
 
-  public static final String getStandardData(final boolean localProfileLink) {
+  /**
+   * Writes the clan snapshot. Each member's profile is parsed as the page reaches them, and each
+   * row written as soon as it is ready, rather than the whole page being built in memory first.
+   */
+  public static final void printStandardData(
+      final PrintStream ostream, final boolean localProfileLink) {
     // First, if you haven't retrieved a detailed
     // roster for the clan, do so.
 
@@ -188,113 +194,148 @@ public class ProfileSnapshot {
     String[] members = new String[ProfileSnapshot.profileMap.size()];
     ProfileSnapshot.profileMap.keySet().toArray(members);
 
-    StringBuilder strbuf = new StringBuilder();
+    // The summaries come ahead of the tables, so collect
+    // what they need in one pass through the members.
 
-    strbuf.append("<html><head>");
-    strbuf.append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">");
+    Summary summary = new Summary();
+    for (ProfileRequest memberLookup : ProfileSnapshot.profiles(members)) {
+      summary.add(memberLookup);
+    }
 
-    String clanName = ClanManager.getClanName(true);
+    ostream.print("<html><head>");
+    ostream.print("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">");
 
-    strbuf.append("<title>Clan Snapshot for ");
-    strbuf.append(clanName);
+    String clanName = ClanManager.getClanName(true);
 
-    strbuf.append(", Clan #");
-    strbuf.append(ClanManager.getClanId());
-    strbuf.append(" (");
-    strbuf.append(new Date());
-    strbuf.append(")</title>");
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print("<title>Clan Snapshot for ");
+    ostream.print(clanName);
 
-    strbuf.append("<script language=\"Javascript\" src=\"");
-    strbuf.append(KoLConstants.SORTTABLE_JS);
-    strbuf.append("\"></script>");
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print(", Clan #");
+    ostream.print(ClanManager.getClanId());
+    ostream.print(" (");
+    ostream.print(new Date());
+    ostream.print(")</title>");
+    ostream.print(KoLConstants.LINE_BREAK);
 
-    strbuf.append("<style> body, td { font-family: sans-serif; } </style></head>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<body>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append(KoLConstants.LINE_BREAK);
-
-    strbuf.append("<h2>");
-    strbuf.append(clanName);
-    strbuf.append("</h2>");
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print("<script language=\"Javascript\" src=\"");
+    ostream.print(KoLConstants.SORTTABLE_JS);
+    ostream.print("\"></script>");
+    ostream.print(KoLConstants.LINE_BREAK);
 
-    ArrayList<String> rankList = new ArrayList<>();
+    ostream.print("<style> body, td { font-family: sans-serif; } </style></head>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<body>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print(KoLConstants.LINE_BREAK);
 
-    ProfileRequest memberLookup;
-    for (int i = 0; i < members.length; ++i) {
-      memberLookup = ProfileSnapshot.getProfile(members[i]);
-      rankList.add(memberLookup.getRank());
-    }
+    ostream.print("<h2>");
+    ostream.print(clanName);
+    ostream.print("</h2>");
+    ostream.print(KoLConstants.LINE_BREAK);
 
-    Collections.sort(rankList);
-    strbuf.append(KoLDatabase.getBreakdown(rankList));
+    Collections.sort(summary.rankList);
+    ostream.print(KoLDatabase.getBreakdown(summary.rankList));
 
-    strbuf.append(
+    ostream.print(
         "<center><br><br><table class=\"sortable\" id=\"overview\" border=0 cellspacing=0 cellpadding=10>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<tr style=\"font-weight: bold\"><td>Name</td>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<tr style=\"font-weight: bold\"><td>Name</td>");
 
-    strbuf.append(ProfileSnapshot.getOverviewHeader());
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print(ProfileSnapshot.getOverviewHeader());
+    ostream.print(KoLConstants.LINE_BREAK);
 
-    for (int i = 0; i < members.length; ++i) {
-      strbuf.append(ProfileSnapshot.getOverviewDetail(members[i], localProfileLink));
-      strbuf.append(KoLConstants.LINE_BREAK);
+    for (ProfileRequest memberLookup : ProfileSnapshot.profiles(members)) {
+      ostream.print(ProfileSnapshot.getOverviewDetail(memberLookup, localProfileLink));
+      ostream.print(KoLConstants.LINE_BREAK);
     }
 
-    strbuf.append("</table>");
+    ostream.print("</table>");
 
-    strbuf.append("<br><br><hr width=80%><br><br>");
+    ostream.print("<br><br><hr width=80%><br><br>");
 
-    strbuf.append(ProfileSnapshot.getStatsSummary(members));
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print(ProfileSnapshot.getStatsSummary(summary));
+    ostream.print(KoLConstants.LINE_BREAK);
 
-    strbuf.append(
+    ostream.print(
         "<br><br><table class=\"sortable\" id=\"stats\" border=0 cellspacing=0 cellpadding=10>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<tr style=\"font-weight: bold\"><td>Name</td>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<tr style=\"font-weight: bold\"><td>Name</td>");
 
-    strbuf.append(ProfileSnapshot.getStatsHeader());
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print(ProfileSnapshot.getStatsHeader());
+    ostream.print(KoLConstants.LINE_BREAK);
 
-    for (int i = 0; i < members.length; ++i) {
-      strbuf.append(ProfileSnapshot.getStatsDetail(members[i], localProfileLink));
-      strbuf.append(KoLConstants.LINE_BREAK);
+    for (ProfileRequest memberLookup : ProfileSnapshot.profiles(members)) {
+      ostream.print(ProfileSnapshot.getStatsDetail(memberLookup, localProfileLink));
+      ostream.print(KoLConstants.LINE_BREAK);
     }
 
-    strbuf.append("</table>");
+    ostream.print("</table>");
 
-    strbuf.append("<br><br><hr width=80%><br><br>");
+    ostream.print("<br><br><hr width=80%><br><br>");
 
-    strbuf.append(ProfileSnapshot.getSocialSummary(members));
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print(ProfileSnapshot.getSocialSummary(summary));
+    ostream.print(KoLConstants.LINE_BREAK);
 
-    strbuf.append(
+    ostream.print(
         "<br><br><table class=\"sortable\" id=\"social\" border=0 cellspacing=0 cellpadding=10>");
-    strbuf.append(KoLConstants.LINE_BREAK);
-    strbuf.append("<tr style=\"font-weight: bold\"><td>Name</td>");
+    ostream.print(KoLConstants.LINE_BREAK);
+    ostream.print("<tr style=\"font-weight: bold\"><td>Name</td>");
 
-    strbuf.append(ProfileSnapshot.getSocialHeader());
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print(ProfileSnapshot.getSocialHeader());
+    ostream.print(KoLConstants.LINE_BREAK);
 
-    for (int i = 0; i < members.length; ++i) {
-      strbuf.append(ProfileSnapshot.getSocialDetail(members[i], localProfileLink));
-      strbuf.append(KoLConstants.LINE_BREAK);
+    for (ProfileRequest memberLookup : ProfileSnapshot.profiles(members)) {
+      ostream.print(ProfileSnapshot.getSocialDetail(memberLookup, localProfileLink));
+      ostream.print(KoLConstants.LINE_BREAK);
     }
 
-    strbuf.append("</table>");
+    ostream.print("</table>");
 
-    strbuf.append("</center></body></html>");
-    strbuf.append(KoLConstants.LINE_BREAK);
+    ostream.print("</center></body></html>");
+    ostream.print(KoLConstants.LINE_BREAK);
+  }
 
-    return strbuf.toString();
+  /**
+   * Returns the members' profiles in order, parsing each one only when it is reached, so that only
+   * one parsed profile need be held at a time.
+   */
+  private static Iterable<ProfileRequest> profiles(final String[] members) {
+    return () -> Arrays.stream(members).map(ProfileSnapshot::getProfile).iterator();
   }
 
-  private static String getOverviewDetail(final String memberName, final boolean localProfileLink) {
-    ProfileRequest memberLookup = ProfileSnapshot.getProfile(memberName);
+  /** The values from every member's profile which the summaries count up. */
+  private static class Summary {
+    final List<String> rankList = new ArrayList<>();
+    final List<String> classList = new ArrayList<>();
+    final List<Integer> powerList = new ArrayList<>();
+    final List<Integer> turnsList = new ArrayList<>();
+    final List<Integer> pvpList = new ArrayList<>();
+    final List<Integer> musList = new ArrayList<>();
+    final List<Integer> mysList = new ArrayList<>();
+    final List<Integer> moxList = new ArrayList<>();
+    final List<String> foodList = new ArrayList<>();
+    final List<String> drinkList = new ArrayList<>();
+
+    void add(final ProfileRequest memberLookup) {
+      this.rankList.add(memberLookup.getRank());
+
+      this.classList.add(memberLookup.getClassType());
+      this.turnsList.add(memberLookup.getTurnsPlayed());
+      this.pvpList.add(memberLookup.getPvpRank());
+
+      this.musList.add(memberLookup.getMuscle());
+      this.mysList.add(memberLookup.getMysticism());
+      this.moxList.add(memberLookup.getMoxie());
+      this.powerList.add(memberLookup.getPower());
+
+      this.foodList.add(memberLookup.getFood());
+      this.drinkList.add(memberLookup.getDrink());
+    }
+  }
+
+  private static String getOverviewDetail(
+      final ProfileRequest memberLookup, final boolean localProfileLink) {
+    String memberName = memberLookup.getPlayerName();
     StringBuilder strbuf = new StringBuilder();
 
     // No matter what happens, you need to make sure
@@ -369,42 +410,10 @@ public class ProfileSnapshot {
         + "<td align=center>Turns</td><td align=center>Ascended</td><td align=center>Logged In</td>";
   }
 
-  private static String getStatsSummary(final String[] members) {
+  private static String getStatsSummary(final Summary summary) {
     StringBuilder strbuf = new StringBuilder();
 
-    ArrayList<String> classList = new ArrayList<>();
-    ArrayList<Integer> powerList = new ArrayList<>();
-    // ArrayList karmaList = new ArrayList();
-
-    // ArrayList meatList = new ArrayList();
-    ArrayList<Integer> turnsList = new ArrayList<>();
-    ArrayList<Integer> pvpList = new ArrayList<>();
-
-    ArrayList<Integer> musList = new ArrayList<>();
-    ArrayList<Integer> mysList = new ArrayList<>();
-    ArrayList<Integer> moxList = new ArrayList<>();
-
-    // Iterate through the list of clan members
-    // and populate the lists.
-
-    ProfileRequest memberLookup;
-
-    for (int i = 0; i < members.length; ++i) {
-      memberLookup = ProfileSnapshot.getProfile(members[i]);
-
-      classList.add(memberLookup.getClassType());
-      // meatList.add( memberLookup.getCurrentMeat() );
-      turnsList.add(memberLookup.getTurnsPlayed());
-      pvpList.add(memberLookup.getPvpRank());
-
-      musList.add(memberLookup.getMuscle());
-      mysList.add(memberLookup.getMysticism());
-      moxList.add(memberLookup.getMoxie());
-      powerList.add(memberLookup.getPower());
-      // karmaList.add( memberLookup.getKarma() );
-    }
-
-    Collections.sort(classList);
+    Collections.sort(summary.classList);
 
     strbuf.append("<table border=0 cellspacing=10 cellpadding=10><tr>");
     strbuf.append(KoLConstants.LINE_BREAK);
@@ -415,37 +424,37 @@ public class ProfileSnapshot {
 
     strbuf.append(
         "<li><nobr>PVP Rank: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(pvpList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(summary.pvpList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append(
         "<li><nobr>Muscle: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(musList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(summary.musList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append(
         "<li><nobr>Myst: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(mysList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(summary.mysList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append(
         "<li><nobr>Moxie: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(moxList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(summary.moxList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append(
         "<li><nobr>Power: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(powerList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(summary.powerList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append(
         "<li><nobr>Turns: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(turnsList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateAverage(summary.turnsList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
@@ -458,37 +467,37 @@ public class ProfileSnapshot {
 
     strbuf.append(
         "<li><nobr>PVP Rank: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(pvpList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(summary.pvpList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append(
         "<li><nobr>Muscle: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(musList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(summary.musList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append(
         "<li><nobr>Myst: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(mysList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(summary.mysList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append(
         "<li><nobr>Moxie: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(moxList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(summary.moxList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append(
         "<li><nobr>Power: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(powerList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(summary.powerList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append(
         "<li><nobr>Turns: "
-            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(turnsList))
+            + KoLConstants.COMMA_FORMAT.format(KoLDatabase.calculateTotal(summary.turnsList))
             + "</nobr></li>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
@@ -496,7 +505,7 @@ public class ProfileSnapshot {
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append("<td valign=top><center><b>Class Breakdown</b></center>");
-    strbuf.append(KoLDatabase.getBreakdown(classList));
+    strbuf.append(KoLDatabase.getBreakdown(summary.classList));
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append("</tr></table>");
@@ -505,8 +514,9 @@ public class ProfileSnapshot {
     return strbuf.toString();
   }
 
-  private static String getStatsDetail(final String memberName, final boolean localProfileLink) {
-    ProfileRequest memberLookup = ProfileSnapshot.getProfile(memberName);
+  private static String getStatsDetail(
+      final ProfileRequest memberLookup, final boolean localProfileLink) {
+    String memberName = memberLookup.getPlayerName();
     StringBuilder strbuf = new StringBuilder();
 
     // No matter what happens, you need to make sure
@@ -594,40 +604,29 @@ public class ProfileSnapshot {
     return "<td align=center>Path</td><td align=center>Class</td><td align=center>Lv</td><td>PvP</td><td align=center>Mus</td><td align=center>Mys</td><td align=center>Mox</td><td align=center>Total Turns</td><td align=center>Asc</td>";
   }
 
-  private static String getSocialSummary(final String[] members) {
+  private static String getSocialSummary(final Summary summary) {
     StringBuilder strbuf = new StringBuilder();
 
-    ArrayList<String> foodList = new ArrayList<>();
-    ArrayList<String> drinkList = new ArrayList<>();
-
-    ProfileRequest memberLookup;
-
-    for (int i = 0; i < members.length; ++i) {
-      memberLookup = ProfileSnapshot.getProfile(members[i]);
-
-      foodList.add(memberLookup.getFood());
-      drinkList.add(memberLookup.getDrink());
-    }
-
-    Collections.sort(foodList);
-    Collections.sort(drinkList);
+    Collections.sort(summary.foodList);
+    Collections.sort(summary.drinkList);
 
     strbuf.append("<table border=0 cellspacing=10 cellpadding=10><tr>");
     strbuf.append(KoLConstants.LINE_BREAK);
 
     strbuf.append("<td valign=top><center><b>Food Breakdown</b></center>");
-    strbuf.append(KoLDatabase.getBreakdown(foodList));
+    strbuf.append(KoLDatabase.getBreakdown(summary.foodList));
     strbuf.append("</td>");
 
     strbuf.append("<td valign=top><center><b>Drink Breakdown</b></center>");
-    strbuf.append(KoLDatabase.getBreakdown(drinkList));
+    strbuf.append(KoLDatabase.getBreakdown(summary.drinkList));
     strbuf.append("</td></tr></table>");
 
     return strbuf.toString();
   }
 
-  private static String getSocialDetail(final String memberName, final boolean localProfileLink) {
-    ProfileRequest memberLookup = ProfileSnapshot.getProfile(memberName);
+  private static String getSocialDetail(
+      final ProfileRequest memberLookup, final boolean localProfileLink) {
+    String memberName = memberLookup.getPlayerName();
     StringBuilder strbuf = new StringBuilder();
 
     // No matter what happens, you need to make sure
@@ -0,0 +1,92 @@
+package net.sourceforge.kolmafia.preferences;
+
+import net.sourceforge.kolmafia.utilities.StringUtilities;
+
+/**
+ * The value of a preference: the string saved in the preferences file, and that string parsed as
+ * each type it has been read as. A typed getter parses the string the first time it asks for its
+ * type, and every later read of the same value returns the parsed result. Setting a preference
+ * replaces its PreferenceValue, so a parsed result never goes stale.
+ */
+final class PreferenceValue {
+  private final String string;
+
+  // Each is null until parsed. Two threads may both parse a value, which is harmless, and the boxed
+  // results are immutable, so a thread that sees one sees all of it.
+  private Boolean booleanValue = null;
+  private Integer integerValue = null;
+  private Long longValue = null;
+  private Float floatValue = null;
+  private Double doubleValue = null;
+
+  PreferenceValue(final String string) {
+    this.string = string;
+  }
+
+  /** A value from a typed setter, which is already parsed for that type. */
+  PreferenceValue(final String string, final Object typed) {
+    this.string = string;
+
+    if (typed instanceof Boolean value) {
+      this.booleanValue = value;
+    } else if (typed instanceof Integer value) {
+      this.integerValue = value;
+    } else if (typed instanceof Long value) {
+      this.longValue = value;
+    } else if (typed instanceof Float value) {
+      this.floatValue = value;
+    } else if (typed instanceof Double value) {
+      this.doubleValue = value;
+    }
+  }
+
+  boolean getBoolean() {
+    Boolean value = this.booleanValue;
+    if (value == null) {
+      value = Boolean.valueOf(this.string);
+      this.booleanValue = value;
+    }
+    return value;
+  }
+
+  int getInteger() {
+    Integer value = this.integerValue;
+    if (value == null) {
+      value = StringUtilities.parseInt(this.string);
+      this.integerValue = value;
+    }
+    return value;
+  }
+
+  long getLong() {
+    Long value = this.longValue;
+    if (value == null) {
+      value = StringUtilities.parseLong(this.string);
+      this.longValue = value;
+    }
+    return value;
+  }
+
+  float getFloat() {
+    Float value = this.floatValue;
+    if (value == null) {
+      value = StringUtilities.parseFloat(this.string);
+      this.floatValue = value;
+    }
+    return value;
+  }
+
+  double getDouble() {
+    Double value = this.doubleValue;
+    if (value == null) {
+      value = StringUtilities.parseDouble(this.string);
+      this.doubleValue = value;
+    }
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return this.string;
+  }
+}
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -20,6 +21,10 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import net.java.dev.spellcast.utilities.DataUtilities;
 import net.sourceforge.kolmafia.KoLCharacter;
 import net.sourceforge.kolmafia.KoLConstants;
@@ -39,10 +44,23 @@ public class Preferences {
 
   private static final Object lock = new Object(); // used to synch io
 
+  // Names of changed properties not yet written to the journals. These are written by a background
+  // flusher at most saveSettingsDelay milliseconds after the first change.
+  private static final Set<String> pendingGlobalChanges = ConcurrentHashMap.newKeySet();
+  private static final Set<String> pendingUserChanges = ConcurrentHashMap.newKeySet();
+  private static final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+  private static final ScheduledExecutorService flusher =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "Preferences flusher");
+            thread.setDaemon(true);
+            return thread;
+          });
+
   private static final String[] characterMap = new String[65536];
 
   private static final HashMap<String, String> globalNames = new HashMap<>();
-  private static final Map<String, Object> globalValues = new ConcurrentHashMap<>();
+  private static final Map<String, PreferenceValue> globalValues = new ConcurrentHashMap<>();
   // user/globalEncodedValues cache the byte sequence corresponding to the on-disk representation
   // of a line in the preferences file, so that writing out preferences is simply a matter of
   // concatenating all the cached values.
@@ -51,7 +69,7 @@ public class Preferences {
   private static File globalPropertiesFile = null;
 
   private static final HashMap<String, String> userNames = new HashMap<>();
-  private static final Map<String, Object> userValues = new ConcurrentHashMap<>();
+  private static final Map<String, PreferenceValue> userValues = new ConcurrentHashMap<>();
   private static final SortedMap<String, byte[]> userEncodedValues =
       Collections.synchronizedSortedMap(new TreeMap<>());
   private static File userPropertiesFile = null;
@@ -529,6 +547,10 @@ public class Preferences {
 
     // Read GLOBAL_prefs.txt into globalNames and globalValues
     Preferences.loadGlobalPreferences();
+
+    // Write out any changes still waiting for the flusher
+    Runtime.getRuntime()
+        .addShutdownHook(new Thread(Preferences::flushPendingChanges, "Preferences shutdown"));
   }
 
   private Preferences() {}
@@ -591,6 +613,9 @@ public class Preferences {
 
   /** Resets all settings so that the given user is represented whenever settings are modified. */
   public static synchronized void reset(String username) {
+    // Pending changes belong to the files we are about to save or leave.
+    Preferences.flushPendingChanges();
+
     // We might not have been tracking encoded values here before this save. Fix that.
     Preferences.reinitializeEncodedValues();
     Preferences.saveToFile(Preferences.globalPropertiesFile, Preferences.globalEncodedValues);
@@ -689,7 +714,7 @@ public class Preferences {
       // is how we migrate a preference from GLOBAL to user)
       String value =
           Preferences.globalValues.containsKey(key)
-              ? (String) Preferences.globalValues.get(key)
+              ? Preferences.globalValues.get(key).toString()
               : entry.getValue();
 
       // System.out.println( "Adding new built-in user setting: " + key );
@@ -713,6 +738,8 @@ public class Preferences {
       System.out.println(e.getMessage() + " trying to close preferences file.");
     }
 
+    PreferencesJournal.replay(file, p);
+
     return p;
   }
 
@@ -735,9 +762,9 @@ public class Preferences {
   }
 
   private static void reinitializeEncodedValuesOn(
-      Map<String, Object> valuesMap, Map<String, byte[]> encodedMap) {
+      Map<String, PreferenceValue> valuesMap, Map<String, byte[]> encodedMap) {
     synchronized (valuesMap) {
-      for (Entry<String, Object> entry : valuesMap.entrySet()) {
+      for (Entry<String, PreferenceValue> entry : valuesMap.entrySet()) {
         encodedMap.put(
             entry.getKey(),
             encodeProperty(entry.getKey(), entry.getValue().toString())
@@ -819,7 +846,7 @@ public class Preferences {
   }
 
   public static String getString(final String name, final boolean global) {
-    Object value = null;
+    PreferenceValue value = null;
 
     if (global) {
       if (Preferences.globalValues.containsKey(name)) {
@@ -856,6 +883,7 @@ public class Preferences {
 
         Preferences.globalValues.remove(name);
         if (trackEncoded) Preferences.globalEncodedValues.remove(name);
+        Preferences.maybeSaveToFileAfterUpdating(trackEncoded, true, name);
       }
     } else {
       if (!Preferences.userNames.containsKey(name)) {
@@ -864,9 +892,9 @@ public class Preferences {
 
         Preferences.userValues.remove(name);
         if (trackEncoded) Preferences.userEncodedValues.remove(name);
+        Preferences.maybeSaveToFileAfterUpdating(trackEncoded, false, name);
       }
     }
-    Preferences.maybeSaveToFileAfterUpdating(trackEncoded, name);
     PreferenceListenerRegistry.firePreferenceChanged(name);
   }
 
@@ -990,107 +1018,42 @@ public class Preferences {
   // key "<name>.<user>"
 
   public static String getString(final String user, final String name) {
-    Object value = Preferences.getObject(user, name);
-
-    if (value == null) {
-      return "";
-    }
-
-    return value.toString();
+    PreferenceValue value = Preferences.getValue(user, name);
+    return value == null ? "" : value.toString();
   }
 
   public static boolean getBoolean(final String user, final String name) {
-    Map<String, Object> map = Preferences.getMap(name);
-    Object value = Preferences.getObject(map, user, name);
-
-    if (value == null) {
-      return false;
-    }
-
-    if (!(value instanceof Boolean)) {
-      value = Boolean.valueOf(value.toString());
-      map.put(name, value);
-    }
-
-    return (Boolean) value;
+    PreferenceValue value = Preferences.getValue(user, name);
+    return value != null && value.getBoolean();
   }
 
   public static int getInteger(final String user, final String name) {
-    Map<String, Object> map = Preferences.getMap(name);
-    Object value = Preferences.getObject(map, user, name);
-
-    if (value == null) {
-      return 0;
-    }
-
-    if (!(value instanceof Integer)) {
-      value = StringUtilities.parseInt(value.toString());
-      map.put(name, value);
-    }
-
-    return (Integer) value;
+    PreferenceValue value = Preferences.getValue(user, name);
+    return value == null ? 0 : value.getInteger();
   }
 
   public static long getLong(final String user, final String name) {
-    Map<String, Object> map = Preferences.getMap(name);
-    Object value = Preferences.getObject(map, user, name);
-
-    if (value == null) {
-      return 0;
-    }
-
-    if (!(value instanceof Long)) {
-      value = StringUtilities.parseLong(value.toString());
-      map.put(name, value);
-    }
-
-    return (Long) value;
+    PreferenceValue value = Preferences.getValue(user, name);
+    return value == null ? 0 : value.getLong();
   }
 
   public static float getFloat(final String user, final String name) {
-    Map<String, Object> map = Preferences.getMap(name);
-    Object value = Preferences.getObject(map, user, name);
-
-    if (value == null) {
-      return 0.0f;
-    }
-
-    if (!(value instanceof Float)) {
-      value = StringUtilities.parseFloat(value.toString());
-      map.put(name, value);
-    }
-
-    return (Float) value;
+    PreferenceValue value = Preferences.getValue(user, name);
+    return value == null ? 0.0f : value.getFloat();
   }
 
   public static double getDouble(final String user, final String name) {
-    Map<String, Object> map = Preferences.getMap(name);
-    Object value = Preferences.getObject(map, user, name);
-
-    if (value == null) {
-      return 0.0;
-    }
-
-    if (!(value instanceof Double)) {
-      value = StringUtilities.parseDouble(value.toString());
-      map.put(name, value);
-    }
-
-    return (Double) value;
+    PreferenceValue value = Preferences.getValue(user, name);
+    return value == null ? 0.0 : value.getDouble();
   }
 
-  private static Map<String, Object> getMap(final String name) {
+  private static Map<String, PreferenceValue> getMap(final String name) {
     return Preferences.isGlobalProperty(name) ? Preferences.globalValues : Preferences.userValues;
   }
 
-  private static Object getObject(final String user, final String name) {
-    return Preferences.getObject(Preferences.getMap(name), user, name);
-  }
-
-  private static Object getObject(
-      final Map<String, Object> map, final String user, final String name) {
+  private static PreferenceValue getValue(final String user, final String name) {
     String key = Preferences.propertyName(user, name);
-    return map.get(key);
+    return Preferences.getMap(name).get(key);
   }
 
   // Used only in ASH get_all_properties.
@@ -1099,7 +1062,7 @@ public class Preferences {
       return new TreeMap<>(user ? userNames : globalNames);
     } else {
       TreeMap<String, String> map = new TreeMap<>();
-      Map<String, Object> srcmap = user ? userValues : globalValues;
+      Map<String, PreferenceValue> srcmap = user ? userValues : globalValues;
       for (String pref : srcmap.keySet()) {
         map.put(pref, getString(pref));
       }
@@ -1173,8 +1136,13 @@ public class Preferences {
       trackEncoded |= Preferences.saveSettingsToFile;
     }
 
-    Preferences.put(user, name, object, trackEncoded);
-    Preferences.maybeSaveToFileAfterUpdating(trackEncoded, name);
+    Preferences.put(user, name, new PreferenceValue(value, object), trackEncoded);
+    if (Preferences.isGlobalProperty(name)) {
+      String actualName = Preferences.propertyName(user, name);
+      Preferences.maybeSaveToFileAfterUpdating(trackEncoded, true, actualName);
+    } else {
+      Preferences.maybeSaveToFileAfterUpdating(trackEncoded, false, name);
+    }
 
     PreferenceListenerRegistry.firePreferenceChanged(name);
 
@@ -1183,11 +1151,12 @@ public class Preferences {
     }
   }
 
-  private static void putGlobal(final String name, final Object value) {
-    putGlobal(name, value, true);
+  private static void putGlobal(final String name, final String value) {
+    putGlobal(name, new PreferenceValue(value), true);
   }
 
-  private static void putGlobal(final String name, final Object value, boolean updateEncoded) {
+  private static void putGlobal(
+      final String name, final PreferenceValue value, boolean updateEncoded) {
     Preferences.globalValues.put(name, value);
     if (updateEncoded) {
       Preferences.globalEncodedValues.put(
@@ -1195,11 +1164,12 @@ public class Preferences {
     }
   }
 
-  private static void putUser(final String name, final Object value) {
-    Preferences.putUser(name, value, true);
+  private static void putUser(final String name, final String value) {
+    Preferences.putUser(name, new PreferenceValue(value), true);
   }
 
-  private static void putUser(final String name, final Object value, boolean updateEncoded) {
+  private static void putUser(
+      final String name, final PreferenceValue value, boolean updateEncoded) {
     Preferences.userValues.put(name, value);
     if (updateEncoded) {
       Preferences.userEncodedValues.put(
@@ -1208,7 +1178,7 @@ public class Preferences {
   }
 
   private static void put(
-      final String user, final String name, final Object value, boolean updateEncoded) {
+      final String user, final String name, final PreferenceValue value, boolean updateEncoded) {
     if (Preferences.isGlobalProperty(name)) {
       String actualName = Preferences.propertyName(user, name);
       Preferences.putGlobal(actualName, value, updateEncoded);
@@ -1217,13 +1187,75 @@ public class Preferences {
     }
   }
 
-  private static void maybeSaveToFileAfterUpdating(boolean enable, String updatedProperty) {
-    if (enable) {
-      if (Preferences.isGlobalProperty(updatedProperty)) {
+  private static void maybeSaveToFileAfterUpdating(
+      final boolean enable, final boolean global, final String actualName) {
+    if (!enable || (!global && Preferences.userPropertiesFile == null)) {
+      return;
+    }
+
+    int delay = Preferences.getInteger("saveSettingsDelay");
+    if (delay <= 0) {
+      if (global) {
         Preferences.saveToFile(Preferences.globalPropertiesFile, Preferences.globalEncodedValues);
-      } else if (Preferences.userPropertiesFile != null) {
+      } else {
         Preferences.saveToFile(Preferences.userPropertiesFile, Preferences.userEncodedValues);
       }
+      return;
+    }
+
+    if (global) {
+      Preferences.pendingGlobalChanges.add(actualName);
+    } else {
+      Preferences.pendingUserChanges.add(actualName);
+    }
+
+    if (Preferences.flushScheduled.compareAndSet(false, true)) {
+      Preferences.flusher.schedule(Preferences::flushPendingChanges, delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Appends all changed properties not yet saved to the journals. If a journal has grown larger
+   * than its preferences file, the whole file is written instead.
+   */
+  public static void flushPendingChanges() {
+    Preferences.flushScheduled.set(false);
+
+    synchronized (lock) {
+      Preferences.appendToJournal(
+          Preferences.globalPropertiesFile,
+          Preferences.globalEncodedValues,
+          Preferences.pendingGlobalChanges);
+      Preferences.appendToJournal(
+          Preferences.userPropertiesFile,
+          Preferences.userEncodedValues,
+          Preferences.pendingUserChanges);
+    }
+  }
+
+  private static void appendToJournal(
+      File file, Map<String, byte[]> encodedData, Set<String> pending) {
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    if (file == null || !Preferences.saveSettingsToFile) {
+      pending.clear();
+      return;
+    }
+
+    List<byte[]> lines = new ArrayList<>();
+    Iterator<String> it = pending.iterator();
+    while (it.hasNext()) {
+      String name = it.next();
+      it.remove();
+
+      byte[] encoded = encodedData.get(name);
+      lines.add(encoded != null ? encoded : PreferencesJournal.removal(encodeProperty(name, null)));
+    }
+
+    if (PreferencesJournal.append(file, lines) > file.length()) {
+      Preferences.saveToFile(file, encodedData);
     }
   }
 
@@ -1263,6 +1295,9 @@ public class Preferences {
       } catch (IOException e) {
         System.out.println(e.getMessage() + " trying to close preferences stream.");
       }
+
+      // The file now holds every change in the journal.
+      PreferencesJournal.delete(file);
     }
   }
 
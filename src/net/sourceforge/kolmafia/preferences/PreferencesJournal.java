@@ -0,0 +1,101 @@
+package net.sourceforge.kolmafia.preferences;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Properties;
+import net.java.dev.spellcast.utilities.DataUtilities;
+
+/**
+ * The change journal kept beside a preferences file. Rather than rewriting the whole file whenever
+ * a preference changes, Preferences appends the changed lines here, and replays them over the file
+ * when it is loaded. The journal is deleted whenever the whole file is written.
+ *
+ * <p>Each line is a line of the preferences file, or a removed property's name after REMOVED.
+ */
+class PreferencesJournal {
+  private static final String REMOVED = "!removed ";
+
+  private PreferencesJournal() {}
+
+  static File journalFile(final File propertiesFile) {
+    String name = propertiesFile.getName();
+    if (name.endsWith(".txt")) {
+      name = name.substring(0, name.length() - 4);
+    }
+    return new File(propertiesFile.getParentFile(), name + ".journal");
+  }
+
+  /** Returns the journal line recording that the property with this encoded line was removed. */
+  static byte[] removal(final String encoded) {
+    return (REMOVED + encoded).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Appends the lines to the journal, returning its new length. */
+  static long append(final File propertiesFile, final List<byte[]> lines) {
+    File journal = PreferencesJournal.journalFile(propertiesFile);
+
+    try (OutputStream ostream =
+        new BufferedOutputStream(DataUtilities.getOutputStream(journal, true))) {
+      for (byte[] line : lines) {
+        ostream.write(line);
+      }
+    } catch (IOException e) {
+      System.out.println(e.getMessage() + " trying to write preferences journal.");
+    }
+
+    return journal.length();
+  }
+
+  /** Applies the changes in the journal, if there is one, to the properties read from the file. */
+  static void replay(final File propertiesFile, final Properties p) {
+    File journal = PreferencesJournal.journalFile(propertiesFile);
+    if (!journal.exists()) {
+      return;
+    }
+
+    String contents;
+    try {
+      contents = Files.readString(journal.toPath(), StandardCharsets.ISO_8859_1);
+    } catch (IOException e) {
+      System.out.println(e.getMessage() + " trying to read preferences journal.");
+      return;
+    }
+
+    // A line without its line break was cut short while being written, so it is dropped.
+    int end = contents.lastIndexOf('\n');
+    if (end < 0) {
+      return;
+    }
+
+    for (String line : contents.substring(0, end).split("\n")) {
+      boolean isRemoval = line.startsWith(REMOVED);
+      Properties entry = new Properties();
+      try {
+        entry.load(new StringReader(isRemoval ? line.substring(REMOVED.length()) : line));
+      } catch (IOException e) {
+        continue;
+      }
+
+      for (String name : entry.stringPropertyNames()) {
+        if (isRemoval) {
+          p.remove(name);
+        } else {
+          p.setProperty(name, entry.getProperty(name));
+        }
+      }
+    }
+  }
+
+  static void delete(final File propertiesFile) {
+    File journal = PreferencesJournal.journalFile(propertiesFile);
+    if (journal.exists()) {
+      journal.delete();
+    }
+  }
+}
@@ -14,6 +14,7 @@ import net.sourceforge.kolmafia.persistence.ItemDatabase;
 import net.sourceforge.kolmafia.persistence.NPCStoreDatabase;
 import net.sourceforge.kolmafia.preferences.Preferences;
 import net.sourceforge.kolmafia.session.MallPriceManager;
+import net.sourceforge.kolmafia.utilities.EditList;
 import net.sourceforge.kolmafia.utilities.StringUtilities;
 
 public class MallSearchRequest extends GenericRequest {
@@ -537,6 +538,7 @@ public class MallSearchRequest extends GenericRequest {
   }
 
   public static void decorateMallSearchAddBuyButtons(StringBuffer buffer) {
+    EditList edits = new EditList();
     Matcher matcher = MallSearchRequest.STOREDETAIL_PATTERN.matcher(buffer);
     while (matcher.find()) {
       String store = matcher.group(0);
@@ -585,16 +587,19 @@ public class MallSearchRequest extends GenericRequest {
               + whichstore
               + "&quantity=\" class=\"buysome\">buy&nbsp;some</a>]"
               + "</td>";
-      buffer.replace(
+      edits.replace(
           matcher.start() + nobuyersMatcher.start(),
           matcher.start() + nobuyersMatcher.end(),
           buyers);
     }
+
+    edits.apply(buffer);
   }
 
   public static void decorateMallSearchDecorateForbidden(StringBuffer buffer) {
     Set<Integer> forbidden = MallPurchaseRequest.getForbiddenStores();
 
+    EditList edits = new EditList();
     Matcher matcher = MallSearchRequest.STOREDETAIL_PATTERN.matcher(buffer);
 
     while (matcher.find()) {
@@ -620,8 +625,10 @@ public class MallSearchRequest extends GenericRequest {
               " style=\"background-image:linear-gradient(to right, rgba(255,0,0,0), pink);\" title=\"The preference 'forbiddenStores' "
                   + "contains this store.\">");
 
-      buffer.replace(matcher.start(), matcher.end(), store);
+      edits.replace(matcher.start(), matcher.end(), store);
     }
+
+    edits.apply(buffer);
   }
 
   private static String tierName(int tier) {
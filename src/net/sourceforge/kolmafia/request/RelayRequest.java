@@ -209,35 +209,39 @@ public class RelayRequest extends PasswordHashRequest {
     this.rawByteBuffer = null;
     this.headers.clear();
 
-    String path = this.getBasePath();
-    String relayField = this.getFormField("relay");
+    this.contentType =
+        RelayRequest.getContentType(this.getBasePath(), this.getFormField("relay"));
+
+    return this;
+  }
 
+  public static String getContentType(final String path, final String relayField) {
     if (path.endsWith(".css")) {
-      this.contentType = "text/css";
-    } else if (path.endsWith(".js")) {
+      return "text/css";
+    }
+    if (path.endsWith(".js")) {
       // Support JS-driven relay scripts
-      if (relayField != null && relayField.equals("true")) {
-        this.contentType = "text/html";
-      } else {
-        this.contentType = "text/javascript";
-      }
-    } else if (path.endsWith(".gif")) {
-      this.contentType = "image/gif";
-    } else if (path.endsWith(".png")) {
-      this.contentType = "image/png";
-    } else if (path.endsWith(".jpg") || path.endsWith(".jpeg")) {
-      this.contentType = "image/jpeg";
-    } else if (path.endsWith(".ico")) {
-      this.contentType = "image/x-icon";
-    } else if (path.endsWith(".mp3")) {
-      this.contentType = "audio/mpeg";
-    } else if (path.matches(".*\\.(php|html|ash)")) {
-      this.contentType = "text/html";
-    } else {
-      this.contentType = "text/plain";
+      return relayField != null && relayField.equals("true") ? "text/html" : "text/javascript";
     }
-
-    return this;
+    if (path.endsWith(".gif")) {
+      return "image/gif";
+    }
+    if (path.endsWith(".png")) {
+      return "image/png";
+    }
+    if (path.endsWith(".jpg") || path.endsWith(".jpeg")) {
+      return "image/jpeg";
+    }
+    if (path.endsWith(".ico")) {
+      return "image/x-icon";
+    }
+    if (path.endsWith(".mp3")) {
+      return "audio/mpeg";
+    }
+    if (path.matches(".*\\.(php|html|ash)")) {
+      return "text/html";
+    }
+    return "text/plain";
   }
 
   private static boolean isJunkItem(final int itemId, final int price) {
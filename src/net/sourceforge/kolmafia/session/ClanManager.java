@@ -1,8 +1,13 @@
 package net.sourceforge.kolmafia.session;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -10,6 +15,9 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.java.dev.spellcast.utilities.DataUtilities;
@@ -47,6 +55,7 @@ import net.sourceforge.kolmafia.request.GenericRequest;
 import net.sourceforge.kolmafia.request.ProfileRequest;
 import net.sourceforge.kolmafia.utilities.FileUtilities;
 import net.sourceforge.kolmafia.utilities.LogStream;
+import net.sourceforge.kolmafia.utilities.PauseObject;
 import net.sourceforge.kolmafia.webui.RelayLoader;
 
 public abstract class ClanManager {
@@ -58,6 +67,12 @@ public abstract class ClanManager {
   public static boolean stashRetrieved = false;
   private static boolean ranksRetrieved = false;
 
+  // Member profiles and ascension histories are retrieved a few at a
+  // time, but no more often than this, to spare the server.
+  private static final long REQUEST_INTERVAL = 200;
+  private static final Object requestLock = new Object();
+  private static long nextRequestTime = 0;
+
   private static final ArrayList<String> currentMembers = new ArrayList<>();
   private static final ArrayList<String> whiteListMembers = new ArrayList<>();
 
@@ -121,7 +136,8 @@ public abstract class ClanManager {
 
     // Save new clan information
     ClanManager.clanId = clanId;
-    ClanManager.clanName = clanName;
+    ClanManager.clanName = name;
+    ClanManager.snapshotFolder = ClanManager.getSnapshotFolder();
   }
 
   private static void retrieveClanIdAndName() {
@@ -252,8 +268,7 @@ public abstract class ClanManager {
     RequestThread.postRequest(cmr);
     Collections.sort(ClanManager.currentMembers);
 
-    ClanManager.snapshotFolder =
-        "clan/" + ClanManager.clanId + "/" + KoLConstants.WEEKLY_FORMAT.format(new Date()) + "/";
+    ClanManager.snapshotFolder = ClanManager.getSnapshotFolder();
 
     KoLmafia.updateDisplay("Clan data retrieved.");
   }
@@ -286,6 +301,10 @@ public abstract class ClanManager {
     Collections.sort(ClanManager.whiteListMembers);
   }
 
+  private static String getSnapshotFolder() {
+    return "clan/" + ClanManager.clanId + "/" + KoLConstants.WEEKLY_FORMAT.format(new Date()) + "/";
+  }
+
   private static void retrieveClanData() {
     if (KoLmafia.isAdventuring()) {
       return;
@@ -300,87 +319,136 @@ public abstract class ClanManager {
     ClanManager.updateWhiteList();
   }
 
-  private static boolean retrieveMemberData(
+  static boolean retrieveMemberData(
       final boolean retrieveProfileData, final boolean retrieveAscensionData) {
-    // First, determine how many member profiles need to be retrieved
-    // before this happens.
-
-    int requestsNeeded = 0;
+    // First, load whatever is already cached and recent enough, and
+    // find out which members need to be retrieved from the server.
 
-    String filename;
-    File profile, ascensionData;
-    String currentProfile, currentAscensionData;
+    long maxAge = Preferences.getInteger("clanSnapshotMaxAge") * 3600000L;
+    long oldest = System.currentTimeMillis() - maxAge;
+    File[] snapshots = ClanManager.getSnapshotFolders();
 
     String[] names = new String[ClanManager.profileMap.size()];
     ClanManager.profileMap.keySet().toArray(names);
 
+    Queue<Runnable> lookups = new ConcurrentLinkedQueue<>();
+
     for (int i = 0; i < names.length; ++i) {
       KoLmafia.updateDisplay(
           "Cache data lookup for member " + (i + 1) + " of " + names.length + "...");
 
-      currentProfile = ClanManager.profileMap.get(names[i]);
-      currentAscensionData = ClanManager.ascensionMap.get(names[i]);
+      String name = names[i];
+      String filename = ClanManager.getFileName(name);
 
-      filename = ClanManager.getFileName(names[i]);
-      profile =
-          new File(KoLConstants.ROOT_LOCATION, ClanManager.snapshotFolder + "profiles/" + filename);
-      ascensionData =
-          new File(
-              KoLConstants.ROOT_LOCATION, ClanManager.snapshotFolder + "ascensions/" + filename);
-
-      if (retrieveProfileData) {
-        if (currentProfile.equals("") && !profile.exists()) {
-          ++requestsNeeded;
-        }
-
-        if (currentProfile.equals("") && profile.exists()) {
-          ClanManager.initializeProfile(names[i]);
+      if (retrieveProfileData && ClanManager.profileMap.get(name).equals("")) {
+        File profile = ClanManager.findCachedFile(snapshots, "profiles/", filename, oldest);
+        if (profile != null) {
+          ClanManager.loadProfile(name, profile);
+        } else {
+          lookups.add(() -> ClanManager.retrieveProfile(name));
         }
       }
 
-      if (retrieveAscensionData) {
-        if (currentAscensionData.equals("") && !ascensionData.exists()) {
-          ++requestsNeeded;
-        }
-
-        if (currentAscensionData.equals("") && ascensionData.exists()) {
-          ClanManager.initializeAscensionData(names[i]);
+      if (retrieveAscensionData && ClanManager.ascensionMap.get(name).equals("")) {
+        File ascension = ClanManager.findCachedFile(snapshots, "ascensions/", filename, oldest);
+        if (ascension != null) {
+          ClanManager.loadAscensionData(name, ascension);
+        } else {
+          lookups.add(() -> ClanManager.retrieveAscensionData(name));
         }
       }
     }
 
     // If all the member profiles have already been retrieved, then
     // you won't need to look up any profiles, so it takes no time.
-    // No need to confirm with the user.  Therefore, return.
 
-    if (requestsNeeded == 0) {
+    if (lookups.isEmpty()) {
       return true;
     }
 
-    // Now that it's known what the user wishes to continue,
-    // you begin initializing all the data.
+    // Otherwise, retrieve the rest from the server, a few at a time.
+    // Each one is saved in its own HTML file, so that it can be
+    // navigated at leisure, and need not be retrieved again.
+
+    int total = lookups.size();
+    AtomicInteger started = new AtomicInteger();
+
+    Runnable worker =
+        () -> {
+          Runnable lookup;
+          while (KoLmafia.permitsContinue() && (lookup = lookups.poll()) != null) {
+            KoLmafia.updateDisplay(
+                "Loading member data " + started.incrementAndGet() + " of " + total + "...");
+            ClanManager.awaitRequestSlot();
+            lookup.run();
+          }
+        };
 
-    // Create a special HTML file for each of the
-    // players in the ProfileSnapshot so that it can be
-    // navigated at leisure.
+    int threads = Math.max(1, Math.min(Preferences.getInteger("clanSnapshotThreads"), total));
+    return RequestThread.runInParallel(Collections.nCopies(threads, worker), false);
+  }
 
-    for (int i = 0; i < names.length && KoLmafia.permitsContinue(); ++i) {
-      KoLmafia.updateDisplay(
-          "Loading profile for member " + (i + 1) + " of " + names.length + "...");
+  /**
+   * Waits until the server can be sent another member's profile or ascension history. However many
+   * are being retrieved at once, they are started no closer together than REQUEST_INTERVAL.
+   */
+  private static void awaitRequestSlot() {
+    long wait;
+
+    synchronized (ClanManager.requestLock) {
+      long now = System.currentTimeMillis();
+      long start = Math.max(now, ClanManager.nextRequestTime);
+      ClanManager.nextRequestTime = start + ClanManager.REQUEST_INTERVAL;
+      wait = start - now;
+    }
 
-      currentProfile = ClanManager.profileMap.get(names[i]);
-      currentAscensionData = ClanManager.ascensionMap.get(names[i]);
+    if (wait > 0) {
+      PauseObject pauser = new PauseObject();
+      pauser.pause(wait);
+    }
+  }
 
-      if (retrieveProfileData && currentProfile.equals("")) {
-        ClanManager.initializeProfile(names[i]);
-      }
+  private static File[] getSnapshotFolders() {
+    File clanFolder = new File(KoLConstants.ROOT_LOCATION, "clan/" + ClanManager.clanId);
+    File[] folders = clanFolder.listFiles(File::isDirectory);
+    return folders == null ? new File[0] : folders;
+  }
+
+  /**
+   * Returns this week's copy of a member's profile or ascension history if it was saved no earlier
+   * than the given time. If this week's snapshot has no copy, but an earlier snapshot has one which
+   * is recent enough, that is copied into this week's snapshot, keeping its date. Returns null if
+   * the data needs to be retrieved again.
+   */
+  static File findCachedFile(
+      final File[] snapshots, final String type, final String filename, final long oldest) {
+    File file = new File(KoLConstants.ROOT_LOCATION, ClanManager.snapshotFolder + type + filename);
+
+    if (file.exists()) {
+      return file.lastModified() >= oldest ? file : null;
+    }
 
-      if (retrieveAscensionData && currentAscensionData.equals("")) {
-        ClanManager.initializeAscensionData(names[i]);
+    File newest = null;
+    for (File snapshot : snapshots) {
+      File earlier = new File(snapshot, type + filename);
+      if (earlier.isFile()
+          && earlier.lastModified() >= oldest
+          && (newest == null || earlier.lastModified() > newest.lastModified())) {
+        newest = earlier;
       }
     }
 
-    return true;
+    if (newest == null) {
+      return null;
+    }
+
+    try {
+      file.getParentFile().mkdirs();
+      Files.copy(newest.toPath(), file.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+      return file;
+    } catch (IOException e) {
+      return null;
+    }
   }
 
   public static final String getURLName(final String name) {
@@ -395,126 +463,128 @@ public abstract class ClanManager {
     return Preferences.baseUserName(name) + "_(#" + ContactManager.getPlayerId(name) + ")" + ".htm";
   }
 
-  private static void initializeProfile(final String name) {
-    File profile =
-        new File(
-            KoLConstants.ROOT_LOCATION,
-            ClanManager.snapshotFolder + "profiles/" + ClanManager.getFileName(name));
+  private static String readCachedFile(final File file) throws IOException {
+    StringBuilder data = new StringBuilder();
 
-    if (profile.exists()) {
-      try {
-        BufferedReader istream = FileUtilities.getReader(profile);
-        StringBuilder profileString = new StringBuilder();
-        String currentLine;
+    try (BufferedReader istream = FileUtilities.getReader(file)) {
+      String currentLine;
 
-        while ((currentLine = istream.readLine()) != null) {
-          profileString.append(currentLine);
-          profileString.append(KoLConstants.LINE_BREAK);
-        }
+      while ((currentLine = istream.readLine()) != null) {
+        data.append(currentLine);
+        data.append(KoLConstants.LINE_BREAK);
+      }
+    }
 
-        ClanManager.profileMap.put(name.toLowerCase(), profileString.toString());
-        istream.close();
-      } catch (Exception e) {
-        // This should not happen.  Therefore, print
-        // a stack trace for debug purposes.
+    return data.toString();
+  }
 
-        StaticEntity.printStackTrace(e, "Failed to load cached profile");
-        return;
-      }
-    } else {
-      // Otherwise, run the request and pull the data from the
-      // web server.
-
-      ProfileRequest request = new ProfileRequest(name);
-      request.initialize();
-
-      String data =
-          KoLConstants.LINE_BREAK_PATTERN
-              .matcher(
-                  KoLConstants.COMMENT_PATTERN
-                      .matcher(
-                          KoLConstants.STYLE_PATTERN
-                              .matcher(
-                                  KoLConstants.SCRIPT_PATTERN
-                                      .matcher(request.responseText)
-                                      .replaceAll(""))
-                              .replaceAll(""))
-                      .replaceAll(""))
-              .replaceAll("")
-              .replaceAll(
-                  "ascensionhistory.php\\?back=other&who=" + ContactManager.getPlayerId(name),
-                  "../ascensions/" + ClanManager.getURLName(name));
+  private static String stripPage(final String responseText) {
+    return KoLConstants.LINE_BREAK_PATTERN
+        .matcher(
+            KoLConstants.COMMENT_PATTERN
+                .matcher(
+                    KoLConstants.STYLE_PATTERN
+                        .matcher(KoLConstants.SCRIPT_PATTERN.matcher(responseText).replaceAll(""))
+                        .replaceAll(""))
+                .replaceAll(""))
+        .replaceAll("");
+  }
 
-      ClanManager.profileMap.put(name, data);
+  private static void loadProfile(final String name, final File profile) {
+    try {
+      String data = ClanManager.readCachedFile(profile);
 
-      // To avoid retrieving the file again, store the intermediate
-      // result in a local file.
+      synchronized (ClanManager.profileMap) {
+        ClanManager.profileMap.put(name, data);
+      }
+    } catch (Exception e) {
+      // This should not happen.  Therefore, print
+      // a stack trace for debug purposes.
 
-      PrintStream ostream = LogStream.openStream(profile, true);
-      ostream.println(data);
-      ostream.close();
+      StaticEntity.printStackTrace(e, "Failed to load cached profile");
     }
   }
 
-  private static void initializeAscensionData(final String name) {
-    File ascension =
+  private static void retrieveProfile(final String name) {
+    // Run the request and pull the data from the web server.
+
+    ProfileRequest request = new ProfileRequest(name);
+    request.initialize();
+
+    if (request.responseText == null) {
+      return;
+    }
+
+    String data =
+        ClanManager.stripPage(request.responseText)
+            .replaceAll(
+                "ascensionhistory.php\\?back=other&who=" + ContactManager.getPlayerId(name),
+                "../ascensions/" + ClanManager.getURLName(name));
+
+    synchronized (ClanManager.profileMap) {
+      ClanManager.profileMap.put(name, data);
+    }
+
+    // To avoid retrieving the file again, store the intermediate
+    // result in a local file.
+
+    File profile =
         new File(
             KoLConstants.ROOT_LOCATION,
-            ClanManager.snapshotFolder + "ascensions/" + ClanManager.getFileName(name));
-
-    if (ascension.exists()) {
-      try {
-        BufferedReader istream = FileUtilities.getReader(ascension);
-        StringBuilder ascensionString = new StringBuilder();
-        String currentLine;
+            ClanManager.snapshotFolder + "profiles/" + ClanManager.getFileName(name));
 
-        while ((currentLine = istream.readLine()) != null) {
-          ascensionString.append(currentLine);
-          ascensionString.append(KoLConstants.LINE_BREAK);
-        }
+    PrintStream ostream = LogStream.openStream(profile, true);
+    ostream.println(data);
+    ostream.close();
+  }
 
-        ClanManager.ascensionMap.put(name, ascensionString.toString());
-      } catch (Exception e) {
-        // This should not happen.  Therefore, print
-        // a stack trace for debug purposes.
+  private static void loadAscensionData(final String name, final File ascension) {
+    try {
+      String data = ClanManager.readCachedFile(ascension);
 
-        StaticEntity.printStackTrace(e, "Failed to load cached ascension history");
-        return;
+      synchronized (ClanManager.ascensionMap) {
+        ClanManager.ascensionMap.put(name, data);
       }
-    } else {
-      // Otherwise, run the request and pull the data from the
-      // web server.
-
-      AscensionHistoryRequest request =
-          new AscensionHistoryRequest(name, ContactManager.getPlayerId(name));
-      request.initialize();
-
-      String data =
-          KoLConstants.LINE_BREAK_PATTERN
-              .matcher(
-                  KoLConstants.COMMENT_PATTERN
-                      .matcher(
-                          KoLConstants.STYLE_PATTERN
-                              .matcher(
-                                  KoLConstants.SCRIPT_PATTERN
-                                      .matcher(request.responseText)
-                                      .replaceAll(""))
-                              .replaceAll(""))
-                      .replaceAll(""))
-              .replaceAll("")
-              .replaceAll(
-                  "<a href=\"charsheet.php\">",
-                  "<a href=../profiles/" + ClanManager.getURLName(name));
+    } catch (Exception e) {
+      // This should not happen.  Therefore, print
+      // a stack trace for debug purposes.
 
-      ClanManager.ascensionMap.put(name, data);
+      StaticEntity.printStackTrace(e, "Failed to load cached ascension history");
+    }
+  }
 
-      // To avoid retrieving the file again, store the intermediate
-      // result in a local file.
+  private static void retrieveAscensionData(final String name) {
+    // Run the request and pull the data from the web server.
 
-      PrintStream ostream = LogStream.openStream(ascension, true);
-      ostream.println(data);
-      ostream.close();
+    AscensionHistoryRequest request =
+        new AscensionHistoryRequest(name, ContactManager.getPlayerId(name));
+    request.initialize();
+
+    if (request.responseText == null) {
+      return;
     }
+
+    String data =
+        ClanManager.stripPage(request.responseText)
+            .replaceAll(
+                "<a href=\"charsheet.php\">",
+                "<a href=../profiles/" + ClanManager.getURLName(name));
+
+    synchronized (ClanManager.ascensionMap) {
+      ClanManager.ascensionMap.put(name, data);
+    }
+
+    // To avoid retrieving the file again, store the intermediate
+    // result in a local file.
+
+    File ascension =
+        new File(
+            KoLConstants.ROOT_LOCATION,
+            ClanManager.snapshotFolder + "ascensions/" + ClanManager.getFileName(name));
+
+    PrintStream ostream = LogStream.openStream(ascension, true);
+    ostream.println(data);
+    ostream.close();
   }
 
   public static String getTitle(final String name) {
@@ -589,8 +659,9 @@ public abstract class ClanManager {
     KoLmafia.updateDisplay("Storing clan snapshot...");
 
     try {
-      PrintStream ostream = LogStream.openStream(standardFile, true);
-      ostream.println(ProfileSnapshot.getStandardData(localProfileLink));
+      PrintStream ostream = ClanManager.openSnapshotStream(standardFile);
+      ProfileSnapshot.printStandardData(ostream, localProfileLink);
+      ostream.println();
       ostream.close();
 
       String line;
@@ -605,40 +676,43 @@ public abstract class ClanManager {
 
       KoLmafia.updateDisplay("Storing ascension snapshot...");
 
-      ostream = LogStream.openStream(softcoreFile, true);
-      ostream.println(
-          AscensionSnapshot.getAscensionData(
-              AscensionFilter.NORMAL,
-              mostAscensionsBoardSize,
-              mainBoardSize,
-              classBoardSize,
-              maxAge,
-              playerMoreThanOnce,
-              localProfileLink));
+      ostream = ClanManager.openSnapshotStream(softcoreFile);
+      AscensionSnapshot.printAscensionData(
+          ostream,
+          AscensionFilter.NORMAL,
+          mostAscensionsBoardSize,
+          mainBoardSize,
+          classBoardSize,
+          maxAge,
+          playerMoreThanOnce,
+          localProfileLink);
+      ostream.println();
       ostream.close();
 
-      ostream = LogStream.openStream(hardcoreFile, true);
-      ostream.println(
-          AscensionSnapshot.getAscensionData(
-              AscensionFilter.HARDCORE,
-              mostAscensionsBoardSize,
-              mainBoardSize,
-              classBoardSize,
-              maxAge,
-              playerMoreThanOnce,
-              localProfileLink));
+      ostream = ClanManager.openSnapshotStream(hardcoreFile);
+      AscensionSnapshot.printAscensionData(
+          ostream,
+          AscensionFilter.HARDCORE,
+          mostAscensionsBoardSize,
+          mainBoardSize,
+          classBoardSize,
+          maxAge,
+          playerMoreThanOnce,
+          localProfileLink);
+      ostream.println();
       ostream.close();
 
-      ostream = LogStream.openStream(casualFile, true);
-      ostream.println(
-          AscensionSnapshot.getAscensionData(
-              AscensionFilter.CASUAL,
-              mostAscensionsBoardSize,
-              mainBoardSize,
-              classBoardSize,
-              maxAge,
-              playerMoreThanOnce,
-              localProfileLink));
+      ostream = ClanManager.openSnapshotStream(casualFile);
+      AscensionSnapshot.printAscensionData(
+          ostream,
+          AscensionFilter.CASUAL,
+          mostAscensionsBoardSize,
+          mainBoardSize,
+          classBoardSize,
+          maxAge,
+          playerMoreThanOnce,
+          localProfileLink);
+      ostream.println();
       ostream.close();
     } catch (Exception e) {
       StaticEntity.printStackTrace(e);
@@ -655,6 +729,11 @@ public abstract class ClanManager {
     RelayLoader.openSystemBrowser(casualFile);
   }
 
+  private static PrintStream openSnapshotStream(final File file) {
+    return LogStream.openStream(
+        new BufferedOutputStream(DataUtilities.getOutputStream(file)), StandardCharsets.UTF_8);
+  }
+
   /**
    * Stores all of the transactions made in the clan stash. This loads the existing clan stash log
    * and updates it with all transactions made by every clan member. this format allows people to
@@ -1,9 +1,9 @@
 package net.sourceforge.kolmafia.session;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import net.java.dev.spellcast.utilities.LockableListModel;
 import net.java.dev.spellcast.utilities.SortedListModel;
 import net.sourceforge.kolmafia.RequestThread;
@@ -17,8 +17,9 @@ import net.sourceforge.kolmafia.swingui.ContactListFrame;
 import net.sourceforge.kolmafia.utilities.HTMLListEntry;
 
 public class ContactManager {
-  private static final HashMap<String, String> seenPlayerIds = new HashMap<>();
-  private static final HashMap<String, String> seenPlayerNames = new HashMap<>();
+  // Players are seen by chat, relay browser and clan snapshot threads alike
+  private static final Map<String, String> seenPlayerIds = new ConcurrentHashMap<>();
+  private static final Map<String, String> seenPlayerNames = new ConcurrentHashMap<>();
 
   private static final SortedListModel<String> mailContacts = new SortedListModel<>();
   private static final SortedListModel<HTMLListEntry> chatContacts = new SortedListModel<>();
@@ -100,11 +101,10 @@ public class ContactManager {
 
     String lowercase = playerName.toLowerCase().trim();
 
-    if (ContactManager.seenPlayerIds.containsKey(lowercase)) {
+    if (ContactManager.seenPlayerIds.putIfAbsent(lowercase, playerId) != null) {
       return;
     }
 
-    ContactManager.seenPlayerIds.put(lowercase, playerId);
     ContactManager.seenPlayerNames.put(playerId, playerName);
   }
 
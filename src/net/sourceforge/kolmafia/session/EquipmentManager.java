@@ -9,6 +9,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import net.sourceforge.kolmafia.AdventureResult;
+import net.sourceforge.kolmafia.EvaluationContext;
 import net.sourceforge.kolmafia.FamiliarData;
 import net.sourceforge.kolmafia.KoLAdventure;
 import net.sourceforge.kolmafia.KoLCharacter;
@@ -25,6 +26,7 @@ import net.sourceforge.kolmafia.SpecialOutfit;
 import net.sourceforge.kolmafia.equipment.Slot;
 import net.sourceforge.kolmafia.equipment.SlotSet;
 import net.sourceforge.kolmafia.listener.NamedListenerRegistry;
+import net.sourceforge.kolmafia.maximizer.MaximizerCache;
 import net.sourceforge.kolmafia.modifiers.BooleanModifier;
 import net.sourceforge.kolmafia.objectpool.EffectPool;
 import net.sourceforge.kolmafia.objectpool.FamiliarPool;
@@ -106,6 +108,7 @@ public class EquipmentManager {
     GearChangePanel.clearEquipmentModels();
 
     EquipmentManager.equipment.clear();
+    MaximizerCache.invalidate();
 
     for (var slot : SlotSet.ALL_SLOTS) {
       EquipmentManager.equipment.put(slot, EquipmentRequest.UNEQUIP);
@@ -263,6 +266,8 @@ public class EquipmentManager {
       return;
     }
 
+    MaximizerCache.invalidate();
+
     AdventureResult old = EquipmentManager.getEquipment(slot);
 
     // Accessories are special in terms of testing for existence
@@ -1920,7 +1925,8 @@ public class EquipmentManager {
       default:
       case MUSCLE:
         hitStat = KoLCharacter.getAdjustedMuscle();
-        if (Modifiers.unarmed && KoLCharacter.hasSkill(SkillPool.MASTER_OF_THE_SURPRISING_FIST)) {
+        if (EvaluationContext.current().isUnarmed()
+            && KoLCharacter.hasSkill(SkillPool.MASTER_OF_THE_SURPRISING_FIST)) {
           hitStat += 20;
         }
         return hitStat;
@@ -26,6 +26,7 @@ import net.sourceforge.kolmafia.equipment.Slot;
 import net.sourceforge.kolmafia.equipment.SlotSet;
 import net.sourceforge.kolmafia.listener.ItemListenerRegistry;
 import net.sourceforge.kolmafia.listener.PreferenceListenerRegistry;
+import net.sourceforge.kolmafia.maximizer.MaximizerCache;
 import net.sourceforge.kolmafia.objectpool.Concoction;
 import net.sourceforge.kolmafia.objectpool.ConcoctionPool;
 import net.sourceforge.kolmafia.objectpool.EffectPool;
@@ -76,6 +77,7 @@ public abstract class InventoryManager {
 
   public static void resetInventory() {
     KoLConstants.inventory.clear();
+    MaximizerCache.invalidate();
   }
 
   public static void refresh() {
@@ -127,6 +129,7 @@ public abstract class InventoryManager {
     KoLConstants.inventory.addAll(items);
     KoLConstants.unlimited.clear();
     KoLConstants.unlimited.addAll(unlimited);
+    MaximizerCache.invalidate();
     EquipmentManager.updateEquipmentLists();
     ConcoctionDatabase.refreshConcoctions();
     PreferenceListenerRegistry.firePreferenceChanged("(hats)");
@@ -1557,6 +1560,7 @@ public abstract class InventoryManager {
   }
 
   public static final void fireInventoryChanged(final int itemId) {
+    MaximizerCache.invalidate();
     ItemListenerRegistry.fireItemChanged(itemId);
   }
 
@@ -4,14 +4,18 @@ import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import net.sourceforge.kolmafia.AdventureResult;
 import net.sourceforge.kolmafia.KoLConstants;
 import net.sourceforge.kolmafia.KoLmafia;
@@ -20,6 +24,7 @@ import net.sourceforge.kolmafia.RequestThread;
 import net.sourceforge.kolmafia.objectpool.ItemPool;
 import net.sourceforge.kolmafia.persistence.ItemDatabase;
 import net.sourceforge.kolmafia.persistence.MallPriceDatabase;
+import net.sourceforge.kolmafia.persistence.MallSearchDatabase;
 import net.sourceforge.kolmafia.persistence.NPCStoreDatabase;
 import net.sourceforge.kolmafia.preferences.Preferences;
 import net.sourceforge.kolmafia.request.CoinMasterPurchaseRequest;
@@ -27,6 +32,7 @@ import net.sourceforge.kolmafia.request.GenericRequest;
 import net.sourceforge.kolmafia.request.MallPurchaseRequest;
 import net.sourceforge.kolmafia.request.MallSearchRequest;
 import net.sourceforge.kolmafia.request.PurchaseRequest;
+import net.sourceforge.kolmafia.utilities.PauseObject;
 
 public abstract class MallPriceManager {
 
@@ -132,10 +138,15 @@ public abstract class MallPriceManager {
   // The data structures that this package "manages".
 
   // a Map from itemId -> current mall price (as visible to a scripter.)
-  private static final Map<Integer, Integer> mallPrices = new HashMap<>();
+  private static final Map<Integer, Integer> mallPrices = new ConcurrentHashMap<>();
 
   // a Map from itemId -> the most resent mall search results.
-  private static final Map<Integer, List<PurchaseRequest>> mallSearches = new HashMap<>();
+  private static final Map<Integer, List<PurchaseRequest>> mallSearches = new ConcurrentHashMap<>();
+
+  // a Map from itemId -> the results of a mall search which is still under way, so that
+  // anyone else who wants them waits for that search rather than making their own.
+  private static final Map<Integer, CompletableFuture<List<PurchaseRequest>>> pendingSearches =
+      new ConcurrentHashMap<>();
 
   // Constants controlling how we manage those data
 
@@ -157,10 +168,17 @@ public abstract class MallPriceManager {
   // How many seconds before a before a "saved search" is "stale"
   public static int MALL_SEARCH_FRESHNESS = 60;
 
+  // When many items are priced at once, several searches are made at a time, but they are started
+  // no closer together than this many milliseconds.
+  static final long SEARCH_INTERVAL = 250;
+  private static final Object searchLock = new Object();
+  private static long nextSearchTime = 0;
+
   // For testing
   public static void reset() {
     mallPrices.clear();
     mallSearches.clear();
+    MallSearchDatabase.reset();
   }
 
   private static boolean removeShopPurchaseRequest(
@@ -182,6 +200,7 @@ public abstract class MallPriceManager {
   public static final void flushCache(final int itemId, final int shopId) {
     // Remove shop from search results for a single item
     if (itemId != -1) {
+      MallSearchDatabase.forgetSearch(itemId);
       List<PurchaseRequest> search = MallPriceManager.mallSearches.get(itemId);
       if (search != null && MallPriceManager.removeShopPurchaseRequest(itemId, shopId, search)) {
         if (search.size() == 0) {
@@ -192,6 +211,7 @@ public abstract class MallPriceManager {
     }
 
     // Remove shop from search results for all items
+    MallSearchDatabase.forgetShop(shopId);
     Iterator<Entry<Integer, List<PurchaseRequest>>> i =
         MallPriceManager.mallSearches.entrySet().iterator();
     while (i.hasNext()) {
@@ -207,6 +227,7 @@ public abstract class MallPriceManager {
   }
 
   public static final void flushCache(final int itemId) {
+    MallSearchDatabase.forgetSearch(itemId);
     List<PurchaseRequest> search = MallPriceManager.mallSearches.get(itemId);
     if (search != null) {
       MallPriceManager.mallSearches.remove(itemId);
@@ -303,18 +324,36 @@ public abstract class MallPriceManager {
       return results;
     }
 
-    results = MallPriceManager.searchMall("\"" + name + "\"", MALL_SEARCH_RESULTS);
+    // If this item is already being searched for, wait for those results
+    CompletableFuture<List<PurchaseRequest>> search = new CompletableFuture<>();
+    CompletableFuture<List<PurchaseRequest>> pending =
+        MallPriceManager.pendingSearches.putIfAbsent(id, search);
+    if (pending != null) {
+      return pending.join();
+    }
+
+    try {
+      results = MallPriceManager.searchMall("\"" + name + "\"", MALL_SEARCH_RESULTS);
 
-    // Flush CoinMasterPurchaseRequests
-    results.removeIf(purchaseRequest -> purchaseRequest instanceof CoinMasterPurchaseRequest);
+      // Flush CoinMasterPurchaseRequests
+      results.removeIf(purchaseRequest -> purchaseRequest instanceof CoinMasterPurchaseRequest);
 
-    if (KoLmafia.permitsContinue()) {
-      MallPriceManager.mallSearches.put(id, results);
-      // searchMall will have saved the mall price if we got any results back (otherwise it
-      // doesn't know the item ID). If no results, we should save it ourselves (as -1) here.
-      if (results.size() == 0) {
-        MallPriceManager.updateMallPrice(itemId, results);
+      if (KoLmafia.permitsContinue()) {
+        MallPriceManager.mallSearches.put(id, results);
+        // searchMall will have saved the mall price if we got any results back (otherwise it
+        // doesn't know the item ID). If no results, we should save it ourselves (as -1) here.
+        if (results.size() == 0) {
+          MallPriceManager.updateMallPrice(itemId, results);
+        }
       }
+
+      search.complete(results);
+    } catch (Throwable e) {
+      // Whatever went wrong, anyone waiting for these results must not wait forever
+      search.completeExceptionally(e);
+      throw e;
+    } finally {
+      MallPriceManager.pendingSearches.remove(id, search);
     }
 
     return results;
@@ -460,6 +499,28 @@ public abstract class MallPriceManager {
     if (price > 0) {
       MallPriceDatabase.recordPrice(itemId, price, deferred);
     }
+    MallSearchDatabase.recordSearch(itemId, results, deferred);
+
+    return price;
+  }
+
+  // Get the "nth cheapest" mall price from a search saved by this or an earlier session, if there
+  // is one no more than maxAge days old, without searching the mall again. Returns 0 if there is
+  // no such search.
+
+  private static int getSavedMallPrice(
+      final int itemId, final float maxAge, final boolean deferred) {
+    List<PurchaseRequest> results = MallSearchDatabase.getSearch(itemId, maxAge);
+    if (results == null) {
+      return 0;
+    }
+
+    int price = MallPriceManager.nthCheapestPrice(NTH_CHEAPEST_COUNT, results);
+    MallPriceManager.mallPrices.put(itemId, price);
+    if (price > 0) {
+      long timestamp = MallSearchDatabase.getTimestamp(itemId);
+      MallPriceDatabase.recordPrice(itemId, price, timestamp, deferred);
+    }
 
     return price;
   }
@@ -486,6 +547,10 @@ public abstract class MallPriceManager {
 
     int price = MallPriceManager.mallPrices.getOrDefault(itemId, 0);
 
+    if (price == 0) {
+      price = MallPriceManager.getSavedMallPrice(itemId, Float.POSITIVE_INFINITY, false);
+    }
+
     if (price == 0) {
       AdventureResult search = ItemPool.get(itemId, NTH_CHEAPEST_COUNT);
       MallPriceManager.searchMall(search);
@@ -524,8 +589,15 @@ public abstract class MallPriceManager {
       return (long) MallPriceManager.getMallPrice(itemId) * count;
     }
 
-    // Do a mall search. Any cached result that is not stale is acceptable.
-    List<PurchaseRequest> results = MallPriceManager.searchMall(item.getInstance(0));
+    // Do a mall search. Any cached result that is not stale is acceptable, as is one saved by an
+    // earlier session which has not yet expired.
+    List<PurchaseRequest> results = MallPriceManager.getSavedSearch(itemId, 0);
+    if (results == null) {
+      results = MallSearchDatabase.getSearch(itemId);
+    }
+    if (results == null) {
+      results = MallPriceManager.searchMall(item.getInstance(0));
+    }
 
     // Iterate through the PurchaseRequests accumulating prices.
     int needed = count;
@@ -603,9 +675,11 @@ public abstract class MallPriceManager {
 
     int price = MallPriceDatabase.getPrice(itemId);
     if (MallPriceDatabase.getAge(itemId) > maxAge) {
+      price = MallPriceManager.getSavedMallPrice(itemId, maxAge, false);
+    }
+    if (price == 0) {
       MallPriceManager.flushCache(itemId);
       MallPriceManager.mallPrices.remove(itemId);
-      price = 0;
     }
 
     // If this item is not in the database, look at local cache.
@@ -617,33 +691,79 @@ public abstract class MallPriceManager {
 
   public static int getMallPrices(AdventureResult[] items, float maxAge) {
     // Count how many items we retrieved
-    int count = 0;
+    AtomicInteger count = new AtomicInteger();
 
     try {
+      // Find the items whose prices are missing or too old, asking for each only once
+      Set<Integer> seen = new HashSet<>();
+      Queue<AdventureResult> searches = new ConcurrentLinkedQueue<>();
+
       for (AdventureResult item : items) {
         int itemId = item.getItemId();
-        if (!validMallItem(itemId)) {
+        if (!validMallItem(itemId) || !seen.add(itemId)) {
           continue;
         }
         int price = MallPriceDatabase.getPrice(itemId);
         if (price > 0 && MallPriceDatabase.getAge(itemId) <= maxAge) {
           continue;
         }
-        if (MallPriceManager.mallPrices.getOrDefault(itemId, 0) == 0) {
-          AdventureResult search = item.getInstance(NTH_CHEAPEST_COUNT);
-          List<PurchaseRequest> results = MallPriceManager.searchMall(search);
-          MallPriceManager.flushCache(itemId);
-          MallPriceManager.updateMallPrice(itemId, results, true);
-          MallPriceManager.mallSearches.put(itemId, results);
-          ++count;
+        if (MallPriceManager.mallPrices.getOrDefault(itemId, 0) != 0) {
+          continue;
+        }
+        if (MallPriceManager.getSavedMallPrice(itemId, maxAge, true) != 0) {
+          continue;
         }
+        searches.add(item.getInstance(NTH_CHEAPEST_COUNT));
+      }
+
+      // Search for the rest, a few at a time
+
+      Runnable worker =
+          () -> {
+            AdventureResult search;
+            while (KoLmafia.permitsContinue() && (search = searches.poll()) != null) {
+              MallPriceManager.awaitSearchSlot();
+              int itemId = search.getItemId();
+              List<PurchaseRequest> results = MallPriceManager.searchMall(search);
+              // The new results replace the old ones, here and when the searches are saved
+              MallPriceManager.updateMallPrice(itemId, results, true);
+              MallPriceManager.mallSearches.put(itemId, results);
+              count.incrementAndGet();
+            }
+          };
+
+      if (!searches.isEmpty()) {
+        int threads =
+            Math.max(1, Math.min(Preferences.getInteger("mallSearchThreads"), searches.size()));
+        RequestThread.runInParallel(Collections.nCopies(threads, worker), false);
       }
     } finally {
       RequestLogger.printLine("Updating mallprices.txt with " + count + " prices.");
       MallPriceDatabase.writePrices();
+      MallSearchDatabase.writeSearches();
     }
 
-    return count;
+    return count.get();
+  }
+
+  /**
+   * Waits until another item can be searched for. However many searches are being made at once,
+   * they are started no closer together than SEARCH_INTERVAL.
+   */
+  static void awaitSearchSlot() {
+    long wait;
+
+    synchronized (MallPriceManager.searchLock) {
+      long now = System.currentTimeMillis();
+      long start = Math.max(now, MallPriceManager.nextSearchTime);
+      MallPriceManager.nextSearchTime = start + MallPriceManager.SEARCH_INTERVAL;
+      wait = start - now;
+    }
+
+    if (wait > 0) {
+      PauseObject pauser = new PauseObject();
+      pauser.pause(wait);
+    }
   }
 
   public static int getMallPrices(String category) {
@@ -690,7 +810,6 @@ public abstract class MallPriceManager {
         if (itemId != newItemId) {
           // Handle previous item, if any
           if (itemResults != null) {
-            MallPriceManager.flushCache(itemId);
             Collections.sort(itemResults, PurchaseRequest.priceComparator);
             MallPriceManager.updateMallPrice(itemId, itemResults, true);
             MallPriceManager.mallSearches.put(itemId, itemResults);
@@ -707,7 +826,6 @@ public abstract class MallPriceManager {
 
       // Handle final item
       if (itemResults != null) {
-        MallPriceManager.flushCache(itemId);
         Collections.sort(itemResults, PurchaseRequest.priceComparator);
         MallPriceManager.updateMallPrice(itemId, itemResults, true);
         MallPriceManager.mallSearches.put(itemId, itemResults);
@@ -716,6 +834,7 @@ public abstract class MallPriceManager {
     } finally {
       RequestLogger.printLine("Updating mallprices.txt with " + count + " prices.");
       MallPriceDatabase.writePrices();
+      MallSearchDatabase.writeSearches();
     }
 
     return count;
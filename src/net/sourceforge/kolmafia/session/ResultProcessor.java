@@ -1,7 +1,7 @@
 package net.sourceforge.kolmafia.session;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -50,6 +50,8 @@ import net.sourceforge.kolmafia.request.EquipmentRequest;
 import net.sourceforge.kolmafia.request.HermitRequest;
 import net.sourceforge.kolmafia.request.PlaceRequest;
 import net.sourceforge.kolmafia.request.UseItemRequest;
+import net.sourceforge.kolmafia.session.ResultTokenizer.EffectToken;
+import net.sourceforge.kolmafia.session.ResultTokenizer.ItemToken;
 import net.sourceforge.kolmafia.utilities.LockableListFactory;
 import net.sourceforge.kolmafia.utilities.StringUtilities;
 
@@ -109,125 +111,134 @@ public class ResultProcessor {
     StringBuffer buffer = new StringBuffer();
     boolean changed = false;
 
+    Matcher itemMatcher = ResultProcessor.ITEM_TABLE_PATTERN.matcher(results);
+    while (itemMatcher.find()) {
+      ItemToken token = ResultTokenizer.itemToken(itemMatcher);
+      ResultProcessor.processItemTable(adventureResults, token, items);
+
+      // Items with a comment have been dealt with, so take them out of the page
+      if (token.comment() != null) {
+        itemMatcher.appendReplacement(buffer, "");
+        changed = true;
+      }
+    }
+
+    if (changed) {
+      itemMatcher.appendTail(buffer);
+      return buffer.toString();
+    }
+
+    return results;
+  }
+
+  private static void processItemTable(
+      boolean adventureResults, final ItemToken token, final List<AdventureResult> items) {
+    String relString = token.relString();
+    String itemName = token.itemName();
+    String descId = token.descId();
+    String boldName = token.boldName();
+    String comment = token.comment();
+
     // Item names have a lot of extra adjectives in Two Crazy Random Summer
     boolean crazyRandomAdjectives = KoLCharacter.isCrazyRandomTwo();
 
-    Matcher itemMatcher = ResultProcessor.ITEM_TABLE_PATTERN.matcher(results);
-    while (itemMatcher.find()) {
-      String relString = itemMatcher.group(1);
-      String itemName = itemMatcher.group(2).trim();
-      String descId = itemMatcher.group(3);
-      Matcher boldMatcher = ResultProcessor.BOLD_NAME_PATTERN.matcher(itemMatcher.group(0));
-      String boldName = boldMatcher.find() ? boldMatcher.group(1).trim() : null;
-      String comment = boldName != null ? boldMatcher.group(2) : null;
+    // Both itemName and boldName can have adjectives. If
+    // it's a new item, we can't know the real name.
 
-      // Both itemName and boldName can have adjectives. If
-      // it's a new item, we can't know the real name.
+    // If we don't know this descid, it's an unknown item.
+    if (ItemDatabase.getItemIdFromDescription(descId) == -1) {
+      ItemDatabase.registerItem(itemName, descId, relString, boldName);
+    }
 
-      // If we don't know this descid, it's an unknown item.
-      if (ItemDatabase.getItemIdFromDescription(descId) == -1) {
-        ItemDatabase.registerItem(itemName, descId, relString, boldName);
-      }
+    // Extract item from the relstring
+    AdventureResult item = ItemDatabase.itemFromRelString(relString);
+    int itemId = item.getItemId();
+    int count = item.getCount();
+    String name = item.getName();
 
-      // Extract item from the relstring
-      AdventureResult item = ItemDatabase.itemFromRelString(relString);
-      int itemId = item.getItemId();
-      int count = item.getCount();
-      String name = item.getName();
+    if (crazyRandomAdjectives) {
+      ResultProcessor.handleCrazyRandomAdjectives(item, boldName);
+    }
 
-      if (crazyRandomAdjectives) {
-        ResultProcessor.handleCrazyRandomAdjectives(item, boldName);
-      }
+    // Check if multiusability conflicts with our expectations
+    boolean multi = ItemDatabase.relStringMultiusable(relString);
+    boolean ourMulti = ItemDatabase.isMultiUsable(itemId);
+    if (multi != ourMulti) {
+      String message =
+          (multi)
+              ? name + " is multiusable, but KoLmafia thought it was not"
+              : name + " is not multiusable, but KoLmafia thought it was";
 
-      // Check if multiusability conflicts with our expectations
-      boolean multi = ItemDatabase.relStringMultiusable(relString);
-      boolean ourMulti = ItemDatabase.isMultiUsable(itemId);
-      if (multi != ourMulti) {
-        String message =
-            (multi)
-                ? name + " is multiusable, but KoLmafia thought it was not"
-                : name + " is not multiusable, but KoLmafia thought it was";
+      RequestLogger.printLine(message);
+      RequestLogger.updateSessionLog(message);
+      ItemDatabase.registerMultiUsability(itemId, multi);
+    }
 
+    // If we got more than one, check plural name.
+    // Can't do this in Two Crazy Random Summer
+    if (!crazyRandomAdjectives) {
+      String plural = ItemDatabase.extractItemsPlural(count, boldName);
+      String ourPlural = plural == null ? null : ItemDatabase.getPluralName(itemId);
+      if (plural != null && !plural.equals(ourPlural)) {
+        String message = "Unexpected plural of '" + name + "' found: " + plural;
         RequestLogger.printLine(message);
         RequestLogger.updateSessionLog(message);
-        ItemDatabase.registerMultiUsability(itemId, multi);
-      }
-
-      // If we got more than one, check plural name.
-      // Can't do this in Two Crazy Random Summer
-      if (!crazyRandomAdjectives) {
-        String plural = ItemDatabase.extractItemsPlural(count, boldName);
-        String ourPlural = plural == null ? null : ItemDatabase.getPluralName(itemId);
-        if (plural != null && !plural.equals(ourPlural)) {
-          String message = "Unexpected plural of '" + name + "' found: " + plural;
-          RequestLogger.printLine(message);
-          RequestLogger.updateSessionLog(message);
-          ItemDatabase.registerPlural(itemId, plural);
-        }
+        ItemDatabase.registerPlural(itemId, plural);
       }
+    }
 
-      // Log it if we pickpocket something "impossible"
-      if (RequestLogger.getLastURLString().contains("action=steal")) {
-        MonsterData monster = MonsterStatusTracker.getLastMonster();
-        for (MonsterDrop monsterDrop : monster.getItems()) {
-          if (monsterDrop.item().getItemId() == itemId) {
-            String message =
-                switch (monsterDrop.flag()) {
-                  case NO_PICKPOCKET -> "Pickpocketed item "
-                      + name
-                      + " which is marked as non pickpocketable.";
-                  case CONDITIONAL -> "Pickpocketed item "
-                      + name
-                      + " which is marked as conditional.";
-                  case FIXED -> "Pickpocketed item " + name + " which is marked as fixed chance.";
-                  case STEAL_ACCORDION -> "Pickpocketed item "
-                      + name
-                      + " which is marked as accordion steal.";
-                  default -> null;
-                };
-            if (message != null) {
-              RequestLogger.printLine(message);
-              RequestLogger.updateSessionLog(message);
-            }
+    // Log it if we pickpocket something "impossible"
+    if (RequestLogger.getLastURLString().contains("action=steal")) {
+      MonsterData monster = MonsterStatusTracker.getLastMonster();
+      for (MonsterDrop monsterDrop : monster.getItems()) {
+        if (monsterDrop.item().getItemId() == itemId) {
+          String message =
+              switch (monsterDrop.flag()) {
+                case NO_PICKPOCKET -> "Pickpocketed item "
+                    + name
+                    + " which is marked as non pickpocketable.";
+                case CONDITIONAL -> "Pickpocketed item "
+                    + name
+                    + " which is marked as conditional.";
+                case FIXED -> "Pickpocketed item " + name + " which is marked as fixed chance.";
+                case STEAL_ACCORDION -> "Pickpocketed item "
+                    + name
+                    + " which is marked as accordion steal.";
+                default -> null;
+              };
+          if (message != null) {
+            RequestLogger.printLine(message);
+            RequestLogger.updateSessionLog(message);
           }
         }
       }
+    }
 
-      // Perform special processing, if indicated
-      if (comment != null) {
-        itemMatcher.appendReplacement(buffer, "");
-        changed = true;
-        // If the item went to Hagnk's...
-        if (comment.contains("Hagnk")) {
-          // move it to Hagnk's and remove from page text
-          String message = "Stored in Hagnk's: " + item.toString();
-          RequestLogger.printLine(message);
-          if (Preferences.getBoolean("logAcquiredItems")) {
-            RequestLogger.updateSessionLog(message);
-          }
-          AdventureResult.addResultToList(KoLConstants.storage, item);
-        }
-        // If the item was automatically equipped...
-        else if (comment.contains("automatically equipped")) {
-          // add to inventory, equip it, and remove from page text
-          String acquisition = "You acquire and equip an item:";
-          ResultProcessor.processItem(adventureResults, acquisition, item, null);
-          EquipmentManager.autoequipItem(item);
+    // Perform special processing, if indicated
+    if (comment != null) {
+      // If the item went to Hagnk's...
+      if (comment.contains("Hagnk")) {
+        // move it to Hagnk's and remove from page text
+        String message = "Stored in Hagnk's: " + item.toString();
+        RequestLogger.printLine(message);
+        if (Preferences.getBoolean("logAcquiredItems")) {
+          RequestLogger.updateSessionLog(message);
         }
+        AdventureResult.addResultToList(KoLConstants.storage, item);
       }
-
-      // Otherwise, add it to the list of items we found
-      else if (items != null) {
-        items.add(item);
+      // If the item was automatically equipped...
+      else if (comment.contains("automatically equipped")) {
+        // add to inventory, equip it, and remove from page text
+        String acquisition = "You acquire and equip an item:";
+        ResultProcessor.processItem(adventureResults, acquisition, item, null);
+        EquipmentManager.autoequipItem(item);
       }
     }
 
-    if (changed) {
-      itemMatcher.appendTail(buffer);
-      return buffer.toString();
+    // Otherwise, add it to the list of items we found
+    else if (items != null) {
+      items.add(item);
     }
-
-    return results;
   }
 
   public static LinkedList<AdventureResult> parseItems(final String results) {
@@ -335,53 +346,62 @@ public class ResultProcessor {
 
     Matcher effectMatcher = ResultProcessor.EFFECT_TABLE_PATTERN.matcher(results);
     while (effectMatcher.find()) {
-      String descId = effectMatcher.group(1);
-      // KoL bug: some Affirmations, at least, are reported with a leading space
-      String effectName = effectMatcher.group(3).trim();
-      int effectId = EffectDatabase.getEffectIdFromDescription(descId);
-
-      // If we don't know this effectId, it's an unknown effect
-      if (effectId == -1) {
-        effectId = EffectDatabase.learnEffectId(effectName, descId);
-      }
+      EffectToken token =
+          new EffectToken(
+              effectMatcher.group(1),
+              effectMatcher.group(2),
+              effectMatcher.group(3),
+              effectMatcher.group(4));
+      effects.add(ResultProcessor.processEffectTable(token));
+    }
 
-      // If the effect is "Blessing of the Bird", KoL changes
-      // it to "Blessing of the XXX", where XXX is today's bird
-      switch (effectId) {
-        case EffectPool.BLESSING_OF_THE_BIRD -> updateBird(
-            EffectPool.BLESSING_OF_THE_BIRD, effectName, "_birdOfTheDay");
-        case EffectPool.BLESSING_OF_YOUR_FAVORITE_BIRD -> updateBird(
-            EffectPool.BLESSING_OF_YOUR_FAVORITE_BIRD, effectName, "yourFavoriteBird");
-        case EffectPool.ENTAUNTAUNED,
-            EffectPool.BUZZED_ON_DISTILLATE,
-            EffectPool.WINE_FORTIFIED,
-            EffectPool.WINE_HOT,
-            EffectPool.WINE_FRISKY,
-            EffectPool.WINE_COLD,
-            EffectPool.WINE_FRIENDLY,
-            EffectPool.WINE_DARK,
-            EffectPool.WINE_BEFOULED -> DebugDatabase.readEffectDescriptionText(effectId);
-      }
+    return effects;
+  }
 
-      String acquisition = effectMatcher.group(2);
-      int duration = 0;
-
-      if (acquisition.startsWith("You lose an effect")
-          || acquisition.startsWith("You lose an intrinsic")) {
-        duration = 0;
-      } else if (acquisition.startsWith("You acquire an intrinsic")) {
-        duration = Integer.MAX_VALUE;
-      } else if (acquisition.contains("lose some of an effect")) {
-        duration = -StringUtilities.parseInt(effectMatcher.group(4));
-      } else {
-        duration = StringUtilities.parseInt(effectMatcher.group(4));
-      }
+  private static AdventureResult processEffectTable(final EffectToken token) {
+    String descId = token.descId();
+    // KoL bug: some Affirmations, at least, are reported with a leading space
+    String effectName = token.effectName().trim();
+    int effectId = EffectDatabase.getEffectIdFromDescription(descId);
+
+    // If we don't know this effectId, it's an unknown effect
+    if (effectId == -1) {
+      effectId = EffectDatabase.learnEffectId(effectName, descId);
+    }
+
+    // If the effect is "Blessing of the Bird", KoL changes
+    // it to "Blessing of the XXX", where XXX is today's bird
+    switch (effectId) {
+      case EffectPool.BLESSING_OF_THE_BIRD -> updateBird(
+          EffectPool.BLESSING_OF_THE_BIRD, effectName, "_birdOfTheDay");
+      case EffectPool.BLESSING_OF_YOUR_FAVORITE_BIRD -> updateBird(
+          EffectPool.BLESSING_OF_YOUR_FAVORITE_BIRD, effectName, "yourFavoriteBird");
+      case EffectPool.ENTAUNTAUNED,
+          EffectPool.BUZZED_ON_DISTILLATE,
+          EffectPool.WINE_FORTIFIED,
+          EffectPool.WINE_HOT,
+          EffectPool.WINE_FRISKY,
+          EffectPool.WINE_COLD,
+          EffectPool.WINE_FRIENDLY,
+          EffectPool.WINE_DARK,
+          EffectPool.WINE_BEFOULED -> DebugDatabase.readEffectDescriptionText(effectId);
+    }
+
+    String acquisition = token.acquisition();
+    int duration = 0;
 
-      AdventureResult effect = EffectPool.get(effectId, duration);
-      effects.add(effect);
+    if (acquisition.startsWith("You lose an effect")
+        || acquisition.startsWith("You lose an intrinsic")) {
+      duration = 0;
+    } else if (acquisition.startsWith("You acquire an intrinsic")) {
+      duration = Integer.MAX_VALUE;
+    } else if (acquisition.contains("lose some of an effect")) {
+      duration = -StringUtilities.parseInt(token.duration());
+    } else {
+      duration = StringUtilities.parseInt(token.duration());
     }
 
-    return effects;
+    return EffectPool.get(effectId, duration);
   }
 
   public static boolean processResults(boolean adventureResults, String results) {
@@ -395,6 +415,9 @@ public class ResultProcessor {
       RequestLogger.updateDebugLog("Processing results...");
     }
 
+    // One pass over the page finds the item and effect tables and the lines of text
+    ResultTokenizer.Tokens tokens = ResultTokenizer.scan(results);
+
     // If items are wrapped in a table with a "rel" string, that
     // precisely identifies what has been acquired.
     //
@@ -403,17 +426,23 @@ public class ResultProcessor {
     // Check multi-usability and plurals
 
     LinkedList<AdventureResult> items = new LinkedList<>();
-    results = ResultProcessor.processItems(adventureResults, results, items);
+    for (ItemToken token : tokens.items()) {
+      ResultProcessor.processItemTable(adventureResults, token, items);
+    }
 
     // Process effects similarly, saving them to a list of effects.
     // Register new effects.
 
-    LinkedList<AdventureResult> effects = ResultProcessor.parseEffects(results);
+    LinkedList<AdventureResult> effects = new LinkedList<>();
+    for (EffectToken token : tokens.effects()) {
+      effects.add(ResultProcessor.processEffectTable(token));
+    }
 
     boolean requiresRefresh = false;
 
     try {
-      requiresRefresh = processNormalResults(adventureResults, results, data, items, effects);
+      requiresRefresh =
+          processNormalResults(adventureResults, tokens.lines(), data, items, effects);
     } finally {
       if (data == null) {
         KoLmafia.applyEffects();
@@ -425,21 +454,20 @@ public class ResultProcessor {
 
   private static boolean processNormalResults(
       boolean adventureResults,
-      String results,
+      Deque<String> parsedResults,
       List<AdventureResult> data,
       LinkedList<AdventureResult> items,
       LinkedList<AdventureResult> effects) {
-    // Whacky, whacky KoL can insert <head> sections within the <body>
-    String body = KoLConstants.HEAD_PATTERN.matcher(results).replaceAll("");
-    String plainTextResult =
-        KoLConstants.ANYTAG_BUT_ITALIC_PATTERN.matcher(body).replaceAll(KoLConstants.LINE_BREAK);
 
     if (data == null) {
-      ResultProcessor.processFamiliarWeightGain(plainTextResult);
+      // No phrase spans a line, so looking line by line finds what the whole text would
+      for (String line : parsedResults) {
+        if (ResultProcessor.processFamiliarWeightGain(line)) {
+          break;
+        }
+      }
     }
 
-    LinkedList<String> parsedResults =
-        new LinkedList<>(Arrays.asList(plainTextResult.split(KoLConstants.LINE_BREAK)));
     boolean shouldRefresh = false;
 
     while (parsedResults.size() > 0) {
@@ -478,7 +506,7 @@ public class ResultProcessor {
 
   private static boolean processNextResult(
       boolean adventureResults,
-      LinkedList<String> parsedResults,
+      Deque<String> parsedResults,
       List<AdventureResult> data,
       LinkedList<AdventureResult> items,
       LinkedList<AdventureResult> effects) {
@@ -544,7 +572,7 @@ public class ResultProcessor {
 
   private static void processItem(
       boolean adventureResults,
-      LinkedList<String> parsedResults,
+      Deque<String> parsedResults,
       String acquisition,
       List<AdventureResult> data,
       LinkedList<AdventureResult> items) {
@@ -690,7 +718,7 @@ public class ResultProcessor {
   }
 
   private static boolean processEffect(
-      LinkedList<String> parsedResults,
+      Deque<String> parsedResults,
       String acquisition,
       List<AdventureResult> data,
       LinkedList<AdventureResult> effects) {
@@ -752,7 +780,7 @@ public class ResultProcessor {
   }
 
   private static boolean processIntrinsic(
-      LinkedList<String> parsedResults,
+      Deque<String> parsedResults,
       String acquisition,
       List<AdventureResult> data,
       LinkedList<AdventureResult> effects) {
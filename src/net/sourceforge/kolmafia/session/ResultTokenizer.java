@@ -0,0 +1,166 @@
+package net.sourceforge.kolmafia.session;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import net.sourceforge.kolmafia.KoLConstants;
+
+/**
+ * Splits the text of a response into what ResultProcessor reads results from, in one pass over the
+ * page: the item tables and effect tables it reports, and the lines of text. Every tag but an
+ * italic one ends a line, as does a line break in the text; tags themselves are dropped, as are
+ * any <head> sections KoL puts within the body.
+ *
+ * <p>Item and effect tables are those ResultProcessor.ITEM_TABLE_PATTERN and
+ * ResultProcessor.EFFECT_TABLE_PATTERN find. An item table with a comment, such as an item stored
+ * in Hagnk's or automatically equipped, is taken out of the page, so none of its text becomes
+ * lines.
+ *
+ * <p>The lines are the same as removing KoLConstants.HEAD_PATTERN, replacing
+ * KoLConstants.ANYTAG_BUT_ITALIC_PATTERN with a line break and splitting on line breaks, without
+ * building either intermediate copy of the page.
+ */
+public class ResultTokenizer {
+  private static final String ITEM_TABLE = "<table class=\"item\"";
+  private static final String EFFECT_TABLE = "<table><tr><td><img";
+
+  /** An item table, with any bold name and comment it gives after the item. */
+  public record ItemToken(
+      String relString, String itemName, String descId, String boldName, String comment) {}
+
+  /** An effect table, with its duration as text, or null if it has none. */
+  public record EffectToken(
+      String descId, String acquisition, String effectName, String duration) {}
+
+  public record Tokens(Deque<String> lines, List<ItemToken> items, List<EffectToken> effects) {}
+
+  private ResultTokenizer() {}
+
+  public static Deque<String> tokenize(final String text) {
+    return ResultTokenizer.scan(text).lines();
+  }
+
+  public static Tokens scan(String text) {
+    // Whacky, whacky KoL can insert <head> sections within the <body>. This is rare, and a
+    // section can hide what would otherwise be a tag, so it is removed before looking for tags.
+    if (text.contains("<head>")) {
+      text = KoLConstants.HEAD_PATTERN.matcher(text).replaceAll("");
+    }
+
+    Deque<String> lines = new ArrayDeque<>();
+    List<ItemToken> items = new ArrayList<>();
+    List<EffectToken> effects = new ArrayList<>();
+
+    Matcher itemMatcher = ResultProcessor.ITEM_TABLE_PATTERN.matcher(text);
+    Matcher effectMatcher = ResultProcessor.EFFECT_TABLE_PATTERN.matcher(text);
+    // As with Matcher.find, a table is only looked for after the end of the one before it
+    int itemEnd = 0;
+    int effectEnd = 0;
+
+    // Text of the current line from before an item table taken out of the page
+    StringBuilder prefix = new StringBuilder();
+
+    String lineBreak = KoLConstants.LINE_BREAK;
+    int length = text.length();
+    int start = 0;
+    int index = 0;
+
+    while (index < length) {
+      char c = text.charAt(index);
+
+      if (c == '<') {
+        if (index >= itemEnd
+            && text.startsWith(ITEM_TABLE, index)
+            && itemMatcher.region(index, length).lookingAt()) {
+          ItemToken item = ResultTokenizer.itemToken(itemMatcher);
+          items.add(item);
+          itemEnd = itemMatcher.end();
+          if (item.comment() != null) {
+            prefix.append(text, start, index);
+            start = index = itemEnd;
+            continue;
+          }
+        }
+
+        if (index >= effectEnd
+            && text.startsWith(EFFECT_TABLE, index)
+            && effectMatcher.region(index, length).lookingAt()) {
+          effects.add(
+              new EffectToken(
+                  effectMatcher.group(1),
+                  effectMatcher.group(2),
+                  effectMatcher.group(3),
+                  effectMatcher.group(4)));
+          effectEnd = effectMatcher.end();
+        }
+
+        int end = ResultTokenizer.tagEnd(text, index);
+        if (end != -1) {
+          lines.add(ResultTokenizer.line(prefix, text, start, index));
+          start = index = end;
+          continue;
+        }
+      } else if (c == lineBreak.charAt(0) && text.startsWith(lineBreak, index)) {
+        lines.add(ResultTokenizer.line(prefix, text, start, index));
+        start = index = index + lineBreak.length();
+        continue;
+      }
+
+      ++index;
+    }
+
+    boolean split = !lines.isEmpty();
+    lines.add(ResultTokenizer.line(prefix, text, start, length));
+
+    // As with String.split, trailing empty lines are dropped, unless nothing split the text
+    while (split && !lines.isEmpty() && lines.getLast().isEmpty()) {
+      lines.removeLast();
+    }
+
+    return new Tokens(lines, items, effects);
+  }
+
+  /** Returns an item table matched by ResultProcessor.ITEM_TABLE_PATTERN. */
+  public static ItemToken itemToken(final Matcher itemMatcher) {
+    Matcher boldMatcher = ResultProcessor.BOLD_NAME_PATTERN.matcher(itemMatcher.group(0));
+    String boldName = boldMatcher.find() ? boldMatcher.group(1).trim() : null;
+    String comment = boldName != null ? boldMatcher.group(2) : null;
+    return new ItemToken(
+        itemMatcher.group(1), itemMatcher.group(2).trim(), itemMatcher.group(3), boldName, comment);
+  }
+
+  private static String line(
+      final StringBuilder prefix, final String text, final int start, final int end) {
+    if (prefix.isEmpty()) {
+      return text.substring(start, end);
+    }
+    String line = prefix.append(text, start, end).toString();
+    prefix.setLength(0);
+    return line;
+  }
+
+  /**
+   * Returns the index just past the tag that opens at index, or -1 if no tag opens there: italic
+   * tags are kept as text, and a tag must close before the end of its line.
+   */
+  private static int tagEnd(final String text, final int index) {
+    if (text.startsWith("i>", index + 1) || text.startsWith("/i>", index + 1)) {
+      return -1;
+    }
+
+    int length = text.length();
+    for (int i = index + 1; i < length; ++i) {
+      char c = text.charAt(i);
+      if (c == '>') {
+        return i + 1;
+      }
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return -1;
+      }
+    }
+
+    return -1;
+  }
+}
@@ -55,6 +55,10 @@ public class AshRuntime extends AbstractRuntime {
 
   public static final int STACK_LIMIT = 10;
 
+  // Locals of the user-defined function being executed, indexed by Variable slot.
+  private Value[] locals = NO_LOCALS;
+  private static final Value[] NO_LOCALS = new Value[0];
+
   public AshRuntime() {
     this.parser = new Parser();
     this.scope = new Scope(new VariableList(), Parser.getExistingFunctionScope());
@@ -339,6 +343,37 @@ public class AshRuntime extends AbstractRuntime {
     }
   }
 
+  // ************** Locals ***************
+
+  /** Start a frame of locals for a function call, returning the caller's frame. */
+  public Value[] enterLocals(final int size) {
+    Value[] caller = this.locals;
+    this.locals = size == 0 ? NO_LOCALS : new Value[size];
+    return caller;
+  }
+
+  public void exitLocals(final Value[] caller) {
+    this.locals = caller;
+  }
+
+  /** Returns the local in a slot of the current frame, or null if it has not been set. */
+  public Value getLocal(final int slot) {
+    return this.frameFor(slot)[slot];
+  }
+
+  public void setLocal(final int slot, final Value value) {
+    this.frameFor(slot)[slot] = value;
+  }
+
+  private Value[] frameFor(final int slot) {
+    Value[] frame = this.locals;
+    if (slot >= frame.length) {
+      throw this.runtimeException(
+          "Internal error: Local variable slot " + slot + " is outside the current frame");
+    }
+    return frame;
+  }
+
   // ************** Call  Stack ***************
 
   public static class CallFrame {
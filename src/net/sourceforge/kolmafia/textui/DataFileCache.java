@@ -7,30 +7,58 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collections;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import net.java.dev.spellcast.utilities.DataUtilities;
 import net.sourceforge.kolmafia.KoLConstants;
 import net.sourceforge.kolmafia.KoLmafia;
-import net.sourceforge.kolmafia.RequestLogger;
+import net.sourceforge.kolmafia.preferences.Preferences;
 import net.sourceforge.kolmafia.textui.parsetree.Value;
 import net.sourceforge.kolmafia.utilities.ByteBufferUtilities;
-import net.sourceforge.kolmafia.utilities.RollingLinkedList;
 
+/**
+ * The contents of the data files scripts read and write, cached until the file changes.
+ *
+ * <p>Files are cached on the heap up to the byte budget set by dataFileCacheSize, evicting the
+ * least recently used first. Large files are instead mapped into memory, so reading them does not
+ * copy them onto the heap; the mapping is cached and reread straight from the page cache.
+ */
 public class DataFileCache {
-  private static final RollingLinkedList<String> recentlyUsedList = new RollingLinkedList<>(500);
-  private static final Map<String, Long> dataFileTimestampCache =
-      Collections.synchronizedMap(new HashMap<>());
-  private static final Map<String, byte[]> dataFileDataCache =
-      Collections.synchronizedMap(new HashMap<>());
+  // Files at least this large are mapped rather than read onto the heap
+  private static final long MAP_THRESHOLD = 1024 * 1024;
+  private static final int MAX_FILES = 500;
+
+  // Windows will not let a mapped file be rewritten until the mapping is garbage collected, which
+  // would stop scripts from rewriting a data file they have just read
+  private static final boolean MAP_FILES = !System.getProperty("os.name").startsWith("Windows");
+
+  private record CachedFile(long modifiedTime, byte[] data, MappedByteBuffer mapped) {
+    int heapBytes() {
+      return this.data == null ? 0 : this.data.length;
+    }
+
+    ByteBuffer contents() {
+      return this.data != null ? ByteBuffer.wrap(this.data) : this.mapped.duplicate();
+    }
+  }
+
+  // In order of use, least recently used first
+  private static final Map<String, CachedFile> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private static long cachedBytes = 0;
+  private static long hits = 0;
+  private static long misses = 0;
+  private static long evictions = 0;
 
   private DataFileCache() {}
 
-  public static void clearCache() {
-    DataFileCache.recentlyUsedList.clear();
-    DataFileCache.dataFileTimestampCache.clear();
-    DataFileCache.dataFileDataCache.clear();
+  public static synchronized void clearCache() {
+    DataFileCache.cache.clear();
+    DataFileCache.cachedBytes = 0;
   }
 
   public static File getFile(String filename, boolean readOnly) {
@@ -139,27 +167,58 @@ public class DataFileCache {
     if (filename.startsWith("http://") || filename.startsWith("https://")) {
       return DataUtilities.getReader("", filename);
     }
-    byte[] data = DataFileCache.getBytes(filename);
 
-    return DataUtilities.getReader(new ByteArrayInputStream(data));
+    ByteBuffer contents = DataFileCache.getContents(filename);
+    return DataUtilities.getReader(new ByteBufferInputStream(contents));
   }
 
   public static byte[] getBytes(final String filename) {
+    ByteBuffer contents = DataFileCache.getContents(filename);
+    if (contents.hasArray()) {
+      return contents.array();
+    }
+
+    // Copy a mapped file onto the heap only for callers which need an array
+    byte[] data = new byte[contents.remaining()];
+    contents.get(data);
+    return data;
+  }
+
+  /**
+   * Returns the contents of a file, read from the cache if the file has not changed since it was
+   * cached. The buffer is the caller's own, so reading it does not disturb anyone else's.
+   */
+  private static ByteBuffer getContents(final String filename) {
     File input = DataFileCache.getFile(filename, true);
 
     if (input == null) {
-      return new byte[0];
+      return ByteBuffer.wrap(new byte[0]);
     }
 
-    String sanitizedFilename =
-        input.getPath().substring(KoLConstants.ROOT_LOCATION.getPath().length() + 1);
-
+    String sanitizedFilename = DataFileCache.sanitizeFilename(input);
     long modifiedTime = input.lastModified();
 
-    Long cacheModifiedTime = dataFileTimestampCache.get(sanitizedFilename);
+    CachedFile cached = DataFileCache.lookup(sanitizedFilename, modifiedTime);
+    if (cached == null) {
+      cached = DataFileCache.load(input, sanitizedFilename, modifiedTime);
+      DataFileCache.updateCache(sanitizedFilename, cached);
+    }
+
+    return cached.contents();
+  }
 
-    if (cacheModifiedTime != null && cacheModifiedTime == modifiedTime) {
-      return dataFileDataCache.get(sanitizedFilename);
+  private static String sanitizeFilename(final File file) {
+    return file.getPath().substring(KoLConstants.ROOT_LOCATION.getPath().length() + 1);
+  }
+
+  private static CachedFile load(final File input, final String filename, final long modifiedTime) {
+    if (DataFileCache.MAP_FILES && input.length() >= DataFileCache.MAP_THRESHOLD) {
+      try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        return new CachedFile(modifiedTime, null, mapped);
+      } catch (IOException e) {
+        // Read it onto the heap instead
+      }
     }
 
     InputStream istream = null;
@@ -172,22 +231,11 @@ public class DataFileCache {
     }
 
     if (istream == null) {
-      istream = DataUtilities.getInputStream("", sanitizedFilename);
+      istream = DataUtilities.getInputStream("", filename);
     }
 
     byte[] data = ByteBufferUtilities.read(istream);
-    if (data == null) {
-      // This check is here because a NPE was being thrown intermittently and data was the most
-      // likely candidate.
-      // If the cause was a lack of synchronization then this message should never be displayed.  If
-      // it is displayed
-      // then the hypothesis about synchronization (or the fix) was incorrect.  In any event we want
-      // to see this
-      // message and the NPE if data is null.
-      RequestLogger.printLine("getBytes returning null for file " + sanitizedFilename + ".");
-    }
-    DataFileCache.updateCache(sanitizedFilename, modifiedTime, data);
-    return data;
+    return new CachedFile(modifiedTime, data, null);
   }
 
   public static Value printBytes(final String filename, final byte[] data) {
@@ -210,25 +258,137 @@ public class DataFileCache {
       }
     }
 
+    // Forget the old contents first, so nothing reads a mapping of the file as it is rewritten
+    String sanitizedFilename = DataFileCache.sanitizeFilename(output);
+    DataFileCache.invalidate(sanitizedFilename);
+
     try (FileOutputStream ostream = new FileOutputStream(output, false)) {
       ostream.write(data);
     } catch (Exception e) {
       return DataTypes.FALSE_VALUE;
     }
 
-    DataFileCache.updateCache(filename, output.lastModified(), data);
+    if (data.length < DataFileCache.MAP_THRESHOLD) {
+      DataFileCache.updateCache(
+          sanitizedFilename, new CachedFile(output.lastModified(), data, null));
+    }
     return DataTypes.TRUE_VALUE;
   }
 
-  private static void updateCache(String filename, long modifiedTime, byte[] data) {
-    String recentlyUsedCheck = DataFileCache.recentlyUsedList.update(filename);
+  private static synchronized CachedFile lookup(final String filename, final long modifiedTime) {
+    CachedFile cached = DataFileCache.cache.get(filename);
+    if (cached != null && cached.modifiedTime() == modifiedTime) {
+      DataFileCache.hits++;
+      return cached;
+    }
 
-    if (recentlyUsedCheck != null) {
-      DataFileCache.dataFileTimestampCache.remove(filename);
-      DataFileCache.dataFileDataCache.remove(filename);
+    DataFileCache.misses++;
+    return null;
+  }
+
+  private static synchronized void updateCache(final String filename, final CachedFile file) {
+    DataFileCache.invalidate(filename);
+
+    // A file too large for the cache would only push everything else out
+    if (file.heapBytes() > Preferences.getInteger("dataFileCacheSize")) {
+      return;
     }
 
-    DataFileCache.dataFileTimestampCache.put(filename, modifiedTime);
-    DataFileCache.dataFileDataCache.put(filename, data);
+    DataFileCache.cache.put(filename, file);
+    DataFileCache.cachedBytes += file.heapBytes();
+    DataFileCache.evict();
+  }
+
+  private static synchronized void invalidate(final String filename) {
+    CachedFile old = DataFileCache.cache.remove(filename);
+    if (old != null) {
+      DataFileCache.cachedBytes -= old.heapBytes();
+    }
+  }
+
+  private static void evict() {
+    long limit = Preferences.getInteger("dataFileCacheSize");
+    Iterator<CachedFile> files = DataFileCache.cache.values().iterator();
+
+    while ((DataFileCache.cachedBytes > limit
+            || DataFileCache.cache.size() > DataFileCache.MAX_FILES)
+        && files.hasNext()) {
+      CachedFile file = files.next();
+      files.remove();
+      DataFileCache.cachedBytes -= file.heapBytes();
+      DataFileCache.evictions++;
+    }
+  }
+
+  public static synchronized long getHits() {
+    return DataFileCache.hits;
+  }
+
+  public static synchronized long getMisses() {
+    return DataFileCache.misses;
+  }
+
+  public static synchronized long getEvictions() {
+    return DataFileCache.evictions;
+  }
+
+  public static synchronized long getCachedBytes() {
+    return DataFileCache.cachedBytes;
+  }
+
+  public static synchronized String getStatistics() {
+    return DataFileCache.cache.size()
+        + " files cached ("
+        + DataFileCache.cachedBytes
+        + " bytes on the heap), "
+        + DataFileCache.hits
+        + " hits, "
+        + DataFileCache.misses
+        + " misses, "
+        + DataFileCache.evictions
+        + " evictions";
+  }
+
+  /** Reads a buffer as a stream, so a mapped file can be read without copying it to the heap. */
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(final ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+      } catch (InternalError e) {
+        // Reading a mapping of a file something else has truncated
+        throw new IOException(e);
+      }
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+
+      int count = Math.min(length, this.buffer.remaining());
+      if (count == 0) {
+        return -1;
+      }
+
+      try {
+        this.buffer.get(bytes, offset, count);
+      } catch (InternalError e) {
+        throw new IOException(e);
+      }
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return this.buffer.remaining();
+    }
   }
 }
@@ -3,11 +3,12 @@ package net.sourceforge.kolmafia.textui.command;
 import net.sourceforge.kolmafia.RequestLogger;
 import net.sourceforge.kolmafia.preferences.Preferences;
 import net.sourceforge.kolmafia.request.RelayRequest;
+import net.sourceforge.kolmafia.textui.DataFileCache;
 import net.sourceforge.kolmafia.utilities.StringUtilities;
 
 public class CacheCommand extends AbstractCommand {
   public CacheCommand() {
-    this.usage = "[clear] - get image cache status or clear cache.";
+    this.usage = "[clear] - get image and data file cache status or clear image cache.";
   }
 
   @Override
@@ -22,6 +23,7 @@ public class CacheCommand extends AbstractCommand {
       } else {
         RequestLogger.printLine("Image cache last cleared on " + StringUtilities.formatDate(date));
       }
+      RequestLogger.printLine("Data file cache: " + DataFileCache.getStatistics() + ".");
       return;
     }
 
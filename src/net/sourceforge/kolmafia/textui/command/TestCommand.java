@@ -7,18 +7,22 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import net.java.dev.spellcast.utilities.DataUtilities;
 import net.sourceforge.kolmafia.AdventureResult;
+import net.sourceforge.kolmafia.EvaluationContext;
 import net.sourceforge.kolmafia.FamiliarData;
 import net.sourceforge.kolmafia.KoLAdventure;
 import net.sourceforge.kolmafia.KoLCharacter;
 import net.sourceforge.kolmafia.KoLConstants;
 import net.sourceforge.kolmafia.KoLConstants.MafiaState;
 import net.sourceforge.kolmafia.KoLmafia;
+import net.sourceforge.kolmafia.ModifierExpression;
 import net.sourceforge.kolmafia.ModifierType;
+import net.sourceforge.kolmafia.Modifiers;
 import net.sourceforge.kolmafia.MonsterData;
 import net.sourceforge.kolmafia.RequestEditorKit;
 import net.sourceforge.kolmafia.RequestLogger;
@@ -31,6 +35,7 @@ import net.sourceforge.kolmafia.chat.ChatPoller;
 import net.sourceforge.kolmafia.combat.CombatUtilities;
 import net.sourceforge.kolmafia.combat.MonsterStatusTracker;
 import net.sourceforge.kolmafia.modifiers.DoubleModifier;
+import net.sourceforge.kolmafia.modifiers.Lookup;
 import net.sourceforge.kolmafia.modifiers.StringModifier;
 import net.sourceforge.kolmafia.moods.RecoveryManager;
 import net.sourceforge.kolmafia.objectpool.Concoction;
@@ -106,6 +111,45 @@ public class TestCommand extends AbstractCommand {
     }
   }
 
+  private static double evaluate(
+      final ModifierExpression expr, final EvaluationContext context, final boolean compiled) {
+    try {
+      return compiled ? expr.evalInternal(context) : expr.interpret(context);
+    } catch (RuntimeException e) {
+      return Double.NaN;
+    }
+  }
+
+  private static void checkExpressions() {
+    List<ModifierExpression> expressions = new ArrayList<>();
+    for (Lookup lookup : ModifierDatabase.getAllModifiers()) {
+      Modifiers mods = ModifierDatabase.getModifiers(lookup);
+      if (mods != null) {
+        expressions.addAll(mods.getExpressions());
+      }
+    }
+
+    EvaluationContext context = EvaluationContext.current();
+    int compiled = 0;
+    int mismatches = 0;
+    for (ModifierExpression expr : expressions) {
+      if (expr.isCompiled()) {
+        ++compiled;
+      }
+      if (Double.compare(evaluate(expr, context, true), evaluate(expr, context, false)) != 0) {
+        ++mismatches;
+      }
+    }
+
+    RequestLogger.printLine(
+        expressions.size()
+            + " expressions, "
+            + compiled
+            + " compiled, "
+            + mismatches
+            + " evaluated differently.");
+  }
+
   private static Frame findFrame(final Class<?> type) {
     for (Frame frame : Frame.getFrames()) {
       if (frame.getClass() == type) {
@@ -320,6 +364,11 @@ public class TestCommand extends AbstractCommand {
       return;
     }
 
+    if (command.equals("expressions")) {
+      TestCommand.checkExpressions();
+      return;
+    }
+
     if (command.equals("fairy")) {
       FamiliarData familiar = KoLCharacter.getFamiliar();
       if (split.length >= 2) {
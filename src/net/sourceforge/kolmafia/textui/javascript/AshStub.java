@@ -29,6 +29,10 @@ public abstract class AshStub extends BaseFunction {
     this.ashFunctionName = ashFunctionName;
   }
 
+  protected ScriptRuntime getController() {
+    return controller;
+  }
+
   @Override
   public String getFunctionName() {
     return JavascriptRuntime.toCamelCase(ashFunctionName);
@@ -64,6 +68,7 @@ public abstract class AshStub extends BaseFunction {
   public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
     JavascriptRuntime.checkInterrupted();
 
+    ScriptRuntime runtime = getController();
     ValueConverter coercer = new ValueConverter(cx, scope);
 
     // Find library function matching arguments, in two stages.
@@ -79,7 +84,7 @@ public abstract class AshStub extends BaseFunction {
     Function function = findMatchingFunction(ashArgs);
 
     if (function == null) {
-      throw controller.runtimeException(Parser.undefinedFunctionMessage(ashFunctionName, ashArgs));
+      throw runtime.runtimeException(Parser.undefinedFunctionMessage(ashFunctionName, ashArgs));
     }
 
     // Second, infer the type for any missing arguments from the closest function match.
@@ -90,14 +95,14 @@ public abstract class AshStub extends BaseFunction {
         // Try again, this time with a type hint.
         coerced = coercer.fromJava(original, function.getVariableReferences().get(i).getType());
         if (coerced == null) {
-          throw controller.runtimeException("Could not coerce argument to valid ASH value.");
+          throw runtime.runtimeException("Could not coerce argument to valid ASH value.");
         }
       }
     }
     function = findMatchingFunction(ashArgs);
 
     if (function == null) {
-      throw controller.runtimeException(Parser.undefinedFunctionMessage(ashFunctionName, ashArgs));
+      throw runtime.runtimeException(Parser.undefinedFunctionMessage(ashFunctionName, ashArgs));
     }
 
     Value ashReturnValue = execute(function, ashArgs);
@@ -106,7 +111,7 @@ public abstract class AshStub extends BaseFunction {
     // capturing the return
     // value of those functions. In JavaScript we don't want this behaviour at all
     if (!KoLmafia.refusesContinue() && ashReturnValue != null) {
-      this.controller.setState(ScriptRuntime.State.NORMAL);
+      runtime.setState(ScriptRuntime.State.NORMAL);
       KoLmafia.forceContinue();
     }
 
@@ -122,7 +127,7 @@ public abstract class AshStub extends BaseFunction {
     }
 
     if (returnValue instanceof NativeJavaObject) {
-      throw controller.runtimeException("ASH function returned native Java object.");
+      throw runtime.runtimeException("ASH function returned native Java object.");
     }
 
     return returnValue;
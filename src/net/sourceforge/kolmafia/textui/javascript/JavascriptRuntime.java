@@ -46,6 +46,12 @@ public class JavascriptRuntime extends AbstractRuntime {
   static final Set<JavascriptRuntime> runningRuntimes = ConcurrentHashMap.newKeySet();
   static final ContextFactory contextFactory = new ObservingContextFactory();
 
+  // The runtime library is shared, so its stubs find the runtime calling them here.
+  private static final ThreadLocal<JavascriptRuntime> currentRuntime = new ThreadLocal<>();
+
+  private static ScriptableObject sharedFileScope = null;
+  private static ScriptableObject sharedCommandScope = null;
+
   private File scriptFile = null;
   private String scriptString = null;
 
@@ -110,11 +116,12 @@ public class JavascriptRuntime extends AbstractRuntime {
     return functions;
   }
 
-  private Scriptable initRuntimeLibrary(Context cx, Scriptable scope, boolean addToTopScope) {
+  private static ScriptableObject initRuntimeLibrary(
+      Context cx, Scriptable scope, boolean addToTopScope) {
     Set<String> uniqueFunctionNames =
         getFunctions().stream().map(Symbol::getName).collect(Collectors.toCollection(TreeSet::new));
 
-    Scriptable stdLib = cx.newObject(scope);
+    ScriptableObject stdLib = (ScriptableObject) cx.newObject(scope);
     int permanentReadOnly = ScriptableObject.PERMANENT | ScriptableObject.READONLY;
 
     for (String libraryFunctionName : uniqueFunctionNames) {
@@ -123,14 +130,14 @@ public class JavascriptRuntime extends AbstractRuntime {
           stdLib,
           jsName,
           new LibraryFunctionStub(
-              stdLib, ScriptableObject.getFunctionPrototype(stdLib), this, libraryFunctionName),
+              stdLib, ScriptableObject.getFunctionPrototype(stdLib), libraryFunctionName),
           permanentReadOnly);
       if (addToTopScope) {
         ScriptableObject.defineProperty(
             scope,
             jsName,
             new LibraryFunctionStub(
-                scope, ScriptableObject.getFunctionPrototype(scope), this, libraryFunctionName),
+                scope, ScriptableObject.getFunctionPrototype(scope), libraryFunctionName),
             ScriptableObject.DONTENUM);
       }
     }
@@ -165,17 +172,69 @@ public class JavascriptRuntime extends AbstractRuntime {
     }
   }
 
+  /**
+   * Returns the scope holding the runtime library and the enumerated types. These are the same for
+   * every script, so they are built once and sealed, and every execution's top scope uses this
+   * scope as its prototype. Scripts run from the gCLI also get the runtime library in their top
+   * scope, so they have a scope of their own.
+   *
+   * <p>Each execution has its own standard objects, which scripts are free to extend. The ones in
+   * this scope are only seen through the library functions and enumerated types, so they are
+   * sealed too, to stop one script changing them for the next.
+   */
+  private static synchronized Scriptable getSharedScope(Context cx, boolean addToTopScope) {
+    ScriptableObject scope = addToTopScope ? sharedCommandScope : sharedFileScope;
+    if (scope != null) {
+      return scope;
+    }
+
+    scope = cx.initSafeStandardObjects(null, true);
+    ScriptableObject stdLib = initRuntimeLibrary(cx, scope, addToTopScope);
+    initEnumeratedTypes(cx, scope, stdLib);
+    stdLib.sealObject();
+    scope.sealObject();
+
+    if (addToTopScope) {
+      sharedCommandScope = scope;
+    } else {
+      sharedFileScope = scope;
+    }
+    return scope;
+  }
+
+  static JavascriptRuntime getCurrentRuntime() {
+    return currentRuntime.get();
+  }
+
   @Override
   public Value execute(
       final String functionName, final Object[] arguments, final boolean executeTopLevel) {
-    if (!executeTopLevel) {
-      if (currentTopScope == null) {
-        throw new ScriptException(
-            "Cannot run with executeTopLevel = false without running once first.");
-      }
-      return executeRun(functionName, arguments, false);
+    return runAsCurrent(
+        () -> {
+          if (!executeTopLevel) {
+            if (currentTopScope == null) {
+              throw new ScriptException(
+                  "Cannot run with executeTopLevel = false without running once first.");
+            }
+            return executeRun(functionName, arguments, false);
+          }
+
+          return executeTopLevel(functionName, arguments);
+        });
+  }
+
+  // Library functions called from here, on this thread, are run by this runtime
+  private <T> T runAsCurrent(final Supplier<T> action) {
+    JavascriptRuntime caller = currentRuntime.get();
+    currentRuntime.set(this);
+    try {
+      return action.get();
+    } finally {
+      currentRuntime.set(caller);
     }
+  }
 
+  private Value executeTopLevel(final String functionName, final Object[] arguments) {
     // TODO: Support for requesting user arguments if missing.
     Context cx = contextFactory.enterContext();
 
@@ -183,15 +242,14 @@ public class JavascriptRuntime extends AbstractRuntime {
     cx.setOptimizationLevel(1);
     runningRuntimes.add(this);
 
-    // TODO: Use a shared parent scope and initialize this with that as a prototype.
-    // But be careful. May mess up our EnumeratedWrapper registries.
-    Scriptable scope = cx.initSafeStandardObjects();
-    currentTopScope = scope;
-
     try {
       // If executing from GCLI (and not file), add std lib to top scope.
-      currentStdLib = initRuntimeLibrary(cx, scope, scriptFile == null);
-      initEnumeratedTypes(cx, scope, currentStdLib);
+      Scriptable sharedScope = getSharedScope(cx, scriptFile == null);
+      Scriptable scope = cx.initSafeStandardObjects();
+      scope.setPrototype(sharedScope);
+      currentTopScope = scope;
+      currentStdLib =
+          (Scriptable) ScriptableObject.getProperty(sharedScope, DEFAULT_RUNTIME_LIBRARY_NAME);
 
       setState(State.NORMAL);
       if (ScriptRuntime.hasTopCall(cx)) {
@@ -207,7 +265,6 @@ public class JavascriptRuntime extends AbstractRuntime {
                 false);
       }
     } finally {
-      EnumeratedWrapper.cleanup(scope);
       currentTopScope = null;
       runningRuntimes.remove(this);
       Context.exit();
@@ -221,7 +278,9 @@ public class JavascriptRuntime extends AbstractRuntime {
     boolean stackOnAbort = Preferences.getBoolean("printStackOnAbort");
 
     try {
-      returnValue = callback.get();
+      // A callback such as a combat filter may be run after the script has returned, or from
+      // another thread, so make sure its library calls find this runtime.
+      returnValue = runAsCurrent(callback);
     } catch (WrappedException e) {
       Throwable unwrapped = e.getWrappedException();
       if (unwrapped instanceof ScriptException) {
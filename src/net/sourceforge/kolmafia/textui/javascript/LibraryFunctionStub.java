@@ -6,6 +6,7 @@ import net.sourceforge.kolmafia.combat.Macrofier;
 import net.sourceforge.kolmafia.textui.DataTypes;
 import net.sourceforge.kolmafia.textui.Parser;
 import net.sourceforge.kolmafia.textui.RuntimeLibrary;
+import net.sourceforge.kolmafia.textui.ScriptException;
 import net.sourceforge.kolmafia.textui.ScriptRuntime;
 import net.sourceforge.kolmafia.textui.parsetree.Function;
 import net.sourceforge.kolmafia.textui.parsetree.FunctionList;
@@ -21,9 +22,20 @@ public class LibraryFunctionStub extends AshStub {
 
   private final List<String> bufferFunctions = List.of("buffer_to_file", "write_ccs");
 
-  public LibraryFunctionStub(
-      Scriptable scope, Scriptable prototype, ScriptRuntime controller, String ashFunctionName) {
-    super(scope, prototype, controller, ashFunctionName);
+  public LibraryFunctionStub(Scriptable scope, Scriptable prototype, String ashFunctionName) {
+    super(scope, prototype, null, ashFunctionName);
+  }
+
+  // The runtime library is shared by every JavascriptRuntime, so the calling runtime is looked up
+  // on each call.
+  @Override
+  protected ScriptRuntime getController() {
+    ScriptRuntime runtime = JavascriptRuntime.getCurrentRuntime();
+    if (runtime == null) {
+      throw new ScriptException(
+          "Cannot call " + getFunctionName() + " outside of a running JavaScript script.");
+    }
+    return runtime;
   }
 
   @Override
@@ -33,6 +45,7 @@ public class LibraryFunctionStub extends AshStub {
 
   @Override
   protected Value execute(Function function, List<Value> ashArgs) {
+    ScriptRuntime controller = getController();
     LibraryFunction ashFunction;
     if (function instanceof LibraryFunction) {
       ashFunction = (LibraryFunction) function;
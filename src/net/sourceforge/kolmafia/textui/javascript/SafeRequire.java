@@ -17,27 +17,31 @@ import net.sourceforge.kolmafia.textui.parsetree.UserDefinedFunction;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.commonjs.module.ModuleScriptProvider;
 import org.mozilla.javascript.commonjs.module.Require;
+import org.mozilla.javascript.commonjs.module.provider.DefaultUrlConnectionExpiryCalculator;
 import org.mozilla.javascript.commonjs.module.provider.SoftCachingModuleScriptProvider;
 import org.mozilla.javascript.commonjs.module.provider.UrlModuleSourceProvider;
 
 public class SafeRequire extends Require {
   private static final long serialVersionUID = 1L;
 
+  // Compiled modules are kept between runs. Cached sources expire at once, so before a module is
+  // reused, the source provider compares its file's modification time with the one it was
+  // compiled from, and recompiles it if changed.
+  private static final ModuleScriptProvider moduleScriptProvider =
+      new SoftCachingModuleScriptProvider(
+          new UrlModuleSourceProvider(
+              Arrays.asList(
+                  KoLConstants.ROOT_LOCATION.toURI(), KoLConstants.SCRIPT_LOCATION.toURI()),
+              null,
+              new DefaultUrlConnectionExpiryCalculator(0),
+              null));
+
   private final Scriptable stdLib;
 
   public SafeRequire(Context cx, Scriptable nativeScope, Scriptable stdLib) {
-    super(
-        cx,
-        nativeScope,
-        new SoftCachingModuleScriptProvider(
-            new UrlModuleSourceProvider(
-                Arrays.asList(
-                    KoLConstants.ROOT_LOCATION.toURI(), KoLConstants.SCRIPT_LOCATION.toURI()),
-                null)),
-        null,
-        new MainWarningScript(),
-        true);
+    super(cx, nativeScope, moduleScriptProvider, null, new MainWarningScript(), true);
     this.stdLib = stdLib;
   }
 
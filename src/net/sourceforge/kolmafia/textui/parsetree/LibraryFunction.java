@@ -1,6 +1,8 @@
 package net.sourceforge.kolmafia.textui.parsetree;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.Arrays;
@@ -16,8 +18,16 @@ import net.sourceforge.kolmafia.textui.ScriptRuntime;
 
 public class LibraryFunction extends Function {
   private Method method;
+  // The method, bound once when the function is registered so that calls need no reflection. The
+  // handle takes and returns Objects, so calls with up to MAX_EXACT_ARITY parameters can use
+  // invokeExact with the values as they are; longer ones go through the spreader.
+  private MethodHandle handle;
+  private MethodHandle spreader;
+  private boolean hasVarArgs;
   public String[] deprecationWarning;
 
+  private static final int MAX_EXACT_ARITY = 5;
+
   public LibraryFunction(
       final String name, final Type type, final Type[] params, final String... deprecationWarning) {
     super(name.toLowerCase(), type);
@@ -34,10 +44,18 @@ public class LibraryFunction extends Function {
       Variable variable = new Variable(params[i - 1]);
       this.variableReferences.add(new VariableReference(null, variable));
       args[i] = Value.class;
+      this.hasVarArgs |= params[i - 1] instanceof VarArgType;
     }
 
     try {
       this.method = RuntimeLibrary.findMethod(name, args);
+      this.handle =
+          MethodHandles.publicLookup()
+              .unreflect(this.method)
+              .asType(MethodType.genericMethodType(args.length));
+      if (params.length > MAX_EXACT_ARITY) {
+        this.spreader = this.handle.asSpreader(Object[].class, args.length);
+      }
     } catch (Exception e) {
       // This should not happen; it denotes a coding
       // error that must be fixed before release.
@@ -66,27 +84,11 @@ public class LibraryFunction extends Function {
       throw interpreter.runtimeException("Internal error: no method for " + this.getName());
     }
 
-    try {
-      // Bind values to variable references.
-      // Collapse values into VarArgs array
-      values = this.bindVariableReferences(interpreter, values);
-
-      // Invoke the method
-      return (Value) this.method.invoke(this, values);
-    } catch (InvocationTargetException e) {
-      // This is an error in the called method. Pass
-      // it on up so that we'll print a stack trace.
+    // Bind values to variable references.
+    // Collapse values into VarArgs array
+    values = this.bindVariableReferences(interpreter, values);
 
-      Throwable cause = e.getCause();
-      if (cause instanceof ScriptException) {
-        // Pass up exceptions intentionally generated by library
-        throw (ScriptException) cause;
-      }
-      throw new RuntimeException(cause);
-    } catch (IllegalAccessException e) {
-      // This is not expected, but is an internal error in ASH
-      throw new ScriptException(e);
-    }
+    return this.invoke(values);
   }
 
   // This is necessary for calls into the runtime library from other languages.
@@ -100,25 +102,49 @@ public class LibraryFunction extends Function {
       throw controller.runtimeException("Internal error: no method for " + this.getName());
     }
 
-    try {
-      // Collapse values into VarArgs array
-      values = this.bindVariableReferences(null, values);
+    // Collapse values into VarArgs array
+    values = this.bindVariableReferences(null, values);
 
-      // Invoke the method
-      return (Value) this.method.invoke(this, values);
-    } catch (InvocationTargetException e) {
-      // This is an error in the called method. Pass
-      // it on up so that we'll print a stack trace.
+    return this.invoke(values);
+  }
 
-      Throwable cause = e.getCause();
-      if (cause instanceof ScriptException) {
-        // Pass up exceptions intentionally generated by library
-        throw (ScriptException) cause;
+  @Override
+  public Object[] bindVariableReferences(AshRuntime interpreter, Object[] values) {
+    if (this.hasVarArgs || values.length != this.variableReferences.size() + 1) {
+      return super.bindVariableReferences(interpreter, values);
+    }
+
+    // Without varargs there is nothing to collapse, so the values can be passed on as they are
+    if (interpreter != null) {
+      int index = 1;
+      for (VariableReference paramVarRef : this.variableReferences) {
+        paramVarRef.setValue(interpreter, (Value) values[index++]);
       }
-      throw new RuntimeException(cause);
-    } catch (IllegalAccessException e) {
-      // This is not expected, but is an internal error in ASH
-      throw new ScriptException(e);
+    }
+    return values;
+  }
+
+  private Value invoke(final Object[] v) {
+    MethodHandle h = this.handle;
+    try {
+      Object result =
+          switch (v.length) {
+            case 1 -> h.invokeExact(v[0]);
+            case 2 -> h.invokeExact(v[0], v[1]);
+            case 3 -> h.invokeExact(v[0], v[1], v[2]);
+            case 4 -> h.invokeExact(v[0], v[1], v[2], v[3]);
+            case 5 -> h.invokeExact(v[0], v[1], v[2], v[3], v[4]);
+            case 6 -> h.invokeExact(v[0], v[1], v[2], v[3], v[4], v[5]);
+            default -> this.spreader.invokeExact(v);
+          };
+      return (Value) result;
+    } catch (ScriptException e) {
+      // Pass up exceptions intentionally generated by library
+      throw e;
+    } catch (Throwable e) {
+      // This is an error in the called method. Pass
+      // it on up so that we'll print a stack trace.
+      throw new RuntimeException(e);
     }
   }
 
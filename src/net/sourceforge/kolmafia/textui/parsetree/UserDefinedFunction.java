@@ -12,6 +12,9 @@ import org.eclipse.lsp4j.Location;
 public class UserDefinedFunction extends Function {
   private Scope scope;
   private final Stack<ArrayList<Value>> callStack;
+  // Number of slots in this function's frame of locals, or -1 if the locals keep their own values,
+  // which are then saved and restored around each call
+  private int frameSize = -1;
 
   public UserDefinedFunction(
       final String name,
@@ -26,12 +29,49 @@ public class UserDefinedFunction extends Function {
 
   public void setScope(final Scope s) {
     this.scope = s;
+    this.assignSlots();
   }
 
   public Scope getScope() {
     return this.scope;
   }
 
+  private void assignSlots() {
+    this.frameSize = -1;
+    if (this.scope == null) {
+      return;
+    }
+
+    // A function defined inside this one can see our locals, but would look for them in its own
+    // frame, so leave them where it can find them.
+    for (BasicScope next : this.scope.getScopes()) {
+      if (!next.getFunctions().isEmpty()) {
+        return;
+      }
+    }
+
+    // Another function sharing this scope, such as an imported script's main@script, may have
+    // numbered its variables already, so make room for those slots too.
+    int size = 0;
+    for (BasicScope next : this.scope.getScopes()) {
+      for (Variable current : next.getVariables()) {
+        if (!current.isStatic() && current.slot >= 0) {
+          size = Math.max(size, current.slot + 1);
+        }
+      }
+    }
+
+    // A static block shares its enclosing scope's variables, so some are seen twice
+    for (BasicScope next : this.scope.getScopes()) {
+      for (Variable current : next.getVariables()) {
+        if (!current.isStatic() && current.slot < 0) {
+          current.slot = size++;
+        }
+      }
+    }
+    this.frameSize = size;
+  }
+
   private void saveBindings(AshRuntime interpreter) {
     if (this.scope == null) {
       return;
@@ -41,7 +81,8 @@ public class UserDefinedFunction extends Function {
 
     for (BasicScope next : this.scope.getScopes()) {
       for (Variable current : next.getVariables()) {
-        if (!current.isStatic()) {
+        // Variables of functions defined in this one are in those functions' frames
+        if (!current.isStatic() && current.slot < 0) {
           values.add(current.getValue(interpreter));
         }
       }
@@ -60,7 +101,7 @@ public class UserDefinedFunction extends Function {
 
     for (BasicScope next : this.scope.getScopes()) {
       for (Variable current : next.getVariables()) {
-        if (!current.isStatic()) {
+        if (!current.isStatic() && current.slot < 0) {
           current.forceValue(values.get(i++));
         }
       }
@@ -78,16 +119,29 @@ public class UserDefinedFunction extends Function {
       throw interpreter.runtimeException("Calling undefined user function: " + this.getName());
     }
 
-    // Save current variable bindings
-    this.saveBindings(interpreter);
+    Value result;
 
-    // Bind values to variable references
-    this.bindVariableReferences(interpreter, values);
+    if (this.frameSize >= 0) {
+      // Locals live in a frame of their own for this call
+      Value[] caller = interpreter.enterLocals(this.frameSize);
+      try {
+        this.bindVariableReferences(interpreter, values);
+        result = this.scope.execute(interpreter);
+      } finally {
+        interpreter.exitLocals(caller);
+      }
+    } else {
+      // Save current variable bindings
+      this.saveBindings(interpreter);
+
+      // Bind values to variable references
+      this.bindVariableReferences(interpreter, values);
 
-    Value result = this.scope.execute(interpreter);
+      result = this.scope.execute(interpreter);
 
-    // Restore initial variable bindings
-    this.restoreBindings(interpreter);
+      // Restore initial variable bindings
+      this.restoreBindings(interpreter);
+    }
 
     if (result.getType().equals(this.type.getBaseType())) {
       return result;
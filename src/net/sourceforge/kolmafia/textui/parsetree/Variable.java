@@ -11,6 +11,8 @@ public class Variable extends Symbol {
   Value content;
   Evaluable expression = null;
   boolean isStatic = false;
+  // Index of this variable in its function's frame of locals, or -1 if its value is kept here
+  int slot = -1;
 
   public Variable(final Type type) {
     this(null, type, null);
@@ -39,6 +41,16 @@ public class Variable extends Symbol {
   }
 
   public Value getValue(final AshRuntime interpreter) {
+    if (this.slot >= 0 && interpreter != null) {
+      // Locals never fall back to the shared content, which would leak between calls
+      Value value = interpreter.getLocal(this.slot);
+      if (value == null) {
+        value = this.type.initialValue();
+        interpreter.setLocal(this.slot, value);
+      }
+      return value;
+    }
+
     if (this.expression != null) {
       this.content = this.expression.execute(interpreter);
     }
@@ -76,26 +88,30 @@ public class Variable extends Symbol {
   }
 
   public void setValue(AshRuntime interpreter, final Value targetValue) {
+    Value value;
     if (this.getBaseType().equals(DataTypes.ANY_TYPE)
         || this.getBaseType().equals(targetValue.getType())) {
-      this.content = targetValue;
-      this.expression = null;
+      value = targetValue;
     } else if (this.getBaseType().equals(TypeSpec.STRICT_STRING)
         || this.getBaseType().equals(TypeSpec.STRING)) {
-      this.content = targetValue.toStringValue();
-      this.expression = null;
+      value = targetValue.toStringValue();
     } else if (this.getBaseType().equals(TypeSpec.INT)
         && targetValue.getType().equals(TypeSpec.FLOAT)) {
-      this.content = targetValue.toIntValue();
-      this.expression = null;
+      value = targetValue.toIntValue();
     } else if (this.getBaseType().equals(TypeSpec.FLOAT)
         && targetValue.getType().equals(TypeSpec.INT)) {
-      this.content = targetValue.toFloatValue();
-      this.expression = null;
+      value = targetValue.toFloatValue();
     } else {
       throw interpreter.runtimeException(
           "Internal error: Cannot assign " + targetValue.getType() + " to " + this.getType());
     }
+
+    if (this.slot >= 0 && interpreter != null) {
+      interpreter.setLocal(this.slot, value);
+      return;
+    }
+    this.content = value;
+    this.expression = null;
   }
 
   @Override
@@ -0,0 +1,7 @@
+package net.sourceforge.kolmafia.utilities;
+
+/** A list of items which knows how many of each item it holds without searching itself. */
+public interface CountedItemList {
+  /** Returns how many of the item the list holds, or 0 for an item without an id. */
+  int getItemCount(int itemId);
+}
@@ -0,0 +1,88 @@
+package net.sourceforge.kolmafia.utilities;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Insertions and replacements to make in a page, all given as positions in the page as it is now.
+ * Decorators which find many places to change can record each one here as they go, without
+ * shifting what they have yet to look at, and then make every change at once with a single copy of
+ * the page, rather than one copy of everything after each change.
+ *
+ * <p>Insertions at the same position are made in the order they were recorded, and come before
+ * any replacement starting there. Replacements may not overlap.
+ */
+public class EditList {
+  private record Edit(int start, int end, String text, int order) {}
+
+  private static final Comparator<Edit> ORDER =
+      Comparator.comparingInt(Edit::start)
+          .thenComparingInt(edit -> edit.start() == edit.end() ? 0 : 1)
+          .thenComparingInt(Edit::order);
+
+  private final List<Edit> edits = new ArrayList<>();
+  private int growth = 0;
+
+  public EditList insert(final int index, final String text) {
+    return this.replace(index, index, text);
+  }
+
+  public EditList delete(final int start, final int end) {
+    return this.replace(start, end, "");
+  }
+
+  public EditList replace(final int start, final int end, final String text) {
+    if (start < 0 || end < start) {
+      throw new IndexOutOfBoundsException("Cannot replace " + start + " to " + end);
+    }
+
+    this.edits.add(new Edit(start, end, text, this.edits.size()));
+    this.growth += text.length() - (end - start);
+    return this;
+  }
+
+  public boolean isEmpty() {
+    return this.edits.isEmpty();
+  }
+
+  /** Makes every recorded change to the buffer, and forgets them. */
+  public void apply(final StringBuffer buffer) {
+    if (this.edits.isEmpty()) {
+      return;
+    }
+
+    String result = this.apply((CharSequence) buffer);
+    buffer.setLength(0);
+    buffer.append(result);
+  }
+
+  /** Returns the text with every recorded change made, and forgets them. */
+  public String apply(final CharSequence text) {
+    this.edits.sort(EditList.ORDER);
+
+    StringBuilder result = new StringBuilder(Math.max(0, text.length() + this.growth));
+    int copied = 0;
+
+    for (Edit edit : this.edits) {
+      if (edit.start() < copied) {
+        throw new IllegalStateException(
+            "Edit at " + edit.start() + " overlaps an earlier one ending at " + copied);
+      }
+      if (edit.end() > text.length()) {
+        throw new IndexOutOfBoundsException(
+            "Edit ending at " + edit.end() + " is past the end of the text");
+      }
+
+      result.append(text, copied, edit.start());
+      result.append(edit.text());
+      copied = edit.end();
+    }
+
+    result.append(text, copied, text.length());
+
+    this.edits.clear();
+    this.growth = 0;
+    return result.toString();
+  }
+}
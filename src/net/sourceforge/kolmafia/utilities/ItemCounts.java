@@ -0,0 +1,65 @@
+package net.sourceforge.kolmafia.utilities;
+
+import java.util.Arrays;
+import java.util.Collection;
+import net.sourceforge.kolmafia.AdventureResult;
+
+/**
+ * The number of each item in a list of items, indexed by item id. The sorted item lists keep one
+ * of these in step with their contents, so that counting an item is an array lookup rather than a
+ * binary search comparing names.
+ *
+ * <p>Items without an id are not counted; lookups for them still search the list.
+ */
+public class ItemCounts {
+  // Replaced when it grows, so a reader always sees a whole array
+  private volatile int[] counts = new int[0];
+
+  public int get(final int itemId) {
+    int[] counts = this.counts;
+    return itemId > 0 && itemId < counts.length ? counts[itemId] : 0;
+  }
+
+  public synchronized void add(final AdventureResult item) {
+    this.counts = ItemCounts.adjust(this.counts, item, 1);
+  }
+
+  public synchronized void remove(final AdventureResult item) {
+    this.counts = ItemCounts.adjust(this.counts, item, -1);
+  }
+
+  public synchronized void clear() {
+    this.counts = new int[0];
+  }
+
+  /**
+   * Recounts the items in a list after a change too broad to follow item by item. The caller holds
+   * whatever lock guards the list.
+   */
+  public synchronized void reset(final Collection<AdventureResult> items) {
+    // Count into a new array, so readers keep seeing the old counts until the new ones are done
+    int[] counts = new int[this.counts.length];
+    for (AdventureResult item : items) {
+      counts = ItemCounts.adjust(counts, item, 1);
+    }
+    this.counts = counts;
+  }
+
+  private static int[] adjust(int[] counts, final AdventureResult item, final int sign) {
+    if (item == null || !item.isItem()) {
+      return counts;
+    }
+
+    int itemId = item.getItemId();
+    if (itemId <= 0) {
+      return counts;
+    }
+
+    if (itemId >= counts.length) {
+      counts = Arrays.copyOf(counts, Math.max(itemId + 1, counts.length * 2));
+    }
+
+    counts[itemId] += sign * item.getCount();
+    return counts;
+  }
+}
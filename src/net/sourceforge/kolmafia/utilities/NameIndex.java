@@ -0,0 +1,106 @@
+package net.sourceforge.kolmafia.utilities;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An index over an array of names, used by StringUtilities.getMatchingNames to find the names which
+ * might contain a substring without testing every one of them.
+ *
+ * <p>Each name is indexed by its trigrams, the three character sequences within it. A name which
+ * contains a substring contains each of its trigrams, so the names listed under the rarest of them
+ * are the only ones worth testing. Each name also has a hash of the characters it contains, as a
+ * quick first test for matches which need not be contiguous.
+ */
+final class NameIndex {
+  private final int[] all;
+  private final int[] hashes;
+  private final Map<Long, int[]> trigrams = new HashMap<>();
+
+  NameIndex(final String[] names) {
+    int nameCount = names.length;
+    this.all = new int[nameCount];
+    this.hashes = new int[nameCount];
+
+    // First count the names with each trigram, so each list is allocated once at its final size.
+    // The second element of each count is the last name counted, so that a trigram appearing
+    // twice within a name is only counted once.
+    Map<Long, int[]> counts = new HashMap<>();
+    for (int i = 0; i < nameCount; ++i) {
+      this.all[i] = i;
+      this.hashes[i] = NameIndex.stringHash(names[i]);
+
+      String name = names[i];
+      for (int j = 0; j + 3 <= name.length(); ++j) {
+        int[] count = counts.computeIfAbsent(NameIndex.trigram(name, j), k -> new int[] {0, -1});
+        if (count[1] != i) {
+          count[0]++;
+          count[1] = i;
+        }
+      }
+    }
+
+    for (Map.Entry<Long, int[]> entry : counts.entrySet()) {
+      this.trigrams.put(entry.getKey(), new int[entry.getValue()[0]]);
+      entry.getValue()[0] = 0;
+    }
+
+    for (int i = 0; i < nameCount; ++i) {
+      String name = names[i];
+      for (int j = 0; j + 3 <= name.length(); ++j) {
+        Long key = NameIndex.trigram(name, j);
+        int[] count = counts.get(key);
+        int[] list = this.trigrams.get(key);
+        if (count[0] == 0 || list[count[0] - 1] != i) {
+          list[count[0]++] = i;
+        }
+      }
+    }
+  }
+
+  static int stringHash(final String s) {
+    int hash = 0;
+    for (int i = s.length() - 1; i >= 0; --i) {
+      hash |= 1 << (s.charAt(i) & 0x1F);
+    }
+    return hash;
+  }
+
+  private static Long trigram(final String s, final int index) {
+    return ((long) s.charAt(index) << 32)
+        | ((long) s.charAt(index + 1) << 16)
+        | (long) s.charAt(index + 2);
+  }
+
+  int getHash(final int index) {
+    return this.hashes[index];
+  }
+
+  /** Returns the index of every name, in order. */
+  int[] getAll() {
+    return this.all;
+  }
+
+  /**
+   * Returns, in order, the indexes of the names which might contain the substring. Every name which
+   * does is among them, but not every name among them does.
+   */
+  int[] getCandidates(final String substring) {
+    if (substring.length() < 3) {
+      return this.all;
+    }
+
+    int[] candidates = this.all;
+    for (int j = 0; j + 3 <= substring.length(); ++j) {
+      int[] list = this.trigrams.get(NameIndex.trigram(substring, j));
+      if (list == null) {
+        return new int[0];
+      }
+      if (list.length < candidates.length) {
+        candidates = list;
+      }
+    }
+
+    return candidates;
+  }
+}
@@ -0,0 +1,105 @@
+package net.sourceforge.kolmafia.utilities;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import net.sourceforge.kolmafia.AdventureResult;
+
+/** A {@link SortedList} of items which keeps a count of each item, indexed by item id. */
+public class SortedItemList extends SortedList<AdventureResult> implements CountedItemList {
+  private ItemCounts counts = new ItemCounts();
+
+  @Override
+  public int getItemCount(final int itemId) {
+    return this.counts.get(itemId);
+  }
+
+  @Override
+  public boolean add(final AdventureResult o) {
+    if (!super.add(o)) {
+      return false;
+    }
+    this.counts.add(o);
+    return true;
+  }
+
+  @Override
+  public boolean addAll(final int index, final Collection<? extends AdventureResult> c) {
+    boolean changed = super.addAll(index, c);
+    this.counts.reset(this);
+    return changed;
+  }
+
+  @Override
+  public AdventureResult set(final int index, final AdventureResult element) {
+    AdventureResult original = super.set(index, element);
+    this.counts.remove(original);
+    this.counts.add(element);
+    return original;
+  }
+
+  @Override
+  public AdventureResult remove(final int index) {
+    AdventureResult original = super.remove(index);
+    this.counts.remove(original);
+    return original;
+  }
+
+  // The bulk operations below bypass remove(int), so they recount afterwards
+
+  @Override
+  public boolean remove(final Object o) {
+    if (!super.remove(o)) {
+      return false;
+    }
+    this.counts.reset(this);
+    return true;
+  }
+
+  @Override
+  public boolean removeAll(final Collection<?> c) {
+    boolean changed = super.removeAll(c);
+    this.counts.reset(this);
+    return changed;
+  }
+
+  @Override
+  public boolean retainAll(final Collection<?> c) {
+    boolean changed = super.retainAll(c);
+    this.counts.reset(this);
+    return changed;
+  }
+
+  @Override
+  public boolean removeIf(final Predicate<? super AdventureResult> filter) {
+    boolean changed = super.removeIf(filter);
+    this.counts.reset(this);
+    return changed;
+  }
+
+  @Override
+  public void replaceAll(final UnaryOperator<AdventureResult> operator) {
+    super.replaceAll(operator);
+    this.counts.reset(this);
+  }
+
+  @Override
+  protected void removeRange(final int fromIndex, final int toIndex) {
+    super.removeRange(fromIndex, toIndex);
+    this.counts.reset(this);
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    this.counts.clear();
+  }
+
+  @Override
+  public Object clone() {
+    SortedItemList copy = (SortedItemList) super.clone();
+    copy.counts = new ItemCounts();
+    copy.counts.reset(copy);
+    return copy;
+  }
+}
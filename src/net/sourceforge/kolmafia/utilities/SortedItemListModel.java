@@ -0,0 +1,75 @@
+package net.sourceforge.kolmafia.utilities;
+
+import java.util.Collection;
+import net.java.dev.spellcast.utilities.SortedListModel;
+import net.sourceforge.kolmafia.AdventureResult;
+
+/** A {@link SortedListModel} of items which keeps a count of each item, indexed by item id. */
+public class SortedItemListModel extends SortedListModel<AdventureResult>
+    implements CountedItemList {
+  private ItemCounts counts = new ItemCounts();
+
+  @Override
+  public int getItemCount(final int itemId) {
+    return this.counts.get(itemId);
+  }
+
+  // Every other change to the list model, but for one through a subList, is made through these
+
+  @Override
+  public boolean add(final AdventureResult o) {
+    synchronized (this.actualElements) {
+      if (!super.add(o)) {
+        return false;
+      }
+      this.counts.add(o);
+      return true;
+    }
+  }
+
+  @Override
+  public boolean addAll(final int index, final Collection<? extends AdventureResult> c) {
+    synchronized (this.actualElements) {
+      boolean changed = super.addAll(index, c);
+      this.counts.reset(this.actualElements);
+      return changed;
+    }
+  }
+
+  @Override
+  public AdventureResult set(final int index, final AdventureResult element) {
+    synchronized (this.actualElements) {
+      AdventureResult original = super.set(index, element);
+      if (element != null) {
+        this.counts.remove(original);
+        this.counts.add(element);
+      }
+      return original;
+    }
+  }
+
+  @Override
+  public AdventureResult remove(final int index) {
+    synchronized (this.actualElements) {
+      AdventureResult original = super.remove(index);
+      this.counts.remove(original);
+      return original;
+    }
+  }
+
+  @Override
+  public void clear() {
+    synchronized (this.actualElements) {
+      super.clear();
+      this.counts.clear();
+    }
+  }
+
+  @Override
+  public Object clone() {
+    SortedItemListModel copy = (SortedItemListModel) super.clone();
+    copy.counts = new ItemCounts();
+    copy.counts.reset(copy.actualElements);
+    return copy;
+  }
+}
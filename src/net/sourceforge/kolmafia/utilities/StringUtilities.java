@@ -30,7 +30,7 @@ public class StringUtilities {
   private static final HashMap<String, String> canonicalNameCache = new HashMap<>();
 
   private static final HashMap<String, String> prepositionsMap = new HashMap<>();
-  private static final WeakHashMap<String[], int[]> hashCache = new WeakHashMap<>();
+  private static final WeakHashMap<String[], NameIndex> nameIndexCache = new WeakHashMap<>();
 
   private static final Pattern NONINTEGER_PATTERN = Pattern.compile("[^0-9\\-]+");
 
@@ -248,19 +248,14 @@ public class StringUtilities {
       return matchList;
     }
 
-    int nameCount = names.length;
-    int[] hashes = StringUtilities.hashCache.get(names);
-    if (hashes == null) {
-      hashes = new int[nameCount];
-      for (int i = 0; i < nameCount; ++i) {
-        hashes[i] = StringUtilities.stringHash(names[i]);
-      }
-      StringUtilities.hashCache.put(names, hashes);
-    }
-    int hash = StringUtilities.stringHash(searchString);
+    NameIndex index = StringUtilities.getNameIndex(names);
+    int hash = NameIndex.stringHash(searchString);
 
-    for (int i = 0; i < nameCount; ++i) {
-      if ((hashes[i] & hash) == hash
+    // Only names with every trigram of the search string can contain it
+    int[] candidates = index.getCandidates(searchString);
+
+    for (int i : candidates) {
+      if ((index.getHash(i) & hash) == hash
           && StringUtilities.substringMatches(names[i], searchString, true)) {
         matchList.add(names[i]);
       }
@@ -270,8 +265,8 @@ public class StringUtilities {
       return matchList;
     }
 
-    for (int i = 0; i < nameCount; ++i) {
-      if ((hashes[i] & hash) == hash
+    for (int i : candidates) {
+      if ((index.getHash(i) & hash) == hash
           && StringUtilities.substringMatches(names[i], searchString, false)) {
         matchList.add(names[i]);
       }
@@ -286,10 +281,12 @@ public class StringUtilities {
     // for example "in the box" will match "chef-in-the-box".  However,
     // the hash check would prevent us from even trying such a match.
     // Therefore, strip out the bit representing a space in the hash:
-    hash &= ~StringUtilities.stringHash(" ");
+    hash &= ~NameIndex.stringHash(" ");
 
-    for (int i = 0; i < nameCount; ++i) {
-      if ((hashes[i] & hash) == hash && StringUtilities.fuzzyMatches(names[i], searchString)) {
+    // A fuzzy match need not be contiguous, so every name is a candidate
+    for (int i : index.getAll()) {
+      if ((index.getHash(i) & hash) == hash
+          && StringUtilities.fuzzyMatches(names[i], searchString)) {
         matchList.add(names[i]);
       }
     }
@@ -297,12 +294,10 @@ public class StringUtilities {
     return matchList;
   }
 
-  private static int stringHash(final String s) {
-    int hash = 0;
-    for (int i = s.length() - 1; i >= 0; --i) {
-      hash |= 1 << (s.charAt(i) & 0x1F);
+  private static NameIndex getNameIndex(final String[] names) {
+    synchronized (StringUtilities.nameIndexCache) {
+      return StringUtilities.nameIndexCache.computeIfAbsent(names, NameIndex::new);
     }
-    return hash;
   }
 
   public static boolean substringMatches(
@@ -505,10 +500,19 @@ public class StringUtilities {
     // a static finally-allocated StringBuffers.
 
     int lastIndex = buffer.indexOf(tag);
+    if (lastIndex == -1) {
+      return;
+    }
+
+    // Replacing each match in place would copy the rest of the buffer
+    // every time, so make every replacement in one copy instead.
+
+    EditList edits = new EditList();
     while (lastIndex != -1) {
-      buffer.replace(lastIndex, lastIndex + tag.length(), replaceWith);
-      lastIndex = buffer.indexOf(tag, lastIndex + replaceWith.length());
+      edits.replace(lastIndex, lastIndex + tag.length(), replaceWith);
+      lastIndex = buffer.indexOf(tag, lastIndex + tag.length());
     }
+    edits.apply(buffer);
   }
 
   public static boolean isNumeric(String string) {
@@ -4,12 +4,29 @@ import java.util.Collection;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TwoLevelEnumHashMap<K1 extends Enum<K1>, K2, V> {
   private final Map<K1, Map<K2, V>> level1;
+  private final boolean concurrent;
 
   public TwoLevelEnumHashMap(Class<K1> k1Class) {
+    this(k1Class, false);
+  }
+
+  /**
+   * @param concurrent If true, every first-level map is created up front and the second-level maps
+   *     are ConcurrentHashMaps, so the map can be read and updated from several threads. Null
+   *     values are not allowed.
+   */
+  public TwoLevelEnumHashMap(Class<K1> k1Class, boolean concurrent) {
     this.level1 = new EnumMap<>(k1Class);
+    this.concurrent = concurrent;
+    if (concurrent) {
+      for (K1 k1 : k1Class.getEnumConstants()) {
+        this.level1.put(k1, new ConcurrentHashMap<>());
+      }
+    }
   }
 
   public int size() {
@@ -53,6 +70,10 @@ public class TwoLevelEnumHashMap<K1 extends Enum<K1>, K2, V> {
   }
 
   public void clear() {
+    if (this.concurrent) {
+      this.level1.values().forEach(Map::clear);
+      return;
+    }
     this.level1.clear();
   }
 }
@@ -6,10 +6,9 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.net.InetAddress;
-import java.net.Socket;
 import java.nio.charset.StandardCharsets;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.sourceforge.kolmafia.KoLConstants;
@@ -26,7 +25,6 @@ import net.sourceforge.kolmafia.session.ActionBarManager;
 import net.sourceforge.kolmafia.session.ChoiceManager;
 import net.sourceforge.kolmafia.session.LeafletManager;
 import net.sourceforge.kolmafia.session.VolcanoMazeManager;
-import net.sourceforge.kolmafia.utilities.PauseObject;
 import net.sourceforge.kolmafia.utilities.StringUtilities;
 
 public class RelayAgent extends Thread {
@@ -47,9 +45,8 @@ public class RelayAgent extends Thread {
 
   private final char[] data = new char[8192];
   private final StringBuffer buffer = new StringBuffer();
-  private final PauseObject pauser = new PauseObject();
 
-  private Socket socket = null;
+  private RelayConnection connection = null;
   private BufferedReader reader;
   private PrintStream writer;
 
@@ -63,20 +60,13 @@ public class RelayAgent extends Thread {
     this.request = new RelayRequest(true);
   }
 
-  public boolean isWaiting() {
-    return this.socket == null;
-  }
-
-  public void setSocket(final Socket socket) {
-    this.socket = socket;
-    this.pauser.unpause();
-  }
-
   @Override
   public void run() {
     while (true) {
-      if (this.socket == null) {
-        this.pauser.pause();
+      try {
+        this.connection = RelayServer.nextGameRequest();
+      } catch (InterruptedException e) {
+        return;
       }
 
       try {
@@ -88,7 +78,7 @@ public class RelayAgent extends Thread {
   }
 
   public void performRelay() {
-    if (this.socket == null) {
+    if (this.connection == null) {
       return;
     }
 
@@ -114,7 +104,7 @@ public class RelayAgent extends Thread {
         RequestLogger.isDebugging() && Preferences.getBoolean("logBrowserInteractions");
     boolean tracing = RequestLogger.isTracing();
 
-    this.reader = new BufferedReader(new InputStreamReader(this.socket.getInputStream()));
+    this.reader = new BufferedReader(new InputStreamReader(this.connection.getInputStream()));
 
     String requestLine = this.reader.readLine();
 
@@ -197,7 +187,7 @@ public class RelayAgent extends Thread {
       }
     }
 
-    if (!isValidReferer(host, referer)) {
+    if (!RelayAgent.isValidReferer(this.path, host, referer)) {
       RequestLogger.printLine("Request from bogus referer ignored");
       RequestLogger.printLine("Path: \"" + path + "\"");
       RequestLogger.printLine("Host: \"" + host + "\"");
@@ -252,12 +242,12 @@ public class RelayAgent extends Thread {
     return true;
   }
 
-  private boolean isValidReferer(String host, String referer) {
+  static boolean isValidReferer(String path, String host, String referer) {
     if (host != null) {
       validRefererHosts.add(host);
     }
 
-    if (this.path.startsWith("/desc_") && !this.path.contains("..")) {
+    if (path.startsWith("/desc_") && !path.contains("..")) {
       // Specifically allow these pages because they are convenient
       // to access and harmless to allow
       return true;
@@ -500,7 +490,7 @@ public class RelayAgent extends Thread {
       this.request.rawByteBuffer = this.request.responseText.getBytes(StandardCharsets.UTF_8);
     }
 
-    this.writer = new PrintStream(this.socket.getOutputStream(), false);
+    this.writer = new PrintStream(this.connection.getSocket().getOutputStream(), false);
     this.writer.println(this.request.statusLine);
     this.request.printHeaders(this.writer);
     this.writer.println();
@@ -564,17 +554,12 @@ public class RelayAgent extends Thread {
       this.writer = null;
     }
 
-    try {
-      if (this.socket != null) {
-        this.socket.close();
-        this.socket = null;
-      }
-    } catch (IOException e) {
-      // The only time this happens is if the
-      // socket is already closed.  Ignore.
+    if (this.connection != null) {
+      this.connection.close();
+      this.connection = null;
     }
   }
 
-  private static final Set<String> validRefererHosts = new HashSet<>();
-  private static final Set<String> invalidRefererHosts = new HashSet<>();
+  private static final Set<String> validRefererHosts = ConcurrentHashMap.newKeySet();
+  private static final Set<String> invalidRefererHosts = ConcurrentHashMap.newKeySet();
 }
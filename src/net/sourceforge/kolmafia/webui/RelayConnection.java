@@ -0,0 +1,343 @@
+package net.sourceforge.kolmafia.webui;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import net.sourceforge.kolmafia.RequestLogger;
+
+/**
+ * A connection from the browser to the relay server. The server's selector thread reads each
+ * request header from it. It answers requests for static files itself and keeps the connection
+ * open for the browser's next request. Any other request goes to a RelayAgent, which reads the
+ * rest of the request, answers it and closes the connection.
+ *
+ * <p>Finding and opening the file for a request can block on the disk, so RelayFileServer does
+ * that on a thread of its own, and the selector thread picks the connection up again afterwards.
+ */
+final class RelayConnection {
+  enum State {
+    READING,
+    WRITING,
+    LOOKUP,
+    AGENT,
+    CLOSED
+  }
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int HEAD_LIMIT = 65536;
+  private static final long KEEP_ALIVE_MILLIS = 15000;
+
+  private final SocketChannel channel;
+  private long lastActive = System.currentTimeMillis();
+
+  // What the browser has sent that has not yet been answered
+  private ByteBuffer received = ByteBuffer.allocate(BUFFER_SIZE);
+
+  // The response being sent: its status line and headers, then the file, if any
+  private ByteBuffer head = null;
+  private FileChannel file = null;
+  private long position = 0;
+  private long remaining = 0;
+  private boolean keepAlive = false;
+
+  // The length of the request header whose file is being looked up, or 0 if there is none
+  private int lookupLength = 0;
+
+  RelayConnection(final SocketChannel channel) {
+    this.channel = channel;
+  }
+
+  SocketChannel getChannel() {
+    return this.channel;
+  }
+
+  Socket getSocket() {
+    return this.channel.socket();
+  }
+
+  /**
+   * Returns the browser's request, starting with whatever the selector thread has already read.
+   * The channel must be in blocking mode.
+   */
+  InputStream getInputStream() throws IOException {
+    InputStream prefix =
+        new ByteArrayInputStream(this.received.array(), 0, this.received.position());
+    return new SequenceInputStream(prefix, this.channel.socket().getInputStream());
+  }
+
+  /** Returns whether the browser has left this connection unused for long enough to close it. */
+  boolean isIdle(final long now) {
+    return this.head == null
+        && this.lookupLength == 0
+        && now - this.lastActive > RelayConnection.KEEP_ALIVE_MILLIS;
+  }
+
+  /** Reads or writes whatever the channel is ready for, and returns what to wait for next. */
+  State process(final SelectionKey key) {
+    this.lastActive = System.currentTimeMillis();
+
+    try {
+      if (this.head != null) {
+        if (!this.send()) {
+          return State.WRITING;
+        }
+        if (!this.finishResponse(key)) {
+          return State.CLOSED;
+        }
+      } else if (this.channel.read(this.received) == -1) {
+        this.close();
+        return State.CLOSED;
+      }
+
+      return this.nextRequest(key);
+    } catch (IOException e) {
+      this.close();
+      return State.CLOSED;
+    }
+  }
+
+  private State nextRequest(final SelectionKey key) throws IOException {
+    while (true) {
+      int headLength = this.getHeadLength();
+      if (headLength == -1) {
+        if (this.received.hasRemaining()) {
+          return State.READING;
+        }
+
+        // An agent reads headers of any length from the socket
+        if (this.received.capacity() >= RelayConnection.HEAD_LIMIT) {
+          return State.AGENT;
+        }
+
+        ByteBuffer larger = ByteBuffer.allocate(this.received.capacity() * 2);
+        this.received = larger.put(this.received.flip());
+        return State.READING;
+      }
+
+      String head = new String(this.received.array(), 0, headLength, StandardCharsets.ISO_8859_1);
+      if (!RelayConnection.isFileRequest(head)) {
+        return State.AGENT;
+      }
+
+      // Nothing more is read until the file has been looked up
+      this.lookupLength = headLength;
+      key.interestOps(0);
+      RelayFileServer.lookup(() -> this.startResponse(head), () -> RelayServer.lookedUp(this));
+      return State.LOOKUP;
+    }
+  }
+
+  /**
+   * Continues after the file for a request has been looked up, and returns what to wait for next.
+   * Called on the selector thread.
+   */
+  State resume(final SelectionKey key) {
+    this.lastActive = System.currentTimeMillis();
+
+    int headLength = this.lookupLength;
+    this.lookupLength = 0;
+
+    if (this.head == null) {
+      return State.AGENT;
+    }
+
+    try {
+      // Keep anything the browser sent after this request
+      this.received.flip().position(headLength);
+      this.received.compact();
+
+      if (!this.send()) {
+        key.interestOps(SelectionKey.OP_WRITE);
+        return State.WRITING;
+      }
+      if (!this.finishResponse(key)) {
+        return State.CLOSED;
+      }
+
+      return this.nextRequest(key);
+    } catch (IOException e) {
+      this.close();
+      return State.CLOSED;
+    }
+  }
+
+  /** Returns whether a request header could be for a file which can be sent as it is. */
+  private static boolean isFileRequest(final String head) {
+    int end = head.indexOf('\n');
+    String[] request = head.substring(0, end).trim().split(" ");
+    return request.length == 3
+        && request[0].equals("GET")
+        && request[2].equals("HTTP/1.1")
+        && RelayFileServer.isStaticPath(request[1]);
+  }
+
+  /** Returns the length of the first request header received, or -1 if it is not all here. */
+  private int getHeadLength() {
+    byte[] bytes = this.received.array();
+    int end = this.received.position();
+
+    for (int i = 0; i < end; ++i) {
+      if (bytes[i] != '\n') {
+        continue;
+      }
+
+      int next = i + 1;
+      if (next < end && bytes[next] == '\r') {
+        ++next;
+      }
+      if (next < end && bytes[next] == '\n') {
+        return next + 1;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Opens the static file a request is for and prepares its response, if that is what the request
+   * is for. Called on RelayFileServer's thread.
+   */
+  private void startResponse(final String head) {
+    String[] lines = head.split("\r?\n");
+    String requestLine = lines[0];
+    String[] request = requestLine.split(" ");
+    if (request.length != 3 || !request[0].equals("GET") || !request[2].equals("HTTP/1.1")) {
+      return;
+    }
+
+    String path = request[1];
+    File file = RelayFileServer.findStaticFile(path);
+    if (file == null) {
+      return;
+    }
+
+    String host = null;
+    String referer = null;
+    String ifModifiedSince = null;
+    boolean keepAlive = true;
+
+    for (int i = 1; i < lines.length; ++i) {
+      // HTTP headers are case-insensitive
+      String[] header = lines[i].split(":", 2);
+      if (header.length < 2) {
+        continue;
+      }
+
+      String value = header[1].trim();
+      switch (header[0].toLowerCase().trim()) {
+        case "host" -> host = value;
+        case "referer" -> referer = value;
+        case "if-modified-since" -> ifModifiedSince = value;
+        case "connection" -> keepAlive = !value.equalsIgnoreCase("close");
+      }
+    }
+
+    // Let the agent report the bogus referer
+    if (!RelayAgent.isValidReferer(path, host, referer)) {
+      return;
+    }
+
+    boolean modified =
+        ifModifiedSince == null || RelayFileServer.modifiedSince(ifModifiedSince, file);
+
+    FileChannel channel = null;
+    long length = 0;
+    if (modified) {
+      try {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        length = channel.size();
+      } catch (IOException e) {
+        RelayConnection.closeQuietly(channel);
+        return;
+      }
+    }
+
+    String response = RelayFileServer.getResponseHead(path, file, modified, length, keepAlive);
+    this.head = ByteBuffer.wrap(response.getBytes(StandardCharsets.ISO_8859_1));
+    this.file = channel;
+    this.position = 0;
+    this.remaining = length;
+    this.keepAlive = keepAlive;
+
+    if (RequestLogger.isTracing()) {
+      RequestLogger.trace("From Browser: " + requestLine);
+      RequestLogger.trace(
+          "To Browser: "
+              + response.substring(0, response.indexOf("\r\n"))
+              + ": "
+              + path
+              + " ("
+              + length
+              + " bytes)");
+    }
+  }
+
+  /** Sends as much of the response as the socket will take, and returns whether it is all sent. */
+  private boolean send() throws IOException {
+    if (this.head.hasRemaining()) {
+      this.channel.write(this.head);
+      if (this.head.hasRemaining()) {
+        return false;
+      }
+    }
+
+    while (this.remaining > 0) {
+      long sent = this.file.transferTo(this.position, this.remaining, this.channel);
+      if (sent == 0) {
+        if (this.position >= this.file.size()) {
+          throw new IOException("File shrank while being sent");
+        }
+        return false;
+      }
+
+      this.position += sent;
+      this.remaining -= sent;
+    }
+
+    return true;
+  }
+
+  /** Finishes a response, and returns whether the connection stays open for another. */
+  private boolean finishResponse(final SelectionKey key) {
+    RelayConnection.closeQuietly(this.file);
+    this.head = null;
+    this.file = null;
+
+    if (!this.keepAlive) {
+      this.close();
+      return false;
+    }
+
+    key.interestOps(SelectionKey.OP_READ);
+    return true;
+  }
+
+  void close() {
+    RelayConnection.closeQuietly(this.file);
+    RelayConnection.closeQuietly(this.channel);
+    this.head = null;
+    this.file = null;
+  }
+
+  private static void closeQuietly(final Closeable closeable) {
+    if (closeable == null) {
+      return;
+    }
+
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // The only time this happens is if it is already closed.  Ignore.
+    }
+  }
+}
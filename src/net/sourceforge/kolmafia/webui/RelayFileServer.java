@@ -0,0 +1,188 @@
+package net.sourceforge.kolmafia.webui;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.StaticEntity;
+import net.sourceforge.kolmafia.request.RelayRequest;
+import net.sourceforge.kolmafia.utilities.StringUtilities;
+
+/**
+ * Finds the files which the relay browser can be sent as they are on disk: images already in the
+ * image cache, and the style sheets, scripts and images in the relay directory. RelayConnection
+ * sends these straight from the file to the socket, without waiting for an agent or reading the
+ * file into memory.
+ *
+ * <p>Anything else, including files which must first be downloaded or edited, is left for
+ * RelayRequest to handle as it always has. Looking at the disk can block, so the selector thread
+ * only checks request paths, and files are found and opened on a small pool of threads here.
+ */
+final class RelayFileServer {
+  private static final Set<String> EXTENSIONS =
+      Set.of("css", "js", "gif", "png", "jpg", "jpeg", "ico", "mp3");
+
+  // Built-in relay files which have the password hash substituted into them when sent
+  private static final Map<String, Boolean> passwordHashFiles = new ConcurrentHashMap<>();
+
+  // Finding and opening files can block, so it is kept off the selector thread
+  private static final ExecutorService lookups =
+      Executors.newFixedThreadPool(
+          2,
+          runnable -> {
+            Thread thread = new Thread(runnable, "RelayFileServer");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private RelayFileServer() {}
+
+  /** Returns the name of the file a request path asks for, without its query string. */
+  static String getFilename(final String path) {
+    int query = path.indexOf('?');
+    return path.substring(1, query == -1 ? path.length() : query);
+  }
+
+  /**
+   * Returns whether a request path could be for a file to send as it is. This only looks at the
+   * path, so it is safe to call from the selector thread.
+   */
+  static boolean isStaticPath(final String path) {
+    if (!path.startsWith("/") || path.contains("..")) {
+      return false;
+    }
+
+    String filename = RelayFileServer.getFilename(path);
+    String extension = filename.substring(filename.lastIndexOf('.') + 1);
+    if (!RelayFileServer.EXTENSIONS.contains(extension)
+        || filename.startsWith("KoLmafia/")
+        || filename.equals("missingimage.gif")
+        || filename.endsWith("favicon.ico")) {
+      return false;
+    }
+
+    // JS-driven relay scripts are run, not sent
+    return RelayFileServer.isImage(filename) || !path.contains("relay=true");
+  }
+
+  /** Returns the file to send for a request path, or null if it needs a RelayRequest. */
+  static File findStaticFile(final String path) {
+    if (!RelayFileServer.isStaticPath(path)) {
+      return null;
+    }
+
+    String filename = RelayFileServer.getFilename(path);
+    if (RelayFileServer.isImage(filename)) {
+      return RelayFileServer.existingFile(RelayRequest.findLocalImage(filename));
+    }
+
+    File file = RelayFileServer.existingFile(RelayRequest.findRelayFile(filename));
+    if (file == null
+        || RelayFileServer.needsPasswordHash(filename, file)
+        || !RelayFileServer.inRelayDirectory(file)) {
+      return null;
+    }
+
+    return file;
+  }
+
+  /**
+   * Runs a lookup which may block on the disk away from the selector thread, then runs done,
+   * whether or not the lookup succeeded.
+   */
+  static void lookup(final Runnable lookup, final Runnable done) {
+    RelayFileServer.lookups.execute(
+        () -> {
+          try {
+            lookup.run();
+          } catch (RuntimeException e) {
+            // The request is left for an agent, which will report it
+          } finally {
+            done.run();
+          }
+        });
+  }
+
+  private static boolean isImage(final String filename) {
+    return filename.startsWith("images/") || filename.startsWith("iii/");
+  }
+
+  private static File existingFile(final File file) {
+    return file != null && file.isFile() && file.length() > 0 ? file : null;
+  }
+
+  private static boolean needsPasswordHash(final String filename, final File file) {
+    if (!RelayRequest.builtinRelayFile(filename)) {
+      return false;
+    }
+
+    return RelayFileServer.passwordHashFiles.computeIfAbsent(
+        filename,
+        k -> {
+          try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            return new String(bytes, StandardCharsets.ISO_8859_1).contains("MAFIAHIT");
+          } catch (IOException e) {
+            return true;
+          }
+        });
+  }
+
+  private static boolean inRelayDirectory(final File file) {
+    try {
+      String path = file.getCanonicalPath();
+      return path.startsWith(KoLConstants.RELAY_LOCATION.getCanonicalPath());
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** Returns whether a file changed after the date the browser gave in If-Modified-Since. */
+  static boolean modifiedSince(final String date, final File file) {
+    // HTTP dates are to the second
+    return file.lastModified() / 1000 > StringUtilities.parseDate(date) / 1000;
+  }
+
+  /** Returns the status line and headers to send ahead of a file. */
+  static String getResponseHead(
+      final String path,
+      final File file,
+      final boolean modified,
+      final long length,
+      final boolean keepAlive) {
+    String filename = RelayFileServer.getFilename(path);
+    long now = System.currentTimeMillis();
+
+    StringBuilder head = new StringBuilder();
+    head.append(modified ? "HTTP/1.1 200 OK" : "HTTP/1.1 304 Not Modified").append("\r\n");
+    head.append("Date: ").append(StringUtilities.formatDate(new Date(now))).append("\r\n");
+    head.append("Server: ").append(StaticEntity.getVersion()).append("\r\n");
+    if (modified) {
+      head.append("Content-Type: ")
+          .append(RelayRequest.getContentType(filename, null))
+          .append("\r\n");
+    }
+    head.append("Content-Length: ").append(length).append("\r\n");
+    head.append("Last-Modified: ")
+        .append(StringUtilities.formatDate(file.lastModified()))
+        .append("\r\n");
+
+    if (RelayFileServer.isImage(filename)) {
+      head.append("Access-Control-Allow-Origin: *\r\n");
+    } else if (RelayRequest.builtinRelayFile(filename)) {
+      long expires = now + (1000L * 60 * 60 * 24 * 30);
+      head.append("Expires: ").append(StringUtilities.formatDate(expires)).append("\r\n");
+    }
+
+    head.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n");
+    head.append("\r\n");
+    return head.toString();
+  }
+}
@@ -1,11 +1,23 @@
 package net.sourceforge.kolmafia.webui;
 
+import java.io.IOException;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.util.HashSet;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import net.sourceforge.kolmafia.KoLConstants;
 import net.sourceforge.kolmafia.KoLmafia;
 import net.sourceforge.kolmafia.StaticEntity;
@@ -13,15 +25,27 @@ import net.sourceforge.kolmafia.preferences.Preferences;
 import net.sourceforge.kolmafia.utilities.FileUtilities;
 import net.sourceforge.kolmafia.utilities.StringUtilities;
 
+/**
+ * The local relay server. A single thread accepts the browser's connections and reads their
+ * requests through a selector. It sends static files itself, so a page's images, style sheets and
+ * scripts never wait behind a slow game request. Every other request joins a queue, which a pool
+ * of RelayAgent threads serves in the order the requests arrived.
+ */
 public class RelayServer implements Runnable {
-  public static final Set<RelayAgent> agentThreads = new HashSet<>();
+  public static final Set<RelayAgent> agentThreads = ConcurrentHashMap.newKeySet();
+
+  private static final BlockingQueue<RelayConnection> gameRequests = new LinkedBlockingQueue<>();
+  private static final Queue<RelayConnection> lookedUpConnections = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger idleAgents = new AtomicInteger();
+  private static final long IDLE_CHECK_MILLIS = 5000;
 
   private static long lastStatusMessage = 0;
   private static Thread relayThread = null;
+  private static volatile Selector selector = null;
 
-  private ServerSocket serverSocket = null;
+  private ServerSocketChannel serverChannel = null;
   private static int port = 60080;
-  private static boolean listening = false;
+  private static volatile boolean listening = false;
   private static boolean updateStatus = false;
 
   private static final RelayServer INSTANCE = new RelayServer();
@@ -91,6 +115,11 @@ public class RelayServer implements Runnable {
 
   public static final void stop() {
     RelayServer.listening = false;
+
+    Selector selector = RelayServer.selector;
+    if (selector != null) {
+      selector.wakeup();
+    }
   }
 
   @Override
@@ -131,23 +160,23 @@ public class RelayServer implements Runnable {
       RelayServer.listening = true;
     }
 
-    while (RelayServer.listening) {
+    if (RelayServer.listening) {
       try {
-        this.dispatchAgent(this.serverSocket.accept());
+        this.selectRequests();
       } catch (Exception e) {
         // If an exception occurs here, that means
         // someone closed the thread; just reset
         // the listening state and fall through.
-
-        RelayServer.listening = false;
       }
+
+      RelayServer.listening = false;
     }
 
-    this.closeAgents();
+    this.closeConnections();
 
     try {
-      if (this.serverSocket != null) {
-        this.serverSocket.close();
+      if (this.serverChannel != null) {
+        this.serverChannel.close();
       }
     } catch (Exception e) {
       // The end result of a socket closing
@@ -155,51 +184,193 @@ public class RelayServer implements Runnable {
       // if it does, the socket closes.
     }
 
-    this.serverSocket = null;
+    this.serverChannel = null;
     RelayServer.relayThread = null;
   }
 
   private synchronized boolean openServerSocket() {
     try {
-      if (Preferences.getBoolean("relayAllowRemoteAccess")) {
-        this.serverSocket = new ServerSocket(RelayServer.port, 25);
-      } else {
-        this.serverSocket =
-            new ServerSocket(RelayServer.port, 25, InetAddress.getByName("127.0.0.1"));
+      InetSocketAddress address =
+          Preferences.getBoolean("relayAllowRemoteAccess")
+              ? new InetSocketAddress(RelayServer.port)
+              : new InetSocketAddress(InetAddress.getByName("127.0.0.1"), RelayServer.port);
+
+      ServerSocketChannel serverChannel = ServerSocketChannel.open();
+      try {
+        serverChannel.bind(address, 25);
+        serverChannel.configureBlocking(false);
+      } catch (Exception e) {
+        serverChannel.close();
+        return false;
       }
 
+      this.serverChannel = serverChannel;
       return true;
     } catch (Exception e) {
       return false;
     }
   }
 
-  private synchronized void closeAgents() {
-    for (RelayAgent agent : agentThreads) {
-      agent.setSocket(null);
+  private void selectRequests() throws IOException {
+    Selector selector = Selector.open();
+    RelayServer.selector = selector;
+    this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+    List<RelayConnection> agentRequests = new ArrayList<>();
+    long lastIdleCheck = System.currentTimeMillis();
+
+    while (RelayServer.listening) {
+      // Keys already selected when handing requests to agents are handled before waiting again
+      if (selector.selectedKeys().isEmpty()) {
+        selector.select(RelayServer.IDLE_CHECK_MILLIS);
+      }
+
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+
+        if (!key.isValid()) {
+          continue;
+        }
+
+        if (key.isAcceptable()) {
+          this.acceptConnection(selector);
+          continue;
+        }
+
+        RelayConnection connection = (RelayConnection) key.attachment();
+        if (connection.process(key) == RelayConnection.State.AGENT) {
+          key.cancel();
+          agentRequests.add(connection);
+        }
+      }
+
+      // Connections whose files have been looked up carry on from where they stopped
+      RelayConnection resumed;
+      while ((resumed = RelayServer.lookedUpConnections.poll()) != null) {
+        SelectionKey key = resumed.getChannel().keyFor(selector);
+        if (key == null || !key.isValid()) {
+          resumed.close();
+        } else if (resumed.resume(key) == RelayConnection.State.AGENT) {
+          key.cancel();
+          agentRequests.add(resumed);
+        }
+      }
+
+      if (!agentRequests.isEmpty()) {
+        // A channel must leave the selector before an agent can use it in blocking mode, and it
+        // only does so once the selector notices its key was cancelled
+        selector.selectNow();
+
+        for (RelayConnection connection : agentRequests) {
+          try {
+            connection.getChannel().configureBlocking(true);
+            RelayServer.dispatchAgent(connection);
+          } catch (IOException e) {
+            connection.close();
+          }
+        }
+
+        agentRequests.clear();
+      }
+
+      long now = System.currentTimeMillis();
+      if (now - lastIdleCheck >= RelayServer.IDLE_CHECK_MILLIS) {
+        lastIdleCheck = now;
+        for (SelectionKey key : selector.keys()) {
+          if (key.attachment() instanceof RelayConnection connection && connection.isIdle(now)) {
+            connection.close();
+          }
+        }
+      }
+    }
+  }
+
+  private void acceptConnection(final Selector selector) throws IOException {
+    SocketChannel channel = this.serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+
+    try {
+      channel.configureBlocking(false);
+      channel.register(selector, SelectionKey.OP_READ, new RelayConnection(channel));
+    } catch (IOException e) {
+      channel.close();
     }
-    agentThreads.clear();
   }
 
-  private synchronized void dispatchAgent(final Socket socket) {
-    for (RelayAgent agent : agentThreads) {
-      if (agent.isWaiting()) {
-        agent.setSocket(socket);
-        return;
+  private void closeConnections() {
+    Selector selector = RelayServer.selector;
+    RelayServer.selector = null;
+
+    if (selector != null) {
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() instanceof RelayConnection connection) {
+          connection.close();
+        }
+      }
+
+      try {
+        selector.close();
+      } catch (IOException e) {
+        // Nothing more can be done with it either way
       }
     }
 
-    this.createAgent(socket);
+    // Agents finish the requests they are working on, but not those still waiting
+    RelayConnection connection;
+    while ((connection = RelayServer.gameRequests.poll()) != null) {
+      connection.close();
+    }
+    while ((connection = RelayServer.lookedUpConnections.poll()) != null) {
+      connection.close();
+    }
   }
 
-  private synchronized void createAgent(final Socket socket) {
-    RelayAgent agent = new RelayAgent(RelayServer.agentThreads.size());
-    agent.setSocket(socket);
+  /** Hands a connection whose file has been looked up back to the selector thread. */
+  static void lookedUp(final RelayConnection connection) {
+    Selector selector = RelayServer.selector;
+    if (selector == null) {
+      connection.close();
+      return;
+    }
+
+    RelayServer.lookedUpConnections.add(connection);
+    selector.wakeup();
+  }
+
+  private static void dispatchAgent(final RelayConnection connection) {
+    RelayServer.gameRequests.add(connection);
+
+    // Start another agent if the waiting requests outnumber the idle agents, unless the pool is
+    // full, in which case the request waits for the next agent to finish. Some requests, such as
+    // chat polls and relay scripts, hold their agent for a long time, so those who run many of
+    // them may raise the limit, or set it to 0 for no limit at all.
+    int maxAgents = Preferences.getInteger("relayMaxAgents");
+    if (RelayServer.idleAgents.get() < RelayServer.gameRequests.size()
+        && (maxAgents <= 0 || RelayServer.agentThreads.size() < maxAgents)) {
+      RelayServer.createAgent();
+    }
+  }
 
+  private static synchronized void createAgent() {
+    RelayAgent agent = new RelayAgent(RelayServer.agentThreads.size());
     RelayServer.agentThreads.add(agent);
     agent.start();
   }
 
+  /** Waits for the next request which needs an agent, in the order they arrived. */
+  static RelayConnection nextGameRequest() throws InterruptedException {
+    RelayServer.idleAgents.incrementAndGet();
+    try {
+      return RelayServer.gameRequests.take();
+    } finally {
+      RelayServer.idleAgents.decrementAndGet();
+    }
+  }
+
   public static final void addStatusMessage(final String message) {
     if (System.currentTimeMillis() - RelayServer.lastStatusMessage < 4000) {
       RelayServer.statusMessages.append(message);
@@ -1242,7 +1242,7 @@ public class Player {
    * @return Resets the location to the previous value
    */
   public static Cleanups withLocation(final String location) {
-    var old = AdventureDatabase.getAdventure(Modifiers.currentLocation);
+    var old = AdventureDatabase.getAdventure(Modifiers.getCurrentLocation());
     Modifiers.setLocation(AdventureDatabase.getAdventure(location));
     return new Cleanups(() -> Modifiers.setLocation(old));
   }
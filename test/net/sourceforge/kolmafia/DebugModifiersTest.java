@@ -379,7 +379,7 @@ public class DebugModifiersTest {
     try (var cleanups = withEquipped(ItemPool.HODGMANS_LOBSTERSKIN_PANTS)) {
       evaluateDebugModifiers(DoubleModifier.HOBO_POWER);
       assertThat(output(), containsDebugRow("Item", "Hodgman's lobsterskin pants", 25.0, 25.0));
-      assertThat(Modifiers.hoboPower, equalTo(25.0));
+      assertThat(EvaluationContext.current().getHoboPower(), equalTo(25.0));
     }
   }
 
@@ -388,7 +388,7 @@ public class DebugModifiersTest {
     try (var cleanups = withEffect(EffectPool.MERRY_SMITHSNESS)) {
       evaluateDebugModifiers(DoubleModifier.SMITHSNESS);
       assertThat(output(), containsDebugRow("Effect", "Merry Smithsness", 25.0, 25.0));
-      assertThat(Modifiers.smithsness, equalTo(25.0));
+      assertThat(EvaluationContext.current().getSmithsness(), equalTo(25.0));
     }
   }
 
@@ -0,0 +1,75 @@
+package net.sourceforge.kolmafia;
+
+import static internal.helpers.Player.withLocation;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import net.sourceforge.kolmafia.equipment.Slot;
+import net.sourceforge.kolmafia.modifiers.DoubleModifier;
+import net.sourceforge.kolmafia.objectpool.ItemPool;
+import net.sourceforge.kolmafia.persistence.ItemDatabase;
+import net.sourceforge.kolmafia.persistence.ModifierDatabase;
+import net.sourceforge.kolmafia.preferences.Preferences;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class EvaluationContextTest {
+  @BeforeEach
+  public void beforeEach() {
+    KoLCharacter.reset("EvaluationContext");
+    Preferences.reset("EvaluationContext");
+    KoLCharacter.recalculateAdjustments();
+  }
+
+  @Test
+  public void isolatedContextStartsFromCurrent() {
+    try (var cleanups = withLocation("The Slime Tube")) {
+      try (var context = EvaluationContext.isolate()) {
+        assertThat(EvaluationContext.current().getLocation(), equalTo("The Slime Tube"));
+      }
+    }
+  }
+
+  @Test
+  public void isolatedChangesDoNotLeak() {
+    double hoboPower = EvaluationContext.current().getHoboPower();
+
+    try (var context = EvaluationContext.isolate()) {
+      EvaluationContext.current().setHoboPower(hoboPower + 50);
+      assertThat(EvaluationContext.current().getHoboPower(), equalTo(hoboPower + 50));
+    }
+
+    assertThat(EvaluationContext.current().getHoboPower(), equalTo(hoboPower));
+    assertThat(EvaluationContext.isIsolated(), equalTo(false));
+  }
+
+  @Test
+  public void speculationDoesNotChangeSharedContext() {
+    assertThat(EvaluationContext.current().isUnarmed(), equalTo(true));
+
+    var spec = new Speculation();
+    spec.equip(Slot.WEAPON, ItemPool.get(ItemPool.SEAL_CLUB));
+    spec.calculate();
+
+    assertThat(EvaluationContext.current().isUnarmed(), equalTo(true));
+    assertThat(EvaluationContext.current().getMainhandClass(), equalTo(""));
+  }
+
+  @Test
+  public void isolatedEvaluationDoesNotChangeSharedModifiers() {
+    int itemId = ItemDatabase.getItemId("Hairpiece On Fire");
+    Modifiers shared = ModifierDatabase.getItemModifiers(itemId);
+    assertThat(shared.getDouble(DoubleModifier.MP), equalTo(0.0));
+
+    try (var context = EvaluationContext.isolate()) {
+      EvaluationContext.current().setSmithsness(10);
+      Modifiers isolated = ModifierDatabase.getItemModifiers(itemId);
+      assertThat(isolated, not(sameInstance(shared)));
+      assertThat(isolated.getDouble(DoubleModifier.MP), equalTo(10.0));
+    }
+
+    assertThat(shared.getDouble(DoubleModifier.MP), equalTo(0.0));
+  }
+}
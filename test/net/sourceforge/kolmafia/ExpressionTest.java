@@ -4,6 +4,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.function.DoubleSupplier;
+import net.sourceforge.kolmafia.persistence.ModifierDatabase;
 import net.sourceforge.kolmafia.preferences.Preferences;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -85,4 +87,43 @@ public class ExpressionTest {
     var exp = new Expression("1+(4*path(The Source))", "nonexistent function");
     assertThat(exp.hasErrors(), equalTo(true));
   }
+
+  @Test
+  void foldsConstantArithmetic() {
+    var exp = new Expression("2*(3+4)-1", "constant");
+    assertThat(exp.isCompiled(), equalTo(true));
+    assertThat(exp.isConstant(), equalTo(true));
+    assertEquals(13.0, exp.eval());
+  }
+
+  @Test
+  void doesNotFoldArithmeticOnPreferences() {
+    Preferences.setString("test", "5");
+    var exp = new Expression("2*(3+pref(test))", "not constant");
+    assertThat(exp.isCompiled(), equalTo(true));
+    assertThat(exp.isConstant(), equalTo(false));
+    assertEquals(16.0, exp.eval());
+  }
+
+  @Test
+  void compiledAndInterpretedModifiersAgree() {
+    for (var lookup : ModifierDatabase.getAllModifiers()) {
+      var mods = ModifierDatabase.getModifiers(lookup);
+      if (mods == null) continue;
+      for (var expr : mods.getExpressions()) {
+        var context = EvaluationContext.current();
+        double compiled = evaluate(() -> expr.evalInternal(context));
+        double interpreted = evaluate(() -> expr.interpret(context));
+        assertThat(lookup.toString(), compiled, equalTo(interpreted));
+      }
+    }
+  }
+
+  private static double evaluate(DoubleSupplier supplier) {
+    try {
+      return supplier.getAsDouble();
+    } catch (RuntimeException e) {
+      return Double.NaN;
+    }
+  }
 }
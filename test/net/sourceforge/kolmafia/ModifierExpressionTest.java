@@ -234,6 +234,22 @@ public class ModifierExpressionTest {
     }
   }
 
+  @Test
+  public void inactiveHolidayIsZeroWhetherCompiledOrInterpreted() {
+    HolidayDatabase.guessPhaseStep();
+    final var cleanups = withDay(2008, Month.FEBRUARY, 3, 12, 0);
+
+    try (cleanups) {
+      var exp =
+          new ModifierExpression(
+              "2+event(Sneaky Pete's Day)", ModifierType.EVENT, "Sneaky Pete's day");
+      var context = EvaluationContext.current();
+      assertTrue(exp.isCompiled());
+      assertThat(exp.evalInternal(context), is(2.0));
+      assertThat(exp.interpret(context), is(2.0));
+    }
+  }
+
   @Test
   public void canDetectDecember() {
     final var cleanups = withDay(2021, Month.DECEMBER, 3);
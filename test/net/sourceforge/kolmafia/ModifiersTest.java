@@ -1039,4 +1039,98 @@ public class ModifiersTest {
       }
     }
   }
+
+  @Nested
+  class EffectModifierCache {
+    @Test
+    void recalculatingWithSameEffectsGivesSameModifiers() {
+      var cleanups =
+          new Cleanups(
+              withEffect(EffectPool.EMPATHY),
+              withEffect(EffectPool.LEASH_OF_LINGUINI),
+              withEffect(EffectPool.SYNTHESIS_COLLECTION));
+
+      try (cleanups) {
+        KoLCharacter.recalculateAdjustments();
+        Modifiers first = new Modifiers(KoLCharacter.getCurrentModifiers());
+        KoLCharacter.recalculateAdjustments();
+        Modifiers mods = KoLCharacter.getCurrentModifiers();
+        assertThat(mods.getDouble(DoubleModifier.FAMILIAR_WEIGHT), equalTo(10.0));
+        assertThat(mods.getDouble(DoubleModifier.ITEMDROP), equalTo(150.0));
+        assertThat(
+            mods.getDouble(DoubleModifier.FAMILIAR_WEIGHT),
+            equalTo(first.getDouble(DoubleModifier.FAMILIAR_WEIGHT)));
+        assertThat(
+            mods.getDouble(DoubleModifier.ITEMDROP),
+            equalTo(first.getDouble(DoubleModifier.ITEMDROP)));
+      }
+    }
+
+    @Test
+    void changedEffectsAreNoticed() {
+      var cleanups = new Cleanups(withEffect(EffectPool.EMPATHY));
+
+      try (cleanups) {
+        KoLCharacter.recalculateAdjustments();
+        assertThat(
+            KoLCharacter.getCurrentModifiers().getDouble(DoubleModifier.FAMILIAR_WEIGHT),
+            equalTo(5.0));
+
+        try (var more = withEffect(EffectPool.LEASH_OF_LINGUINI)) {
+          assertThat(
+              KoLCharacter.getCurrentModifiers().getDouble(DoubleModifier.FAMILIAR_WEIGHT),
+              equalTo(10.0));
+        }
+
+        assertThat(
+            KoLCharacter.getCurrentModifiers().getDouble(DoubleModifier.FAMILIAR_WEIGHT),
+            equalTo(5.0));
+      }
+    }
+
+    @Test
+    void overriddenEffectModifiersAreNoticed() {
+      var cleanups = new Cleanups(withEffect(EffectPool.SYNTHESIS_COLLECTION));
+
+      try (cleanups) {
+        KoLCharacter.recalculateAdjustments();
+        assertThat(
+            KoLCharacter.getCurrentModifiers().getDouble(DoubleModifier.ITEMDROP), equalTo(150.0));
+
+        try (var override =
+            withOverrideModifiers(
+                ModifierType.EFFECT, EffectPool.SYNTHESIS_COLLECTION, "Item Drop: +10")) {
+          KoLCharacter.recalculateAdjustments();
+          assertThat(
+              KoLCharacter.getCurrentModifiers().getDouble(DoubleModifier.ITEMDROP),
+              equalTo(10.0));
+        }
+
+        KoLCharacter.recalculateAdjustments();
+        assertThat(
+            KoLCharacter.getCurrentModifiers().getDouble(DoubleModifier.ITEMDROP), equalTo(150.0));
+      }
+    }
+
+    @Test
+    void changedLocationIsNoticed() {
+      try (var deeps = withLocation("The Briny Deeps")) {
+        KoLCharacter.recalculateAdjustments();
+        double penalty =
+            KoLCharacter.getCurrentModifiers().getDouble(DoubleModifier.ITEMDROP_PENALTY);
+
+        try (var deepests = withLocation("The Briniest Deepests")) {
+          KoLCharacter.recalculateAdjustments();
+          assertThat(
+              KoLCharacter.getCurrentModifiers().getDouble(DoubleModifier.ITEMDROP_PENALTY),
+              equalTo(penalty - 50));
+        }
+
+        KoLCharacter.recalculateAdjustments();
+        assertThat(
+            KoLCharacter.getCurrentModifiers().getDouble(DoubleModifier.ITEMDROP_PENALTY),
+            equalTo(penalty));
+      }
+    }
+  }
 }
@@ -0,0 +1,78 @@
+package net.sourceforge.kolmafia.listener;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.jupiter.api.Test;
+
+public class ListenerRegistryTest {
+  private static class CountingListener implements Listener {
+    int count = 0;
+
+    @Override
+    public void update() {
+      this.count++;
+    }
+  }
+
+  @Test
+  public void firesImmediatelyWhenNotDeferred() {
+    var registry = new ListenerRegistry();
+    var listener = new CountingListener();
+    registry.registerListener("a", listener);
+
+    registry.fireListener("a");
+    registry.fireListener("a");
+
+    assertThat(listener.count, equalTo(2));
+  }
+
+  @Test
+  public void deferredKeyFiresOnceWhenUndeferred() {
+    var registry = new ListenerRegistry();
+    var listener = new CountingListener();
+    registry.registerListener("a", listener);
+
+    registry.deferListeners(true);
+    registry.fireListener("a");
+    registry.fireListener("a");
+    assertThat(listener.count, equalTo(0));
+
+    registry.deferListeners(false);
+    assertThat(listener.count, equalTo(1));
+  }
+
+  @Test
+  public void listenerForSeveralDeferredKeysFiresOnce() {
+    var registry = new ListenerRegistry();
+    var listener = new CountingListener();
+    var other = new CountingListener();
+    registry.registerListener("a", listener);
+    registry.registerListener("b", listener);
+    registry.registerListener("b", other);
+
+    registry.deferListeners(true);
+    registry.fireListener("a");
+    registry.fireListener("b");
+    registry.deferListeners(false);
+
+    assertThat(listener.count, equalTo(1));
+    assertThat(other.count, equalTo(1));
+  }
+
+  @Test
+  public void nestedDeferralFiresAtOutermostUndefer() {
+    var registry = new ListenerRegistry();
+    var listener = new CountingListener();
+    registry.registerListener("a", listener);
+
+    registry.deferListeners(true);
+    registry.deferListeners(true);
+    registry.fireListener("a");
+    registry.deferListeners(false);
+    assertThat(listener.count, equalTo(0));
+
+    registry.deferListeners(false);
+    assertThat(listener.count, equalTo(1));
+  }
+}
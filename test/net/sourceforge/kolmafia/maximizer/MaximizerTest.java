@@ -27,11 +27,13 @@ import static internal.helpers.Player.withSkill;
 import static internal.helpers.Player.withStats;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import internal.helpers.Cleanups;
+import java.util.List;
 import java.util.Optional;
 import net.sourceforge.kolmafia.AscensionClass;
 import net.sourceforge.kolmafia.AscensionPath.Path;
@@ -711,7 +713,8 @@ public class MaximizerTest {
 
       try (cleanups) {
         assertEquals(
-            AdventureDatabase.getEnvironment(Modifiers.currentLocation), Environment.UNDERWATER);
+            AdventureDatabase.getEnvironment(Modifiers.getCurrentLocation()),
+            Environment.UNDERWATER);
         assertTrue(maximize("-combat -tie"));
 
         recommendedSlotIs(Slot.HAT, "Mer-kin sneakmask");
@@ -1755,4 +1758,247 @@ public class MaximizerTest {
       }
     }
   }
+
+  @Nested
+  class Parallel {
+    @Test
+    public void parallelSearchConsidersOutfits() {
+      final var cleanups =
+          new Cleanups(
+              withProperty("maximizerParallelSearch", true),
+              withEquippableItem("bounty-hunting helmet"),
+              withEquippableItem("bounty-hunting rifle"),
+              withEquippableItem("bounty-hunting pants"),
+              withEquippableItem("eldritch hat"),
+              withEquippableItem("eldritch pants"));
+
+      try (cleanups) {
+        assertTrue(maximize("item -tie"));
+        assertEquals(70, modFor(DoubleModifier.ITEMDROP), 0.01);
+        recommendedSlotIs(Slot.HAT, "bounty-hunting helmet");
+        recommendedSlotIs(Slot.WEAPON, "bounty-hunting rifle");
+        recommendedSlotIs(Slot.PANTS, "bounty-hunting pants");
+
+        assertTrue(maximize("item, +outfit Eldritch Equipage -tie"));
+        assertEquals(65, modFor(DoubleModifier.ITEMDROP), 0.01);
+        recommendedSlotIs(Slot.HAT, "eldritch hat");
+        recommendedSlotIs(Slot.PANTS, "eldritch pants");
+      }
+    }
+
+    @Test
+    public void parallelSearchConsidersFamiliars() {
+      var cleanups =
+          new Cleanups(
+              withProperty("maximizerParallelSearch", true),
+              withFamiliarInTerrarium(FamiliarPool.TRICK_TOT),
+              withFamiliarInTerrarium(FamiliarPool.HAND),
+              withFamiliarInTerrarium(FamiliarPool.MOSQUITO),
+              withItem(ItemPool.TRICK_TOT_UNICORN), // 5 adv with tot
+              withItem(ItemPool.TRICK_TOT_CANDY), // 0 adv
+              withItem(ItemPool.TIME_SWORD), // 3 adv with hand
+              withItem(ItemPool.SOLID_SHIFTING_TIME_WEIRDNESS) // 4 adv with any familiar
+              );
+
+      try (cleanups) {
+        assertTrue(
+            maximize(
+                "adv -weapon -offhand -tie +switch tot +switch disembodied hand +switch mosquito"));
+        recommendedSlotIs(Slot.FAMILIAR, "li'l unicorn costume");
+        assertThat(
+            someBoostIs(b -> commandStartsWith(b, "familiar Trick-or-Treating Tot")),
+            equalTo(true));
+      }
+    }
+
+    @Test
+    public void parallelSearchBestLeavesItsBranch() {
+      final var cleanups =
+          new Cleanups(
+              withProperty("maximizerParallelSearch", true),
+              withEquippableItem("eldritch hat"),
+              withEquippableItem("eldritch pants"));
+
+      try (cleanups) {
+        assertTrue(maximize("item -tie"));
+        assertThat(Maximizer.best.branch, nullValue());
+      }
+    }
+
+    @Test
+    public void parallelSearchRespectsCombinationLimit() {
+      var cleanups =
+          new Cleanups(
+              withProperty("maximizerParallelSearch", true),
+              withProperty("maximizerCombinationLimit", 1),
+              withEquippableItem("helmet turtle"),
+              withEquippableItem("eldritch hat"),
+              withEquippableItem("eldritch pants"));
+
+      try (cleanups) {
+        maximize("mus");
+        assertTrue(someBoostIs(x -> x.toString().contains("hit combination limit")));
+      }
+    }
+  }
+
+  @Nested
+  class BranchAndBound {
+    @Test
+    public void boundedSearchFindsSameOutfits() {
+      final var cleanups =
+          new Cleanups(
+              withProperty("maximizerBranchAndBound", true),
+              withEquippableItem("bounty-hunting helmet"),
+              withEquippableItem("bounty-hunting rifle"),
+              withEquippableItem("bounty-hunting pants"),
+              withEquippableItem("eldritch hat"),
+              withEquippableItem("eldritch pants"));
+
+      try (cleanups) {
+        assertTrue(maximize("item -tie"));
+        assertEquals(70, modFor(DoubleModifier.ITEMDROP), 0.01);
+        recommendedSlotIs(Slot.HAT, "bounty-hunting helmet");
+        recommendedSlotIs(Slot.WEAPON, "bounty-hunting rifle");
+        recommendedSlotIs(Slot.PANTS, "bounty-hunting pants");
+      }
+    }
+
+    @Test
+    public void boundedSearchRespectsMax() {
+      final var cleanups =
+          new Cleanups(
+              withProperty("maximizerBranchAndBound", true),
+              withEquippableItem("hardened slime hat"),
+              withEquippableItem("bounty-hunting helmet"),
+              withSkill("Refusal to Freeze"));
+      try (cleanups) {
+        assertTrue(maximize("cold res 3 max, 0.1 item drop"));
+
+        assertEquals(3, modFor(DoubleModifier.COLD_RESISTANCE), 0.01);
+        assertEquals(20, modFor(DoubleModifier.ITEMDROP), 0.01);
+        recommendedSlotIs(Slot.HAT, "bounty-hunting helmet");
+      }
+    }
+
+    @Test
+    public void boundedSearchChecksFewerCombinations() {
+      final var cleanups =
+          new Cleanups(
+              withEquippableItem("Baron von Ratsworth's monocle"),
+              withEquippableItem("ring of the Skeleton Lord"),
+              withEquippableItem("observational glasses", 3),
+              withEquippableItem("Team Avarice cap"),
+              withEquippableItem("eldritch hat"));
+
+      try (cleanups) {
+        assertTrue(maximize("item -tie"));
+        double unbounded = Maximizer.best.getScore();
+        int unboundedChecked = Maximizer.bestChecked;
+
+        try (var bounded = withProperty("maximizerBranchAndBound", true)) {
+          assertTrue(maximize("item -tie"));
+          assertEquals(unbounded, Maximizer.best.getScore(), 0.01);
+          assertThat(Maximizer.bestChecked <= unboundedChecked, equalTo(true));
+        }
+      }
+    }
+
+    @Test
+    public void boundedSearchKeepsOutfitBonus() {
+      final var cleanups =
+          new Cleanups(
+              withEquippableItem("bounty-hunting helmet"),
+              withEquippableItem("bounty-hunting pants"),
+              withEquippableItem("eldritch hat"),
+              withEquippableItem("eldritch pants"));
+
+      try (cleanups) {
+        // The eldritch pieces give no item drop on their own, only as an outfit
+        assertTrue(maximize("item -tie"));
+        double unbounded = Maximizer.best.getScore();
+
+        try (var bounded = withProperty("maximizerBranchAndBound", true)) {
+          assertTrue(maximize("item -tie"));
+          assertEquals(unbounded, Maximizer.best.getScore(), 0.01);
+          assertEquals(50, modFor(DoubleModifier.ITEMDROP), 0.01);
+          recommendedSlotIs(Slot.HAT, "eldritch hat");
+          recommendedSlotIs(Slot.PANTS, "eldritch pants");
+        }
+      }
+    }
+  }
+
+  @Nested
+  class Cache {
+    @Test
+    public void repeatedMaximizeIsCached() {
+      final var cleanups =
+          new Cleanups(
+              withProperty("maximizerCacheResults", true),
+              withEquippableItem("helmet turtle"),
+              withEquippableItem("wooden axe"));
+
+      try (cleanups) {
+        MaximizerCache.resetCounters();
+        assertTrue(maximize("mus"));
+        var boosts = List.copyOf(getBoosts());
+
+        assertTrue(maximize("mus"));
+        assertThat(MaximizerCache.getHits(), equalTo(1));
+        assertThat(MaximizerCache.getMisses(), equalTo(1));
+        assertThat(getBoosts(), equalTo(boosts));
+        assertEquals(4, modFor(DerivedModifier.BUFFED_MUS), 0.01);
+      }
+    }
+
+    @Test
+    public void inventoryChangeInvalidatesCache() {
+      final var cleanups =
+          new Cleanups(
+              withProperty("maximizerCacheResults", true), withEquippableItem("helmet turtle"));
+
+      try (cleanups) {
+        MaximizerCache.resetCounters();
+        assertTrue(maximize("mus"));
+        assertEquals(1, modFor(DerivedModifier.BUFFED_MUS), 0.01);
+
+        try (var axe = withEquippableItem("wooden axe")) {
+          assertTrue(maximize("mus"));
+          assertThat(MaximizerCache.getHits(), equalTo(0));
+          assertEquals(4, modFor(DerivedModifier.BUFFED_MUS), 0.01);
+        }
+      }
+    }
+
+    @Test
+    public void effectChangeInvalidatesCache() {
+      final var cleanups =
+          new Cleanups(
+              withProperty("maximizerCacheResults", true), withEquippableItem("helmet turtle"));
+
+      try (cleanups) {
+        MaximizerCache.resetCounters();
+        assertTrue(maximize("mus"));
+
+        try (var effect = withEffect("Feeling Excited")) {
+          assertTrue(maximize("mus"));
+          assertThat(MaximizerCache.getHits(), equalTo(0));
+          assertThat(MaximizerCache.getMisses(), equalTo(2));
+        }
+      }
+    }
+
+    @Test
+    public void cacheIsOffByDefault() {
+      final var cleanups = new Cleanups(withEquippableItem("helmet turtle"));
+
+      try (cleanups) {
+        MaximizerCache.resetCounters();
+        assertTrue(maximize("mus"));
+        assertTrue(maximize("mus"));
+        assertThat(MaximizerCache.getHits(), equalTo(0));
+      }
+    }
+  }
 }
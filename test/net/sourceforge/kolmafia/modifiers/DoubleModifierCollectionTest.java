@@ -0,0 +1,92 @@
+package net.sourceforge.kolmafia.modifiers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class DoubleModifierCollectionTest {
+  private static List<DoubleModifier> present(DoubleModifierCollection collection) {
+    List<DoubleModifier> mods = new ArrayList<>();
+    collection.forEach((mod, value) -> mods.add(mod));
+    return mods;
+  }
+
+  @Test
+  public void settingZeroRemovesModifier() {
+    var collection = new DoubleModifierCollection();
+    collection.set(DoubleModifier.MEATDROP, 10);
+    collection.set(DoubleModifier.ITEMDROP, 5);
+    collection.set(DoubleModifier.MEATDROP, 0);
+
+    assertThat(collection.get(DoubleModifier.MEATDROP), equalTo(0.0));
+    assertThat(present(collection), contains(DoubleModifier.ITEMDROP));
+  }
+
+  @Test
+  public void iteratesInOrdinalOrder() {
+    var collection = new DoubleModifierCollection();
+    collection.add(DoubleModifier.STENCH_RESISTANCE, 1);
+    collection.add(DoubleModifier.FAMILIAR_WEIGHT, 2);
+    collection.add(DoubleModifier.INITIATIVE, 3);
+
+    assertThat(
+        present(collection),
+        contains(
+            DoubleModifier.FAMILIAR_WEIGHT,
+            DoubleModifier.INITIATIVE,
+            DoubleModifier.STENCH_RESISTANCE));
+  }
+
+  @Test
+  public void resetClearsEverything() {
+    var collection = new DoubleModifierCollection();
+    collection.add(DoubleModifier.MOX, 7);
+    collection.reset();
+
+    assertThat(collection.get(DoubleModifier.MOX), equalTo(0.0));
+    assertThat(present(collection), empty());
+  }
+
+  @Test
+  public void copyMatchesOriginal() {
+    var original = new DoubleModifierCollection();
+    original.add(DoubleModifier.MUS, 4);
+    original.add(DoubleModifier.EXPERIENCE, 2);
+    var copy = new DoubleModifierCollection();
+    copy.add(DoubleModifier.MYS, 1);
+
+    assertThat(copy.set(original), equalTo(true));
+    assertThat(copy.get(DoubleModifier.MUS), equalTo(4.0));
+    assertThat(copy.get(DoubleModifier.MYS), equalTo(0.0));
+    assertThat(present(copy), equalTo(present(original)));
+    assertThat(copy.set(original), equalTo(false));
+  }
+
+  @Test
+  public void bulkAddSumsAllButMaskedModifiers() {
+    var sum = new DoubleModifierCollection();
+    sum.add(DoubleModifier.MEATDROP, 10);
+    sum.add(DoubleModifier.MANA_COST, -2);
+    var other = new DoubleModifierCollection();
+    other.add(DoubleModifier.MEATDROP, 15);
+    other.add(DoubleModifier.ITEMDROP, 5);
+    other.add(DoubleModifier.MANA_COST, -2);
+
+    List<DoubleModifier> special = new ArrayList<>();
+    sum.add(
+        other,
+        new DoubleModifierCollection.Mask(EnumSet.of(DoubleModifier.MANA_COST)),
+        (mod, value) -> special.add(mod));
+
+    assertThat(sum.get(DoubleModifier.MEATDROP), equalTo(25.0));
+    assertThat(sum.get(DoubleModifier.ITEMDROP), equalTo(5.0));
+    assertThat(sum.get(DoubleModifier.MANA_COST), equalTo(-2.0));
+    assertThat(special, contains(DoubleModifier.MANA_COST));
+  }
+}
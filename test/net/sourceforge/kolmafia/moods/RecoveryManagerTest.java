@@ -0,0 +1,72 @@
+package net.sourceforge.kolmafia.moods;
+
+import static internal.helpers.Player.withHP;
+import static internal.helpers.Player.withItem;
+import static internal.helpers.Player.withMP;
+import static internal.helpers.Player.withMeat;
+import static internal.helpers.Player.withProperty;
+import static internal.helpers.Player.withSkill;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import internal.helpers.Cleanups;
+import java.util.List;
+import net.sourceforge.kolmafia.moods.HPRestoreItemList.HPRestoreItemItem;
+import net.sourceforge.kolmafia.moods.HPRestoreItemList.HPRestoreItemSkill;
+import org.junit.jupiter.api.Test;
+
+public class RecoveryManagerTest {
+  private static final RestoreItem BANDAGES = new HPRestoreItemSkill("Lasagna Bandages", 20);
+  private static final RestoreItem ELIXIR =
+      new HPRestoreItemItem("Doc Galaktik's Homeopathic Elixir", 19, 120);
+  private static final RestoreItem UNGUENT =
+      new HPRestoreItemItem("Doc Galaktik's Pungent Unguent", 4, 30);
+
+  @Test
+  public void skillsShareTheMPToCastThem() {
+    var cleanups =
+        new Cleanups(
+            withSkill("Tongue of the Walrus"),
+            withSkill("Lasagna Bandages"),
+            withHP(100, 200, 200),
+            withMP(24, 24, 24));
+
+    try (cleanups) {
+      // Two casts of the one or four of the other fit in 24 MP, but not both
+      int[] counts =
+          RecoveryManager.planUses(List.of(HPRestoreItemList.WALRUS, BANDAGES), false, 100);
+      assertThat(counts, equalTo(new int[] {0, 4}));
+    }
+  }
+
+  @Test
+  public void itemsBoughtShareTheMeatToBuyThem() {
+    var cleanups =
+        new Cleanups(
+            withProperty("autoSatisfyWithNPCs", true),
+            withItem("Doc Galaktik's Pungent Unguent", 2),
+            withHP(100, 200, 200),
+            withMeat(150));
+
+    try (cleanups) {
+      // The unguent on hand is free, and 150 meat buys one elixir and one more unguent
+      int[] counts = RecoveryManager.planUses(List.of(ELIXIR, UNGUENT), true, 100);
+      assertThat(counts, equalTo(new int[] {1, 3}));
+    }
+  }
+
+  @Test
+  public void itemsOnHandAreUsedWithoutPurchase() {
+    var cleanups =
+        new Cleanups(
+            withProperty("autoSatisfyWithNPCs", true),
+            withItem("Doc Galaktik's Pungent Unguent", 2),
+            withHP(100, 200, 200),
+            withMeat(1000));
+
+    try (cleanups) {
+      int[] counts = RecoveryManager.planUses(List.of(ELIXIR, UNGUENT), false, 100);
+      assertThat(counts, equalTo(new int[] {0, 2}));
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package net.sourceforge.kolmafia.moods;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.jupiter.api.Test;
+
+public class RestorePlannerTest {
+  @Test
+  public void choosesCheapestCombination() {
+    int[] counts =
+        RestorePlanner.plan(
+            100, new long[] {60, 30, 100}, new long[] {10, 4, 30}, new int[] {5, 5, 5});
+    assertThat(counts, equalTo(new int[] {0, 4, 0}));
+  }
+
+  @Test
+  public void usesOnlyWhatIsAvailable() {
+    int[] counts =
+        RestorePlanner.plan(
+            100, new long[] {60, 30, 100}, new long[] {10, 4, 30}, new int[] {5, 1, 5});
+    assertThat(counts, equalTo(new int[] {2, 0, 0}));
+  }
+
+  @Test
+  public void prefersFewerUsesAtEqualCost() {
+    int[] counts =
+        RestorePlanner.plan(40, new long[] {10, 20}, new long[] {0, 0}, new int[] {9, 9});
+    assertThat(counts, equalTo(new int[] {0, 2}));
+  }
+
+  @Test
+  public void usesEverythingWhenShort() {
+    int[] counts =
+        RestorePlanner.plan(100, new long[] {10, 25}, new long[] {1, 1}, new int[] {3, 1});
+    assertThat(counts, equalTo(new int[] {3, 1}));
+  }
+
+  @Test
+  public void plansLargeShortfallsInSteps() {
+    int[] counts =
+        RestorePlanner.plan(5000, new long[] {300, 1200}, new long[] {1, 5}, new int[] {100, 100});
+    assertThat(counts, equalTo(new int[] {17, 0}));
+  }
+
+  @Test
+  public void plansNothingWhenNothingIsMissing() {
+    int[] counts = RestorePlanner.plan(0, new long[] {10}, new long[] {1}, new int[] {5});
+    assertThat(counts, equalTo(new int[] {0}));
+  }
+
+  @Test
+  public void sharesBudgetBetweenRestores() {
+    // The uses available of either restore fit the budget, but not those of both together
+    int[] counts =
+        RestorePlanner.plan(
+            100,
+            new long[] {35, 20},
+            new long[] {10, 6},
+            new int[] {2, 4},
+            new long[][] {{10, 6}},
+            new long[] {24});
+    assertThat(counts, equalTo(new int[] {0, 4}));
+  }
+
+  @Test
+  public void keepsWithinEveryBudget() {
+    int[] counts =
+        RestorePlanner.plan(
+            100,
+            new long[] {50, 30, 10},
+            new long[] {1, 1, 1},
+            new int[] {5, 5, 5},
+            new long[][] {{40, 0, 0}, {0, 3, 1}},
+            new long[] {40, 5});
+    assertThat(counts, equalTo(new int[] {1, 1, 2}));
+  }
+
+  @Test
+  public void ignoresBudgetsWhichCannotRunOut() {
+    int[] counts =
+        RestorePlanner.plan(
+            100,
+            new long[] {60, 30, 100},
+            new long[] {10, 4, 30},
+            new int[] {5, 5, 5},
+            new long[][] {{1, 1, 1}},
+            new long[] {1000});
+    assertThat(counts, equalTo(new int[] {0, 4, 0}));
+  }
+}
@@ -0,0 +1,84 @@
+package net.sourceforge.kolmafia.persistence;
+
+import static internal.helpers.Player.withItem;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import internal.helpers.Cleanups;
+import net.sourceforge.kolmafia.AdventureResult;
+import net.sourceforge.kolmafia.KoLCharacter;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.objectpool.Concoction;
+import net.sourceforge.kolmafia.objectpool.ConcoctionPool;
+import net.sourceforge.kolmafia.objectpool.ItemPool;
+import net.sourceforge.kolmafia.preferences.Preferences;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class ConcoctionDatabaseTest {
+  @BeforeEach
+  public void beforeEach() {
+    KoLCharacter.reset("ConcoctionDatabaseTest");
+    Preferences.reset("ConcoctionDatabaseTest");
+  }
+
+  private static Concoction concoction(final String name) {
+    return ConcoctionPool.get(ItemDatabase.getItemId(name));
+  }
+
+  @Nested
+  class ItemRefresh {
+    @Test
+    public void recalculatesConcoctionsUsingTheChangedItem() {
+      var cleanups = new Cleanups(withItem("bum cheek", 2), withItem(ItemPool.MEAT_PASTE, 5));
+
+      try (cleanups) {
+        ConcoctionDatabase.refreshConcoctions();
+        assertThat(concoction("asshat").creatable, equalTo(1));
+
+        AdventureResult cheeks = ItemPool.get("bum cheek", 2);
+        AdventureResult.addResultToList(KoLConstants.inventory, cheeks);
+        ConcoctionDatabase.setRefreshNeeded(cheeks.getItemId());
+        ConcoctionDatabase.refreshConcoctions(false);
+
+        assertThat(concoction("asshat").creatable, equalTo(2));
+      }
+    }
+
+    @Test
+    public void leavesConcoctionsNotUsingTheChangedItem() {
+      var cleanups = new Cleanups(withItem("bum cheek", 2), withItem(ItemPool.MEAT_PASTE, 5));
+
+      try (cleanups) {
+        ConcoctionDatabase.refreshConcoctions();
+        Concoction unrelated = concoction("bottle of gin");
+        unrelated.creatable = -100;
+
+        AdventureResult cheeks = ItemPool.get("bum cheek", 2);
+        AdventureResult.addResultToList(KoLConstants.inventory, cheeks);
+        ConcoctionDatabase.setRefreshNeeded(cheeks.getItemId());
+        ConcoctionDatabase.refreshConcoctions(false);
+
+        assertThat(unrelated.creatable, equalTo(-100));
+        assertThat(concoction("asshat").creatable, equalTo(2));
+      }
+    }
+
+    @Test
+    public void forcedRefreshRecalculatesEverything() {
+      var cleanups = new Cleanups(withItem("bum cheek", 2), withItem(ItemPool.MEAT_PASTE, 5));
+
+      try (cleanups) {
+        ConcoctionDatabase.refreshConcoctions();
+        Concoction unrelated = concoction("bottle of gin");
+        unrelated.creatable = -100;
+
+        ConcoctionDatabase.setRefreshNeeded(ItemPool.get("bum cheek", 1).getItemId());
+        ConcoctionDatabase.refreshConcoctions();
+
+        assertThat(unrelated.creatable, equalTo(0));
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package net.sourceforge.kolmafia.persistence;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Arrays;
+import java.util.List;
+import net.sourceforge.kolmafia.objectpool.ItemPool;
+import net.sourceforge.kolmafia.request.MallPurchaseRequest;
+import net.sourceforge.kolmafia.request.PurchaseRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MallSearchDatabaseTest {
+  private boolean savePricesToFile;
+
+  @BeforeEach
+  public void beforeEach() {
+    this.savePricesToFile = MallPriceDatabase.savePricesToFile;
+    MallPriceDatabase.savePricesToFile = true;
+    MallSearchDatabase.SEARCH_FILE.delete();
+    MallSearchDatabase.reset();
+  }
+
+  @AfterEach
+  public void afterEach() {
+    MallSearchDatabase.SEARCH_FILE.delete();
+    MallSearchDatabase.reset();
+    MallPriceDatabase.savePricesToFile = this.savePricesToFile;
+  }
+
+  private static PurchaseRequest offer(final int itemId, final int shopId, final int price) {
+    return new MallPurchaseRequest(itemId, 10, shopId, "shop " + shopId, price, 10, true);
+  }
+
+  private static List<String> shops(final List<PurchaseRequest> results) {
+    return results.stream()
+        .map(result -> result.getShopName() + " @ " + result.getPrice())
+        .toList();
+  }
+
+  @Test
+  public void searchesSurviveWritingAndReading() {
+    int reagent = ItemPool.REAGENT;
+    int ramen = ItemPool.HELL_RAMEN;
+    MallSearchDatabase.recordSearch(
+        reagent, Arrays.asList(offer(reagent, 2, 600), offer(reagent, 1, 500)), true);
+    MallSearchDatabase.recordSearch(ramen, List.of(offer(ramen, 3, 1000)), true);
+    // Not in the mall at all
+    MallSearchDatabase.recordSearch(ItemPool.DRY_NOODLES, List.of(), true);
+
+    MallSearchDatabase.writeSearches();
+    MallSearchDatabase.reset();
+
+    assertThat(MallSearchDatabase.readSearches(), is(false));
+    assertThat(
+        shops(MallSearchDatabase.getSearch(reagent)), contains("shop 1 @ 500", "shop 2 @ 600"));
+    assertThat(shops(MallSearchDatabase.getSearch(ramen)), contains("shop 3 @ 1000"));
+    assertThat(MallSearchDatabase.getSearch(ItemPool.DRY_NOODLES), empty());
+  }
+
+  @Test
+  public void forgottenSearchesStayForgotten() {
+    int reagent = ItemPool.REAGENT;
+    int ramen = ItemPool.HELL_RAMEN;
+    int noodles = ItemPool.DRY_NOODLES;
+    MallSearchDatabase.recordSearch(reagent, List.of(offer(reagent, 1, 500)), false);
+    MallSearchDatabase.recordSearch(ramen, List.of(offer(ramen, 2, 1000)), false);
+    MallSearchDatabase.recordSearch(noodles, List.of(offer(noodles, 3, 50)), false);
+
+    MallSearchDatabase.forgetSearch(ramen);
+    MallSearchDatabase.forgetShop(1);
+    MallSearchDatabase.reset();
+
+    // The file still has the searches, so it needs rewriting without them
+    assertThat(MallSearchDatabase.readSearches(), is(true));
+    assertThat(MallSearchDatabase.getSearch(reagent), nullValue());
+    assertThat(MallSearchDatabase.getSearch(ramen), nullValue());
+    assertThat(shops(MallSearchDatabase.getSearch(noodles)), contains("shop 3 @ 50"));
+  }
+
+  @Test
+  public void searchAfterForgettingIsKept() {
+    int reagent = ItemPool.REAGENT;
+    MallSearchDatabase.recordSearch(reagent, List.of(offer(reagent, 1, 500)), false);
+    MallSearchDatabase.forgetSearch(reagent);
+    MallSearchDatabase.recordSearch(reagent, List.of(offer(reagent, 2, 700)), false);
+    MallSearchDatabase.reset();
+
+    MallSearchDatabase.readSearches();
+    assertThat(shops(MallSearchDatabase.getSearch(reagent)), contains("shop 2 @ 700"));
+  }
+}
@@ -0,0 +1,96 @@
+package net.sourceforge.kolmafia.persistence;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import net.sourceforge.kolmafia.ModifierType;
+import net.sourceforge.kolmafia.Modifiers;
+import net.sourceforge.kolmafia.modifiers.BooleanModifier;
+import net.sourceforge.kolmafia.modifiers.DoubleModifier;
+import net.sourceforge.kolmafia.modifiers.Lookup;
+import net.sourceforge.kolmafia.modifiers.StringModifier;
+import net.sourceforge.kolmafia.utilities.IntOrString;
+import net.sourceforge.kolmafia.utilities.TwoLevelEnumHashMap;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class ModifierSnapshotTest {
+  private static byte[] bytes;
+
+  private static final TwoLevelEnumHashMap<ModifierType, IntOrString, String> strings =
+      new TwoLevelEnumHashMap<>(ModifierType.class);
+  private static final Map<String, String> familiarEffects = new HashMap<>();
+
+  @BeforeAll
+  public static void beforeAll() throws IOException {
+    ByteArrayOutputStream ostream = new ByteArrayOutputStream();
+    ModifierDatabase.writeSnapshot(new DataOutputStream(ostream));
+    bytes = ostream.toByteArray();
+  }
+
+  private static ModifierSnapshot indexedSnapshot() {
+    var snapshot = ModifierSnapshot.read(ByteBuffer.wrap(bytes));
+    strings.clear();
+    familiarEffects.clear();
+    snapshot.index(strings, familiarEffects);
+    return snapshot;
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"helmet turtle", "Hairpiece On Fire", "Ancient Saucehelm"})
+  public void itemsMatchTextFile(String name) {
+    var snapshot = indexedSnapshot();
+    var lookup = new Lookup(ModifierType.ITEM, name);
+    String string = strings.get(lookup.type, lookup.getKey());
+
+    Modifiers fromText = ModifierDatabase.parseModifiers(lookup, string);
+    Modifiers fromSnapshot = snapshot.parse(lookup, lookup.type, lookup.getKey(), string);
+    fromText.override(lookup);
+    fromSnapshot.override(lookup);
+
+    assertThat(fromSnapshot.toString(), equalTo(fromText.toString()));
+    for (var mod : DoubleModifier.DOUBLE_MODIFIERS) {
+      assertThat(mod.getName(), fromSnapshot.getDouble(mod), equalTo(fromText.getDouble(mod)));
+    }
+    for (var mod : BooleanModifier.BOOLEAN_MODIFIERS) {
+      assertThat(mod.getName(), fromSnapshot.getBoolean(mod), equalTo(fromText.getBoolean(mod)));
+    }
+    for (var mod : StringModifier.STRING_MODIFIERS) {
+      assertThat(mod.getName(), fromSnapshot.getString(mod), equalTo(fromText.getString(mod)));
+    }
+  }
+
+  @Test
+  public void indexFillsFamiliarEffects() {
+    indexedSnapshot();
+
+    assertThat(
+        familiarEffects.get("helmet turtle"),
+        equalTo(ModifierDatabase.getFamiliarEffect("helmet turtle")));
+  }
+
+  @Test
+  public void changedStringIsNotParsed() {
+    var snapshot = indexedSnapshot();
+    var lookup = new Lookup(ModifierType.ITEM, "helmet turtle");
+
+    assertThat(snapshot.parse(lookup, lookup.type, lookup.getKey(), "Muscle: +2"), nullValue());
+  }
+
+  @Test
+  public void snapshotOfOtherTextIsIgnored() {
+    var buffer = ByteBuffer.wrap(bytes.clone());
+    buffer.putInt(16, buffer.getInt(16) + 1);
+
+    assertThat(ModifierSnapshot.read(buffer), nullValue());
+  }
+}
@@ -0,0 +1,63 @@
+package net.sourceforge.kolmafia.persistence;
+
+import static internal.helpers.Networking.html;
+import static internal.helpers.Player.withClan;
+import static internal.helpers.Player.withNextResponse;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import internal.helpers.Cleanups;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.session.ClanManager;
+import net.sourceforge.kolmafia.session.ContactManager;
+import org.junit.jupiter.api.Test;
+
+public class ProfileSnapshotTest {
+  private static final String ROSTER =
+      "<form action=clan_detailedroster.php><table><tr><td>Name</td></tr></table></form>";
+
+  private static String printStandardData(final boolean localProfileLink) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream ostream = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+    ProfileSnapshot.printStandardData(ostream, localProfileLink);
+    ostream.close();
+
+    // The title carries the time the snapshot was taken
+    return bytes
+        .toString(StandardCharsets.UTF_8)
+        .replace(KoLConstants.LINE_BREAK, "\n")
+        .replaceFirst("\\([^)]*\\)</title>", "(DATE)</title>");
+  }
+
+  @Test
+  public void standardDataMatchesEarlierOutput() {
+    var cleanups = new Cleanups(withClan(1234, "Test Clan"), withNextResponse(200, ROSTER));
+
+    try (cleanups) {
+      ContactManager.registerPlayerId("Alice", "101");
+      ContactManager.registerPlayerId("Bob", "102");
+      ClanManager.registerMember("Alice", "12", "Captain");
+      ClanManager.registerMember("Bob", "30", "Normal Member");
+
+      var profiles = ProfileSnapshot.getProfileMap();
+      profiles.put("alice", html("request/test_showplayer_clan_member.html"));
+      profiles.put("bob", html("request/test_showplayer_clan_member_ascended.html"));
+      ProfileSnapshot.addToRoster(
+          "alice",
+          "<td>Alice</td><td>SA</td><td>100</td><td>250</td><td>120</td><td>470</td>"
+              + "<td>0</td><td>0</td><td>55</td><td>Captain</td><td>1000</td>");
+      ProfileSnapshot.addToRoster(
+          "bob",
+          "<td>Bob</td><td>SC</td><td>400</td><td>150</td><td>200</td><td>750</td>"
+              + "<td>7</td><td>7</td><td>7</td><td>Normal Member</td><td>30</td>");
+
+      // As written by getStandardData, before the page was streamed
+      String expected = html("expected/clan_snapshot_standard.htm.out") + "\n";
+
+      assertThat(printStandardData(true), equalTo(expected));
+    }
+  }
+}
@@ -40,6 +40,10 @@ class PreferencesTest {
     if (userFile.exists()) {
       userFile.delete();
     }
+    File journalFile = new File("settings/" + USER_NAME.toLowerCase() + "_prefs.journal");
+    if (journalFile.exists()) {
+      journalFile.delete();
+    }
   }
 
   @Test
@@ -623,7 +627,10 @@ class PreferencesTest {
     @Test
     public void savesSettingsIfOn() throws IOException {
       var cleanups =
-          new Cleanups(withSavePreferencesToFile(), withProperty("saveSettingsOnSet", true));
+          new Cleanups(
+              withSavePreferencesToFile(),
+              withProperty("saveSettingsDelay", 0),
+              withProperty("saveSettingsOnSet", true));
       try (cleanups) {
         File userFile =
             new File("settings/" + KoLCharacter.getUserName().toLowerCase() + "_prefs.txt");
@@ -652,6 +659,7 @@ class PreferencesTest {
       var cleanups =
           new Cleanups(
               withSavePreferencesToFile(),
+              withProperty("saveSettingsDelay", 0),
               withProperty("saveSettingsOnSet", false),
               withProperty("xyz", "abc"));
       try (cleanups) {
@@ -672,4 +680,101 @@ class PreferencesTest {
       }
     }
   }
+
+  @Nested
+  class SaveSettingsDelay {
+    private final File userFile = new File("settings/" + USER_NAME.toLowerCase() + "_prefs.txt");
+    private final File journalFile =
+        new File("settings/" + USER_NAME.toLowerCase() + "_prefs.journal");
+
+    private String read(File file) throws IOException {
+      return new String(DataUtilities.getInputStream(file).readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void changesWaitForFlush() throws IOException {
+      var cleanups =
+          new Cleanups(withProperty("saveSettingsDelay", 60000), withSavePreferencesToFile());
+      try (cleanups) {
+        Preferences.setString("xyz", "abc");
+        assertThat(read(userFile), not(containsString("\nxyz=abc\n")));
+
+        Preferences.flushPendingChanges();
+        assertThat(read(userFile), containsString("\nxyz=abc\n"));
+      }
+    }
+
+    @Test
+    public void changesAreJournaledAndReplayed() throws IOException {
+      var cleanups =
+          new Cleanups(withProperty("saveSettingsDelay", 60000), withSavePreferencesToFile());
+      try (cleanups) {
+        Preferences.setString("xyz", "abc");
+        Preferences.setString("removeMe", "please");
+        // There is no file yet, so the first flush writes all of it
+        Preferences.flushPendingChanges();
+        assertFalse(journalFile.exists());
+
+        Preferences.setString("xyz", "def");
+        Preferences.removeProperty("removeMe", false);
+        Preferences.flushPendingChanges();
+        assertTrue(journalFile.exists());
+        assertThat(read(userFile), containsString("\nxyz=abc\n"));
+        assertThat(read(journalFile), containsString("xyz=def"));
+
+        Preferences.reset(USER_NAME); // reload from disk
+        assertEquals("def", Preferences.getString("xyz"));
+        assertFalse(Preferences.propertyExists("removeMe", false));
+      }
+    }
+
+    @Test
+    public void journalIsRemovedWhenFileIsWritten() {
+      var cleanups =
+          new Cleanups(withProperty("saveSettingsDelay", 60000), withSavePreferencesToFile());
+      try (cleanups) {
+        Preferences.setString("xyz", "abc");
+        Preferences.flushPendingChanges();
+        Preferences.setString("xyz", "def");
+        Preferences.flushPendingChanges();
+        assertTrue(journalFile.exists());
+
+        Preferences.reset("");
+        assertFalse(journalFile.exists());
+      }
+    }
+  }
+
+  @Nested
+  class TypedValues {
+    @Test
+    public void stringIsParsedAsEachType() {
+      Preferences.setString("xyz", "12");
+
+      assertEquals(12, Preferences.getInteger("xyz"));
+      assertEquals(12L, Preferences.getLong("xyz"));
+      assertEquals(12.0f, Preferences.getFloat("xyz"));
+      assertEquals(12.0, Preferences.getDouble("xyz"));
+      assertEquals("12", Preferences.getString("xyz"));
+      assertFalse(Preferences.getBoolean("xyz"));
+    }
+
+    @Test
+    public void typedValueKeepsItsString() {
+      Preferences.setFloat("xyz", 1.5f);
+
+      assertEquals("1.5", Preferences.getString("xyz"));
+      assertEquals(1.5, Preferences.getDouble("xyz"));
+    }
+
+    @Test
+    public void newValueReplacesParsedValue() {
+      Preferences.setInteger("xyz", 3);
+      assertEquals(3, Preferences.getInteger("xyz"));
+
+      Preferences.setString("xyz", "4");
+      assertEquals(4, Preferences.getInteger("xyz"));
+      assertEquals(4L, Preferences.getLong("xyz"));
+    }
+  }
 }
@@ -0,0 +1,223 @@
+package net.sourceforge.kolmafia.session;
+
+import static internal.helpers.Player.withClan;
+import static internal.helpers.Player.withHttpClientBuilder;
+import static internal.helpers.Player.withProperty;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import internal.helpers.Cleanups;
+import internal.network.FakeHttpClient;
+import internal.network.FakeHttpClientBuilder;
+import internal.network.RequestBodyReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.persistence.AscensionSnapshot;
+import net.sourceforge.kolmafia.persistence.ProfileSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class ClanManagerTest {
+  private static final File CLAN_FOLDER = new File(KoLConstants.ROOT_LOCATION, "clan/1234");
+  private static final long HOUR = 3600000L;
+
+  @AfterEach
+  public void deleteSnapshots() throws IOException {
+    if (!CLAN_FOLDER.exists()) {
+      return;
+    }
+
+    try (Stream<Path> paths = Files.walk(CLAN_FOLDER.getParentFile().toPath())) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  private static File thisWeek(final String type, final String filename) {
+    String week = KoLConstants.WEEKLY_FORMAT.format(new Date());
+    return new File(CLAN_FOLDER, week + "/" + type + filename);
+  }
+
+  private static File earlierWeek(final String week, final String type, final String filename) {
+    return new File(CLAN_FOLDER, week + "/" + type + filename);
+  }
+
+  private static File writeFile(final File file, final String text, final long modified)
+      throws IOException {
+    file.getParentFile().mkdirs();
+    Files.writeString(file.toPath(), text);
+    file.setLastModified(modified);
+    return file;
+  }
+
+  private static File[] snapshotFolders() {
+    File[] folders = CLAN_FOLDER.listFiles(File::isDirectory);
+    return folders == null ? new File[0] : folders;
+  }
+
+  @Nested
+  class CachedFiles {
+    private static final String FILENAME = "alice_(#101).htm";
+
+    @Test
+    public void usesRecentCopyFromThisWeek() throws IOException {
+      try (var cleanups = withClan(1234, "Test Clan")) {
+        long now = System.currentTimeMillis();
+        File file = writeFile(thisWeek("profiles/", FILENAME), "recent", now - HOUR);
+
+        File found =
+            ClanManager.findCachedFile(snapshotFolders(), "profiles/", FILENAME, now - 24 * HOUR);
+
+        assertThat(found, equalTo(file));
+      }
+    }
+
+    @Test
+    public void ignoresStaleCopyFromThisWeek() throws IOException {
+      try (var cleanups = withClan(1234, "Test Clan")) {
+        long now = System.currentTimeMillis();
+        writeFile(thisWeek("profiles/", FILENAME), "stale", now - 25 * HOUR);
+
+        File found =
+            ClanManager.findCachedFile(snapshotFolders(), "profiles/", FILENAME, now - 24 * HOUR);
+
+        assertThat(found, nullValue());
+      }
+    }
+
+    @Test
+    public void carriesOverNewestRecentCopyFromEarlierWeek() throws IOException {
+      try (var cleanups = withClan(1234, "Test Clan")) {
+        long now = System.currentTimeMillis();
+        long newer = (now - 2 * HOUR) / 1000 * 1000;
+        writeFile(earlierWeek("200001_w1", "ascensions/", FILENAME), "older", now - 3 * HOUR);
+        writeFile(earlierWeek("200001_w2", "ascensions/", FILENAME), "newer", newer);
+
+        File found =
+            ClanManager.findCachedFile(
+                snapshotFolders(), "ascensions/", FILENAME, now - 24 * HOUR);
+
+        File expected = thisWeek("ascensions/", FILENAME);
+        assertThat(found, equalTo(expected));
+        assertThat(Files.readString(expected.toPath()), equalTo("newer"));
+        // The copy keeps the date of the page it was copied from
+        assertThat(expected.lastModified(), equalTo(newer));
+      }
+    }
+
+    @Test
+    public void doesNotCarryOverStaleCopyFromEarlierWeek() throws IOException {
+      try (var cleanups = withClan(1234, "Test Clan")) {
+        long now = System.currentTimeMillis();
+        writeFile(earlierWeek("200001_w1", "profiles/", FILENAME), "stale", now - 48 * HOUR);
+
+        File found =
+            ClanManager.findCachedFile(snapshotFolders(), "profiles/", FILENAME, now - 24 * HOUR);
+
+        assertThat(found, nullValue());
+        assertThat(thisWeek("profiles/", FILENAME).exists(), is(false));
+      }
+    }
+  }
+
+  // Answers each request with a page naming what was asked for, whichever worker sends it
+  private static class MemberPageClient extends FakeHttpClient {
+    private static final Pattern WHO_PATTERN = Pattern.compile("who=(\\d+)");
+
+    @Override
+    public synchronized <T> HttpResponse<T> send(
+        HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+        throws IOException, InterruptedException {
+      String body = new RequestBodyReader().bodyAsString(request);
+      Matcher matcher = WHO_PATTERN.matcher(body != null ? body : request.uri().toString());
+      String who = matcher.find() ? matcher.group(1) : "";
+
+      this.addResponse(200, request.uri().getPath().substring(1) + " for #" + who);
+      return super.send(request, responseBodyHandler);
+    }
+  }
+
+  @Nested
+  class MemberData {
+    private static final String[] NAMES = {"Alice", "Bob", "Carol", "Dave", "Erin"};
+
+    private Cleanups withMembers() {
+      var cleanups = withClan(1234, "Test Clan");
+      for (int i = 0; i < NAMES.length; ++i) {
+        ContactManager.registerPlayerId(NAMES[i], String.valueOf(101 + i));
+        ClanManager.registerMember(NAMES[i], "1", "Member");
+      }
+      return cleanups;
+    }
+
+    @Test
+    public void workersRetrieveEveryMember() {
+      var builder = new FakeHttpClientBuilder();
+      builder.client = new MemberPageClient();
+
+      var cleanups =
+          new Cleanups(
+              withMembers(),
+              withHttpClientBuilder(builder),
+              withProperty("clanSnapshotThreads", 3),
+              withProperty("clanSnapshotMaxAge", 24));
+
+      try (cleanups) {
+        assertThat(ClanManager.retrieveMemberData(true, true), is(true));
+
+        for (int i = 0; i < NAMES.length; ++i) {
+          String name = NAMES[i].toLowerCase();
+          String id = String.valueOf(101 + i);
+          assertThat(
+              ProfileSnapshot.getProfileMap().get(name), equalTo("showplayer.php for #" + id));
+          assertThat(
+              AscensionSnapshot.getAscensionMap().get(name),
+              equalTo("ascensionhistory.php for #" + id));
+          assertThat(thisWeek("profiles/", ClanManager.getFileName(name)).exists(), is(true));
+        }
+
+        assertThat(builder.client.getRequests(), hasSize(2 * NAMES.length));
+      }
+    }
+
+    @Test
+    public void recentCachedPagesAreNotRetrievedAgain() throws IOException {
+      var builder = new FakeHttpClientBuilder();
+      builder.client = new MemberPageClient();
+
+      var cleanups =
+          new Cleanups(
+              withMembers(),
+              withHttpClientBuilder(builder),
+              withProperty("clanSnapshotThreads", 2),
+              withProperty("clanSnapshotMaxAge", 24));
+
+      try (cleanups) {
+        long now = System.currentTimeMillis();
+        String filename = ClanManager.getFileName("alice");
+        writeFile(earlierWeek("200001_w1", "profiles/", filename), "cached", now - HOUR);
+
+        assertThat(ClanManager.retrieveMemberData(true, false), is(true));
+
+        assertThat(
+            ProfileSnapshot.getProfileMap().get("alice"),
+            equalTo("cached" + KoLConstants.LINE_BREAK));
+        assertThat(ProfileSnapshot.getProfileMap().get("bob"), equalTo("showplayer.php for #102"));
+        assertThat(builder.client.getRequests(), hasSize(NAMES.length - 1));
+      }
+    }
+  }
+}
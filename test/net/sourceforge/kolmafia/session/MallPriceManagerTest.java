@@ -1,27 +1,46 @@
 package net.sourceforge.kolmafia.session;
 
 import static internal.helpers.Networking.html;
+import static internal.helpers.Player.withHttpClientBuilder;
+import static internal.helpers.Player.withProperty;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mockStatic;
 
 import internal.helpers.Cleanups;
+import internal.network.FakeHttpClient;
+import internal.network.FakeHttpClientBuilder;
+import internal.network.RequestBodyReader;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import net.sourceforge.kolmafia.AdventureResult;
 import net.sourceforge.kolmafia.KoLCharacter;
 import net.sourceforge.kolmafia.objectpool.ItemPool;
 import net.sourceforge.kolmafia.persistence.CoinmastersDatabase;
 import net.sourceforge.kolmafia.persistence.MallPriceDatabase;
+import net.sourceforge.kolmafia.persistence.MallSearchDatabase;
 import net.sourceforge.kolmafia.persistence.NPCStoreDatabase;
+import net.sourceforge.kolmafia.preferences.Preferences;
 import net.sourceforge.kolmafia.request.CharPaneRequest;
 import net.sourceforge.kolmafia.request.GenericRequest;
 import net.sourceforge.kolmafia.request.MallPurchaseRequest;
@@ -138,6 +157,62 @@ public class MallPriceManagerTest {
     return new Cleanups(mocked::close);
   }
 
+  // Searches for many items are made by workers on other threads, which a static mock of
+  // MallPriceManager does not reach. Instead, this fake mall answers searches from any thread:
+  // Hell ramen is found, and nothing else is.
+
+  private static class FakeMallClient extends FakeHttpClient {
+    private static final Pattern SEARCH_PATTERN = Pattern.compile("pudnuggler=([^&]*)");
+    private static final String NO_RESULTS = "<html><body>Search Results:</body></html>";
+
+    private final String hellRamen = html("request/test_mall_search_hell_ramen.html");
+    private final List<String> searches = Collections.synchronizedList(new ArrayList<>());
+
+    public List<String> getSearches() {
+      return this.searches;
+    }
+
+    protected void awaitResults() throws InterruptedException {}
+
+    @Override
+    public <T> HttpResponse<T> send(
+        HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+        throws IOException, InterruptedException {
+      String body = new RequestBodyReader().bodyAsString(request);
+      Matcher matcher = SEARCH_PATTERN.matcher(body != null ? body : request.uri().toString());
+      String search =
+          matcher.find() ? URLDecoder.decode(matcher.group(1), StandardCharsets.UTF_8) : "";
+
+      if (request.uri().getPath().equals("/mall.php")) {
+        this.searches.add(search);
+        this.awaitResults();
+      }
+
+      synchronized (this) {
+        this.addResponse(200, search.contains("Hell ramen") ? this.hellRamen : NO_RESULTS);
+        return super.send(request, responseBodyHandler);
+      }
+    }
+  }
+
+  // Holds the first search open until told to answer it
+  private static class BlockingMallClient extends FakeMallClient {
+    private final CountDownLatch searching = new CountDownLatch(1);
+    private final CountDownLatch answer = new CountDownLatch(1);
+
+    @Override
+    protected void awaitResults() throws InterruptedException {
+      this.searching.countDown();
+      this.answer.await();
+    }
+  }
+
+  private static Cleanups withFakeMall(final FakeMallClient client) {
+    var builder = new FakeHttpClientBuilder();
+    builder.client = client;
+    return withHttpClientBuilder(builder);
+  }
+
   @BeforeAll
   public static void beforeAll() {
     // Simulate logging out and back in again.
@@ -550,6 +625,78 @@ public class MallPriceManagerTest {
     }
   }
 
+  @Test
+  public void canUseMallSearchSavedByEarlierSession() {
+    try (var cleanups = mockClock()) {
+      long timestamp = 1_000_000;
+      Mockito.when(clock.millis()).thenReturn(timestamp);
+
+      // This is not available from an NPC store
+      int itemId = ItemPool.REAGENT;
+      AdventureResult item = ItemPool.get(itemId, 1);
+
+      List<PurchaseRequest> results = new ArrayList<>();
+      results.add(makeMallItem(itemId, 1, 300));
+      results.add(makeMallItem(itemId, 1, 350));
+      results.add(makeMallItem(itemId, 1, 375));
+      results.add(makeMallItem(itemId, 1, 400));
+      results.add(makeMallItem(itemId, 10, 500));
+
+      // Save the search as an earlier session would have
+      MallSearchDatabase.recordSearch(itemId, results, true);
+
+      // This session has not searched for it
+      assertNull(MallPriceManager.getSavedSearch(itemId, 0));
+
+      // Verify that the saved search supplies the price without searching again
+      assertEquals(500, MallPriceManager.getMallPrice(item));
+      assertEquals(2500 + 500 * 5, MallPriceManager.getMallPrice(item.getInstance(10)));
+      assertNull(MallPriceManager.getSavedSearch(itemId, 0));
+    }
+  }
+
+  @Test
+  public void canExpireMallSearchSavedByEarlierSession() {
+    try (var cleanups = mockClock()) {
+      long timestamp = 1_000_000;
+      Mockito.when(clock.millis()).thenReturn(timestamp);
+
+      int itemId = ItemPool.REAGENT;
+      List<PurchaseRequest> results = new ArrayList<>();
+      results.add(makeMallItem(itemId, 10, 500));
+      MallSearchDatabase.recordSearch(itemId, results, true);
+      assertNotNull(MallSearchDatabase.getSearch(itemId));
+
+      // Searches are not used once they are more than maxAge days old
+      Mockito.when(clock.millis()).thenReturn(timestamp + 60 * 1000);
+      assertNull(MallSearchDatabase.getSearch(itemId, 30 / 86400.0f));
+      assertNotNull(MallSearchDatabase.getSearch(itemId, 1.0f));
+
+      // Or once they expire
+      long ttl = Preferences.getInteger("mallSearchCacheTTL");
+      Mockito.when(clock.millis()).thenReturn(timestamp + (ttl + 1) * 1000);
+      assertNull(MallSearchDatabase.getSearch(itemId));
+    }
+  }
+
+  @Test
+  public void canForgetMallSearchSavedByEarlierSession() {
+    try (var cleanups = mockClock()) {
+      long timestamp = 1_000_000;
+      Mockito.when(clock.millis()).thenReturn(timestamp);
+
+      int itemId = ItemPool.REAGENT;
+      int shopId = 100;
+      List<PurchaseRequest> results = new ArrayList<>();
+      results.add(makeMallItem(itemId, 10, 500, 10, shopId));
+      MallSearchDatabase.recordSearch(itemId, results, true);
+
+      // Buying from a shop forgets searches which found it
+      MallPriceManager.flushCache(-1, shopId);
+      assertNull(MallSearchDatabase.getSearch(itemId));
+    }
+  }
+
   // *** Need tests for getMallPrice(AdventureResult item, float maxAge)
 
   @Test
@@ -574,6 +721,93 @@ public class MallPriceManagerTest {
     }
   }
 
+  @Test
+  public void canGetMallPricesForManyItemsAtOnce() {
+    var client = new FakeMallClient();
+    AdventureResult[] items = {
+      ItemPool.get(ItemPool.HELL_RAMEN),
+      ItemPool.get(ItemPool.REAGENT),
+      ItemPool.get(ItemPool.DRY_NOODLES),
+      ItemPool.get(ItemPool.MR_ACCESSORY),
+      ItemPool.get(ItemPool.HELL_RAMEN),
+      ItemPool.get(ItemPool.REAGENT),
+    };
+
+    var cleanups = new Cleanups(withFakeMall(client), withProperty("mallSearchThreads", 3));
+
+    try (cleanups) {
+      // Each item is searched for once, however often it is asked for
+      assertEquals(4, MallPriceManager.getMallPrices(items, 0.0f));
+      assertEquals(4, client.getSearches().size());
+      assertEquals(4, new HashSet<>(client.getSearches()).size());
+
+      // Each search priced its item, without searching again
+      assertTrue(MallPriceManager.getMallPrice(ItemPool.HELL_RAMEN) > 0);
+      assertEquals(-1, MallPriceManager.getMallPrice(ItemPool.REAGENT));
+      assertEquals(-1, MallPriceManager.getMallPrice(ItemPool.DRY_NOODLES));
+      assertEquals(-1, MallPriceManager.getMallPrice(ItemPool.MR_ACCESSORY));
+      assertEquals(4, client.getSearches().size());
+    }
+  }
+
+  @Test
+  public void concurrentSearchesForAnItemShareOneRequest() throws InterruptedException {
+    var client = new BlockingMallClient();
+    AdventureResult item = ItemPool.get(ItemPool.REAGENT);
+    List<List<PurchaseRequest>> found = Collections.synchronizedList(new ArrayList<>());
+
+    try (var cleanups = withFakeMall(client)) {
+      Thread first = new Thread(() -> found.add(MallPriceManager.searchMall(item)));
+      first.start();
+      assertTrue(client.searching.await(10, TimeUnit.SECONDS));
+
+      // Let the second search wait, whether for the first one's results or for its own
+      Thread second = new Thread(() -> found.add(MallPriceManager.searchMall(item)));
+      second.start();
+      long deadline = System.currentTimeMillis() + 10000;
+      while (second.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+
+      client.answer.countDown();
+      first.join();
+      second.join();
+
+      assertEquals(1, client.getSearches().size());
+      assertEquals(2, found.size());
+      assertSame(found.get(0), found.get(1));
+    }
+  }
+
+  @Test
+  public void searchesStartAnIntervalApart() throws InterruptedException {
+    List<Long> starts = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = new ArrayList<>();
+
+    for (int i = 0; i < 4; ++i) {
+      Thread thread =
+          new Thread(
+              () -> {
+                MallPriceManager.awaitSearchSlot();
+                starts.add(System.nanoTime() / 1_000_000);
+              });
+      threads.add(thread);
+      thread.start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // However many are waiting at once, each starts an interval after the one before, give or
+    // take the time it takes a thread to wake up
+    Collections.sort(starts);
+    for (int i = 1; i < starts.size(); ++i) {
+      long gap = starts.get(i) - starts.get(i - 1);
+      assertTrue(gap >= MallPriceManager.SEARCH_INTERVAL - 50, "gap of " + gap + "ms");
+    }
+  }
+
   @Test
   public void canGetMallPricesByCategory() {
     // Test with category = "unlockers" since that only has two pages of results
@@ -0,0 +1,150 @@
+package net.sourceforge.kolmafia.session;
+
+import static internal.helpers.Networking.html;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.session.ResultTokenizer.EffectToken;
+import net.sourceforge.kolmafia.session.ResultTokenizer.ItemToken;
+import net.sourceforge.kolmafia.session.ResultTokenizer.Tokens;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class ResultTokenizerTest {
+  private static List<String> tokenize(String text) {
+    return new ArrayList<>(ResultTokenizer.tokenize(text));
+  }
+
+  @Test
+  public void tagsEndLines() {
+    assertThat(
+        tokenize("<td>You acquire an item: <b>seal-clubbing club</b></td>"),
+        contains("", "You acquire an item: ", "seal-clubbing club"));
+  }
+
+  @Test
+  public void italicTagsAreKept() {
+    assertThat(
+        tokenize("<p>You gain 5 <i>Meat</i>.<br>Hooray"),
+        contains("", "You gain 5 <i>Meat</i>.", "Hooray"));
+  }
+
+  @Test
+  public void headSectionsAreDropped() {
+    assertThat(tokenize("a<head><script>x</script></head>b<br>c"), contains("a", "b", "c"));
+  }
+
+  @Test
+  public void unclosedTagIsText() {
+    assertThat(tokenize("1 < 2" + KoLConstants.LINE_BREAK + "3 > 2"), contains("1 < 2", "3 > 2"));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "",
+        "plain",
+        "<br>",
+        "<br><br>text<br><br>",
+        "<center><table><tr><td>You lose 3 hit points.</td></tr></table></center>",
+        "x<head>y\n</head>z",
+        "<a\nb>c</i>d<i>e",
+        "one\ntwo\r\nthree<b >four</b\n>",
+      })
+  public void matchesReplacingTagsAndSplitting(String text) {
+    String body = KoLConstants.HEAD_PATTERN.matcher(text).replaceAll("");
+    String plain =
+        KoLConstants.ANYTAG_BUT_ITALIC_PATTERN.matcher(body).replaceAll(KoLConstants.LINE_BREAK);
+    List<String> expected = Arrays.asList(plain.split(KoLConstants.LINE_BREAK));
+
+    assertThat(tokenize(text), equalTo(expected));
+  }
+
+  private static final String HAGNK_TABLE =
+      "<table class=\"item\" style=\"float: none\""
+          + " rel=\"id=617&s=137&q=0&d=1&g=0&t=1&n=1&m=1&u=u\"><tr><td><img src=\"rcandy.gif\""
+          + " alt=\"Angry Farmer candy\" title=\"Angry Farmer candy\" class=hand"
+          + " onClick='descitem(893169457)'></td><td valign=center class=effect>"
+          + "You acquire an item: <b>Angry Farmer candy</b> (stored in Hagnk's Ancestral"
+          + " Mini-Storage)</td></tr></table>";
+
+  @Test
+  public void itemTablesWithCommentsAreTakenOut() {
+    Tokens tokens = ResultTokenizer.scan("before" + HAGNK_TABLE + "after<br>next");
+
+    assertThat(tokens.items().size(), equalTo(1));
+    ItemToken item = tokens.items().get(0);
+    assertThat(item.itemName(), equalTo("Angry Farmer candy"));
+    assertThat(item.descId(), equalTo("893169457"));
+    assertThat(item.comment(), equalTo("stored in Hagnk's Ancestral Mini-Storage"));
+    assertThat(new ArrayList<>(tokens.lines()), contains("beforeafter", "next"));
+  }
+
+  @Test
+  public void effectTablesAreTokens() {
+    Tokens tokens =
+        ResultTokenizer.scan(
+            "<table><tr><td><img class=hand src=\"breath.gif\""
+                + " onClick='eff(\"7ecbd57bcb86d63be06bb6d4b8e7229f\");' width=30 height=30></td>"
+                + "<td valign=center class=effect>You acquire an effect: <b>Hot Breath</b><br>"
+                + "(duration: 5 Adventures)</td></tr></table>");
+
+    assertThat(tokens.effects().size(), equalTo(1));
+    EffectToken effect = tokens.effects().get(0);
+    assertThat(effect.descId(), equalTo("7ecbd57bcb86d63be06bb6d4b8e7229f"));
+    assertThat(effect.acquisition(), equalTo("You acquire an effect: "));
+    assertThat(effect.effectName(), equalTo("Hot Breath"));
+    assertThat(effect.duration(), equalTo("5"));
+    assertThat(tokens.lines(), hasItem("You acquire an effect: "));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "request/test_adventure_billiards_room_thats_your_cue.html",
+        "request/test_adventure_hallowiener_defiled_nook.html",
+        "request/test_mall_buy_ronin_storage.html",
+        "request/test_accept_rufus_quest_items.html",
+      })
+  public void matchesFindingTablesAndSplitting(String path) {
+    String text = html(path);
+
+    // Items are found in the page, effects and lines in what is left once commented items are out
+    List<ItemToken> items = new ArrayList<>();
+    StringBuilder buffer = new StringBuilder();
+    Matcher itemMatcher = ResultProcessor.ITEM_TABLE_PATTERN.matcher(text);
+    while (itemMatcher.find()) {
+      ItemToken item = ResultTokenizer.itemToken(itemMatcher);
+      items.add(item);
+      if (item.comment() != null) {
+        itemMatcher.appendReplacement(buffer, "");
+      }
+    }
+    itemMatcher.appendTail(buffer);
+    String rest = buffer.toString();
+
+    List<EffectToken> effects = new ArrayList<>();
+    Matcher effectMatcher = ResultProcessor.EFFECT_TABLE_PATTERN.matcher(rest);
+    while (effectMatcher.find()) {
+      effects.add(
+          new EffectToken(
+              effectMatcher.group(1),
+              effectMatcher.group(2),
+              effectMatcher.group(3),
+              effectMatcher.group(4)));
+    }
+
+    Tokens tokens = ResultTokenizer.scan(text);
+    assertThat(tokens.items(), equalTo(items));
+    assertThat(tokens.effects(), equalTo(effects));
+    assertThat(new ArrayList<>(tokens.lines()), equalTo(tokenize(rest)));
+  }
+}
@@ -0,0 +1,110 @@
+package net.sourceforge.kolmafia.textui;
+
+import static internal.helpers.Player.withProperty;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import internal.helpers.Cleanups;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import net.sourceforge.kolmafia.KoLConstants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+public class DataFileCacheTest {
+  private static final String[] FILES = {"cache_a.txt", "cache_b.txt", "cache_large.txt"};
+
+  @BeforeEach
+  public void beforeEach() {
+    KoLConstants.DATA_LOCATION.mkdirs();
+    DataFileCache.clearCache();
+  }
+
+  @AfterEach
+  public void afterEach() {
+    DataFileCache.clearCache();
+    for (String filename : FILES) {
+      new File(KoLConstants.DATA_LOCATION, filename).delete();
+    }
+  }
+
+  private static byte[] bytes(final String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void rereadsUnchangedFileFromCache() {
+    DataFileCache.printBytes("cache_a.txt", bytes("one\ttwo\n"));
+    long hits = DataFileCache.getHits();
+
+    assertThat(DataFileCache.getBytes("cache_a.txt"), equalTo(bytes("one\ttwo\n")));
+    assertThat(DataFileCache.getHits(), equalTo(hits + 1));
+  }
+
+  @Test
+  public void rereadsChangedFile() throws IOException {
+    DataFileCache.printBytes("cache_a.txt", bytes("old\n"));
+
+    File file = new File(KoLConstants.DATA_LOCATION, "cache_a.txt");
+    long modified = file.lastModified();
+    Files.write(file.toPath(), bytes("new\n"));
+    file.setLastModified(modified - 10000);
+
+    assertThat(DataFileCache.getBytes("cache_a.txt"), equalTo(bytes("new\n")));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedOverBudget() {
+    var cleanups = new Cleanups(withProperty("dataFileCacheSize", 16));
+
+    try (cleanups) {
+      long evictions = DataFileCache.getEvictions();
+
+      DataFileCache.printBytes("cache_a.txt", bytes("0123456789"));
+      DataFileCache.printBytes("cache_b.txt", bytes("abcdefghij"));
+
+      assertThat(DataFileCache.getEvictions(), equalTo(evictions + 1));
+      assertThat(DataFileCache.getCachedBytes(), equalTo(10L));
+
+      // The evicted file is read again from disk
+      long misses = DataFileCache.getMisses();
+      assertThat(DataFileCache.getBytes("cache_a.txt"), equalTo(bytes("0123456789")));
+      assertThat(DataFileCache.getMisses(), equalTo(misses + 1));
+    }
+  }
+
+  @Test
+  @DisabledOnOs(OS.WINDOWS)
+  public void readsLargeFileWithoutCopyingToHeap() throws IOException {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 100000; ++i) {
+      lines.add(i + "\tsome value for line " + i);
+    }
+    File file = new File(KoLConstants.DATA_LOCATION, "cache_large.txt");
+    Files.write(file.toPath(), lines);
+
+    List<String> read = new ArrayList<>();
+    try (BufferedReader reader = DataFileCache.getReader("cache_large.txt")) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        read.add(line);
+      }
+    }
+
+    assertThat(read, equalTo(lines));
+    assertThat(DataFileCache.getCachedBytes(), equalTo(0L));
+
+    // A second read uses the same mapping
+    long hits = DataFileCache.getHits();
+    assertThat((long) DataFileCache.getBytes("cache_large.txt").length, equalTo(file.length()));
+    assertThat(DataFileCache.getHits(), equalTo(hits + 1));
+  }
+}
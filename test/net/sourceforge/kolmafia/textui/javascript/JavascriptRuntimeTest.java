@@ -0,0 +1,67 @@
+package net.sourceforge.kolmafia.textui.javascript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.KoLmafia;
+import net.sourceforge.kolmafia.textui.parsetree.Value;
+import org.junit.jupiter.api.Test;
+
+public class JavascriptRuntimeTest {
+  private static String run(String script) {
+    Value ret = new JavascriptRuntime(script).execute(null, null, true);
+    return ret == null ? null : ret.toString();
+  }
+
+  @Test
+  void globalsDoNotLeakBetweenRuntimes() {
+    assertEquals("1", run("var leaked = 1; leaked"));
+    assertEquals("undefined", run("typeof leaked"));
+  }
+
+  @Test
+  void runtimeLibraryIsSharedBetweenRuntimes() {
+    run("Class.get(1)");
+    assertEquals("Seal Clubber", run("Class.get(1)"));
+    assertEquals("true", run("Class.get(1) === Class.get(\"Seal Clubber\")"));
+  }
+
+  @Test
+  void runtimeLibraryCannotBeModified() {
+    run("require(\"kolmafia\").leaked = 1");
+    KoLmafia.forceContinue();
+    assertEquals("undefined", run("typeof require(\"kolmafia\").leaked"));
+  }
+
+  @Test
+  void builtInPrototypesCanBeExtendedForOneRun() {
+    assertEquals("42", run("Array.prototype.answer = function () { return 42; }; [].answer()"));
+    assertEquals("undefined", run("typeof [].answer"));
+  }
+
+  @Test
+  void enumeratedValuesAreTheSameInEveryRun() {
+    assertEquals("true", run("Item.none === Item.get(\"none\")"));
+    assertEquals("true", run("Item.none === Item.get(\"none\")"));
+  }
+
+  @Test
+  void editedModulesAreReloaded() throws IOException {
+    File module = new File(KoLConstants.SCRIPT_LOCATION, "test_edited_module.js");
+    try {
+      Files.writeString(module.toPath(), "module.exports.answer = 1;");
+      assertEquals("1", run("require(\"test_edited_module\").answer"));
+
+      // Run again at once, as someone might after fixing a module
+      long modified = module.lastModified();
+      Files.writeString(module.toPath(), "module.exports.answer = 2;");
+      module.setLastModified(modified + 2000);
+      assertEquals("2", run("require(\"test_edited_module\").answer"));
+    } finally {
+      module.delete();
+    }
+  }
+}
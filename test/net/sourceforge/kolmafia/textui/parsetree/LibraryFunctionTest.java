@@ -0,0 +1,56 @@
+package net.sourceforge.kolmafia.textui.parsetree;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+
+import net.sourceforge.kolmafia.KoLCharacter;
+import net.sourceforge.kolmafia.preferences.Preferences;
+import net.sourceforge.kolmafia.textui.command.AbstractCommandTestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class LibraryFunctionTest extends AbstractCommandTestBase {
+  @BeforeEach
+  public void initEach() {
+    KoLCharacter.reset("LibraryFunctionTest");
+    Preferences.reset("LibraryFunctionTest");
+  }
+
+  public LibraryFunctionTest() {
+    this.command = "ash";
+  }
+
+  @ParameterizedTest
+  @CsvSource(
+      delimiter = '|',
+      value = {
+        "my_meat() | 0",
+        "to_upper_case(\"abc\") | ABC",
+        "substring(\"abcdef\", 1) | bcdef",
+        "substring(\"abcdef\", 1, 3) | bc",
+        "replace_string(\"abcabc\", \"b\", \"x\") | axcaxc",
+        "max(3) | 3",
+        "max(3, 7, 5) | 7",
+        "min(3.5, 1.5, 2.5) | 1.5",
+      })
+  public void callsEachArity(String call, String expected) {
+    String output = execute(call);
+
+    assertContinueState();
+    assertThat(output, containsString("Returned: " + expected));
+  }
+
+  @ParameterizedTest
+  @CsvSource(
+      delimiter = '|',
+      value = {
+        "substring(\"abc\", 5) | Begin index 5 out of bounds",
+        "substring(\"abc\", 2, 1) | Begin index 2 greater than end index 1",
+      })
+  public void passesOnScriptExceptions(String call, String message) {
+    String output = execute(call);
+
+    assertThat(output, containsString(message));
+  }
+}
@@ -2,6 +2,8 @@ package net.sourceforge.kolmafia.textui.parsetree;
 
 import static net.sourceforge.kolmafia.textui.ScriptData.invalid;
 import static net.sourceforge.kolmafia.textui.ScriptData.valid;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -11,8 +13,14 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Stream;
+import net.sourceforge.kolmafia.KoLCharacter;
+import net.sourceforge.kolmafia.preferences.Preferences;
 import net.sourceforge.kolmafia.textui.ParserTest;
 import net.sourceforge.kolmafia.textui.ScriptData;
+import net.sourceforge.kolmafia.textui.command.AbstractCommandTestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -143,4 +151,75 @@ public class UserDefinedFunctionTest {
   public void testScriptValidity(ScriptData script) {
     ParserTest.testScriptValidity(script);
   }
+
+  @Nested
+  class Execution extends AbstractCommandTestBase {
+    @BeforeEach
+    public void initEach() {
+      KoLCharacter.reset("UserDefinedFunctionTest");
+      Preferences.reset("UserDefinedFunctionTest");
+    }
+
+    public Execution() {
+      this.command = "ash";
+    }
+
+    @Test
+    public void recursiveCallsHaveTheirOwnLocals() {
+      String output =
+          execute(
+              "int fib(int n) { int a; int b; if (n < 2) return n; a = fib(n - 1); b = fib(n - 2); return a + b; } print(\"fib \" + fib(15));");
+
+      assertContinueState();
+      assertThat(output, containsString("fib 610"));
+    }
+
+    @Test
+    public void localsStartAfreshOnEachCall() {
+      String output =
+          execute("int count() { int c; c += 1; return c; } count(); print(\"count \" + count());");
+
+      assertContinueState();
+      assertThat(output, containsString("count 1"));
+    }
+
+    @Test
+    public void mainAliasCallsHaveTheirOwnLocals() {
+      String output =
+          execute("import <recursive_main.ash> print(\"levels \" + main@recursive_main(2));");
+
+      assertContinueState();
+      assertThat(output, containsString("levels <2><1><0>"));
+    }
+
+    @Test
+    public void loopVariablesAreLocals() {
+      String output =
+          execute(
+              "int sum(int[int] m, int depth) { int total; foreach k, v in m { total += v; if (depth > 0) total += sum(m, depth - 1); } return total; } print(\"sum \" + sum(int[int] {1: 1, 2: 2}, 2));");
+
+      assertContinueState();
+      assertThat(output, containsString("sum 21"));
+    }
+
+    @Test
+    public void nestedFunctionsSeeOuterLocals() {
+      String output =
+          execute(
+              "void outer(int x) { void inner() { print(\"x is \" + x); } inner(); } outer(5);");
+
+      assertContinueState();
+      assertThat(output, containsString("x is 5"));
+    }
+
+    @Test
+    public void staticLocalsPersistBetweenCalls() {
+      String output =
+          execute(
+              "int count() { static int c; c += 1; return c; } count(); print(\"count \" + count());");
+
+      assertContinueState();
+      assertThat(output, containsString("count 2"));
+    }
+  }
 }
@@ -0,0 +1,58 @@
+package net.sourceforge.kolmafia.utilities;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class EditListTest {
+  @Test
+  public void appliesEditsAtOriginalPositions() {
+    StringBuffer buffer = new StringBuffer("<b>one</b> and <b>two</b>");
+    EditList edits = new EditList();
+
+    // Recorded out of order, against the unchanged page
+    edits.replace(18, 21, "three");
+    edits.insert(0, "<p>");
+    edits.delete(10, 15);
+
+    edits.apply(buffer);
+    assertThat(buffer.toString(), equalTo("<p><b>one</b><b>three</b>"));
+    assertThat(edits.isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void insertsAtSamePositionInOrderBeforeReplacement() {
+    EditList edits = new EditList();
+    edits.replace(1, 2, "X");
+    edits.insert(1, "[");
+    edits.insert(1, "]");
+
+    assertThat(edits.apply("abc"), equalTo("a[]Xc"));
+  }
+
+  @Test
+  public void leavesTextWithoutEditsAlone() {
+    StringBuffer buffer = new StringBuffer("unchanged");
+    new EditList().apply(buffer);
+    assertThat(buffer.toString(), equalTo("unchanged"));
+  }
+
+  @Test
+  public void rejectsOverlappingReplacements() {
+    EditList edits = new EditList();
+    edits.replace(0, 3, "x");
+    edits.replace(2, 4, "y");
+
+    assertThrows(IllegalStateException.class, () -> edits.apply("abcdef"));
+  }
+
+  @Test
+  public void rejectsEditsPastTheEnd() {
+    EditList edits = new EditList();
+    edits.insert(10, "x");
+
+    assertThrows(IndexOutOfBoundsException.class, () -> edits.apply("abc"));
+  }
+}
@@ -0,0 +1,65 @@
+package net.sourceforge.kolmafia.utilities;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.List;
+import java.util.stream.Stream;
+import net.sourceforge.kolmafia.AdventureResult;
+import net.sourceforge.kolmafia.objectpool.ItemPool;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class SortedItemListTest {
+  private static final AdventureResult CLUB = ItemPool.get(ItemPool.SEAL_CLUB, 1);
+  private static final AdventureResult TOOTH = ItemPool.get(ItemPool.SEAL_TOOTH, 1);
+
+  public static Stream<List<AdventureResult>> lists() {
+    return Stream.of(new SortedItemList(), new SortedItemListModel());
+  }
+
+  private static int count(List<AdventureResult> list, AdventureResult item) {
+    return ((CountedItemList) list).getItemCount(item.getItemId());
+  }
+
+  @ParameterizedTest
+  @MethodSource("lists")
+  public void countsFollowAddingItems(List<AdventureResult> list) {
+    AdventureResult.addResultToList(list, CLUB.getInstance(2));
+    AdventureResult.addResultToList(list, TOOTH);
+    AdventureResult.addResultToList(list, CLUB.getInstance(3));
+
+    assertThat(count(list, CLUB), equalTo(5));
+    assertThat(count(list, TOOTH), equalTo(1));
+    assertThat(CLUB.getCount(list), equalTo(5));
+  }
+
+  @ParameterizedTest
+  @MethodSource("lists")
+  public void countsFollowRemovingItems(List<AdventureResult> list) {
+    AdventureResult.addResultToList(list, CLUB.getInstance(2));
+    AdventureResult.addResultToList(list, TOOTH);
+
+    AdventureResult.addResultToList(list, CLUB.getInstance(-2));
+    assertThat(count(list, CLUB), equalTo(0));
+
+    list.remove(TOOTH);
+    assertThat(count(list, TOOTH), equalTo(0));
+    assertThat(list.size(), equalTo(0));
+  }
+
+  @ParameterizedTest
+  @MethodSource("lists")
+  public void countsFollowBulkChanges(List<AdventureResult> list) {
+    list.addAll(List.of(CLUB.getInstance(4), TOOTH.getInstance(2)));
+    assertThat(count(list, CLUB), equalTo(4));
+    assertThat(count(list, TOOTH), equalTo(2));
+
+    list.removeIf(item -> item.getItemId() == ItemPool.SEAL_TOOTH);
+    assertThat(count(list, TOOTH), equalTo(0));
+    assertThat(count(list, CLUB), equalTo(4));
+
+    list.clear();
+    assertThat(count(list, CLUB), equalTo(0));
+  }
+}
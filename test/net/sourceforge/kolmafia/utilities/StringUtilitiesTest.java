@@ -761,4 +761,47 @@ class StringUtilitiesTest {
       assertFalse(StringUtilities.matchesFilter(str, filter));
     }
   }
+
+  @Nested
+  class GetMatchingNames {
+    private static final String[] NAMES = {
+      "chef-in-the-box", "hot wing", "hot wings", "really hot wing", "seal tooth", "wing nut",
+    };
+
+    @Test
+    public void exactNameMatchesOnlyItself() {
+      assertThat(StringUtilities.getMatchingNames(NAMES, "hot wing"), equalTo(List.of("hot wing")));
+    }
+
+    @Test
+    public void substringsOnWordBoundariesAreFoundFirst() {
+      assertThat(
+          StringUtilities.getMatchingNames(NAMES, "wing"),
+          equalTo(List.of("hot wing", "hot wings", "really hot wing", "wing nut")));
+      assertThat(
+          StringUtilities.getMatchingNames(NAMES, "hot w"),
+          equalTo(List.of("hot wing", "hot wings", "really hot wing")));
+    }
+
+    @Test
+    public void substringsWithinWordsAreFoundNext() {
+      assertThat(StringUtilities.getMatchingNames(NAMES, "ooth"), equalTo(List.of("seal tooth")));
+      assertThat(
+          StringUtilities.getMatchingNames(NAMES, "ot"),
+          equalTo(List.of("hot wing", "hot wings", "really hot wing", "seal tooth")));
+    }
+
+    @Test
+    public void fuzzyMatchesAreFoundLast() {
+      assertThat(
+          StringUtilities.getMatchingNames(NAMES, "in the box"),
+          equalTo(List.of("chef-in-the-box")));
+      assertThat(StringUtilities.getMatchingNames(NAMES, "s t"), equalTo(List.of("seal tooth")));
+    }
+
+    @Test
+    public void unmatchedSearchFindsNothing() {
+      assertThat(StringUtilities.getMatchingNames(NAMES, "xyzzy"), equalTo(List.of()));
+    }
+  }
 }
@@ -0,0 +1,135 @@
+package net.sourceforge.kolmafia.webui;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.io.File;
+import net.sourceforge.kolmafia.KoLConstants;
+import net.sourceforge.kolmafia.utilities.FileUtilities;
+import net.sourceforge.kolmafia.utilities.StringUtilities;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class RelayFileServerTest {
+  @BeforeAll
+  public static void beforeAll() {
+    FileUtilities.loadLibrary(
+        KoLConstants.RELAY_LOCATION, KoLConstants.RELAY_DIRECTORY, KoLConstants.BASICS_CSS);
+    FileUtilities.loadLibrary(
+        KoLConstants.RELAY_LOCATION, KoLConstants.RELAY_DIRECTORY, KoLConstants.BASICS_JS);
+    FileUtilities.loadLibrary(KoLConstants.IMAGE_LOCATION, "images/", "TrayIcon12.gif");
+  }
+
+  @Nested
+  class FindStaticFile {
+    @Test
+    public void findsRelayFiles() {
+      File file = RelayFileServer.findStaticFile("/" + KoLConstants.BASICS_CSS + "?123");
+      assertThat(file, equalTo(new File(KoLConstants.RELAY_LOCATION, KoLConstants.BASICS_CSS)));
+    }
+
+    @Test
+    public void findsCachedImages() {
+      File file = RelayFileServer.findStaticFile("/images/TrayIcon12.gif");
+      assertThat(file, notNullValue());
+      assertThat(file.getName(), equalTo("TrayIcon12.gif"));
+    }
+
+    @Test
+    public void leavesFilesNeedingPasswordHash() {
+      assertThat(RelayFileServer.findStaticFile("/" + KoLConstants.BASICS_JS), nullValue());
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+          "/main.php",
+          "/chat.html",
+          "/afterlife.ash",
+          "/images/nosuchimage.gif",
+          "/nosuchfile.css",
+          "/../basics.1.css",
+          "/basics.1.css?relay=true",
+          "/KoLmafia/basics.1.css",
+          "/favicon.ico",
+        })
+    public void leavesOtherRequests(String path) {
+      assertThat(RelayFileServer.findStaticFile(path), nullValue());
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+          "/main.php",
+          "/../basics.1.css",
+          "/basics.1.css?relay=true",
+          "/KoLmafia/basics.1.css",
+          "/favicon.ico",
+        })
+    public void leavesOtherPathsWithoutLooking(String path) {
+      assertThat(RelayFileServer.isStaticPath(path), equalTo(false));
+    }
+
+    @Test
+    public void looksForFilesWithStaticPaths() {
+      assertThat(RelayFileServer.isStaticPath("/nosuchfile.css"), equalTo(true));
+      assertThat(RelayFileServer.isStaticPath("/images/nosuchimage.gif?relay=true"), equalTo(true));
+    }
+  }
+
+  @Nested
+  class ResponseHead {
+    private final File file = new File(KoLConstants.RELAY_LOCATION, KoLConstants.BASICS_CSS);
+
+    @Test
+    public void describesFile() {
+      String head =
+          RelayFileServer.getResponseHead("/" + KoLConstants.BASICS_CSS, file, true, 123, true);
+
+      assertThat(head, startsWith("HTTP/1.1 200 OK\r\n"));
+      assertThat(head, containsString("Content-Type: text/css\r\n"));
+      assertThat(head, containsString("Content-Length: 123\r\n"));
+      assertThat(head, containsString("Expires: "));
+      assertThat(head, containsString("Connection: keep-alive\r\n"));
+      assertThat(head.endsWith("\r\n\r\n"), equalTo(true));
+    }
+
+    @Test
+    public void notModifiedHasNoContent() {
+      String head =
+          RelayFileServer.getResponseHead("/" + KoLConstants.BASICS_CSS, file, false, 0, false);
+
+      assertThat(head, startsWith("HTTP/1.1 304 Not Modified\r\n"));
+      assertThat(head, not(containsString("Content-Type")));
+      assertThat(head, containsString("Content-Length: 0\r\n"));
+      assertThat(head, containsString("Connection: close\r\n"));
+    }
+
+    @Test
+    public void imagesAllowAnyOrigin() {
+      File image = RelayFileServer.findStaticFile("/images/TrayIcon12.gif");
+      String head = RelayFileServer.getResponseHead("/images/TrayIcon12.gif", image, true, 1, true);
+
+      assertThat(head, containsString("Content-Type: image/gif\r\n"));
+      assertThat(head, containsString("Access-Control-Allow-Origin: *\r\n"));
+    }
+  }
+
+  @Test
+  public void modifiedSinceComparesSeconds() {
+    File file = new File(KoLConstants.RELAY_LOCATION, KoLConstants.BASICS_CSS);
+    String lastModified = StringUtilities.formatDate(file.lastModified());
+
+    assertThat(RelayFileServer.modifiedSince(lastModified, file), equalTo(false));
+    String earlier = StringUtilities.formatDate(file.lastModified() - 60000);
+    assertThat(RelayFileServer.modifiedSince(earlier, file), equalTo(true));
+  }
+}